@@ -0,0 +1,54 @@
+plugins {
+    id("java")
+    alias(libs.plugins.jmh)
+}
+
+repositories {
+    mavenCentral()
+}
+
+val jvmVersion = extra["jvmVersion"] as String
+
+dependencies {
+    jmh(project(":core"))
+    jmh(project(":client"))
+    jmh(project(":extensions"))
+    jmh(libs.gson)
+    jmh(libs.okhttp)
+}
+
+java {
+    sourceCompatibility = JavaVersion.toVersion(jvmVersion)
+    targetCompatibility = JavaVersion.toVersion(jvmVersion)
+}
+
+// The models used by the benchmarks are generated by the same code used by the experiments in
+// core, so that results can be compared with the ones obtained there
+sourceSets {
+    named("jmh") {
+        java {
+            srcDir(project(":core").file("src/experiments/java"))
+            include(
+                "io/lionweb/benchmarks/**",
+                "io/lionweb/experiments/SimpleLanguage.java",
+                "io/lionweb/experiments/TreeGenerator.java",
+            )
+        }
+    }
+}
+
+jmh {
+    jmhVersion.set("1.37")
+    benchmarkMode.set(listOf("thrpt"))
+    timeUnit.set("s")
+    fork.set(2)
+    warmupIterations.set(3)
+    iterations.set(5)
+    // Reports the allocation rate per operation together with the throughput
+    profilers.set(listOf("gc"))
+    resultFormat.set("JSON")
+    // Run a subset of the benchmarks with -Pjmh.includes=<regex>
+    project.findProperty("jmh.includes")?.let { includes.set(listOf(it as String)) }
+    // Run the benchmarks with more threads with -Pjmh.threads=<n>
+    project.findProperty("jmh.threads")?.let { threads.set((it as String).toInt()) }
+}
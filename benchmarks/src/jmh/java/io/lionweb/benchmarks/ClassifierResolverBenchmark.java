@@ -0,0 +1,42 @@
+package io.lionweb.benchmarks;
+
+import io.lionweb.experiments.SimpleLanguage;
+import io.lionweb.language.Concept;
+import io.lionweb.serialization.ClassifierResolver;
+import io.lionweb.serialization.data.MetaPointer;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Lookup of classifiers by MetaPointer, as performed for every node during deserialization. Both
+ * canonical MetaPointers, as produced by the deserializers, and non-canonical ones are considered.
+ * Each operation resolves all the concepts of the language.
+ */
+@State(Scope.Benchmark)
+public class ClassifierResolverBenchmark {
+
+  @Param({"true", "false"})
+  public boolean canonical;
+
+  private ClassifierResolver classifierResolver;
+  private MetaPointer[] metaPointers;
+
+  @Setup
+  public void setup() {
+    classifierResolver = new ClassifierResolver();
+    classifierResolver.registerLanguage(SimpleLanguage.language);
+    metaPointers = new MetaPointer[SimpleLanguage.subConcepts.size()];
+    for (int i = 0; i < metaPointers.length; i++) {
+      Concept concept = SimpleLanguage.subConcepts.get(i);
+      MetaPointer metaPointer = MetaPointer.from(concept);
+      metaPointers[i] = canonical ? metaPointer.intern() : metaPointer;
+    }
+  }
+
+  @Benchmark
+  public void resolveClassifier(Blackhole blackhole) {
+    for (MetaPointer metaPointer : metaPointers) {
+      blackhole.consume(classifierResolver.resolveClassifier(metaPointer));
+    }
+  }
+}
@@ -0,0 +1,153 @@
+package io.lionweb.benchmarks;
+
+import com.google.gson.Gson;
+import io.lionweb.experiments.SimpleLanguage;
+import io.lionweb.experiments.TreeGenerator;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.FlatBuffersSerialization;
+import io.lionweb.serialization.JsonSerialization;
+import io.lionweb.serialization.LowLevelJsonSerialization;
+import io.lionweb.serialization.ProtoBufSerialization;
+import io.lionweb.serialization.SerializationProvider;
+import io.lionweb.serialization.data.SerializedChunk;
+import io.lionweb.serialization.extensions.Compression;
+import io.lionweb.serialization.extensions.CompressionCodec;
+import io.lionweb.serialization.extensions.DictionaryDeflateCodec;
+import io.lionweb.serialization.extensions.GzipCodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.Collections;
+import java.util.zip.Deflater;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Serialization followed by compression, and decompression, for each supported format and codec.
+ * The size of the data before and after compression is printed during the setup, so that the
+ * compression ratio can be compared together with the throughput. Small trees show the benefit of
+ * the dictionary, which is trained on a different tree of the same language.
+ */
+@State(Scope.Benchmark)
+public class CompressionBenchmark {
+
+  public enum Codec {
+    NONE,
+    GZIP_FAST,
+    GZIP_DEFAULT,
+    GZIP_BEST,
+    DICTIONARY
+  }
+
+  @Param({"JSON", "PROTOBUF", "FLATBUFFERS"})
+  public SerializationBenchmark.Format format;
+
+  @Param({"NONE", "GZIP_FAST", "GZIP_DEFAULT", "GZIP_BEST", "DICTIONARY"})
+  public Codec codec;
+
+  @Param({"100", "10000"})
+  public int size;
+
+  private Node tree;
+  private JsonSerialization jsonSerialization;
+  private ProtoBufSerialization protoBufSerialization;
+  private FlatBuffersSerialization flatBuffersSerialization;
+  private CompressionCodec compressionCodec;
+  private byte[] compressed;
+
+  @Setup
+  public void setup() throws IOException {
+    tree = new TreeGenerator(1).generate(size, TreeGenerator.Shape.WIDE);
+
+    jsonSerialization = SerializationProvider.getStandardJsonSerialization();
+    jsonSerialization.registerLanguage(SimpleLanguage.language);
+    jsonSerialization.enableDynamicNodes();
+    protoBufSerialization = SerializationProvider.getStandardProtoBufSerialization();
+    protoBufSerialization.registerLanguage(SimpleLanguage.language);
+    protoBufSerialization.enableDynamicNodes();
+    flatBuffersSerialization = SerializationProvider.getStandardFlatBuffersSerialization();
+    flatBuffersSerialization.registerLanguage(SimpleLanguage.language);
+    flatBuffersSerialization.enableDynamicNodes();
+
+    switch (codec) {
+      case NONE:
+        compressionCodec = Compression.DISABLED;
+        break;
+      case GZIP_FAST:
+        compressionCodec = new GzipCodec(Deflater.BEST_SPEED);
+        break;
+      case GZIP_DEFAULT:
+        compressionCodec = new GzipCodec(Deflater.DEFAULT_COMPRESSION);
+        break;
+      case GZIP_BEST:
+        compressionCodec = new GzipCodec(Deflater.BEST_COMPRESSION);
+        break;
+      case DICTIONARY:
+        Node sample = new TreeGenerator(2).generate(1000, TreeGenerator.Shape.WIDE);
+        SerializedChunk sampleChunk =
+            jsonSerialization.serializeTreesToSerializationChunk(Collections.singletonList(sample));
+        compressionCodec =
+            DictionaryDeflateCodec.train(
+                Collections.singletonList(sampleChunk),
+                DictionaryDeflateCodec.MAX_DICTIONARY_SIZE);
+        break;
+    }
+
+    byte[] serialized = serialize();
+    compressed = compress(serialized);
+    System.out.printf(
+        "%n%s with %s: %d bytes, %d compressed (%.1f%%)%n",
+        format,
+        codec,
+        serialized.length,
+        compressed.length,
+        100.0 * compressed.length / serialized.length);
+  }
+
+  private byte[] serialize() {
+    switch (format) {
+      case JSON:
+        // The compact representation used by the bulk import
+        SerializedChunk chunk =
+            jsonSerialization.serializeTreesToSerializationChunk(Collections.singletonList(tree));
+        return new Gson()
+            .toJson(new LowLevelJsonSerialization().serializeToJsonElement(chunk))
+            .getBytes(StandardCharsets.UTF_8);
+      case PROTOBUF:
+        return protoBufSerialization.serializeTreesToByteArray(tree);
+      case FLATBUFFERS:
+        return flatBuffersSerialization.serializeTreesToByteArray(tree);
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  private byte[] compress(byte[] data) throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try (OutputStream outputStream = compressionCodec.compress(result)) {
+      outputStream.write(data);
+    }
+    return result.toByteArray();
+  }
+
+  @Benchmark
+  public byte[] serializeAndCompress() throws IOException {
+    return compress(serialize());
+  }
+
+  @Benchmark
+  public byte[] decompress() throws IOException {
+    ByteArrayOutputStream result = new ByteArrayOutputStream();
+    try (InputStream inputStream =
+        compressionCodec.decompress(new ByteArrayInputStream(compressed))) {
+      byte[] buffer = new byte[8192];
+      int read;
+      while ((read = inputStream.read(buffer)) != -1) {
+        result.write(buffer, 0, read);
+      }
+    }
+    return result.toByteArray();
+  }
+}
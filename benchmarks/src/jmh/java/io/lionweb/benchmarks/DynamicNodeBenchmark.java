@@ -0,0 +1,93 @@
+package io.lionweb.benchmarks;
+
+import io.lionweb.experiments.SimpleLanguage;
+import io.lionweb.language.Concept;
+import io.lionweb.language.Property;
+import io.lionweb.model.ClassifierInstanceUtils;
+import io.lionweb.model.Node;
+import io.lionweb.model.ReferenceValue;
+import io.lionweb.model.impl.CompactDynamicNode;
+import io.lionweb.model.impl.DynamicNode;
+import org.openjdk.jmh.annotations.*;
+import org.openjdk.jmh.infra.Blackhole;
+
+/**
+ * Access to the properties of dynamic nodes, and construction of trees of them, for each storage
+ * mode. The allocation reported by the gc profiler for buildTree approximates the heap used by each
+ * node.
+ */
+@State(Scope.Benchmark)
+@OperationsPerInvocation(DynamicNodeBenchmark.NODES)
+public class DynamicNodeBenchmark {
+  static final int NODES = 1_000;
+
+  public enum Storage {
+    HASH_MAPS,
+    SLOT_ARRAYS
+  }
+
+  @Param({"HASH_MAPS", "SLOT_ARRAYS"})
+  public Storage storage;
+
+  private final Node[] nodes = new Node[NODES];
+  private final Property[] properties = new Property[NODES];
+
+  @Setup
+  public void setup() {
+    for (int i = 0; i < NODES; i++) {
+      Concept concept = SimpleLanguage.subConcepts.get(i % SimpleLanguage.subConcepts.size());
+      Node node = newNode("node-" + i, concept);
+      Property property = concept.getPropertyByName("stringProp");
+      node.setPropertyValue(property, "value-" + i);
+      nodes[i] = node;
+      properties[i] = property;
+    }
+  }
+
+  private Node newNode(String id, Concept concept) {
+    return storage == Storage.SLOT_ARRAYS
+        ? new CompactDynamicNode(id, concept)
+        : new DynamicNode(id, concept);
+  }
+
+  @Benchmark
+  public void getPropertyValue(Blackhole blackhole) {
+    for (int i = 0; i < NODES; i++) {
+      blackhole.consume(nodes[i].getPropertyValue(properties[i]));
+    }
+  }
+
+  @Benchmark
+  public void getPropertyValueByName(Blackhole blackhole) {
+    for (int i = 0; i < NODES; i++) {
+      blackhole.consume(ClassifierInstanceUtils.getPropertyValueByName(nodes[i], "stringProp"));
+    }
+  }
+
+  @Benchmark
+  public void setPropertyValue() {
+    for (int i = 0; i < NODES; i++) {
+      nodes[i].setPropertyValue(properties[i], "value-" + i);
+    }
+  }
+
+  /** A wide tree, where most nodes have no children, and every node has a reference. */
+  @Benchmark
+  public Node[] buildTree() {
+    Node[] tree = new Node[NODES];
+    for (int i = 0; i < NODES; i++) {
+      Concept concept = SimpleLanguage.subConcepts.get(i % SimpleLanguage.subConcepts.size());
+      Node node = newNode("id-" + i, concept);
+      node.setPropertyValue(concept.getPropertyByName("stringProp"), "node-" + i);
+      node.setPropertyValue(concept.getPropertyByName("intProp"), "value");
+      if (i > 0) {
+        Node parent = tree[(i - 1) / 10];
+        parent.addChild(parent.getClassifier().getContainmentByName("myContainment"), node);
+        node.addReferenceValue(
+            concept.getReferenceByName("myReference"), new ReferenceValue(tree[i - 1], null));
+      }
+      tree[i] = node;
+    }
+    return tree;
+  }
+}
@@ -0,0 +1,119 @@
+package io.lionweb.benchmarks;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.ClassifierKey;
+import io.lionweb.client.api.ClassifierResult;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.client.inmemory.InMemoryServer;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Throughput of an InMemoryServer shared by concurrent clients. Each thread works on its own
+ * partition, alternately replacing half of its children, so that stores perform both additions and
+ * removals. The mixed group runs three readers for each writer on the same repository. The
+ * inspection asks for ten ids of each classifier, as a dashboard would. The number of threads of
+ * the single-operation benchmarks can be changed with -t.
+ */
+@State(Scope.Benchmark)
+public class InMemoryServerBenchmark {
+  private static final String REPOSITORY = "benchmark";
+  private static final MetaPointer CONCEPT = new MetaPointer("l1", "1.0", "c1");
+  private static final MetaPointer CONTAINMENT = new MetaPointer("l1", "1.0", "containmentA");
+
+  @Param({"10", "1000"})
+  public int size;
+
+  private InMemoryServer server;
+  private final AtomicInteger partitions = new AtomicInteger();
+
+  @Setup
+  public void setup() {
+    server = new InMemoryServer();
+    server.createRepository(
+        new RepositoryConfiguration(REPOSITORY, LionWebVersion.v2024_1, HistorySupport.DISABLED));
+  }
+
+  @State(Scope.Thread)
+  public static class Partition {
+    private List<String> ids;
+    private List<SerializedClassifierInstance> even;
+    private List<SerializedClassifierInstance> odd;
+    private boolean evenStored;
+
+    @Setup
+    public void setup(InMemoryServerBenchmark benchmark) {
+      String partitionID = "p" + benchmark.partitions.incrementAndGet();
+      ids = Collections.singletonList(partitionID);
+      even = partition(partitionID, benchmark.size, "even");
+      odd = partition(partitionID, benchmark.size, "odd");
+      benchmark.server.createPartitionFromChunk(REPOSITORY, even);
+      evenStored = true;
+    }
+
+    /** A partition whose first half of the children is shared by both variants. */
+    private static List<SerializedClassifierInstance> partition(
+        String partitionID, int size, String variant) {
+      SerializedClassifierInstance partition =
+          new SerializedClassifierInstance(partitionID, CONCEPT);
+      List<SerializedClassifierInstance> nodes = new ArrayList<>();
+      nodes.add(partition);
+      List<String> childrenIDs = new ArrayList<>();
+      for (int i = 0; i < size; i++) {
+        String childID = partitionID + "-" + (i < size / 2 ? "shared" : variant) + "-" + i;
+        SerializedClassifierInstance child = new SerializedClassifierInstance(childID, CONCEPT);
+        child.setParentNodeID(partitionID);
+        nodes.add(child);
+        childrenIDs.add(childID);
+      }
+      partition.addChildren(CONTAINMENT, childrenIDs);
+      return nodes;
+    }
+  }
+
+  private RepositoryVersionToken doStore(Partition partition) {
+    partition.evenStored = !partition.evenStored;
+    return server.store(REPOSITORY, partition.evenStored ? partition.even : partition.odd);
+  }
+
+  private List<SerializedClassifierInstance> doRetrieve(Partition partition) {
+    return server.retrieve(REPOSITORY, partition.ids, Integer.MAX_VALUE);
+  }
+
+  @Benchmark
+  public RepositoryVersionToken store(Partition partition) {
+    return doStore(partition);
+  }
+
+  @Benchmark
+  public List<SerializedClassifierInstance> retrieve(Partition partition) {
+    return doRetrieve(partition);
+  }
+
+  @Benchmark
+  public Map<ClassifierKey, ClassifierResult> nodesByClassifier(Partition partition) {
+    return server.nodesByClassifier(REPOSITORY, 10);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(1)
+  public RepositoryVersionToken mixedStore(Partition partition) {
+    return doStore(partition);
+  }
+
+  @Benchmark
+  @Group("mixed")
+  @GroupThreads(3)
+  public List<SerializedClassifierInstance> mixedRetrieve(Partition partition) {
+    return doRetrieve(partition);
+  }
+}
@@ -0,0 +1,95 @@
+package io.lionweb.benchmarks;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.client.inmemory.ChangeSummary;
+import io.lionweb.client.inmemory.InMemoryServer;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Storing a partition in an InMemoryServer, alternating two variants which share half of their
+ * nodes. In wide partitions all the nodes are children of the root, so the long children lists of
+ * the root are compared. Deep partitions are chains, whose variants differ in the lower half, so
+ * that each store removes a deep subtree and adds another one.
+ */
+@State(Scope.Benchmark)
+public class InMemoryServerStoreBenchmark {
+  private static final String REPOSITORY = "benchmark";
+  private static final String PARTITION = "p";
+  private static final MetaPointer CONCEPT = new MetaPointer("l1", "1.0", "c1");
+  private static final MetaPointer CONTAINMENT = new MetaPointer("l1", "1.0", "containmentA");
+
+  public enum Shape {
+    WIDE,
+    DEEP
+  }
+
+  @Param({"WIDE", "DEEP"})
+  public Shape shape;
+
+  @Param({"1000", "100000"})
+  public int size;
+
+  private InMemoryServer server;
+  private List<SerializedClassifierInstance> even;
+  private List<SerializedClassifierInstance> odd;
+  private boolean evenStored;
+
+  @Setup
+  public void setup() {
+    server = new InMemoryServer();
+    server.createRepository(
+        new RepositoryConfiguration(REPOSITORY, LionWebVersion.v2024_1, HistorySupport.DISABLED));
+    even = shape == Shape.WIDE ? wide("even") : deep("even");
+    odd = shape == Shape.WIDE ? wide("odd") : deep("odd");
+    server.createPartitionFromChunk(REPOSITORY, even);
+    evenStored = true;
+  }
+
+  private String childID(int i, String variant) {
+    return (i < size / 2 ? "shared" : variant) + "-" + i;
+  }
+
+  private List<SerializedClassifierInstance> wide(String variant) {
+    SerializedClassifierInstance partition = new SerializedClassifierInstance(PARTITION, CONCEPT);
+    List<SerializedClassifierInstance> nodes = new ArrayList<>();
+    nodes.add(partition);
+    List<String> childrenIDs = new ArrayList<>();
+    for (int i = 0; i < size; i++) {
+      SerializedClassifierInstance child =
+          new SerializedClassifierInstance(childID(i, variant), CONCEPT);
+      child.setParentNodeID(PARTITION);
+      nodes.add(child);
+      childrenIDs.add(child.getID());
+    }
+    partition.addChildren(CONTAINMENT, childrenIDs);
+    return nodes;
+  }
+
+  private List<SerializedClassifierInstance> deep(String variant) {
+    List<SerializedClassifierInstance> nodes = new ArrayList<>();
+    SerializedClassifierInstance parent = new SerializedClassifierInstance(PARTITION, CONCEPT);
+    nodes.add(parent);
+    for (int i = 0; i < size; i++) {
+      SerializedClassifierInstance child =
+          new SerializedClassifierInstance(childID(i, variant), CONCEPT);
+      child.setParentNodeID(parent.getID());
+      parent.addChildren(CONTAINMENT, Collections.singletonList(child.getID()));
+      nodes.add(child);
+      parent = child;
+    }
+    return nodes;
+  }
+
+  @Benchmark
+  public ChangeSummary store() {
+    evenStored = !evenStored;
+    return server.storeWithSummary(REPOSITORY, evenStored ? even : odd);
+  }
+}
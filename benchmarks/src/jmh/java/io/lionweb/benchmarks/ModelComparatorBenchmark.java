@@ -0,0 +1,43 @@
+package io.lionweb.benchmarks;
+
+import io.lionweb.experiments.SimpleLanguage;
+import io.lionweb.experiments.TreeGenerator;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.JsonSerialization;
+import io.lionweb.serialization.SerializationProvider;
+import io.lionweb.utils.ModelComparator;
+import org.openjdk.jmh.annotations.*;
+
+/** Comparison of a tree with an equivalent copy of it, obtained through serialization. */
+@State(Scope.Benchmark)
+public class ModelComparatorBenchmark {
+
+  @Param({"WIDE", "DEEP", "REFERENCE_HEAVY"})
+  public TreeGenerator.Shape shape;
+
+  @Param({"10000"})
+  public int size;
+
+  private Node tree;
+  private Node copy;
+
+  @Setup
+  public void setup() {
+    tree = new TreeGenerator(1).generate(size, shape);
+    JsonSerialization jsonSerialization = SerializationProvider.getStandardJsonSerialization();
+    jsonSerialization.registerLanguage(SimpleLanguage.language);
+    jsonSerialization.enableDynamicNodes();
+    copy =
+        jsonSerialization
+            .deserializeToNodes(jsonSerialization.serializeTreesToJsonString(tree))
+            .get(0);
+    if (!ModelComparator.areEquivalent(tree, copy)) {
+      throw new IllegalStateException("The copy should be equivalent to the original tree");
+    }
+  }
+
+  @Benchmark
+  public ModelComparator.ComparisonResult compare() {
+    return new ModelComparator().compare(tree, copy);
+  }
+}
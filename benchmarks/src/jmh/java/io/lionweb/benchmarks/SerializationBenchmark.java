@@ -0,0 +1,97 @@
+package io.lionweb.benchmarks;
+
+import io.lionweb.experiments.SimpleLanguage;
+import io.lionweb.experiments.TreeGenerator;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.FlatBuffersSerialization;
+import io.lionweb.serialization.JsonSerialization;
+import io.lionweb.serialization.ProtoBufSerialization;
+import io.lionweb.serialization.SerializationProvider;
+import java.io.IOException;
+import java.util.List;
+import org.openjdk.jmh.annotations.*;
+
+/**
+ * Serialization and deserialization of whole trees, for each supported format. Deserialization
+ * includes the instantiation of the nodes, which is common to all formats.
+ */
+@State(Scope.Benchmark)
+public class SerializationBenchmark {
+
+  public enum Format {
+    JSON,
+    PROTOBUF,
+    FLATBUFFERS
+  }
+
+  @Param({"JSON", "PROTOBUF", "FLATBUFFERS"})
+  public Format format;
+
+  @Param({"WIDE", "DEEP", "REFERENCE_HEAVY"})
+  public TreeGenerator.Shape shape;
+
+  @Param({"10000"})
+  public int size;
+
+  private Node tree;
+  private JsonSerialization jsonSerialization;
+  private ProtoBufSerialization protoBufSerialization;
+  private FlatBuffersSerialization flatBuffersSerialization;
+  private String serializedJson;
+  private byte[] serializedBytes;
+
+  @Setup
+  public void setup() {
+    tree = new TreeGenerator(1).generate(size, shape);
+
+    jsonSerialization = SerializationProvider.getStandardJsonSerialization();
+    jsonSerialization.registerLanguage(SimpleLanguage.language);
+    jsonSerialization.enableDynamicNodes();
+    protoBufSerialization = SerializationProvider.getStandardProtoBufSerialization();
+    protoBufSerialization.registerLanguage(SimpleLanguage.language);
+    protoBufSerialization.enableDynamicNodes();
+    flatBuffersSerialization = SerializationProvider.getStandardFlatBuffersSerialization();
+    flatBuffersSerialization.registerLanguage(SimpleLanguage.language);
+    flatBuffersSerialization.enableDynamicNodes();
+
+    switch (format) {
+      case JSON:
+        serializedJson = jsonSerialization.serializeTreesToJsonString(tree);
+        break;
+      case PROTOBUF:
+        serializedBytes = protoBufSerialization.serializeTreesToByteArray(tree);
+        break;
+      case FLATBUFFERS:
+        serializedBytes = flatBuffersSerialization.serializeTreesToByteArray(tree);
+        break;
+    }
+  }
+
+  @Benchmark
+  public Object serialize() {
+    switch (format) {
+      case JSON:
+        return jsonSerialization.serializeTreesToJsonString(tree);
+      case PROTOBUF:
+        return protoBufSerialization.serializeTreesToByteArray(tree);
+      case FLATBUFFERS:
+        return flatBuffersSerialization.serializeTreesToByteArray(tree);
+      default:
+        throw new IllegalStateException();
+    }
+  }
+
+  @Benchmark
+  public List<Node> deserialize() throws IOException {
+    switch (format) {
+      case JSON:
+        return jsonSerialization.deserializeToNodes(serializedJson);
+      case PROTOBUF:
+        return protoBufSerialization.deserializeToNodes(serializedBytes);
+      case FLATBUFFERS:
+        return flatBuffersSerialization.deserializeToNodes(serializedBytes);
+      default:
+        throw new IllegalStateException();
+    }
+  }
+}
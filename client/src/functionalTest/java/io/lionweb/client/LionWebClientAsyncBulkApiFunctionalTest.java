@@ -0,0 +1,120 @@
+package io.lionweb.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.languages.PropertiesLanguage;
+import io.lionweb.client.testing.AbstractClientFunctionalTest;
+import io.lionweb.model.ClassifierInstanceUtils;
+import io.lionweb.model.Node;
+import io.lionweb.model.impl.DynamicNode;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import io.lionweb.utils.CommonChecks;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import org.junit.jupiter.api.Test;
+import org.testcontainers.junit.jupiter.Testcontainers;
+
+@Testcontainers
+public class LionWebClientAsyncBulkApiFunctionalTest extends AbstractClientFunctionalTest {
+
+  public LionWebClientAsyncBulkApiFunctionalTest() {
+    super(LionWebVersion.v2023_1, false);
+  }
+
+  @Test
+  public void partitionsCRUD() {
+    LionWebClient syncClient =
+        new LionWebClient(LionWebVersion.v2023_1, "localhost", getServerPort(), "default");
+    syncClient.getJsonSerialization().registerLanguage(PropertiesLanguage.propertiesLanguage);
+    AsyncLionWebClient client = syncClient.async();
+
+    assertEquals(Collections.emptyList(), client.listPartitions().join());
+
+    DynamicNode f1 = new DynamicNode("f1", PropertiesLanguage.propertiesPartition);
+    DynamicNode f2 = new DynamicNode("f2", PropertiesLanguage.propertiesPartition);
+    client.createPartitions(f1, f2).join();
+    assertEquals(2, client.listPartitionsIDs().join().size());
+
+    client.deletePartitions(Collections.singletonList("f1")).join();
+    assertEquals(Collections.singletonList("f2"), client.listPartitionsIDs().join());
+  }
+
+  @Test
+  public void ids() {
+    AsyncLionWebClient client =
+        new LionWebClient(LionWebVersion.v2023_1, "localhost", getServerPort(), "default").async();
+
+    List<String> ids = client.ids(78).join();
+    assertEquals(78, ids.size());
+    assertTrue(ids.stream().allMatch(CommonChecks::isValidID));
+    assertEquals(Collections.emptyList(), client.ids(0).join());
+  }
+
+  @Test
+  public void concurrentStoreAndRetrieve() {
+    ExecutorService processingExecutor = Executors.newFixedThreadPool(2);
+    try {
+      LionWebClient syncClient =
+          new LionWebClient(
+              LionWebVersion.v2023_1,
+              "localhost",
+              getServerPort(),
+              null,
+              "AsyncTest",
+              "default",
+              60,
+              60,
+              processingExecutor);
+      syncClient.getJsonSerialization().registerLanguage(PropertiesLanguage.propertiesLanguage);
+      AsyncLionWebClient client = syncClient.async();
+
+      List<Node> partitions = new ArrayList<>();
+      for (int i = 0; i < 10; i++) {
+        partitions.add(new DynamicNode("p" + i, PropertiesLanguage.propertiesPartition));
+      }
+      client.createPartitions(partitions).join();
+
+      List<CompletableFuture<?>> stores = new ArrayList<>();
+      for (int i = 0; i < partitions.size(); i++) {
+        DynamicNode file = new DynamicNode("f" + i, PropertiesLanguage.propertiesFile);
+        ClassifierInstanceUtils.setPropertyValueByName(file, "path", "my-path-" + i + ".txt");
+        ClassifierInstanceUtils.addChild(partitions.get(i), "files", file);
+        stores.add(client.store(partitions.get(i)));
+      }
+      CompletableFuture.allOf(stores.toArray(new CompletableFuture[0])).join();
+
+      List<CompletableFuture<List<Node>>> retrieves = new ArrayList<>();
+      for (Node partition : partitions) {
+        retrieves.add(client.retrieve(Collections.singletonList(partition.getID())));
+      }
+      for (int i = 0; i < partitions.size(); i++) {
+        List<Node> retrieved = retrieves.get(i).join();
+        assertEquals(1, retrieved.size());
+        assertEquals(partitions.get(i), retrieved.get(0));
+      }
+
+      List<SerializedClassifierInstance> chunk =
+          client.retrieveAsChunk(Collections.singletonList("p0")).join();
+      assertEquals(2, chunk.size());
+    } finally {
+      processingExecutor.shutdown();
+    }
+  }
+
+  @Test
+  public void failuresCompleteTheFutureExceptionally() {
+    AsyncLionWebClient client =
+        new LionWebClient(LionWebVersion.v2023_1, "localhost", getServerPort(), "unexisting")
+            .async();
+
+    CompletionException e =
+        assertThrows(CompletionException.class, () -> client.listPartitions().join());
+    assertInstanceOf(RequestFailureException.class, e.getCause());
+  }
+}
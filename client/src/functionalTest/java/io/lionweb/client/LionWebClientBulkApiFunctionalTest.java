@@ -1,6 +1,7 @@
 package io.lionweb.client;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
 import io.lionweb.LionWebVersion;
@@ -11,12 +12,18 @@ import io.lionweb.client.testing.AbstractClientFunctionalTest;
 import io.lionweb.model.ClassifierInstanceUtils;
 import io.lionweb.model.Node;
 import io.lionweb.model.impl.DynamicNode;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
 import io.lionweb.utils.CommonChecks;
 import java.io.IOException;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import org.junit.jupiter.api.Test;
 import org.testcontainers.junit.jupiter.Testcontainers;
 
@@ -153,4 +160,89 @@ public class LionWebClientBulkApiFunctionalTest extends AbstractClientFunctional
     assertEquals(1, retrievedNodes1.size());
     assertEquals(p1, retrievedNodes1.get(0));
   }
+
+  @Test
+  public void batchedRetrieve() throws IOException {
+    LionWebClient client =
+        new LionWebClient(
+            LionWebVersion.v2023_1,
+            "localhost",
+            getServerPort(),
+            null,
+            "BatchedRetrieveTest",
+            "default",
+            60,
+            60,
+            ForkJoinPool.commonPool(),
+            new RetrieveBatching(3, 2));
+    client.getJsonSerialization().registerLanguage(PropertiesLanguage.propertiesLanguage);
+
+    DynamicNode p1 = new DynamicNode("p1", PropertiesLanguage.propertiesPartition);
+    client.createPartitions(Collections.singletonList(p1));
+    List<String> ids = new ArrayList<>();
+    for (int i = 0; i < 10; i++) {
+      DynamicNode file = new DynamicNode("f" + i, PropertiesLanguage.propertiesFile);
+      ClassifierInstanceUtils.setPropertyValueByName(file, "path", "my-path-" + i + ".txt");
+      ClassifierInstanceUtils.addChild(p1, "files", file);
+      ids.add(file.getID());
+    }
+    client.store(Collections.singletonList(p1));
+
+    // The ten files are retrieved through four requests, and are all roots
+    List<Node> files = client.retrieve(ids);
+    assertEquals(10, files.size());
+    assertEquals(
+        new HashSet<>(ids), files.stream().map(Node::getID).collect(Collectors.toSet()));
+
+    // The files are returned also as part of the partition, so only the partition is a root
+    List<String> allIds = new ArrayList<>(ids);
+    allIds.add(0, "p1");
+    List<Node> partitions = client.retrieve(allIds);
+    assertEquals(1, partitions.size());
+    assertEquals(p1, partitions.get(0));
+
+    // The partition is in the last batch, but the files received before are its children
+    Collections.reverse(allIds);
+    List<Node> reversed = client.retrieve(allIds);
+    assertEquals(1, reversed.size());
+    assertEquals(p1, reversed.get(0));
+    reversed.get(0).getChildren().forEach(file -> assertSame(reversed.get(0), file.getParent()));
+  }
+
+  @Test
+  public void streamingStoreAndRetrieveChunk() throws IOException {
+    LionWebClient client =
+        new LionWebClient(LionWebVersion.v2023_1, "localhost", getServerPort(), "default");
+    client.getJsonSerialization().registerLanguage(PropertiesLanguage.propertiesLanguage);
+
+    DynamicNode p1 = new DynamicNode("sp1", PropertiesLanguage.propertiesPartition);
+    client.createPartitions(Collections.singletonList(p1));
+    Set<String> expectedIds = new HashSet<>(Collections.singletonList("sp1"));
+    for (int i = 0; i < 100; i++) {
+      DynamicNode file = new DynamicNode("sf" + i, PropertiesLanguage.propertiesFile);
+      ClassifierInstanceUtils.setPropertyValueByName(file, "path", "my-path-" + i + ".txt");
+      ClassifierInstanceUtils.addChild(p1, "files", file);
+      expectedIds.add(file.getID());
+    }
+    List<SerializedClassifierInstance> nodes =
+        client
+            .getJsonSerialization()
+            .serializeTreeToSerializationChunk(p1)
+            .getClassifierInstances();
+    client.storeChunk(nodes.stream());
+
+    try (Stream<SerializedClassifierInstance> retrieved =
+        client.retrieveAsStreamChunk(Stream.of("sp1"), 10)) {
+      assertEquals(
+          expectedIds,
+          retrieved.map(SerializedClassifierInstance::getID).collect(Collectors.toSet()));
+    }
+    assertEquals(p1, client.retrieve("sp1"));
+
+    // The stream can be closed before being fully consumed
+    try (Stream<SerializedClassifierInstance> retrieved =
+        client.retrieveAsStreamChunk(Stream.of("sp1"), 10)) {
+      assertEquals("sp1", retrieved.findFirst().get().getID());
+    }
+  }
 }
@@ -0,0 +1,112 @@
+package io.lionweb.client;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.AsyncBulkAPIClient;
+import io.lionweb.client.api.AsyncChunkLevelBulkAPIClient;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.client.impl.ClientConfiguration;
+import io.lionweb.client.impl.ClientForAsyncBulkAPIs;
+import io.lionweb.client.impl.ClientForAsyncChunkLevelBulkAPIs;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Non-blocking view of a {@link LionWebClient}, sharing its configuration. It can be obtained
+ * through {@link LionWebClient#async()}.
+ */
+public class AsyncLionWebClient implements AsyncBulkAPIClient, AsyncChunkLevelBulkAPIClient {
+
+  private final ClientForAsyncBulkAPIs bulkAPIs;
+  private final ClientForAsyncChunkLevelBulkAPIs chunkLevelBulkAPIs;
+
+  public AsyncLionWebClient(@NotNull ClientConfiguration clientConfiguration) {
+    this.bulkAPIs = new ClientForAsyncBulkAPIs(clientConfiguration);
+    this.chunkLevelBulkAPIs = new ClientForAsyncChunkLevelBulkAPIs(clientConfiguration);
+  }
+
+  @NotNull
+  @Override
+  public LionWebVersion getLionWebVersion() {
+    return bulkAPIs.getLionWebVersion();
+  }
+
+  //
+  // Bulk APIs
+  //
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> createPartitions(List<Node> partitions) {
+    return bulkAPIs.createPartitions(partitions);
+  }
+
+  public @NotNull CompletableFuture<RepositoryVersionToken> createPartition(
+      @NotNull Node partition) {
+    return createPartitions(Collections.singletonList(partition));
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> deletePartitions(List<String> ids) {
+    return bulkAPIs.deletePartitions(ids);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<Node>> listPartitions() {
+    return bulkAPIs.listPartitions();
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<String>> listPartitionsIDs() {
+    return bulkAPIs.listPartitionsIDs();
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<String>> ids(int count) {
+    return bulkAPIs.ids(count);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> store(List<Node> nodes) {
+    return bulkAPIs.store(nodes);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<Node>> retrieve(List<String> nodeIds, int limit) {
+    return bulkAPIs.retrieve(nodeIds, limit);
+  }
+
+  //
+  // Bulk APIs - Chunk level
+  //
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> createPartitionsFromChunk(
+      @NotNull List<SerializedClassifierInstance> data) {
+    return chunkLevelBulkAPIs.createPartitionsFromChunk(data);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> storeChunk(
+      @NotNull List<SerializedClassifierInstance> nodes) {
+    return chunkLevelBulkAPIs.storeChunk(nodes);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<SerializedClassifierInstance>> retrieveAsChunk(
+      @NotNull List<String> nodeIds, int limit) {
+    return chunkLevelBulkAPIs.retrieveAsChunk(nodeIds, limit);
+  }
+}
@@ -1,11 +1,12 @@
 package io.lionweb.client;
 
 import java.io.IOException;
+import java.io.OutputStream;
+import java.util.zip.GZIPOutputStream;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
 import okio.Buffer;
 import okio.BufferedSink;
-import okio.GzipSink;
 import okio.Okio;
 
 public class CompressionSupport {
@@ -16,15 +17,33 @@ public class CompressionSupport {
 
   /** Converts a String to a compressed RequestBody using JSON MediaType. */
   public static RequestBody compress(String content) {
-    return compress(RequestBody.create(content, JSON));
+    return compress(content, GzipSettings.DEFAULT);
+  }
+
+  /** Converts a String to a compressed RequestBody using JSON MediaType. */
+  public static RequestBody compress(String content, GzipSettings settings) {
+    return compress(RequestBody.create(content, JSON), settings);
   }
 
   /** Compresses a given RequestBody using GZIP and ensures the content length is known. */
   public static RequestBody compress(RequestBody body) {
-    return forceContentLength(gzip(body));
+    return compress(body, GzipSettings.DEFAULT);
   }
 
-  private static RequestBody gzip(final RequestBody body) {
+  /**
+   * Compresses a given RequestBody using GZIP. Unless the settings specify streaming, the
+   * compressed body is written to memory, so that the content length is known.
+   */
+  public static RequestBody compress(RequestBody body, GzipSettings settings) {
+    RequestBody compressed = gzip(body, settings);
+    return settings.isStreaming() ? compressed : forceContentLength(compressed);
+  }
+
+  /**
+   * Compresses a given RequestBody using GZIP while it is written, independently of the streaming
+   * option of the settings. The content length is therefore unknown.
+   */
+  public static RequestBody gzip(final RequestBody body, final GzipSettings settings) {
     return new RequestBody() {
       @Override
       public MediaType contentType() {
@@ -37,16 +56,35 @@ public class CompressionSupport {
         return -1;
       }
 
+      @Override
+      public boolean isOneShot() {
+        return body.isOneShot();
+      }
+
       @Override
       public void writeTo(BufferedSink sink) throws IOException {
-        BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
+        BufferedSink gzipSink =
+            Okio.buffer(Okio.sink(gzipOutputStream(sink.outputStream(), settings)));
         body.writeTo(gzipSink);
         gzipSink.close();
       }
     };
   }
 
-  private static RequestBody forceContentLength(final RequestBody requestBody) {
+  /** Wraps the output stream, compressing with GZIP what is written to it. */
+  public static OutputStream gzipOutputStream(OutputStream outputStream, GzipSettings settings)
+      throws IOException {
+    return new GZIPOutputStream(outputStream, settings.getBufferSize()) {
+      {
+        def.setLevel(settings.getLevel());
+      }
+    };
+  }
+
+  /**
+   * Writes the body to memory, so that its content length is known and the request can be retried.
+   */
+  public static RequestBody forceContentLength(final RequestBody requestBody) {
     try {
       final Buffer buffer = new Buffer();
       requestBody.writeTo(buffer);
@@ -64,7 +102,9 @@ public class CompressionSupport {
 
         @Override
         public void writeTo(BufferedSink sink) throws IOException {
-          sink.write(buffer.snapshot());
+          // The buffer is not consumed, so that the request can be retried
+          buffer.copyTo(sink.buffer(), 0, buffer.size());
+          sink.emitCompleteSegments();
         }
       };
     } catch (IOException e) {
@@ -0,0 +1,65 @@
+package io.lionweb.client;
+
+import java.util.zip.Deflater;
+
+/**
+ * Controls how the bodies of requests are compressed with gzip.
+ *
+ * <p>When not streaming, the compressed body is entirely written to memory before sending it, so
+ * that its length can be specified. When streaming, the body is compressed while it is sent using
+ * chunked transfer encoding, so that no copy of it is kept in memory. Servers not supporting
+ * chunked requests require the former.
+ */
+public class GzipSettings {
+  public static final int DEFAULT_BUFFER_SIZE = 8192;
+
+  /** Default compression level, without streaming. */
+  public static final GzipSettings DEFAULT =
+      new GzipSettings(Deflater.DEFAULT_COMPRESSION, DEFAULT_BUFFER_SIZE, false);
+
+  private final int level;
+  private final int bufferSize;
+  private final boolean streaming;
+
+  /**
+   * @param level compression level, from 0 to 9, or -1 to use the default one
+   * @param bufferSize size in bytes of the buffer used by the compressor
+   * @param streaming whether the body is compressed while it is sent
+   */
+  public GzipSettings(int level, int bufferSize, boolean streaming) {
+    if (level != Deflater.DEFAULT_COMPRESSION
+        && (level < Deflater.NO_COMPRESSION || level > Deflater.BEST_COMPRESSION)) {
+      throw new IllegalArgumentException("level should be between 0 and 9, or -1");
+    }
+    if (bufferSize < 1) {
+      throw new IllegalArgumentException("bufferSize should be at least 1");
+    }
+    this.level = level;
+    this.bufferSize = bufferSize;
+    this.streaming = streaming;
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  public int getBufferSize() {
+    return bufferSize;
+  }
+
+  public boolean isStreaming() {
+    return streaming;
+  }
+
+  @Override
+  public String toString() {
+    return "GzipSettings{"
+        + "level="
+        + level
+        + ", bufferSize="
+        + bufferSize
+        + ", streaming="
+        + streaming
+        + '}';
+  }
+}
@@ -9,9 +9,13 @@ import io.lionweb.serialization.SerializationProvider;
 import io.lionweb.serialization.UnavailableNodePolicy;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
 import java.io.IOException;
+import java.io.OutputStream;
 import java.util.*;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.TimeUnit;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 import okhttp3.*;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -24,7 +28,7 @@ public class LionWebClient
         InspectionAPIClient,
         HistoryAPIClient {
 
-  public class Builder {
+  public static class Builder {
     protected LionWebVersion lionWebVersion = LionWebVersion.currentVersion;
     protected String hostname = "localhost";
     protected int port = 3005;
@@ -33,6 +37,10 @@ public class LionWebClient
     protected String repository = "default";
     protected long connectTimeoutInSeconds = 60;
     protected long callTimeoutInSeconds = 60;
+    protected Executor processingExecutor = ForkJoinPool.commonPool();
+    protected RetrieveBatching retrieveBatching = RetrieveBatching.DISABLED;
+    protected int nodeCacheSize = 0;
+    protected GzipSettings gzipSettings = GzipSettings.DEFAULT;
 
     public Builder withVersion(LionWebVersion version) {
       this.lionWebVersion = version;
@@ -74,16 +82,49 @@ public class LionWebClient
       return this;
     }
 
+    /**
+     * Executor used by the asynchronous APIs to serialize requests and deserialize responses. See
+     * {@link LionWebClient#async()}.
+     */
+    public Builder withProcessingExecutor(Executor processingExecutor) {
+      this.processingExecutor = processingExecutor;
+      return this;
+    }
+
+    /**
+     * Split retrieve requests for more than maxIdsPerRequest nodes, and send up to
+     * maxConcurrentRequests of them in parallel. See {@link RetrieveBatching}.
+     */
+    public Builder withRetrieveBatching(int maxIdsPerRequest, int maxConcurrentRequests) {
+      return withRetrieveBatching(new RetrieveBatching(maxIdsPerRequest, maxConcurrentRequests));
+    }
+
+    public Builder withRetrieveBatching(RetrieveBatching retrieveBatching) {
+      this.retrieveBatching = Objects.requireNonNull(retrieveBatching);
+      return this;
+    }
+
+    /**
+     * Cache up to maxNodes retrieved nodes, so that they are not requested again while the
+     * repository does not change. See {@link NodeCache}. A size of zero disables the cache, which
+     * is the default.
+     */
+    public Builder withNodeCache(int maxNodes) {
+      if (maxNodes < 0) {
+        throw new IllegalArgumentException("maxNodes should not be negative");
+      }
+      this.nodeCacheSize = maxNodes;
+      return this;
+    }
+
+    /** How the bodies of the requests storing nodes are compressed. */
+    public Builder withGzipSettings(GzipSettings gzipSettings) {
+      this.gzipSettings = Objects.requireNonNull(gzipSettings);
+      return this;
+    }
+
     public LionWebClient build() {
-      return new LionWebClient(
-          lionWebVersion,
-          hostname,
-          port,
-          authorizationToken,
-          clientID,
-          repository,
-          connectTimeoutInSeconds,
-          callTimeoutInSeconds);
+      return new LionWebClient(this);
     }
   }
 
@@ -97,6 +138,10 @@ public class LionWebClient
   protected final String repository;
   protected final OkHttpClient httpClient;
   protected final JsonSerialization jsonSerialization;
+  protected final Executor processingExecutor;
+  protected final RetrieveBatching retrieveBatching;
+  protected final @Nullable NodeCache nodeCache;
+  protected final GzipSettings gzipSettings;
 
   private final ClientForInspectionAPIs inspectionAPIs;
   private final ClientForDBAdminAPIs dbAdminAPIs;
@@ -104,6 +149,7 @@ public class LionWebClient
   private final ClientForChunkLevelBulkAPIs chunkLevelBulkAPIs;
   private final ClientForJSONLevelBulkAPIs jsonLevelBulkAPIs;
   private final ClientForHistoryAPIs historyAPIs;
+  private final AsyncLionWebClient asyncClient;
 
   //
   // Constructors
@@ -123,21 +169,87 @@ public class LionWebClient
       @NotNull String repository,
       long connectTimeoutInSeconds,
       long callTimeoutInSeconds) {
-    this.hostname = hostname;
-    this.port = port;
-    this.authorizationToken = authorizationToken;
-    this.clientID = clientID;
-    this.repository = repository;
+    this(
+        lionWebVersion,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        connectTimeoutInSeconds,
+        callTimeoutInSeconds,
+        ForkJoinPool.commonPool());
+  }
+
+  public LionWebClient(
+      @NotNull LionWebVersion lionWebVersion,
+      @NotNull String hostname,
+      int port,
+      @Nullable String authorizationToken,
+      @NotNull String clientID,
+      @NotNull String repository,
+      long connectTimeoutInSeconds,
+      long callTimeoutInSeconds,
+      @NotNull Executor processingExecutor) {
+    this(
+        lionWebVersion,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        connectTimeoutInSeconds,
+        callTimeoutInSeconds,
+        processingExecutor,
+        RetrieveBatching.DISABLED);
+  }
+
+  public LionWebClient(
+      @NotNull LionWebVersion lionWebVersion,
+      @NotNull String hostname,
+      int port,
+      @Nullable String authorizationToken,
+      @NotNull String clientID,
+      @NotNull String repository,
+      long connectTimeoutInSeconds,
+      long callTimeoutInSeconds,
+      @NotNull Executor processingExecutor,
+      @NotNull RetrieveBatching retrieveBatching) {
+    this(
+        new Builder()
+            .withVersion(lionWebVersion)
+            .withHostname(hostname)
+            .withPort(port)
+            .withAuthorizationToken(authorizationToken)
+            .withClientID(clientID)
+            .withRepository(repository)
+            .withConnectTimeout(connectTimeoutInSeconds)
+            .withCallTimeout(callTimeoutInSeconds)
+            .withProcessingExecutor(processingExecutor)
+            .withRetrieveBatching(retrieveBatching));
+  }
+
+  protected LionWebClient(@NotNull Builder builder) {
+    this.hostname = builder.hostname;
+    this.port = builder.port;
+    this.authorizationToken = builder.authorizationToken;
+    this.clientID = builder.clientID;
+    this.repository = builder.repository;
+    this.processingExecutor = builder.processingExecutor;
+    this.retrieveBatching = builder.retrieveBatching;
+    this.nodeCache = builder.nodeCacheSize > 0 ? new NodeCache(builder.nodeCacheSize) : null;
+    this.gzipSettings = builder.gzipSettings;
 
     this.httpClient =
         new OkHttpClient.Builder()
-            .connectTimeout(connectTimeoutInSeconds, TimeUnit.SECONDS)
-            .readTimeout(callTimeoutInSeconds, TimeUnit.SECONDS)
-            .writeTimeout(callTimeoutInSeconds, TimeUnit.SECONDS)
-            .callTimeout(callTimeoutInSeconds, TimeUnit.SECONDS)
+            .connectTimeout(builder.connectTimeoutInSeconds, TimeUnit.SECONDS)
+            .readTimeout(builder.callTimeoutInSeconds, TimeUnit.SECONDS)
+            .writeTimeout(builder.callTimeoutInSeconds, TimeUnit.SECONDS)
+            .callTimeout(builder.callTimeoutInSeconds, TimeUnit.SECONDS)
             .build();
 
-    this.jsonSerialization = SerializationProvider.getStandardJsonSerialization(lionWebVersion);
+    this.jsonSerialization =
+        SerializationProvider.getStandardJsonSerialization(builder.lionWebVersion);
     this.jsonSerialization.enableDynamicNodes();
     this.jsonSerialization.setUnavailableChildrenPolicy(UnavailableNodePolicy.PROXY_NODES);
     this.jsonSerialization.setUnavailableParentPolicy(UnavailableNodePolicy.PROXY_NODES);
@@ -150,6 +262,7 @@ public class LionWebClient
     this.chunkLevelBulkAPIs = new ClientForChunkLevelBulkAPIs(conf);
     this.bulkAPIs = new ClientForBulkAPIs(conf);
     this.historyAPIs = new ClientForHistoryAPIs(conf);
+    this.asyncClient = new AsyncLionWebClient(conf);
   }
 
   protected ClientConfiguration buildRepositoryConfiguration() {
@@ -161,7 +274,11 @@ public class LionWebClient
         clientID,
         repository,
         httpClient,
-        jsonSerialization);
+        jsonSerialization,
+        processingExecutor,
+        retrieveBatching,
+        nodeCache,
+        gzipSettings);
   }
 
   //
@@ -172,6 +289,19 @@ public class LionWebClient
     return jsonSerialization;
   }
 
+  /** The cache of retrieved nodes, if enabled through {@link Builder#withNodeCache(int)}. */
+  public @Nullable NodeCache getNodeCache() {
+    return nodeCache;
+  }
+
+  /**
+   * Non-blocking version of the bulk APIs of this client. Calls are enqueued on the HTTP client,
+   * while the serialization and deserialization of nodes happen on the processing executor.
+   */
+  public @NotNull AsyncLionWebClient async() {
+    return asyncClient;
+  }
+
   //
   // Raw Bulk APIs
   //
@@ -199,6 +329,13 @@ public class LionWebClient
     return JSONLevelBulkAPIClient.super.rawRetrieve(nodeIds);
   }
 
+  @Override
+  public void rawRetrieve(
+      @Nullable List<String> nodeIds, int limit, @NotNull OutputStream outputStream)
+      throws IOException {
+    jsonLevelBulkAPIs.rawRetrieve(nodeIds, limit, outputStream);
+  }
+
   //
   // Bulk APIs
   //
@@ -276,28 +413,42 @@ public class LionWebClient
   @Override
   public RepositoryVersionToken createPartitionsFromChunk(
       @NotNull List<SerializedClassifierInstance> data) throws IOException {
-    throw new UnsupportedOperationException();
+    return chunkLevelBulkAPIs.createPartitionsFromChunk(data);
   }
 
   @Nullable
   @Override
   public RepositoryVersionToken storeChunk(@NotNull List<SerializedClassifierInstance> nodes)
       throws IOException {
-    throw new UnsupportedOperationException();
+    return chunkLevelBulkAPIs.storeChunk(nodes);
   }
 
   @NotNull
   @Override
   public List<SerializedClassifierInstance> retrieveAsChunk(
       @Nullable List<String> nodeIds, int limit) throws IOException {
-    throw new UnsupportedOperationException();
+    return chunkLevelBulkAPIs.retrieveAsChunk(nodeIds, limit);
   }
 
   @NotNull
   @Override
   public List<SerializedClassifierInstance> retrieveAsChunk(@Nullable List<String> nodeIds)
       throws IOException {
-    throw new UnsupportedOperationException();
+    return chunkLevelBulkAPIs.retrieveAsChunk(nodeIds);
+  }
+
+  @Nullable
+  @Override
+  public RepositoryVersionToken storeChunk(@NotNull Stream<SerializedClassifierInstance> nodes)
+      throws IOException {
+    return chunkLevelBulkAPIs.storeChunk(nodes);
+  }
+
+  @NotNull
+  @Override
+  public Stream<SerializedClassifierInstance> retrieveAsStreamChunk(
+      @NotNull Stream<String> nodeIds, int limit) throws IOException {
+    return chunkLevelBulkAPIs.retrieveAsStreamChunk(nodeIds, limit);
   }
 
   //
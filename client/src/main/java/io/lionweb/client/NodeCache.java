@@ -0,0 +1,226 @@
+package io.lionweb.client;
+
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Cache of the nodes retrieved by a client, in their serialized form, so that retrieving again the
+ * same nodes does not require contacting the repository. When more than maxNodes nodes are cached,
+ * the least recently used ones are evicted.
+ *
+ * <p>The cache is associated to the {@link RepositoryVersionToken} of the data it contains. It is
+ * emptied whenever this client modifies the repository, and whenever a response reveals that the
+ * repository reached a newer version. Changes performed by other clients are therefore noticed only
+ * the next time this client contacts the repository, so the cache should be used only when this
+ * client is the only writer, or when slightly stale reads are acceptable.
+ *
+ * <p>Lookups succeed only if all the nodes requested, and their descendants up to the depth limit,
+ * are cached. This class is thread-safe.
+ */
+public class NodeCache {
+
+  /** Snapshot of the usage of a {@link NodeCache}. */
+  public static class Statistics {
+    private final long hits;
+    private final long misses;
+    private final long evictions;
+    private final int size;
+
+    public Statistics(long hits, long misses, long evictions, int size) {
+      this.hits = hits;
+      this.misses = misses;
+      this.evictions = evictions;
+      this.size = size;
+    }
+
+    /** Number of lookups answered by the cache. */
+    public long getHits() {
+      return hits;
+    }
+
+    /** Number of lookups which required contacting the repository. */
+    public long getMisses() {
+      return misses;
+    }
+
+    /** Number of nodes removed to respect the maximum size of the cache. */
+    public long getEvictions() {
+      return evictions;
+    }
+
+    /** Number of nodes currently cached. */
+    public int getSize() {
+      return size;
+    }
+
+    public double getHitRate() {
+      long total = hits + misses;
+      return total == 0 ? 0.0 : ((double) hits) / total;
+    }
+
+    @Override
+    public String toString() {
+      return "Statistics{"
+          + "hits="
+          + hits
+          + ", misses="
+          + misses
+          + ", evictions="
+          + evictions
+          + ", size="
+          + size
+          + '}';
+    }
+  }
+
+  private final int maxNodes;
+  private final LinkedHashMap<String, SerializedClassifierInstance> nodes;
+  private @Nullable RepositoryVersionToken repositoryVersion;
+  // Incremented at each invalidation, to discard data obtained by requests started before it
+  private long generation;
+  private long hits;
+  private long misses;
+  private long evictions;
+
+  public NodeCache(int maxNodes) {
+    if (maxNodes < 1) {
+      throw new IllegalArgumentException("maxNodes should be at least 1");
+    }
+    this.maxNodes = maxNodes;
+    this.nodes =
+        new LinkedHashMap<String, SerializedClassifierInstance>(16, 0.75f, true) {
+          @Override
+          protected boolean removeEldestEntry(
+              Map.Entry<String, SerializedClassifierInstance> eldest) {
+            if (size() > NodeCache.this.maxNodes) {
+              evictions++;
+              return true;
+            }
+            return false;
+          }
+        };
+  }
+
+  public int getMaxNodes() {
+    return maxNodes;
+  }
+
+  /**
+   * Return the nodes with the given IDs and their descendants, up to the given depth, or null if
+   * any of them is not cached.
+   */
+  public synchronized @Nullable List<SerializedClassifierInstance> lookup(
+      @NotNull List<String> nodeIds, int depthLimit) {
+    Map<String, SerializedClassifierInstance> found = new LinkedHashMap<>();
+    // The largest depth limit with which each node has been visited: a node reached again with a
+    // larger one, as a descendant of another requested node, needs to be visited again
+    Map<String, Integer> visitedDepthLimits = new HashMap<>();
+    Deque<String> pendingIds = new ArrayDeque<>();
+    Deque<Integer> pendingDepthLimits = new ArrayDeque<>();
+    for (int i = nodeIds.size() - 1; i >= 0; i--) {
+      pendingIds.push(nodeIds.get(i));
+      pendingDepthLimits.push(depthLimit);
+    }
+    while (!pendingIds.isEmpty()) {
+      String nodeId = pendingIds.pop();
+      int nodeDepthLimit = pendingDepthLimits.pop();
+      Integer visitedDepthLimit = visitedDepthLimits.get(nodeId);
+      if (visitedDepthLimit != null && visitedDepthLimit >= nodeDepthLimit) {
+        continue;
+      }
+      SerializedClassifierInstance node = nodes.get(nodeId);
+      if (node == null) {
+        misses++;
+        return null;
+      }
+      visitedDepthLimits.put(nodeId, nodeDepthLimit);
+      found.putIfAbsent(nodeId, node);
+      if (nodeDepthLimit > 0) {
+        // Pushed in reverse, so that the nodes are returned in pre-order
+        push(node.getAnnotations(), nodeDepthLimit - 1, pendingIds, pendingDepthLimits);
+        push(node.getChildren(), nodeDepthLimit - 1, pendingIds, pendingDepthLimits);
+      }
+    }
+    hits++;
+    return new ArrayList<>(found.values());
+  }
+
+  private static void push(
+      List<String> ids, int depthLimit, Deque<String> pendingIds, Deque<Integer> depthLimits) {
+    for (int i = ids.size() - 1; i >= 0; i--) {
+      pendingIds.push(ids.get(i));
+      depthLimits.push(depthLimit);
+    }
+  }
+
+  /**
+   * Value to be obtained before sending a request, and to be passed to {@link #store(Collection,
+   * RepositoryVersionToken, long)} when its response is received.
+   */
+  public synchronized long getGeneration() {
+    return generation;
+  }
+
+  /**
+   * Cache nodes received from the repository, unless the cache has been invalidated since the
+   * request was sent or the data is older than the data already cached.
+   *
+   * @param repositoryVersion the version reported in the response, if any
+   * @param generation the value of {@link #getGeneration()} when the request was sent
+   */
+  public synchronized void store(
+      @NotNull Collection<SerializedClassifierInstance> instances,
+      @Nullable RepositoryVersionToken repositoryVersion,
+      long generation) {
+    if (generation != this.generation) {
+      return;
+    }
+    if (repositoryVersion != null && !repositoryVersion.equals(this.repositoryVersion)) {
+      if (this.repositoryVersion != null && isOlder(repositoryVersion, this.repositoryVersion)) {
+        return;
+      }
+      nodes.clear();
+      this.repositoryVersion = repositoryVersion;
+    }
+    for (SerializedClassifierInstance instance : instances) {
+      nodes.put(instance.getID(), instance);
+    }
+  }
+
+  /**
+   * Empty the cache, as the repository has been modified.
+   *
+   * @param newRepositoryVersion the version reached by the repository, if known
+   */
+  public synchronized void invalidate(@Nullable RepositoryVersionToken newRepositoryVersion) {
+    nodes.clear();
+    repositoryVersion = newRepositoryVersion;
+    generation++;
+  }
+
+  public synchronized @Nullable RepositoryVersionToken getRepositoryVersion() {
+    return repositoryVersion;
+  }
+
+  public synchronized @NotNull Statistics getStatistics() {
+    return new Statistics(hits, misses, evictions, nodes.size());
+  }
+
+  public synchronized void resetStatistics() {
+    hits = 0;
+    misses = 0;
+    evictions = 0;
+  }
+
+  /** Versions are compared numerically when possible, as the LionWeb server uses counters. */
+  private static boolean isOlder(RepositoryVersionToken a, RepositoryVersionToken b) {
+    try {
+      return Long.parseLong(a.getToken()) < Long.parseLong(b.getToken());
+    } catch (NumberFormatException e) {
+      return false;
+    }
+  }
+}
@@ -0,0 +1,45 @@
+package io.lionweb.client;
+
+/**
+ * Controls how retrieve requests for many nodes are split. When more IDs than {@link
+ * #getMaxIdsPerRequest()} are requested, they are split into batches which are retrieved through
+ * separate requests, up to {@link #getMaxConcurrentRequests()} of them at the same time. The
+ * nodes received are then merged and deserialized together, so the result is the same as if all
+ * the IDs were sent in a single request.
+ */
+public class RetrieveBatching {
+  /** All the IDs are always sent in a single request. */
+  public static final RetrieveBatching DISABLED = new RetrieveBatching(Integer.MAX_VALUE, 1);
+
+  private final int maxIdsPerRequest;
+  private final int maxConcurrentRequests;
+
+  public RetrieveBatching(int maxIdsPerRequest, int maxConcurrentRequests) {
+    if (maxIdsPerRequest < 1) {
+      throw new IllegalArgumentException("maxIdsPerRequest should be at least 1");
+    }
+    if (maxConcurrentRequests < 1) {
+      throw new IllegalArgumentException("maxConcurrentRequests should be at least 1");
+    }
+    this.maxIdsPerRequest = maxIdsPerRequest;
+    this.maxConcurrentRequests = maxConcurrentRequests;
+  }
+
+  public int getMaxIdsPerRequest() {
+    return maxIdsPerRequest;
+  }
+
+  public int getMaxConcurrentRequests() {
+    return maxConcurrentRequests;
+  }
+
+  @Override
+  public String toString() {
+    return "RetrieveBatching{"
+        + "maxIdsPerRequest="
+        + maxIdsPerRequest
+        + ", maxConcurrentRequests="
+        + maxConcurrentRequests
+        + '}';
+  }
+}
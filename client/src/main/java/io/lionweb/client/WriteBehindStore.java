@@ -0,0 +1,318 @@
+package io.lionweb.client;
+
+import io.lionweb.client.api.ChunkLevelBulkAPIClient;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.AbstractSerialization;
+import io.lionweb.serialization.SerializationProvider;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import io.lionweb.serialization.data.SerializedContainmentValue;
+import io.lionweb.serialization.data.SerializedPropertyValue;
+import io.lionweb.serialization.data.SerializedReferenceValue;
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.TimeUnit;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Buffers the nodes to be stored and sends them to the repository in batches, instead of
+ * performing a request for each invocation of store. Pending nodes are coalesced by ID, so that
+ * only the newest state of each node is sent.
+ *
+ * <p>Pending nodes are flushed when maxNodes nodes are pending, when their estimated size reaches
+ * maxBytes, or when flushInterval milliseconds have passed since the oldest pending change. The
+ * first two flushes are performed by the thread invoking store, while the last one is performed by
+ * a background thread. Nodes are guaranteed to be stored only when {@link #flush()} or {@link
+ * #close()} return.
+ *
+ * <p>Failures of background flushes are reported by the following invocation of store, flush or
+ * close. When a flush fails, the nodes which have not been stored are kept pending, unless newer
+ * versions of the same nodes have been received in the meantime.
+ *
+ * <p>This class is thread-safe.
+ */
+public class WriteBehindStore implements Closeable {
+  /** Estimated size of the JSON structure surrounding each value. */
+  private static final int OVERHEAD = 32;
+
+  private final @NotNull ChunkLevelBulkAPIClient client;
+  private final @NotNull AbstractSerialization serialization;
+  private final int maxNodes;
+  private final long maxBytes;
+  private final long flushInterval;
+  private final @Nullable ScheduledExecutorService scheduler;
+
+  private LinkedHashMap<String, SerializedClassifierInstance> pending = new LinkedHashMap<>();
+  private long pendingBytes;
+  private @Nullable ScheduledFuture<?> scheduledFlush;
+  private @Nullable IOException backgroundFailure;
+  private @Nullable RepositoryVersionToken lastVersion;
+  private boolean closed;
+  private long storedNodes;
+  private long sentNodes;
+  private long requests;
+
+  /** Guarantees that flushes are performed one at a time, in order. */
+  private final Object flushLock = new Object();
+
+  /**
+   * @param maxNodes maximum number of pending nodes
+   * @param maxBytes maximum estimated size of the pending nodes, in bytes
+   * @param flushInterval maximum time a change is kept pending, in milliseconds. If zero, pending
+   *     nodes are never flushed by a background thread
+   */
+  public WriteBehindStore(
+      @NotNull ChunkLevelBulkAPIClient client, int maxNodes, long maxBytes, long flushInterval) {
+    this(
+        client,
+        SerializationProvider.getStandardJsonSerialization(client.getLionWebVersion()),
+        maxNodes,
+        maxBytes,
+        flushInterval);
+  }
+
+  /**
+   * @param serialization used to convert the nodes passed to {@link #store(List)}
+   */
+  public WriteBehindStore(
+      @NotNull ChunkLevelBulkAPIClient client,
+      @NotNull AbstractSerialization serialization,
+      int maxNodes,
+      long maxBytes,
+      long flushInterval) {
+    Objects.requireNonNull(client, "client should not be null");
+    Objects.requireNonNull(serialization, "serialization should not be null");
+    if (maxNodes < 1) {
+      throw new IllegalArgumentException("maxNodes should be at least 1");
+    }
+    if (maxBytes < 1) {
+      throw new IllegalArgumentException("maxBytes should be at least 1");
+    }
+    if (flushInterval < 0) {
+      throw new IllegalArgumentException("flushInterval should not be negative");
+    }
+    this.client = client;
+    this.serialization = serialization;
+    this.maxNodes = maxNodes;
+    this.maxBytes = maxBytes;
+    this.flushInterval = flushInterval;
+    if (flushInterval > 0) {
+      this.scheduler =
+          Executors.newSingleThreadScheduledExecutor(
+              runnable -> {
+                Thread thread = new Thread(runnable, "lionweb-write-behind");
+                thread.setDaemon(true);
+                return thread;
+              });
+    } else {
+      this.scheduler = null;
+    }
+  }
+
+  /** Store the given trees. */
+  public void store(@NotNull List<Node> nodes) throws IOException {
+    storeChunk(serialization.serializeTreesToSerializationChunk(nodes).getClassifierInstances());
+  }
+
+  /** Store the given trees. */
+  public void store(@NotNull Node... nodes) throws IOException {
+    store(Arrays.asList(nodes));
+  }
+
+  public void storeChunk(@NotNull List<SerializedClassifierInstance> nodes) throws IOException {
+    boolean flushNeeded;
+    synchronized (this) {
+      checkUsable();
+      for (SerializedClassifierInstance node : nodes) {
+        SerializedClassifierInstance previous = pending.put(node.getID(), node);
+        if (previous != null) {
+          pendingBytes -= estimateSize(previous);
+        }
+        pendingBytes += estimateSize(node);
+      }
+      storedNodes += nodes.size();
+      flushNeeded = pending.size() >= maxNodes || pendingBytes >= maxBytes;
+      if (!flushNeeded && scheduler != null && scheduledFlush == null && !pending.isEmpty()) {
+        scheduledFlush =
+            scheduler.schedule(this::backgroundFlush, flushInterval, TimeUnit.MILLISECONDS);
+      }
+    }
+    if (flushNeeded) {
+      flush();
+    }
+  }
+
+  /**
+   * Send all the pending nodes to the repository.
+   *
+   * @return the version of the repository after the last store performed, if known
+   */
+  public @Nullable RepositoryVersionToken flush() throws IOException {
+    synchronized (this) {
+      reportBackgroundFailure();
+    }
+    return doFlush();
+  }
+
+  private @Nullable RepositoryVersionToken doFlush() throws IOException {
+    synchronized (flushLock) {
+      List<SerializedClassifierInstance> batch;
+      synchronized (this) {
+        if (scheduledFlush != null) {
+          scheduledFlush.cancel(false);
+          scheduledFlush = null;
+        }
+        if (pending.isEmpty()) {
+          return lastVersion;
+        }
+        batch = new ArrayList<>(pending.values());
+        pending = new LinkedHashMap<>();
+        pendingBytes = 0;
+      }
+      try {
+        RepositoryVersionToken version = client.storeChunk(batch);
+        synchronized (this) {
+          if (version != null) {
+            lastVersion = version;
+          }
+          sentNodes += batch.size();
+          requests++;
+          return lastVersion;
+        }
+      } catch (IOException | RuntimeException e) {
+        restore(batch);
+        throw e;
+      }
+    }
+  }
+
+  /** Put back the nodes which could not be stored, unless they have been stored again. */
+  private synchronized void restore(List<SerializedClassifierInstance> batch) {
+    LinkedHashMap<String, SerializedClassifierInstance> newPending = new LinkedHashMap<>();
+    for (SerializedClassifierInstance node : batch) {
+      if (!pending.containsKey(node.getID())) {
+        newPending.put(node.getID(), node);
+        pendingBytes += estimateSize(node);
+      }
+    }
+    newPending.putAll(pending);
+    pending = newPending;
+  }
+
+  private void backgroundFlush() {
+    synchronized (this) {
+      scheduledFlush = null;
+    }
+    try {
+      doFlush();
+    } catch (IOException e) {
+      synchronized (this) {
+        backgroundFailure = e;
+      }
+    } catch (RuntimeException e) {
+      synchronized (this) {
+        backgroundFailure = new IOException(e);
+      }
+    }
+  }
+
+  private void checkUsable() throws IOException {
+    if (closed) {
+      throw new IllegalStateException("The WriteBehindStore has been closed");
+    }
+    reportBackgroundFailure();
+  }
+
+  private void reportBackgroundFailure() throws IOException {
+    if (backgroundFailure != null) {
+      IOException failure = backgroundFailure;
+      backgroundFailure = null;
+      throw failure;
+    }
+  }
+
+  /**
+   * Flush the pending nodes and stop the background thread. Invoking close more than once has no
+   * effect.
+   */
+  @Override
+  public void close() throws IOException {
+    synchronized (this) {
+      if (closed) {
+        return;
+      }
+      closed = true;
+    }
+    try {
+      flush();
+    } finally {
+      if (scheduler != null) {
+        scheduler.shutdown();
+      }
+    }
+  }
+
+  public synchronized int getPendingNodes() {
+    return pending.size();
+  }
+
+  /** Number of nodes received by store and storeChunk, including those later coalesced. */
+  public synchronized long getStoredNodes() {
+    return storedNodes;
+  }
+
+  /** Number of nodes sent to the repository. */
+  public synchronized long getSentNodes() {
+    return sentNodes;
+  }
+
+  /** Number of store requests sent to the repository. */
+  public synchronized long getRequests() {
+    return requests;
+  }
+
+  /** Rough estimate of the size of the node once serialized to JSON. */
+  static long estimateSize(SerializedClassifierInstance node) {
+    long size = OVERHEAD + length(node.getID()) + length(node.getParentNodeID());
+    size += estimateSize(node.getClassifier());
+    for (SerializedPropertyValue property : node.getProperties()) {
+      size += estimateSize(property.getMetaPointer()) + length(property.getValue());
+    }
+    for (SerializedContainmentValue containment : node.getContainments()) {
+      size += estimateSize(containment.getMetaPointer());
+      for (String child : containment.getValue()) {
+        size += length(child);
+      }
+    }
+    for (SerializedReferenceValue reference : node.getReferences()) {
+      size += estimateSize(reference.getMetaPointer());
+      for (SerializedReferenceValue.Entry entry : reference.getValue()) {
+        size += OVERHEAD + length(entry.getReference()) + length(entry.getResolveInfo());
+      }
+    }
+    for (String annotation : node.getAnnotations()) {
+      size += length(annotation);
+    }
+    return size;
+  }
+
+  private static long estimateSize(@Nullable MetaPointer metaPointer) {
+    if (metaPointer == null) {
+      return 0;
+    }
+    return OVERHEAD
+        + length(metaPointer.getLanguage())
+        + length(metaPointer.getVersion())
+        + length(metaPointer.getKey());
+  }
+
+  private static int length(@Nullable String value) {
+    return value == null ? 0 : value.length() + 4;
+  }
+}
@@ -0,0 +1,60 @@
+package io.lionweb.client.api;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.model.Node;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Non-blocking counterpart of {@link BulkAPIClient}. No thread is kept waiting while a call is in
+ * progress, and the serialization and deserialization of nodes are performed on an executor
+ * distinct from the threads of the HTTP client.
+ *
+ * <p>Failures, including I/O errors and {@link io.lionweb.client.RequestFailureException}s, are
+ * reported by completing the returned futures exceptionally. Invalid arguments are instead
+ * reported immediately, by throwing.
+ */
+public interface AsyncBulkAPIClient {
+
+  @NotNull
+  LionWebVersion getLionWebVersion();
+
+  /** The future is completed with null if the server does not report the repository version. */
+  @NotNull
+  CompletableFuture<RepositoryVersionToken> createPartitions(List<Node> partitions);
+
+  @NotNull
+  default CompletableFuture<RepositoryVersionToken> createPartitions(Node... partitions) {
+    return createPartitions(Arrays.asList(partitions));
+  }
+
+  @NotNull
+  CompletableFuture<RepositoryVersionToken> deletePartitions(List<String> ids);
+
+  @NotNull
+  CompletableFuture<List<Node>> listPartitions();
+
+  @NotNull
+  CompletableFuture<List<String>> listPartitionsIDs();
+
+  @NotNull
+  CompletableFuture<List<String>> ids(int count);
+
+  @NotNull
+  CompletableFuture<RepositoryVersionToken> store(List<Node> nodes);
+
+  @NotNull
+  default CompletableFuture<RepositoryVersionToken> store(Node... nodes) {
+    return store(Arrays.asList(nodes));
+  }
+
+  @NotNull
+  CompletableFuture<List<Node>> retrieve(List<String> nodeIds, int limit);
+
+  @NotNull
+  default CompletableFuture<List<Node>> retrieve(List<String> nodeIds) {
+    return retrieve(nodeIds, Integer.MAX_VALUE);
+  }
+}
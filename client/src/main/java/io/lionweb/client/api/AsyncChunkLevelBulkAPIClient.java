@@ -0,0 +1,43 @@
+package io.lionweb.client.api;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * Non-blocking counterpart of {@link ChunkLevelBulkAPIClient}. The same conventions of {@link
+ * AsyncBulkAPIClient} apply.
+ */
+public interface AsyncChunkLevelBulkAPIClient {
+  @NotNull
+  LionWebVersion getLionWebVersion();
+
+  @NotNull
+  CompletableFuture<List<String>> ids(int count);
+
+  @NotNull
+  CompletableFuture<List<String>> listPartitionsIDs();
+
+  @NotNull
+  CompletableFuture<RepositoryVersionToken> createPartitionsFromChunk(
+      @NotNull List<SerializedClassifierInstance> data);
+
+  @NotNull
+  CompletableFuture<RepositoryVersionToken> deletePartitions(List<String> ids);
+
+  @NotNull
+  CompletableFuture<RepositoryVersionToken> storeChunk(
+      @NotNull List<SerializedClassifierInstance> nodes);
+
+  @NotNull
+  CompletableFuture<List<SerializedClassifierInstance>> retrieveAsChunk(
+      @NotNull List<String> nodeIds, int limit);
+
+  @NotNull
+  default CompletableFuture<List<SerializedClassifierInstance>> retrieveAsChunk(
+      @NotNull List<String> nodeIds) {
+    return retrieveAsChunk(nodeIds, Integer.MAX_VALUE);
+  }
+}
@@ -2,6 +2,10 @@ package io.lionweb.client.api;
 
 import io.lionweb.LionWebVersion;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -36,4 +40,18 @@ public interface JSONLevelBulkAPIClient {
   default @NotNull String rawRetrieve(@Nullable List<String> nodeIds) throws IOException {
     return rawRetrieve(nodeIds, Integer.MAX_VALUE);
   }
+
+  /**
+   * Variant of {@link #rawRetrieve(List, int)} writing the chunk to the output stream, encoded as
+   * UTF-8, instead of returning it. Implementations can copy the chunk while it is received, so
+   * that it is never held in memory. If the request fails, part of the chunk may have been written.
+   * The output stream is flushed but not closed.
+   */
+  default void rawRetrieve(
+      @Nullable List<String> nodeIds, int limit, @NotNull OutputStream outputStream)
+      throws IOException {
+    Writer writer = new OutputStreamWriter(outputStream, StandardCharsets.UTF_8);
+    writer.write(rawRetrieve(nodeIds, limit));
+    writer.flush();
+  }
 }
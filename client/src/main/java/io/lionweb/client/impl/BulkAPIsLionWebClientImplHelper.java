@@ -8,6 +8,7 @@ import io.lionweb.client.api.RepositoryVersionToken;
 import io.lionweb.serialization.LowLevelJsonSerialization;
 import io.lionweb.serialization.data.SerializedChunk;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.List;
@@ -15,6 +16,7 @@ import java.util.Map;
 import java.util.stream.Collectors;
 import okhttp3.Request;
 import okhttp3.RequestBody;
+import okhttp3.Response;
 import org.jetbrains.annotations.Nullable;
 
 abstract class BulkAPIsLionWebClientImplHelper extends LionWebClientImplHelper {
@@ -24,57 +26,62 @@ abstract class BulkAPIsLionWebClientImplHelper extends LionWebClientImplHelper {
   }
 
   public List<String> ids(int count) throws IOException {
+    Request request = idsRequest(count);
+    if (request == null) {
+      return Collections.emptyList();
+    }
+    return performCall(request, this::handleIds);
+  }
+
+  /** Return null when no IDs are requested, so that there is no need to contact the server. */
+  @Nullable
+  Request idsRequest(int count) {
     if (count < 0) {
       throw new IllegalArgumentException("Count should be greater or equal to zero");
     }
     if (count == 0) {
-      return Collections.emptyList();
+      return null;
     }
     Map<String, String> params = new HashMap<>();
     params.put("count", Integer.toString(count));
     Request.Builder rq = buildRequest("/bulk/ids", true, true, true, params);
-    Request request = rq.post(RequestBody.create(new byte[0])).build();
-    return performCall(
-        request,
-        (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
-            throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
-          }
-          return responseData.get("ids").getAsJsonArray().asList().stream()
-              .map(je -> je.getAsString())
-              .collect(Collectors.toList());
-        });
+    return rq.post(RequestBody.create(new byte[0])).build();
+  }
+
+  List<String> handleIds(Response response, String responseBody) {
+    JsonObject responseData = checkSuccess(response, responseBody);
+    return responseData.get("ids").getAsJsonArray().asList().stream()
+        .map(je -> je.getAsString())
+        .collect(Collectors.toList());
   }
 
   List<String> listPartitionsIDs() throws IOException {
+    return performCall(listPartitionsRequest(), this::handleListPartitionsIDs);
+  }
+
+  Request listPartitionsRequest() {
     Request.Builder rq = buildRequest("/bulk/listPartitions");
-    Request request =
-        rq.addHeader("Accept-Encoding", "gzip").post(RequestBody.create(new byte[0], null)).build();
+    return rq.addHeader("Accept-Encoding", "gzip")
+        .post(RequestBody.create(new byte[0], null))
+        .build();
+  }
 
-    return performCall(
-        request,
-        (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
-            throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
-          }
-          SerializedChunk serializationBlock =
-              new LowLevelJsonSerialization()
-                  .deserializeSerializationBlock(responseData.get("chunk"));
-          return serializationBlock.getClassifierInstances().stream()
-              .filter(n -> n.getParentNodeID() == null)
-              .map(n -> n.getID())
-              .collect(Collectors.toList());
-        });
+  List<String> handleListPartitionsIDs(Response response, String responseBody) {
+    JsonObject responseData = checkSuccess(response, responseBody);
+    SerializedChunk serializationBlock =
+        new LowLevelJsonSerialization().deserializeSerializationBlock(responseData.get("chunk"));
+    return serializationBlock.getClassifierInstances().stream()
+        .filter(n -> n.getParentNodeID() == null)
+        .map(n -> n.getID())
+        .collect(Collectors.toList());
   }
 
   @Nullable
   RepositoryVersionToken deletePartitions(List<String> ids) throws IOException {
+    return performCall(deletePartitionsRequest(ids), this::handleModification);
+  }
+
+  Request deletePartitionsRequest(List<String> ids) {
     JsonArray ja = new JsonArray();
     for (String id : ids) {
       ja.add(id);
@@ -84,9 +91,34 @@ abstract class BulkAPIsLionWebClientImplHelper extends LionWebClientImplHelper {
     RequestBody body = RequestBody.create(bodyJson, JSON);
 
     Request.Builder rq = buildRequest("/bulk/deletePartitions");
-    Request request = rq.post(body).build();
+    return rq.post(body).build();
+  }
 
-    return performCall(
-        request, (response, responseBody) -> getRepoVersionFromResponse(responseBody));
+  /**
+   * Verify the response reports a success, throwing a {@link RequestFailureException} otherwise.
+   *
+   * @return the response body, parsed
+   */
+  JsonObject checkSuccess(Response response, String responseBody) {
+    JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
+    boolean success = responseData.get("success").getAsBoolean();
+    if (!success) {
+      throw new RequestFailureException(
+          response.request().url().toString(), response.code(), responseBody);
+    }
+    return responseData;
+  }
+
+  /**
+   * Read the response in a single streaming pass, verifying it reports a success and throwing a
+   * {@link RequestFailureException} otherwise.
+   */
+  BulkResponse checkSuccess(Response response, InputStream responseBody) throws IOException {
+    BulkResponse bulkResponse = BulkResponse.read(responseBody);
+    if (!bulkResponse.isSuccess()) {
+      throw new RequestFailureException(
+          response.request().url().toString(), response.code(), bulkResponse.describe());
+    }
+    return bulkResponse;
   }
 }
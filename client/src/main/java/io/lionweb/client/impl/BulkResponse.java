@@ -0,0 +1,185 @@
+package io.lionweb.client.impl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonObject;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
+import io.lionweb.serialization.LowLevelJsonSerialization;
+import io.lionweb.serialization.data.SerializedChunk;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Consumer;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Response of the bulk APIs, read from the body in a single streaming pass. The body is never
+ * materialized as a String or as a JSON tree: the nodes of the chunk are parsed one at a time and
+ * passed to a consumer, while the other fields, which are small, are kept.
+ */
+class BulkResponse {
+  private boolean success;
+  private @Nullable JsonArray messages;
+  private @Nullable SerializedChunk chunk;
+
+  private BulkResponse() {}
+
+  /** Read the response, collecting the nodes of the chunk into it. */
+  static BulkResponse read(@NotNull InputStream body) throws IOException {
+    SerializedChunk collected = new SerializedChunk();
+    BulkResponse response = read(body, collected::addClassifierInstance);
+    if (response.chunk != null) {
+      collected.setSerializationFormatVersion(response.chunk.getSerializationFormatVersion());
+      response.chunk.getLanguages().forEach(collected::addLanguage);
+      response.chunk = collected;
+    }
+    return response;
+  }
+
+  /**
+   * Read the response, passing the nodes of the chunk to the given consumer as soon as they are
+   * parsed. The chunk of the returned response contains only the serialization format version and
+   * the languages.
+   */
+  static BulkResponse read(
+      @NotNull InputStream body, @NotNull Consumer<SerializedClassifierInstance> nodesConsumer)
+      throws IOException {
+    return parse(
+        body,
+        jsonReader ->
+            new LowLevelJsonSerialization()
+                .deserializeSerializationBlock(jsonReader, nodesConsumer));
+  }
+
+  /**
+   * Read the response, copying the chunk to the given writer as compact JSON, without parsing it.
+   * The chunk of the returned response is null. The writer is flushed but not closed.
+   */
+  static BulkResponse copyChunk(@NotNull InputStream body, @NotNull Writer chunkWriter)
+      throws IOException {
+    JsonWriter jsonWriter = new JsonWriter(chunkWriter);
+    jsonWriter.setSerializeNulls(true);
+    // The same output as Gson#toJson, used by rawRetrieve(List, int)
+    jsonWriter.setHtmlSafe(true);
+    BulkResponse response =
+        parse(
+            body,
+            jsonReader -> {
+              copyValue(jsonReader, jsonWriter);
+              return null;
+            });
+    jsonWriter.flush();
+    return response;
+  }
+
+  private interface ChunkReader {
+    @Nullable
+    SerializedChunk readChunk(JsonReader jsonReader) throws IOException;
+  }
+
+  private static BulkResponse parse(@NotNull InputStream body, @NotNull ChunkReader chunkReader)
+      throws IOException {
+    BulkResponse response = new BulkResponse();
+    JsonReader jsonReader = new JsonReader(new InputStreamReader(body, StandardCharsets.UTF_8));
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String key = jsonReader.nextName();
+      switch (key) {
+        case "success":
+          response.success = jsonReader.nextBoolean();
+          break;
+        case "messages":
+          JsonElement messages = JsonParser.parseReader(jsonReader);
+          response.messages = messages.isJsonArray() ? messages.getAsJsonArray() : null;
+          break;
+        case "chunk":
+          if (jsonReader.peek() == JsonToken.NULL) {
+            jsonReader.nextNull();
+          } else {
+            response.chunk = chunkReader.readChunk(jsonReader);
+          }
+          break;
+        default:
+          jsonReader.skipValue();
+      }
+    }
+    jsonReader.endObject();
+    return response;
+  }
+
+  /** Copy the value at the current position of the reader, token by token. */
+  private static void copyValue(JsonReader jsonReader, JsonWriter jsonWriter) throws IOException {
+    switch (jsonReader.peek()) {
+      case BEGIN_OBJECT:
+        jsonReader.beginObject();
+        jsonWriter.beginObject();
+        while (jsonReader.hasNext()) {
+          jsonWriter.name(jsonReader.nextName());
+          copyValue(jsonReader, jsonWriter);
+        }
+        jsonReader.endObject();
+        jsonWriter.endObject();
+        break;
+      case BEGIN_ARRAY:
+        jsonReader.beginArray();
+        jsonWriter.beginArray();
+        while (jsonReader.hasNext()) {
+          copyValue(jsonReader, jsonWriter);
+        }
+        jsonReader.endArray();
+        jsonWriter.endArray();
+        break;
+      case STRING:
+        jsonWriter.value(jsonReader.nextString());
+        break;
+      case NUMBER:
+        jsonWriter.jsonValue(jsonReader.nextString());
+        break;
+      case BOOLEAN:
+        jsonWriter.value(jsonReader.nextBoolean());
+        break;
+      case NULL:
+        jsonReader.nextNull();
+        jsonWriter.nullValue();
+        break;
+      default:
+        throw new IllegalStateException("Unexpected token " + jsonReader.peek());
+    }
+  }
+
+  boolean isSuccess() {
+    return success;
+  }
+
+  @Nullable
+  JsonArray getMessages() {
+    return messages;
+  }
+
+  @NotNull
+  SerializedChunk getChunk() {
+    if (chunk == null) {
+      throw new IllegalStateException("The response does not contain a chunk");
+    }
+    return chunk;
+  }
+
+  /** Description of the response, without the nodes, to be used when reporting failures. */
+  String describe() {
+    return describe(success, messages);
+  }
+
+  static String describe(boolean success, @Nullable JsonArray messages) {
+    JsonObject description = new JsonObject();
+    description.addProperty("success", success);
+    description.add("messages", messages);
+    return description.toString();
+  }
+}
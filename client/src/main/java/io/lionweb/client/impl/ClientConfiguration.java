@@ -1,8 +1,15 @@
 package io.lionweb.client.impl;
 
+import io.lionweb.client.GzipSettings;
+import io.lionweb.client.NodeCache;
 import io.lionweb.client.Protocol;
+import io.lionweb.client.RetrieveBatching;
 import io.lionweb.serialization.JsonSerialization;
+import java.util.Objects;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import okhttp3.OkHttpClient;
+import org.jetbrains.annotations.Nullable;
 
 public class ClientConfiguration {
   protected final Protocol protocol;
@@ -13,6 +20,10 @@ public class ClientConfiguration {
   private final String authorizationToken;
   private final OkHttpClient httpClient;
   private final JsonSerialization jsonSerialization;
+  private final Executor processingExecutor;
+  private final RetrieveBatching retrieveBatching;
+  private final @Nullable NodeCache nodeCache;
+  private final GzipSettings gzipSettings;
 
   public ClientConfiguration(
       Protocol protocol,
@@ -23,6 +34,110 @@ public class ClientConfiguration {
       String repository,
       OkHttpClient httpClient,
       JsonSerialization jsonSerialization) {
+    this(
+        protocol,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        httpClient,
+        jsonSerialization,
+        ForkJoinPool.commonPool());
+  }
+
+  /**
+   * The processing executor is used by the asynchronous APIs to serialize the requests and to
+   * deserialize the responses, so that the threads of the HTTP client are only busy with I/O.
+   */
+  public ClientConfiguration(
+      Protocol protocol,
+      String hostname,
+      int port,
+      String authorizationToken,
+      String clientID,
+      String repository,
+      OkHttpClient httpClient,
+      JsonSerialization jsonSerialization,
+      Executor processingExecutor) {
+    this(
+        protocol,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        httpClient,
+        jsonSerialization,
+        processingExecutor,
+        RetrieveBatching.DISABLED);
+  }
+
+  public ClientConfiguration(
+      Protocol protocol,
+      String hostname,
+      int port,
+      String authorizationToken,
+      String clientID,
+      String repository,
+      OkHttpClient httpClient,
+      JsonSerialization jsonSerialization,
+      Executor processingExecutor,
+      RetrieveBatching retrieveBatching) {
+    this(
+        protocol,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        httpClient,
+        jsonSerialization,
+        processingExecutor,
+        retrieveBatching,
+        null);
+  }
+
+  public ClientConfiguration(
+      Protocol protocol,
+      String hostname,
+      int port,
+      String authorizationToken,
+      String clientID,
+      String repository,
+      OkHttpClient httpClient,
+      JsonSerialization jsonSerialization,
+      Executor processingExecutor,
+      RetrieveBatching retrieveBatching,
+      @Nullable NodeCache nodeCache) {
+    this(
+        protocol,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        httpClient,
+        jsonSerialization,
+        processingExecutor,
+        retrieveBatching,
+        nodeCache,
+        GzipSettings.DEFAULT);
+  }
+
+  public ClientConfiguration(
+      Protocol protocol,
+      String hostname,
+      int port,
+      String authorizationToken,
+      String clientID,
+      String repository,
+      OkHttpClient httpClient,
+      JsonSerialization jsonSerialization,
+      Executor processingExecutor,
+      RetrieveBatching retrieveBatching,
+      @Nullable NodeCache nodeCache,
+      GzipSettings gzipSettings) {
     this.protocol = protocol;
     this.hostname = hostname;
     this.port = port;
@@ -31,6 +146,10 @@ public class ClientConfiguration {
     this.authorizationToken = authorizationToken;
     this.httpClient = httpClient;
     this.jsonSerialization = jsonSerialization;
+    this.processingExecutor = Objects.requireNonNull(processingExecutor);
+    this.retrieveBatching = Objects.requireNonNull(retrieveBatching);
+    this.nodeCache = nodeCache;
+    this.gzipSettings = Objects.requireNonNull(gzipSettings);
   }
 
   public Protocol getProtocol() {
@@ -64,4 +183,22 @@ public class ClientConfiguration {
   public JsonSerialization getJsonSerialization() {
     return jsonSerialization;
   }
+
+  public Executor getProcessingExecutor() {
+    return processingExecutor;
+  }
+
+  public RetrieveBatching getRetrieveBatching() {
+    return retrieveBatching;
+  }
+
+  /** The cache used when retrieving nodes, if any. */
+  public @Nullable NodeCache getNodeCache() {
+    return nodeCache;
+  }
+
+  /** How the bodies of the requests storing nodes are compressed. */
+  public GzipSettings getGzipSettings() {
+    return gzipSettings;
+  }
 }
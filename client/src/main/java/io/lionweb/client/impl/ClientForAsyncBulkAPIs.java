@@ -0,0 +1,91 @@
+package io.lionweb.client.impl;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.AsyncBulkAPIClient;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.model.Node;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import okhttp3.Request;
+import org.jetbrains.annotations.NotNull;
+
+public class ClientForAsyncBulkAPIs extends LionWebClientImplHelper implements AsyncBulkAPIClient {
+
+  private final ClientForBulkAPIs syncClient;
+  private final ClientForJSONLevelBulkAPIs jsonLevelClient;
+
+  public ClientForAsyncBulkAPIs(ClientConfiguration clientConfiguration) {
+    super(clientConfiguration);
+    syncClient = new ClientForBulkAPIs(clientConfiguration);
+    jsonLevelClient = syncClient.getJsonLevelClient();
+  }
+
+  @NotNull
+  @Override
+  public LionWebVersion getLionWebVersion() {
+    return syncClient.getLionWebVersion();
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> createPartitions(List<Node> partitions) {
+    return performCallAsync(
+        () -> jsonLevelClient.rawCreatePartitionsRequest(syncClient.serialize(partitions)),
+        this::handleModification);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> deletePartitions(List<String> ids) {
+    return performCallAsync(syncClient.deletePartitionsRequest(ids), this::handleModification);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<Node>> listPartitions() {
+    return performCallAsync(syncClient.listPartitionsRequest(), syncClient::handleListPartitions);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<String>> listPartitionsIDs() {
+    return performCallAsync(
+        syncClient.listPartitionsRequest(), syncClient::handleListPartitionsIDs);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<String>> ids(int count) {
+    Request request = syncClient.idsRequest(count);
+    if (request == null) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    return performCallAsync(request, syncClient::handleIds);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> store(List<Node> nodes) {
+    if (nodes.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return performCallAsync(
+        () -> {
+          try {
+            return jsonLevelClient.rawStoreRequest(syncClient.serialize(nodes));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        },
+        jsonLevelClient::handleRawStore);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<Node>> retrieve(List<String> nodeIds, int limit) {
+    return syncClient.retrieveAsync(nodeIds, limit);
+  }
+}
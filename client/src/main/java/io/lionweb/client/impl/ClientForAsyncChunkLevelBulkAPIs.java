@@ -0,0 +1,90 @@
+package io.lionweb.client.impl;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.AsyncChunkLevelBulkAPIClient;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+import okhttp3.Request;
+import org.jetbrains.annotations.NotNull;
+
+public class ClientForAsyncChunkLevelBulkAPIs extends LionWebClientImplHelper
+    implements AsyncChunkLevelBulkAPIClient {
+
+  private final ClientForChunkLevelBulkAPIs syncClient;
+  private final ClientForJSONLevelBulkAPIs jsonLevelClient;
+
+  public ClientForAsyncChunkLevelBulkAPIs(ClientConfiguration clientConfiguration) {
+    super(clientConfiguration);
+    syncClient = new ClientForChunkLevelBulkAPIs(clientConfiguration);
+    jsonLevelClient = syncClient.getJsonLevelClient();
+  }
+
+  @NotNull
+  @Override
+  public LionWebVersion getLionWebVersion() {
+    return syncClient.getLionWebVersion();
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<String>> ids(int count) {
+    Request request = syncClient.idsRequest(count);
+    if (request == null) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    return performCallAsync(request, syncClient::handleIds);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<String>> listPartitionsIDs() {
+    return performCallAsync(
+        syncClient.listPartitionsRequest(), syncClient::handleListPartitionsIDs);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> createPartitionsFromChunk(
+      @NotNull List<SerializedClassifierInstance> data) {
+    return performCallAsync(
+        () -> jsonLevelClient.rawCreatePartitionsRequest(syncClient.serialize(data)),
+        this::handleModification);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> deletePartitions(List<String> ids) {
+    return performCallAsync(syncClient.deletePartitionsRequest(ids), this::handleModification);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<RepositoryVersionToken> storeChunk(
+      @NotNull List<SerializedClassifierInstance> nodes) {
+    return performCallAsync(
+        () -> {
+          try {
+            return jsonLevelClient.rawStoreRequest(syncClient.serialize(nodes));
+          } catch (IOException e) {
+            throw new UncheckedIOException(e);
+          }
+        },
+        jsonLevelClient::handleRawStore);
+  }
+
+  @NotNull
+  @Override
+  public CompletableFuture<List<SerializedClassifierInstance>> retrieveAsChunk(
+      @NotNull List<String> nodeIds, int limit) {
+    return performStreamingCallAsync(
+        jsonLevelClient.rawRetrieveRequest(nodeIds, limit),
+        syncClient::handleRetrieveAsChunk,
+        Function.identity());
+  }
+}
@@ -1,33 +1,40 @@
 package io.lionweb.client.impl;
 
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.lionweb.LionWebVersion;
-import io.lionweb.client.RequestFailureException;
+import io.lionweb.client.NodeCache;
+import io.lionweb.client.RetrieveBatching;
 import io.lionweb.client.api.BulkAPIClient;
-import io.lionweb.client.api.JSONLevelBulkAPIClient;
 import io.lionweb.client.api.RepositoryVersionToken;
 import io.lionweb.model.ClassifierInstance;
 import io.lionweb.model.Node;
 import io.lionweb.model.impl.ProxyNode;
-import io.lionweb.utils.CommonChecks;
+import io.lionweb.serialization.data.SerializedChunk;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
 import java.io.IOException;
+import java.io.InputStream;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
 import java.util.stream.Collectors;
 import okhttp3.Request;
-import okhttp3.RequestBody;
+import okhttp3.Response;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class ClientForBulkAPIs extends BulkAPIsLionWebClientImplHelper implements BulkAPIClient {
 
-  private final JSONLevelBulkAPIClient jsonLevelClient;
+  private final ClientForJSONLevelBulkAPIs jsonLevelClient;
 
   public ClientForBulkAPIs(ClientConfiguration clientConfiguration) {
     super(clientConfiguration);
     jsonLevelClient = new ClientForJSONLevelBulkAPIs(clientConfiguration);
   }
 
+  ClientForJSONLevelBulkAPIs getJsonLevelClient() {
+    return jsonLevelClient;
+  }
+
   @NotNull
   @Override
   public LionWebVersion getLionWebVersion() {
@@ -37,9 +44,7 @@ public class ClientForBulkAPIs extends BulkAPIsLionWebClientImplHelper implement
   @Override
   public @Nullable RepositoryVersionToken createPartitions(List<Node> partitions)
       throws IOException {
-    return jsonLevelClient.rawCreatePartitions(
-        conf.getJsonSerialization()
-            .serializeTreesToJsonString(partitions.toArray(new ClassifierInstance[0])));
+    return jsonLevelClient.rawCreatePartitions(serialize(partitions));
   }
 
   @Override
@@ -54,21 +59,12 @@ public class ClientForBulkAPIs extends BulkAPIsLionWebClientImplHelper implement
 
   @Override
   public List<Node> listPartitions() throws IOException {
-    Request.Builder rq = buildRequest("/bulk/listPartitions");
-    Request request =
-        rq.addHeader("Accept-Encoding", "gzip").post(RequestBody.create(new byte[0], null)).build();
-
-    return performCall(
-        request,
-        (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
-            throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
-          }
-          return conf.getJsonSerialization().deserializeToNodes(responseData.get("chunk"));
-        });
+    return performCall(listPartitionsRequest(), this::handleListPartitions);
+  }
+
+  List<Node> handleListPartitions(Response response, String responseBody) {
+    JsonObject responseData = checkSuccess(response, responseBody);
+    return conf.getJsonSerialization().deserializeToNodes(responseData.get("chunk"));
   }
 
   @Override
@@ -76,10 +72,12 @@ public class ClientForBulkAPIs extends BulkAPIsLionWebClientImplHelper implement
     if (nodes.isEmpty()) {
       return null;
     }
-    String json =
-        conf.getJsonSerialization()
-            .serializeTreesToJsonString(nodes.toArray(new ClassifierInstance<?>[0]));
-    return jsonLevelClient.rawStore(json);
+    return jsonLevelClient.rawStore(serialize(nodes));
+  }
+
+  String serialize(List<Node> nodes) {
+    return conf.getJsonSerialization()
+        .serializeTreesToJsonString(nodes.toArray(new ClassifierInstance<?>[0]));
   }
 
   @Override
@@ -87,46 +85,142 @@ public class ClientForBulkAPIs extends BulkAPIsLionWebClientImplHelper implement
     if (nodeIds.isEmpty()) {
       return Collections.emptyList();
     }
-    List<String> invalidIDs =
-        nodeIds.stream().filter(id -> !CommonChecks.isValidID(id)).collect(Collectors.toList());
-    if (!invalidIDs.isEmpty()) {
-      throw new IllegalArgumentException("IDs must all be valid. Invalid IDs found: " + invalidIDs);
+    List<Node> cached = retrieveFromCache(nodeIds, limit);
+    if (cached != null) {
+      return cached;
+    }
+    if (nodeIds.size() <= conf.getRetrieveBatching().getMaxIdsPerRequest()) {
+      long cacheGeneration = cacheGeneration();
+      return performStreamingCall(
+          jsonLevelClient.rawRetrieveRequest(nodeIds, limit),
+          (response, responseBody) ->
+              roots(deserialize(readRetrieved(response, responseBody, cacheGeneration))));
+    }
+    return await(retrieveFromRepositoryAsync(nodeIds, limit));
+  }
+
+  /**
+   * Retrieve the nodes, splitting the IDs into batches as specified by the {@link
+   * io.lionweb.client.RetrieveBatching} of the configuration. The nodes received are deserialized
+   * together on the processing executor, as if they had been retrieved through a single request.
+   */
+  CompletableFuture<List<Node>> retrieveAsync(List<String> nodeIds, int limit) {
+    if (nodeIds.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    List<Node> cached = retrieveFromCache(nodeIds, limit);
+    if (cached != null) {
+      return CompletableFuture.completedFuture(cached);
+    }
+    return retrieveFromRepositoryAsync(nodeIds, limit);
+  }
+
+  private CompletableFuture<List<Node>> retrieveFromRepositoryAsync(
+      List<String> nodeIds, int limit) {
+    long cacheGeneration = cacheGeneration();
+    StreamingResponseHandler<SerializedChunk> reader =
+        (response, responseBody) -> readRetrieved(response, responseBody, cacheGeneration);
+    RetrieveBatching batching = conf.getRetrieveBatching();
+    if (nodeIds.size() <= batching.getMaxIdsPerRequest()) {
+      return performStreamingCallAsync(
+              jsonLevelClient.rawRetrieveRequest(nodeIds, limit), reader, this::deserialize)
+          .thenApply(ClientForBulkAPIs::roots);
+    }
+    List<List<String>> batches = new ArrayList<>();
+    for (int i = 0; i < nodeIds.size(); i += batching.getMaxIdsPerRequest()) {
+      List<String> batch =
+          nodeIds.subList(i, Math.min(nodeIds.size(), i + batching.getMaxIdsPerRequest()));
+      batches.add(batch);
     }
+    // Building the requests checks all the IDs, before any request is sent
+    List<Request> requests =
+        batches.stream()
+            .map(batch -> jsonLevelClient.rawRetrieveRequest(batch, limit))
+            .collect(Collectors.toList());
+    return performCallsAsync(
+            requests,
+            batching.getMaxConcurrentRequests(),
+            request -> performStreamingCallAsync(request, reader, Function.identity()))
+        .thenApplyAsync(
+            chunks -> {
+              // The same node can be returned by more than one batch, when it is a descendant of
+              // a node of another batch. We keep the first copy received
+              Map<String, SerializedClassifierInstance> instancesByID = new LinkedHashMap<>();
+              chunks.forEach(
+                  chunk ->
+                      chunk
+                          .getClassifierInstances()
+                          .forEach(n -> instancesByID.putIfAbsent(n.getID(), n)));
+              if (instancesByID.isEmpty()) {
+                return Collections.<Node>emptyList();
+              }
+              // Deserialized together, so that references between nodes of different batches are
+              // resolved, and shared subtrees are built once
+              return roots(
+                  deserialize(
+                      SerializedChunk.fromNodes(
+                          getLionWebVersion(), new ArrayList<>(instancesByID.values()))));
+            },
+            conf.getProcessingExecutor());
+  }
+
+  private long cacheGeneration() {
+    NodeCache nodeCache = conf.getNodeCache();
+    return nodeCache == null ? 0 : nodeCache.getGeneration();
+  }
+
+  /** Return null if the cache is not enabled or it does not contain all the nodes needed. */
+  private @Nullable List<Node> retrieveFromCache(List<String> nodeIds, int limit) {
+    NodeCache nodeCache = conf.getNodeCache();
+    if (nodeCache == null) {
+      return null;
+    }
+    List<SerializedClassifierInstance> cached = nodeCache.lookup(nodeIds, limit);
+    if (cached == null) {
+      return null;
+    }
+    return roots(deserialize(SerializedChunk.fromNodes(getLionWebVersion(), cached)));
+  }
+
+  /**
+   * Return the chunk received. When the cache is enabled, the nodes are also added to it. The
+   * response is read in a single streaming pass, but the nodes are collected in the chunk, as
+   * deserialization needs all of them to sort them and resolve the references.
+   */
+  private SerializedChunk readRetrieved(
+      Response response, InputStream responseBody, long cacheGeneration) throws IOException {
+    BulkResponse bulkResponse = checkSuccess(response, responseBody);
+    SerializedChunk chunk = bulkResponse.getChunk();
+    NodeCache nodeCache = conf.getNodeCache();
+    if (nodeCache != null) {
+      nodeCache.store(
+          chunk.getClassifierInstances(),
+          getRepoVersionFromMessages(bulkResponse.getMessages()),
+          cacheGeneration);
+    }
+    return chunk;
+  }
+
+  /** Return all the nodes of the chunk, except for proxy nodes. */
+  private List<Node> deserialize(SerializedChunk chunk) {
+    List<Node> nodes =
+        conf.getJsonSerialization().deserializeSerializationChunk(chunk).stream()
+            .filter(ci -> ci instanceof Node)
+            .map(ci -> (Node) ci)
+            .collect(Collectors.toList());
+    return withoutProxies(nodes);
+  }
+
+  private static List<Node> withoutProxies(List<Node> nodes) {
+    return nodes.stream().filter(n -> !(n instanceof ProxyNode)).collect(Collectors.toList());
+  }
 
-    String bodyJson =
-        "{\"ids\":["
-            + String.join(", ", nodeIds.stream().map(id -> "\"" + id + "\"").toArray(String[]::new))
-            + "]}";
-    Map<String, String> params = new HashMap<>();
-    params.put("depthLimit", String.valueOf(limit));
-    Request.Builder rq = buildRequest("/bulk/retrieve", true, true, true, params);
-    Request request = rq.post(RequestBody.create(bodyJson, JSON)).build();
-
-    return performCall(
-        request,
-        (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
-            throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
-          }
-          List<Node> allNodes =
-              conf.getJsonSerialization().deserializeToNodes(responseData.get("chunk"));
-          Set<String> idsReturned =
-              allNodes.stream()
-                  .filter(n -> !(n instanceof ProxyNode))
-                  .map(n -> n.getID())
-                  .collect(Collectors.toSet());
-          // We want to return only the roots of the trees returned. From those, the other nodes can
-          // be accessed
-          return allNodes.stream()
-              .filter(
-                  n ->
-                      !(n instanceof ProxyNode)
-                          && (n.getParent() == null
-                              || !idsReturned.contains(n.getParent().getID())))
-              .collect(Collectors.toList());
-        });
+  private static List<Node> roots(Collection<Node> nodes) {
+    Set<String> idsReturned = nodes.stream().map(n -> n.getID()).collect(Collectors.toSet());
+    // We want to return only the roots of the trees returned. From those, the other nodes can
+    // be accessed
+    return nodes.stream()
+        .filter(n -> n.getParent() == null || !idsReturned.contains(n.getParent().getID()))
+        .collect(Collectors.toList());
   }
 }
@@ -1,8 +1,8 @@
 package io.lionweb.client.impl;
 
 import io.lionweb.LionWebVersion;
+import io.lionweb.client.CompressionSupport;
 import io.lionweb.client.api.ChunkLevelBulkAPIClient;
-import io.lionweb.client.api.JSONLevelBulkAPIClient;
 import io.lionweb.client.api.RepositoryVersionToken;
 import io.lionweb.serialization.JsonSerialization;
 import io.lionweb.serialization.LowLevelJsonSerialization;
@@ -10,20 +10,39 @@ import io.lionweb.serialization.SerializationProvider;
 import io.lionweb.serialization.data.SerializedChunk;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
 import java.util.List;
+import java.util.Objects;
+import java.util.Spliterator;
+import java.util.Spliterators;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.stream.StreamSupport;
+import okhttp3.MediaType;
+import okhttp3.Request;
+import okhttp3.RequestBody;
+import okhttp3.Response;
+import okio.BufferedSink;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 public class ClientForChunkLevelBulkAPIs extends BulkAPIsLionWebClientImplHelper
     implements ChunkLevelBulkAPIClient {
 
-  private final JSONLevelBulkAPIClient jsonLevelClient;
+  private final ClientForJSONLevelBulkAPIs jsonLevelClient;
 
   public ClientForChunkLevelBulkAPIs(ClientConfiguration clientConfiguration) {
     super(clientConfiguration);
     jsonLevelClient = new ClientForJSONLevelBulkAPIs(clientConfiguration);
   }
 
+  ClientForJSONLevelBulkAPIs getJsonLevelClient() {
+    return jsonLevelClient;
+  }
+
   @NotNull
   @Override
   public LionWebVersion getLionWebVersion() {
@@ -40,11 +59,7 @@ public class ClientForChunkLevelBulkAPIs extends BulkAPIsLionWebClientImplHelper
   @Override
   public RepositoryVersionToken createPartitionsFromChunk(
       @NotNull List<SerializedClassifierInstance> data) throws IOException {
-    JsonSerialization serialization =
-        SerializationProvider.getStandardJsonSerialization(getLionWebVersion());
-    String json =
-        serialization.serializeToJsonString(SerializedChunk.fromNodes(getLionWebVersion(), data));
-    return jsonLevelClient.rawCreatePartitions(json);
+    return jsonLevelClient.rawCreatePartitions(serialize(data));
   }
 
   @Nullable
@@ -57,30 +72,97 @@ public class ClientForChunkLevelBulkAPIs extends BulkAPIsLionWebClientImplHelper
   @Override
   public RepositoryVersionToken storeChunk(@NotNull List<SerializedClassifierInstance> nodes)
       throws IOException {
+    return jsonLevelClient.rawStore(serialize(nodes));
+  }
+
+  /**
+   * The nodes are serialized into the body of the request while the stream is consumed, so that
+   * they do not need to be all in memory at the same time. The stream is consumed only once, so
+   * the request is never retried.
+   */
+  @Nullable
+  @Override
+  public RepositoryVersionToken storeChunk(@NotNull Stream<SerializedClassifierInstance> nodes)
+      throws IOException {
+    return performCall(streamingStoreRequest(nodes), jsonLevelClient::handleRawStore);
+  }
+
+  Request streamingStoreRequest(@NotNull Stream<SerializedClassifierInstance> nodes) {
+    Objects.requireNonNull(nodes);
+    String serializationFormatVersion = getLionWebVersion().getVersionString();
+    RequestBody body =
+        new RequestBody() {
+          @Override
+          public MediaType contentType() {
+            return JSON;
+          }
+
+          @Override
+          public long contentLength() {
+            return -1; // unknown
+          }
+
+          @Override
+          public boolean isOneShot() {
+            return true;
+          }
+
+          @Override
+          public void writeTo(@NotNull BufferedSink sink) throws IOException {
+            Writer writer = new OutputStreamWriter(sink.outputStream(), StandardCharsets.UTF_8);
+            new LowLevelJsonSerialization()
+                .serializeToWriter(serializationFormatVersion, nodes.iterator(), writer);
+          }
+        };
+    Request.Builder rq = buildRequest("/bulk/store");
+    rq = addGZipCompressionHeader(rq);
+    // The body is always compressed while it is sent, as it can be written only once
+    return rq.post(CompressionSupport.gzip(body, conf.getGzipSettings())).build();
+  }
+
+  String serialize(@NotNull List<SerializedClassifierInstance> nodes) {
     JsonSerialization serialization =
         SerializationProvider.getStandardJsonSerialization(getLionWebVersion());
-    String json =
-        serialization.serializeToJsonString(SerializedChunk.fromNodes(getLionWebVersion(), nodes));
-    return jsonLevelClient.rawStore(json);
+    return serialization.serializeToJsonString(
+        SerializedChunk.fromNodes(getLionWebVersion(), nodes));
   }
 
   @NotNull
   @Override
   public List<SerializedClassifierInstance> retrieveAsChunk(
       @Nullable List<String> nodeIds, int limit) throws IOException {
-    String json = jsonLevelClient.rawRetrieve(nodeIds, limit);
-    return new LowLevelJsonSerialization()
-        .deserializeSerializationBlock(json)
-        .getClassifierInstances();
+    return performStreamingCall(
+        jsonLevelClient.rawRetrieveRequest(nodeIds, limit), this::handleRetrieveAsChunk);
   }
 
   @NotNull
   @Override
   public List<SerializedClassifierInstance> retrieveAsChunk(@Nullable List<String> nodeIds)
       throws IOException {
-    String json = jsonLevelClient.rawRetrieve(nodeIds);
-    return new LowLevelJsonSerialization()
-        .deserializeSerializationBlock(json)
-        .getClassifierInstances();
+    return retrieveAsChunk(nodeIds, Integer.MAX_VALUE);
+  }
+
+  /**
+   * The nodes are returned lazily, while the response is received, so that they do not need to be
+   * all in memory at the same time. The IDs are instead collected before sending the request. The
+   * returned stream should be closed, to release the connection when it is not fully consumed.
+   */
+  @NotNull
+  @Override
+  public Stream<SerializedClassifierInstance> retrieveAsStreamChunk(
+      @NotNull Stream<String> nodeIds, int limit) throws IOException {
+    Objects.requireNonNull(nodeIds);
+    Request request =
+        jsonLevelClient.rawRetrieveRequest(nodeIds.collect(Collectors.toList()), limit);
+    StreamingChunkReader reader = new StreamingChunkReader(openStreamingCall(request));
+    return StreamSupport.stream(
+            Spliterators.spliteratorUnknownSize(reader, Spliterator.ORDERED | Spliterator.NONNULL),
+            false)
+        .onClose(reader::close);
+  }
+
+  List<SerializedClassifierInstance> handleRetrieveAsChunk(
+      Response response, InputStream responseBody) throws IOException {
+    return checkSuccess(response, responseBody).getChunk().getClassifierInstances();
   }
 }
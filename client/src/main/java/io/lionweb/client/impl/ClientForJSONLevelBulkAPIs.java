@@ -1,27 +1,27 @@
 package io.lionweb.client.impl;
 
+import com.google.gson.JsonArray;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonObject;
-import com.google.gson.JsonParser;
 import io.lionweb.LionWebVersion;
 import io.lionweb.client.CompressionSupport;
 import io.lionweb.client.RequestFailureException;
 import io.lionweb.client.api.JSONLevelBulkAPIClient;
 import io.lionweb.client.api.RepositoryVersionToken;
 import io.lionweb.utils.CommonChecks;
+import java.io.BufferedWriter;
 import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
 import java.net.ConnectException;
 import java.net.HttpURLConnection;
+import java.nio.charset.StandardCharsets;
 import java.util.*;
 import java.util.stream.Collectors;
-import okhttp3.MediaType;
 import okhttp3.Request;
 import okhttp3.RequestBody;
 import okhttp3.Response;
-import okio.Buffer;
-import okio.BufferedSink;
-import okio.GzipSink;
-import okio.Okio;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
@@ -59,63 +59,79 @@ public class ClientForJSONLevelBulkAPIs extends BulkAPIsLionWebClientImplHelper
   @Nullable
   @Override
   public RepositoryVersionToken rawStore(@NotNull String json) throws IOException {
+    return performCall(rawStoreRequest(json), this::handleRawStore);
+  }
+
+  Request rawStoreRequest(@NotNull String json) throws IOException {
     Request.Builder rq = buildRequest("/bulk/store");
     rq = addGZipCompressionHeader(rq);
-    RequestBody uncompressedBody = RequestBody.create(json, JSON);
-    Request request = rq.post(gzipCompress(uncompressedBody)).build();
+    return rq.post(CompressionSupport.compress(json, conf.getGzipSettings())).build();
+  }
+
+  @Nullable
+  RepositoryVersionToken handleRawStore(Response response, String responseBody) {
+    return repositoryModified(getRepoVersionFromResponse(checkSuccess(response, responseBody)));
+  }
+
+  @Override
+  public String rawRetrieve(@NotNull List<String> nodeIds, int limit) throws IOException {
     return performCall(
-        request,
+        rawRetrieveRequest(nodeIds, limit),
+        (response, responseBody) -> {
+          JsonElement chunkAsJson = checkSuccess(response, responseBody).get("chunk");
+          return gson.toJson(chunkAsJson);
+        });
+  }
+
+  @Override
+  public void rawRetrieve(
+      @NotNull List<String> nodeIds, int limit, @NotNull OutputStream outputStream)
+      throws IOException {
+    performStreamingCall(
+        rawRetrieveRequest(nodeIds, limit),
         (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
+          Writer writer =
+              new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+          BulkResponse bulkResponse = BulkResponse.copyChunk(responseBody, writer);
+          if (!bulkResponse.isSuccess()) {
             throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
+                response.request().url().toString(), response.code(), bulkResponse.describe());
           }
-          return getRepoVersionFromResponse(responseBody);
+          return null;
         });
   }
 
-  @Override
-  public String rawRetrieve(@NotNull List<String> nodeIds, int limit) throws IOException {
+  Request rawRetrieveRequest(@NotNull List<String> nodeIds, int limit) {
     List<String> invalidIDs =
         nodeIds.stream().filter(id -> !CommonChecks.isValidID(id)).collect(Collectors.toList());
     if (!invalidIDs.isEmpty()) {
       throw new IllegalArgumentException("IDs must all be valid. Invalid IDs found: " + invalidIDs);
     }
 
-    String bodyJson =
-        "{\"ids\":["
-            + String.join(", ", nodeIds.stream().map(id -> "\"" + id + "\"").toArray(String[]::new))
-            + "]}";
+    JsonArray ids = new JsonArray(nodeIds.size());
+    nodeIds.forEach(ids::add);
+    JsonObject body = new JsonObject();
+    body.add("ids", ids);
+    String bodyJson = gson.toJson(body);
     Map<String, String> params = new HashMap<>();
     params.put("depthLimit", String.valueOf(limit));
     Request.Builder rq = buildRequest("/bulk/retrieve", true, true, true, params);
-    Request request = rq.post(RequestBody.create(bodyJson, JSON)).build();
+    return rq.post(RequestBody.create(bodyJson, JSON)).build();
+  }
 
-    return performCall(
-        request,
-        (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
-            throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
-          }
-          JsonElement chunkAsJson = responseData.get("chunk");
-          return gson.toJson(chunkAsJson);
-        });
+  Request rawCreatePartitionsRequest(@NotNull String json) {
+    return nodesStoringRequest(json, "createPartitions");
   }
 
-  private @Nullable RepositoryVersionToken nodesStoringOperation(
-      final String json, final String operation) {
-    // Build the request
+  private Request nodesStoringRequest(final String json, final String operation) {
     Request.Builder rb = buildRequest("/bulk/" + operation);
     rb = addGZipCompressionHeader(rb);
-    RequestBody body =
-        CompressionSupport.compress(
-            json); // assuming CompressUtil.compress(String) handles JSON compression
-    Request request = rb.post(body).build();
+    return rb.post(CompressionSupport.compress(json, conf.getGzipSettings())).build();
+  }
+
+  private @Nullable RepositoryVersionToken nodesStoringOperation(
+      final String json, final String operation) {
+    Request request = nodesStoringRequest(json, operation);
 
     String url = request.url().toString();
     try {
@@ -124,7 +140,7 @@ public class ClientForJSONLevelBulkAPIs extends BulkAPIsLionWebClientImplHelper
         if (response.code() != HttpURLConnection.HTTP_OK) {
           throw new RequestFailureException(url, response.code(), responseBody);
         } else {
-          return getRepoVersionFromResponse(responseBody);
+          return repositoryModified(getRepoVersionFromResponse(responseBody));
         }
       }
     } catch (ConnectException e) {
@@ -139,32 +155,4 @@ public class ClientForJSONLevelBulkAPIs extends BulkAPIsLionWebClientImplHelper
       throw new RuntimeException("IO error while contacting URL " + url, e);
     }
   }
-
-  private RequestBody gzipCompress(RequestBody original) throws IOException {
-    Buffer buffer = new Buffer();
-    original.writeTo(buffer);
-
-    RequestBody gzippedBody =
-        new RequestBody() {
-          @Override
-          public MediaType contentType() {
-            return original.contentType();
-          }
-
-          @Override
-          public long contentLength() {
-            return -1; // unknown
-          }
-
-          @Override
-          public void writeTo(BufferedSink sink) throws IOException {
-            GzipSink gzipSink = new GzipSink(sink);
-            BufferedSink compressedSink = Okio.buffer(gzipSink);
-            buffer.copyTo(compressedSink.buffer(), 0, buffer.size());
-            compressedSink.close();
-          }
-        };
-
-    return gzippedBody;
-  }
 }
@@ -1,12 +1,25 @@
 package io.lionweb.client.impl;
 
 import com.google.gson.*;
+import io.lionweb.client.NodeCache;
 import io.lionweb.client.RequestFailureException;
 import io.lionweb.client.api.RepositoryVersionToken;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.InterruptedIOException;
+import java.io.UncheckedIOException;
 import java.net.HttpURLConnection;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Function;
+import java.util.function.Supplier;
 import okhttp3.*;
+import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
 
 abstract class LionWebClientImplHelper {
@@ -23,6 +36,14 @@ abstract class LionWebClientImplHelper {
     R handleResponse(Response response, String body);
   }
 
+  /**
+   * Handler reading the body of successful responses as a stream, so that large responses do not
+   * need to be kept entirely in memory.
+   */
+  public interface StreamingResponseHandler<R> {
+    R handleResponse(Response response, InputStream body) throws IOException;
+  }
+
   protected HttpUrl.Builder buildURL(String api) {
     return buildURL(api, true, true);
   }
@@ -81,6 +102,227 @@ abstract class LionWebClientImplHelper {
     }
   }
 
+  /**
+   * Variant of {@link #performCall(Request, ResponseHandler)} passing the body of successful
+   * responses to the handler as a stream. The bodies of unsuccessful responses, which are expected
+   * to be small, are still read entirely to report them.
+   */
+  protected <R> R performStreamingCall(
+      Request request, StreamingResponseHandler<R> responseHandler) throws IOException {
+    try (Response response = conf.getHttpClient().newCall(request).execute()) {
+      return handleStreamingResponse(request, response, responseHandler);
+    }
+  }
+
+  /**
+   * Execute the call and return the response, when successful, so that its body can be read
+   * lazily. The caller is responsible for closing the response.
+   */
+  protected Response openStreamingCall(Request request) throws IOException {
+    Response response = conf.getHttpClient().newCall(request).execute();
+    if (response.code() != HttpURLConnection.HTTP_OK) {
+      try (Response r = response) {
+        throw new RequestFailureException(
+            request.url().toString(), r.code(), Objects.requireNonNull(r.body()).string());
+      }
+    }
+    return response;
+  }
+
+  private <R> R handleStreamingResponse(
+      Request request, Response response, StreamingResponseHandler<R> responseHandler)
+      throws IOException {
+    ResponseBody body = Objects.requireNonNull(response.body());
+    if (response.code() != HttpURLConnection.HTTP_OK) {
+      throw new RequestFailureException(request.url().toString(), response.code(), body.string());
+    }
+    try (InputStream bodyStream = body.byteStream()) {
+      return responseHandler.handleResponse(response, bodyStream);
+    }
+  }
+
+  /**
+   * Enqueue the call, without blocking the calling thread. Once the response has been read, the
+   * response handler is executed on the processing executor of the configuration, so that the
+   * threads of the HTTP client are not busy deserializing data. Cancelling the returned future
+   * cancels the call.
+   */
+  protected <R> CompletableFuture<R> performCallAsync(
+      Request request, ResponseHandler<R> responseHandler) {
+    return enqueue(
+        request,
+        (response, result) -> {
+          String body;
+          try (Response r = response) {
+            body = Objects.requireNonNull(r.body()).string();
+          }
+          if (response.code() != HttpURLConnection.HTTP_OK) {
+            throw new RequestFailureException(request.url().toString(), response.code(), body);
+          }
+          completeOnProcessingExecutor(
+              result, () -> responseHandler.handleResponse(response, body));
+        });
+  }
+
+  /**
+   * Variant of {@link #performCallAsync(Request, ResponseHandler)} reading the body of successful
+   * responses as a stream. Reading blocks until the body has been received, so the reader is
+   * executed on the thread of the HTTP client which received the response, while the processor,
+   * which typically deserializes what has been read, is executed on the processing executor.
+   */
+  protected <T, R> CompletableFuture<R> performStreamingCallAsync(
+      Request request, StreamingResponseHandler<T> reader, Function<T, R> processor) {
+    return enqueue(
+        request,
+        (response, result) -> {
+          T read;
+          try (Response r = response) {
+            read = handleStreamingResponse(request, r, reader);
+          }
+          completeOnProcessingExecutor(result, () -> processor.apply(read));
+        });
+  }
+
+  /** Code executed on the thread of the HTTP client when the response to a call is received. */
+  private interface AsyncResponseHandler<R> {
+    /** Complete the result, or throw an exception to complete it exceptionally. */
+    void handleResponse(Response response, CompletableFuture<R> result) throws IOException;
+  }
+
+  /** Enqueue the call. Cancelling the returned future cancels the call. */
+  private <R> CompletableFuture<R> enqueue(
+      Request request, AsyncResponseHandler<R> asyncResponseHandler) {
+    CompletableFuture<R> result = new CompletableFuture<>();
+    Call call = conf.getHttpClient().newCall(request);
+    call.enqueue(
+        new Callback() {
+          @Override
+          public void onFailure(@NotNull Call call, @NotNull IOException e) {
+            result.completeExceptionally(e);
+          }
+
+          @Override
+          public void onResponse(@NotNull Call call, @NotNull Response response) {
+            try {
+              asyncResponseHandler.handleResponse(response, result);
+            } catch (Throwable t) {
+              response.close();
+              result.completeExceptionally(t);
+            }
+          }
+        });
+    result.whenComplete(
+        (r, t) -> {
+          if (result.isCancelled()) {
+            call.cancel();
+          }
+        });
+    return result;
+  }
+
+  private <R> void completeOnProcessingExecutor(CompletableFuture<R> result, Supplier<R> supplier) {
+    conf.getProcessingExecutor()
+        .execute(
+            () -> {
+              try {
+                result.complete(supplier.get());
+              } catch (Throwable t) {
+                result.completeExceptionally(t);
+              }
+            });
+  }
+
+  /**
+   * Variant of {@link #performCallAsync(Request, ResponseHandler)} for requests which are expensive
+   * to build, typically because they require serializing nodes. The request is built on the
+   * processing executor.
+   */
+  protected <R> CompletableFuture<R> performCallAsync(
+      Supplier<Request> requestSupplier, ResponseHandler<R> responseHandler) {
+    return CompletableFuture.supplyAsync(requestSupplier, conf.getProcessingExecutor())
+        .thenCompose(request -> performCallAsync(request, responseHandler));
+  }
+
+  /**
+   * Perform one asynchronous call for each input, keeping at most maxConcurrentCalls of them in
+   * progress at any time. The results are in the same order as the inputs. After a call fails, no
+   * further calls are started and the returned future completes exceptionally.
+   */
+  protected <T, R> CompletableFuture<List<R>> performCallsAsync(
+      List<T> inputs, int maxConcurrentCalls, Function<T, CompletableFuture<R>> call) {
+    AtomicReferenceArray<R> results = new AtomicReferenceArray<>(inputs.size());
+    AtomicInteger next = new AtomicInteger();
+    AtomicBoolean failed = new AtomicBoolean();
+    CompletableFuture<?>[] lanes =
+        new CompletableFuture<?>[Math.min(maxConcurrentCalls, inputs.size())];
+    for (int i = 0; i < lanes.length; i++) {
+      lanes[i] = performCallsSequentially(inputs, call, results, next, failed);
+    }
+    return CompletableFuture.allOf(lanes)
+        .thenApply(
+            ignored -> {
+              List<R> list = new ArrayList<>(inputs.size());
+              for (int i = 0; i < inputs.size(); i++) {
+                list.add(results.get(i));
+              }
+              return list;
+            });
+  }
+
+  private static <T, R> CompletableFuture<Void> performCallsSequentially(
+      List<T> inputs,
+      Function<T, CompletableFuture<R>> call,
+      AtomicReferenceArray<R> results,
+      AtomicInteger next,
+      AtomicBoolean failed) {
+    int index = next.getAndIncrement();
+    if (index >= inputs.size() || failed.get()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return call.apply(inputs.get(index))
+        .whenComplete(
+            (result, error) -> {
+              if (error != null) {
+                failed.set(true);
+              }
+            })
+        .thenCompose(
+            result -> {
+              results.set(index, result);
+              return performCallsSequentially(inputs, call, results, next, failed);
+            });
+  }
+
+  /**
+   * Wait for the completion of an asynchronous call, reporting its failure as the corresponding
+   * synchronous call would.
+   */
+  protected static <R> R await(CompletableFuture<R> future) throws IOException {
+    try {
+      return future.get();
+    } catch (InterruptedException e) {
+      future.cancel(true);
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while waiting for the call to complete");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      while (cause instanceof CompletionException && cause.getCause() != null) {
+        cause = cause.getCause();
+      }
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof UncheckedIOException) {
+        throw ((UncheckedIOException) cause).getCause();
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
+      } else {
+        throw new IOException(cause);
+      }
+    }
+  }
+
   protected Request.Builder considerAuthenticationToken(Request.Builder builder) {
     return (conf.getAuthorizationToken() == null)
         ? builder
@@ -92,10 +334,20 @@ abstract class LionWebClientImplHelper {
   }
 
   protected @Nullable RepositoryVersionToken getRepoVersionFromResponse(String responseBody) {
-    JsonArray data =
-        JsonParser.parseString(responseBody).getAsJsonObject().get("messages").getAsJsonArray();
+    return getRepoVersionFromResponse(JsonParser.parseString(responseBody).getAsJsonObject());
+  }
+
+  protected @Nullable RepositoryVersionToken getRepoVersionFromResponse(JsonObject responseData) {
+    return getRepoVersionFromMessages(responseData.get("messages"));
+  }
+
+  protected @Nullable RepositoryVersionToken getRepoVersionFromMessages(
+      @Nullable JsonElement messages) {
+    if (messages == null || !messages.isJsonArray()) {
+      return null;
+    }
     Optional<JsonElement> repoVersionMessage =
-        data.asList().stream()
+        messages.getAsJsonArray().asList().stream()
             .filter(e -> e.getAsJsonObject().get("kind").getAsString().equals("RepoVersion"))
             .findFirst();
     if (!repoVersionMessage.isPresent()) {
@@ -111,4 +363,25 @@ abstract class LionWebClientImplHelper {
             .getAsLong();
     return new RepositoryVersionToken(Long.toString(version));
   }
+
+  /**
+   * To be invoked when a request modified the repository, so that the nodes cached are not used
+   * anymore.
+   *
+   * @return the given version, for convenience
+   */
+  protected @Nullable RepositoryVersionToken repositoryModified(
+      @Nullable RepositoryVersionToken newVersion) {
+    NodeCache nodeCache = conf.getNodeCache();
+    if (nodeCache != null) {
+      nodeCache.invalidate(newVersion);
+    }
+    return newVersion;
+  }
+
+  /** Response handler for requests modifying the repository, returning its new version. */
+  protected @Nullable RepositoryVersionToken handleModification(
+      Response response, String responseBody) {
+    return repositoryModified(getRepoVersionFromResponse(responseBody));
+  }
 }
@@ -0,0 +1,167 @@
+package io.lionweb.client.impl;
+
+import com.google.gson.JsonArray;
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
+import io.lionweb.client.RequestFailureException;
+import io.lionweb.serialization.LowLevelJsonSerialization;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.Iterator;
+import java.util.NoSuchElementException;
+import java.util.Objects;
+import okhttp3.Response;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Iterates over the nodes contained in the response of a retrieve request, parsing them one at a
+ * time while the body is received. The fields of the response other than the chunk are read when
+ * they are encountered, so a failure reported by the repository is detected at the latest when the
+ * end of the body is reached.
+ *
+ * <p>The response is closed when the iteration is completed or fails, or when {@link #close()} is
+ * invoked.
+ */
+class StreamingChunkReader implements Iterator<SerializedClassifierInstance>, Closeable {
+  private enum State {
+    IN_NODES,
+    DONE
+  }
+
+  private final Response response;
+  private final JsonReader jsonReader;
+  private final LowLevelJsonSerialization serialization = new LowLevelJsonSerialization();
+  private State state;
+  private boolean success;
+  private boolean chunkFound;
+  private @Nullable JsonArray messages;
+
+  StreamingChunkReader(Response response) throws IOException {
+    this.response = response;
+    try {
+      this.jsonReader =
+          new JsonReader(
+              new InputStreamReader(
+                  Objects.requireNonNull(response.body()).byteStream(), StandardCharsets.UTF_8));
+      jsonReader.beginObject();
+      readUntilNodes();
+    } catch (IOException | RuntimeException e) {
+      response.close();
+      throw e;
+    }
+  }
+
+  /** Advance to the beginning of the nodes array, or to the end of the response. */
+  private void readUntilNodes() throws IOException {
+    while (jsonReader.hasNext()) {
+      String key = jsonReader.nextName();
+      if (key.equals("chunk")) {
+        chunkFound = true;
+        jsonReader.beginObject();
+        while (jsonReader.hasNext()) {
+          if (jsonReader.nextName().equals("nodes")) {
+            jsonReader.beginArray();
+            state = State.IN_NODES;
+            return;
+          }
+          jsonReader.skipValue();
+        }
+        jsonReader.endObject();
+      } else {
+        readTopLevelValue(key);
+      }
+    }
+    jsonReader.endObject();
+    complete();
+  }
+
+  private void readTopLevelValue(String key) throws IOException {
+    switch (key) {
+      case "success":
+        success = jsonReader.nextBoolean();
+        break;
+      case "messages":
+        JsonElement messagesElement = JsonParser.parseReader(jsonReader);
+        messages = messagesElement.isJsonArray() ? messagesElement.getAsJsonArray() : null;
+        break;
+      default:
+        jsonReader.skipValue();
+    }
+  }
+
+  /** Read what follows the nodes array, up to the end of the response. */
+  private void readAfterNodes() throws IOException {
+    jsonReader.endArray();
+    while (jsonReader.hasNext()) {
+      jsonReader.nextName();
+      jsonReader.skipValue();
+    }
+    jsonReader.endObject();
+    while (jsonReader.hasNext()) {
+      readTopLevelValue(jsonReader.nextName());
+    }
+    jsonReader.endObject();
+    complete();
+  }
+
+  private void complete() {
+    state = State.DONE;
+    response.close();
+    if (!success) {
+      throw new RequestFailureException(
+          response.request().url().toString(),
+          response.code(),
+          BulkResponse.describe(false, messages));
+    }
+    if (!chunkFound) {
+      throw new IllegalStateException("The response does not contain a chunk");
+    }
+  }
+
+  @Override
+  public boolean hasNext() {
+    if (state == State.DONE) {
+      return false;
+    }
+    try {
+      if (jsonReader.hasNext()) {
+        return true;
+      }
+      readAfterNodes();
+      return false;
+    } catch (IOException e) {
+      close();
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public SerializedClassifierInstance next() {
+    if (!hasNext()) {
+      throw new NoSuchElementException();
+    }
+    try {
+      return serialization.deserializeClassifierInstance(jsonReader);
+    } catch (IOException e) {
+      close();
+      throw new UncheckedIOException(e);
+    } catch (RuntimeException e) {
+      close();
+      throw e;
+    }
+  }
+
+  @Override
+  public void close() {
+    state = State.DONE;
+    response.close();
+  }
+}
@@ -0,0 +1,77 @@
+package io.lionweb.client.inmemory;
+
+import io.lionweb.client.api.RepositoryVersionToken;
+import java.util.Objects;
+import org.jetbrains.annotations.NotNull;
+
+/**
+ * The effect of a change on a repository of an InMemoryServer.
+ *
+ * <ul>
+ *   <li>addedNodes: the nodes which did not exist before the change
+ *   <li>movedNodes: the existing nodes which became children of a different node
+ *   <li>removedNodes: the nodes deleted, including the descendants of the nodes detached from
+ *       their parent
+ * </ul>
+ */
+public class ChangeSummary {
+  private final @NotNull RepositoryVersionToken version;
+  private final int addedNodes;
+  private final int movedNodes;
+  private final int removedNodes;
+
+  public ChangeSummary(
+      @NotNull RepositoryVersionToken version, int addedNodes, int movedNodes, int removedNodes) {
+    this.version = Objects.requireNonNull(version, "version should not be null");
+    this.addedNodes = addedNodes;
+    this.movedNodes = movedNodes;
+    this.removedNodes = removedNodes;
+  }
+
+  /** The version produced by the change. */
+  public @NotNull RepositoryVersionToken getVersion() {
+    return version;
+  }
+
+  public int getAddedNodes() {
+    return addedNodes;
+  }
+
+  public int getMovedNodes() {
+    return movedNodes;
+  }
+
+  public int getRemovedNodes() {
+    return removedNodes;
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) return true;
+    if (!(o instanceof ChangeSummary)) return false;
+    ChangeSummary that = (ChangeSummary) o;
+    return addedNodes == that.addedNodes
+        && movedNodes == that.movedNodes
+        && removedNodes == that.removedNodes
+        && version.equals(that.version);
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(version, addedNodes, movedNodes, removedNodes);
+  }
+
+  @Override
+  public String toString() {
+    return "ChangeSummary{"
+        + "version="
+        + version
+        + ", addedNodes="
+        + addedNodes
+        + ", movedNodes="
+        + movedNodes
+        + ", removedNodes="
+        + removedNodes
+        + '}';
+  }
+}
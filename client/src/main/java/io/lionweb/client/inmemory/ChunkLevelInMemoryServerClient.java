@@ -115,6 +115,21 @@ public class ChunkLevelInMemoryServerClient
     // Nothing to do
   }
 
+  //
+  // History methods
+  //
+
+  public @NotNull List<String> listPartitionsIDs(@NotNull RepositoryVersionToken repoVersion) {
+    requireRepository();
+    return inMemoryServer.listPartitionIDs(repositoryName, repoVersion);
+  }
+
+  public @NotNull List<SerializedClassifierInstance> retrieveAsChunk(
+      @NotNull RepositoryVersionToken repoVersion, @NotNull List<String> nodeIds, int limit) {
+    requireRepository();
+    return inMemoryServer.retrieve(repositoryName, repoVersion, nodeIds, limit);
+  }
+
   //
   // InspectionAPIClient methods
   //
@@ -3,7 +3,15 @@ package io.lionweb.client.inmemory;
 import io.lionweb.client.api.*;
 import io.lionweb.serialization.data.MetaPointer;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
+import io.lionweb.serialization.data.SerializedContainmentValue;
+import io.lionweb.serialization.data.SerializedPropertyValue;
+import io.lionweb.serialization.data.SerializedReferenceValue;
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import org.jetbrains.annotations.NotNull;
 import org.jetbrains.annotations.Nullable;
@@ -17,11 +25,96 @@ import org.jetbrains.annotations.Nullable;
  * or binary formats.
  *
  * <p>Different clients can then still work with nodes or JSON or binary formats.
+ *
+ * <p>The server can be shared by concurrent clients. Changes to different repositories proceed in
+ * parallel, while changes to the same repository are serialized, so that each version token
+ * corresponds to a consistent state. Each change publishes an immutable snapshot of the repository,
+ * sharing the unchanged nodes with the previous one: retrievals read the last snapshot, so they
+ * never wait for changes.
+ *
+ * <p>Repositories with history support keep their last {@link #getRetainedVersions()} snapshots,
+ * which can be read by passing the version token returned by a change.
+ *
+ * <p>A server created through {@link #open(File, StorageSettings)} persists its data in a
+ * directory, and recovers it when opened again. Each change is appended to a log, and it returns
+ * once the log has been written: the change is visible to the other clients slightly before it is
+ * durable. Only the current version of the repositories is persisted, not their history.
  */
-public class InMemoryServer {
+public class InMemoryServer implements Closeable {
+  public static final int DEFAULT_RETAINED_VERSIONS = 100;
 
   /** Internally we store the data separately for each repository. */
-  private final Map<String, RepositoryData> repositories = new LinkedHashMap<>();
+  private final Map<String, RepositoryData> repositories = new ConcurrentHashMap<>();
+
+  private volatile int retainedVersions = DEFAULT_RETAINED_VERSIONS;
+
+  /** Where changes are persisted, or null if they are not. */
+  private final @Nullable ServerStorage storage;
+
+  // Serializes the creation and deletion of repositories with the checkpoints
+  private final Object catalogLock = new Object();
+
+  public InMemoryServer() {
+    this.storage = null;
+  }
+
+  private InMemoryServer(@NotNull File directory, @NotNull StorageSettings settings)
+      throws IOException {
+    this.storage = new ServerStorage(directory, settings);
+    storage.recover(this);
+  }
+
+  /** Open a server persisting its data in the given directory, with the default settings. */
+  public static InMemoryServer open(@NotNull File directory) throws IOException {
+    return open(directory, StorageSettings.DEFAULT);
+  }
+
+  /**
+   * Open a server persisting its data in the given directory, which is created if it does not
+   * exist. The data previously stored in the directory is recovered. The server should be closed
+   * once done, and the directory should not be used by other servers meanwhile.
+   */
+  public static InMemoryServer open(@NotNull File directory, @NotNull StorageSettings settings)
+      throws IOException {
+    return new InMemoryServer(directory, settings);
+  }
+
+  /**
+   * Write a snapshot of all the repositories and discard the log preceding it, so that the
+   * recovery does not need to replay it. Snapshots are also taken automatically, after {@link
+   * StorageSettings#getCheckpointThreshold()} bytes of log.
+   */
+  public void checkpoint() throws IOException {
+    if (storage == null) {
+      throw new IllegalStateException("This server does not persist its data");
+    }
+    storage.checkpoint(this::capture, true);
+  }
+
+  /** Make durable the pending changes and release the files, if the data is persisted. */
+  @Override
+  public void close() throws IOException {
+    if (storage != null) {
+      storage.close();
+    }
+  }
+
+  public int getRetainedVersions() {
+    return retainedVersions;
+  }
+
+  /**
+   * Number of versions kept by each repository with history support, including the current one.
+   * Older versions are discarded, and cannot be retrieved anymore. The change applies also to the
+   * existing repositories.
+   */
+  public void setRetainedVersions(int retainedVersions) {
+    if (retainedVersions < 1) {
+      throw new IllegalArgumentException("retainedVersions should be at least 1");
+    }
+    this.retainedVersions = retainedVersions;
+    repositories.values().forEach(r -> r.setRetainedVersions(retainedVersions));
+  }
 
   public @NotNull RepositoryConfiguration getRepositoryConfiguration(
       @NotNull String repositoryName) {
@@ -33,7 +126,13 @@ public class InMemoryServer {
       throw new IllegalArgumentException("One can ask for zero or more ids");
     }
     RepositoryData repositoryData = getRepository(repositoryName);
-    return repositoryData.ids(count);
+    List<String> ids = repositoryData.ids(count);
+    if (storage != null && count > 0) {
+      // Ids are not versioned, so the record only needs to be appended
+      awaitDurable(
+          append(encode(LogRecord.ids(repositoryName, repositoryData.nextId()), repositoryData)));
+    }
+    return ids;
   }
 
   public @NotNull Set<RepositoryConfiguration> listRepositories() {
@@ -42,68 +141,103 @@ public class InMemoryServer {
 
   public void createRepository(@NotNull RepositoryConfiguration repositoryConfiguration) {
     Objects.requireNonNull(repositoryConfiguration);
-    if (repositoryConfiguration.getHistorySupport() == HistorySupport.ENABLED) {
-      throw new IllegalArgumentException(
-          "The InMemoryServer does not support History for the time being");
+    RepositoryData repositoryData = new RepositoryData(repositoryConfiguration, retainedVersions);
+    byte[] encoded = encode(LogRecord.createRepository(repositoryConfiguration), repositoryData);
+    long lsn;
+    synchronized (catalogLock) {
+      lsn = append(encoded);
+      repositoryData.appliedLsn = lsn;
+      repositories.put(repositoryConfiguration.getName(), repositoryData);
     }
-    repositories.put(
-        repositoryConfiguration.getName(), new RepositoryData(repositoryConfiguration));
+    awaitDurable(lsn);
   }
 
   public void deleteRepository(@NotNull String repositoryName) {
     Objects.requireNonNull(repositoryName);
-    if (!repositories.containsKey(repositoryName)) {
-      throw new IllegalArgumentException();
+    byte[] encoded =
+        encode(LogRecord.deleteRepository(repositoryName), getRepository(repositoryName));
+    long lsn;
+    synchronized (catalogLock) {
+      if (!repositories.containsKey(repositoryName)) {
+        throw new IllegalArgumentException();
+      }
+      lsn = append(encoded);
+      repositories.remove(repositoryName);
     }
-    repositories.remove(repositoryName);
+    awaitDurable(lsn);
   }
 
   public @NotNull List<String> listPartitionIDs(@NotNull String repositoryName) {
-    Objects.requireNonNull(repositoryName, "RepositoryName should not be null");
-    RepositoryData repositoryData = repositories.get(repositoryName);
-    return repositoryData.partitionIDs;
+    return getRepository(repositoryName).snapshot().partitionIDs;
   }
 
   public @NotNull RepositoryVersionToken createPartitionFromChunk(
       @NotNull String repositoryName, @NotNull List<SerializedClassifierInstance> partitions) {
     Objects.requireNonNull(partitions);
-    RepositoryData repositoryData = getRepository(repositoryName);
-    // We get all roots (i.e. -> partitions) which do not yet exist
-    // and add them to the list of partition IDs
-    repositoryData.partitionIDs.addAll(
-        partitions.stream()
-            .filter(n -> n.getParentNodeID() == null)
-            .map(SerializedClassifierInstance::getID)
-            .filter(id -> !repositoryData.partitionIDs.contains(id))
-            .collect(Collectors.toList()));
-    repositoryData.store(partitions);
-    return repositoryData.bumpVersion();
+    return change(
+            getRepository(repositoryName),
+            LogRecord.createPartitions(repositoryName, copy(partitions)))
+        .getVersion();
   }
 
   public @NotNull RepositoryVersionToken deletePartitions(
       @NotNull String repositoryName, @NotNull List<String> partitionIds) {
     Objects.requireNonNull(partitionIds);
-    RepositoryData repositoryData = getRepository(repositoryName);
-    repositoryData.partitionIDs.removeIf(partitionIds::contains);
-    partitionIds.forEach(repositoryData::deleteNodeAndDescendant);
-    return repositoryData.bumpVersion();
+    return change(
+            getRepository(repositoryName), LogRecord.deletePartitions(repositoryName, partitionIds))
+        .getVersion();
   }
 
+  /**
+   * The nodes returned are copies, so modifying them does not affect the repository, nor the
+   * versions kept in its history. Likewise, the nodes passed to the methods which change the
+   * repository are copied.
+   */
   public List<SerializedClassifierInstance> retrieve(
       @NotNull String repositoryName, List<String> nodeIds, int limit) {
-    Objects.requireNonNull(repositoryName, "RepositoryName should not be null");
-    RepositoryData repositoryData = repositories.get(repositoryName);
-    List<SerializedClassifierInstance> retrieved = new ArrayList<>();
-    nodeIds.forEach(n -> repositoryData.retrieve(n, limit, retrieved));
-    return retrieved;
+    return retrieve(getRepository(repositoryName).snapshot(), nodeIds, limit);
   }
 
   public RepositoryVersionToken store(
       @NotNull String repositoryName, @NotNull List<SerializedClassifierInstance> nodes) {
-    Objects.requireNonNull(repositoryName, "RepositoryName should not be null");
-    RepositoryData repositoryData = repositories.get(repositoryName);
-    repositoryData.store(nodes);
-    return repositoryData.bumpVersion();
+    return storeWithSummary(repositoryName, nodes).getVersion();
+  }
+
+  /**
+   * Store the given nodes, like {@link #store(String, List)}, reporting how many nodes have been
+   * added, moved and removed.
+   */
+  public @NotNull ChangeSummary storeWithSummary(
+      @NotNull String repositoryName, @NotNull List<SerializedClassifierInstance> nodes) {
+    Objects.requireNonNull(nodes);
+    return change(getRepository(repositoryName), LogRecord.store(repositoryName, copy(nodes)));
+  }
+
+  //
+  // History
+  //
+
+  /**
+   * The partitions of a repository with history support, at a given version.
+   *
+   * @throws IllegalArgumentException if the version is unknown or has been discarded
+   */
+  public @NotNull List<String> listPartitionIDs(
+      @NotNull String repositoryName, @NotNull RepositoryVersionToken repoVersion) {
+    return getRepository(repositoryName).snapshot(repoVersion).partitionIDs;
+  }
+
+  /**
+   * Retrieve nodes of a repository with history support, at a given version.
+   *
+   * @throws IllegalArgumentException if the version is unknown or has been discarded
+   */
+  public List<SerializedClassifierInstance> retrieve(
+      @NotNull String repositoryName,
+      @NotNull RepositoryVersionToken repoVersion,
+      List<String> nodeIds,
+      int limit) {
+    return retrieve(getRepository(repositoryName).snapshot(repoVersion), nodeIds, limit);
   }
 
   //
@@ -116,24 +250,7 @@ public class InMemoryServer {
 
   public Map<ClassifierKey, ClassifierResult> nodesByClassifier(
       @NotNull String repositoryName, @Nullable Integer limit) {
-    RepositoryData repositoryData = getRepository(repositoryName);
-    Map<MetaPointer, List<SerializedClassifierInstance>> byMetapointer =
-        repositoryData.nodesByID.values().stream()
-            .collect(Collectors.groupingBy(n -> n.getClassifier()));
-    Map<ClassifierKey, ClassifierResult> res = new HashMap<>();
-    for (Map.Entry<MetaPointer, List<SerializedClassifierInstance>> entry :
-        byMetapointer.entrySet()) {
-      ClassifierKey key = new ClassifierKey(entry.getKey().getLanguage(), entry.getKey().getKey());
-      ClassifierResult cr =
-          new ClassifierResult(
-              entry.getValue().stream()
-                  .limit(limit)
-                  .map(n -> n.getID())
-                  .collect(Collectors.toSet()),
-              entry.getValue().size());
-      res.put(key, cr);
-    }
-    return res;
+    return inspect(getRepository(repositoryName).snapshot().idsByClassifier, limit);
   }
 
   public Map<String, ClassifierResult> nodesByLanguage(@NotNull String repositoryName) {
@@ -142,28 +259,219 @@ public class InMemoryServer {
 
   public Map<String, ClassifierResult> nodesByLanguage(
       @NotNull String repositoryName, @Nullable Integer limit) {
-    RepositoryData repositoryData = getRepository(repositoryName);
-    Map<String, List<SerializedClassifierInstance>> byMetapointer =
-        repositoryData.nodesByID.values().stream()
-            .collect(Collectors.groupingBy(n -> n.getClassifier().getLanguage()));
-    Map<String, ClassifierResult> res = new HashMap<>();
-    for (Map.Entry<String, List<SerializedClassifierInstance>> entry : byMetapointer.entrySet()) {
-      ClassifierResult cr =
-          new ClassifierResult(
-              entry.getValue().stream()
-                  .limit(limit)
-                  .map(n -> n.getID())
-                  .collect(Collectors.toSet()),
-              entry.getValue().size());
-      res.put(entry.getKey(), cr);
+    return inspect(getRepository(repositoryName).snapshot().idsByLanguage, limit);
+  }
+
+  //
+  // Persistence
+  //
+
+  /** Apply a record read from the log, unless its change is already reflected by the state. */
+  void replay(@NotNull LogRecord record) {
+    RepositoryData repositoryData = repositories.get(record.repositoryName);
+    boolean applied = repositoryData != null && repositoryData.appliedLsn >= record.lsn;
+    switch (record.type) {
+      case CREATE_REPOSITORY:
+        if (!applied) {
+          repositoryData = new RepositoryData(record.configuration, retainedVersions);
+          repositoryData.appliedLsn = record.lsn;
+          repositories.put(record.repositoryName, repositoryData);
+        }
+        break;
+      case DELETE_REPOSITORY:
+        if (repositoryData != null && !applied) {
+          repositories.remove(record.repositoryName);
+        }
+        break;
+      case IDS:
+        if (repositoryData != null) {
+          repositoryData.reserveIds(record.nextId);
+        }
+        break;
+      default:
+        if (repositoryData != null && !applied) {
+          RepositoryData target = repositoryData;
+          target.write(
+              () -> {
+                apply(target, record);
+                target.appliedLsn = record.lsn;
+                return target.bumpVersion();
+              });
+        }
+        break;
+    }
+  }
+
+  /** Add a repository read from a snapshot. */
+  void restore(@NotNull ServerStorage.RepositoryState state) {
+    RepositoryData repositoryData = new RepositoryData(state.configuration, retainedVersions);
+    repositoryData.restore(state);
+    repositories.put(state.configuration.getName(), repositoryData);
+  }
+
+  private List<ServerStorage.RepositoryState> capture() {
+    synchronized (catalogLock) {
+      return repositories.values().stream()
+          .map(RepositoryData::capture)
+          .collect(Collectors.toList());
     }
-    return res;
   }
 
   //
   // Private methods
   //
 
+  /**
+   * Apply a change to a repository and publish a new version. When persisting, the change is
+   * appended to the log under the lock of the repository, so that the log follows the order of the
+   * versions, while the record is encoded before and the log is forced after.
+   */
+  private ChangeSummary change(RepositoryData repositoryData, LogRecord record) {
+    byte[] encoded = encode(record, repositoryData);
+    long[] lsn = new long[1];
+    ChangeSummary summary =
+        repositoryData.write(
+            () -> {
+              RepositoryData.Changes changes = apply(repositoryData, record);
+              if (encoded != null) {
+                lsn[0] = append(encoded);
+                repositoryData.appliedLsn = lsn[0];
+              }
+              return new ChangeSummary(
+                  repositoryData.bumpVersion(),
+                  changes.addedNodes,
+                  changes.movedNodes,
+                  changes.removedNodes);
+            });
+    awaitDurable(lsn[0]);
+    return summary;
+  }
+
+  private static RepositoryData.Changes apply(RepositoryData repositoryData, LogRecord record) {
+    switch (record.type) {
+      case CREATE_PARTITIONS:
+        // We get all roots (i.e. -> partitions) which do not yet exist
+        // and add them to the list of partition IDs
+        Set<String> partitionIDs = new HashSet<>(repositoryData.partitionIDs);
+        record.nodes.stream()
+            .filter(n -> n.getParentNodeID() == null)
+            .map(SerializedClassifierInstance::getID)
+            .filter(partitionIDs::add)
+            .forEach(repositoryData.partitionIDs::add);
+        return repositoryData.store(record.nodes);
+      case DELETE_PARTITIONS:
+        Set<String> deleted = new HashSet<>(record.ids);
+        repositoryData.partitionIDs.removeIf(deleted::contains);
+        RepositoryData.Changes changes = new RepositoryData.Changes();
+        record.ids.forEach(
+            id -> changes.removedNodes += repositoryData.deleteNodeAndDescendant(id));
+        return changes;
+      case STORE:
+        return repositoryData.store(record.nodes);
+      default:
+        throw new IllegalArgumentException("Unexpected change " + record.type);
+    }
+  }
+
+  /** The record to append to the log, or null if the data is not persisted. */
+  private @Nullable byte[] encode(LogRecord record, RepositoryData repositoryData) {
+    return storage == null
+        ? null
+        : storage.encode(record, repositoryData.configuration.getLionWebVersion());
+  }
+
+  /** Append a record to the log, returning its lsn, or zero if the data is not persisted. */
+  private long append(@Nullable byte[] encoded) {
+    if (storage == null) {
+      return 0;
+    }
+    try {
+      return storage.append(encoded);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Wait for a record to be durable, then take a snapshot if the log has grown enough. */
+  private void awaitDurable(long lsn) {
+    if (storage == null) {
+      return;
+    }
+    try {
+      storage.awaitDurable(lsn);
+      if (storage.needsCheckpoint()) {
+        storage.checkpoint(this::capture, false);
+      }
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /** Read an index, taking at most limit ids for each key. */
+  private static <K> Map<K, ClassifierResult> inspect(
+      PersistentMap<K, PersistentMap<String, Boolean>> index, @Nullable Integer limit) {
+    int maxIds = limit == null ? Integer.MAX_VALUE : limit;
+    Map<K, ClassifierResult> res = new HashMap<>();
+    index.forEach(
+        (key, ids) -> {
+          Set<String> firstIds = new HashSet<>();
+          Iterator<String> iterator = ids.keySet().iterator();
+          while (firstIds.size() < maxIds && iterator.hasNext()) {
+            firstIds.add(iterator.next());
+          }
+          res.put(key, new ClassifierResult(firstIds, ids.size()));
+        });
+    return res;
+  }
+
+  private static List<SerializedClassifierInstance> retrieve(
+      RepositoryData.Snapshot snapshot, List<String> nodeIds, int limit) {
+    List<SerializedClassifierInstance> retrieved = new ArrayList<>();
+    nodeIds.forEach(n -> snapshot.retrieve(n, limit, retrieved));
+    return copy(retrieved);
+  }
+
+  /**
+   * Nodes are copied when they enter or leave the server, as they are shared by the versions of a
+   * repository, which should not be changed by the clients.
+   */
+  private static List<SerializedClassifierInstance> copy(List<SerializedClassifierInstance> nodes) {
+    List<SerializedClassifierInstance> copies = new ArrayList<>(nodes.size());
+    for (SerializedClassifierInstance node : nodes) {
+      copies.add(copy(node));
+    }
+    return copies;
+  }
+
+  private static SerializedClassifierInstance copy(SerializedClassifierInstance node) {
+    // Canonical MetaPointers cannot be modified, so they can be shared
+    SerializedClassifierInstance copy =
+        new SerializedClassifierInstance(node.getID(), intern(node.getClassifier()));
+    copy.setParentNodeID(node.getParentNodeID());
+    for (SerializedPropertyValue property : node.getProperties()) {
+      copy.setPropertyValue(intern(property.getMetaPointer()), property.getValue());
+    }
+    for (SerializedContainmentValue containment : node.getContainments()) {
+      copy.addChildren(intern(containment.getMetaPointer()), containment.getValue());
+    }
+    for (SerializedReferenceValue reference : node.getReferences()) {
+      List<SerializedReferenceValue.Entry> entries = new ArrayList<>(reference.getValue().size());
+      for (SerializedReferenceValue.Entry entry : reference.getValue()) {
+        entries.add(
+            new SerializedReferenceValue.Entry(entry.getReference(), entry.getResolveInfo()));
+      }
+      copy.addReferenceValue(intern(reference.getMetaPointer()), entries);
+    }
+    if (!node.getAnnotations().isEmpty()) {
+      copy.setAnnotations(node.getAnnotations());
+    }
+    return copy;
+  }
+
+  private static @Nullable MetaPointer intern(@Nullable MetaPointer metaPointer) {
+    return metaPointer == null ? null : metaPointer.intern();
+  }
+
   private @NotNull RepositoryData getRepository(@NotNull String repositoryName) {
     Objects.requireNonNull(repositoryName, "RepositoryName should not be null");
     RepositoryData repositoryData = repositories.get(repositoryName);
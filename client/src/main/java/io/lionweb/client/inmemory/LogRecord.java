@@ -0,0 +1,209 @@
+package io.lionweb.client.inmemory;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.serialization.FlatBuffersSerialization;
+import io.lionweb.serialization.data.SerializedChunk;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * A change to an InMemoryServer, as appended to the log of a {@link ServerStorage}. Nodes are
+ * encoded as FlatBuffers chunks.
+ */
+final class LogRecord {
+  enum Type {
+    CREATE_REPOSITORY,
+    DELETE_REPOSITORY,
+    CREATE_PARTITIONS,
+    DELETE_PARTITIONS,
+    STORE,
+    IDS
+  }
+
+  final @NotNull Type type;
+  final @NotNull String repositoryName;
+  /** Set for CREATE_REPOSITORY. */
+  final @Nullable RepositoryConfiguration configuration;
+  /** Set for CREATE_PARTITIONS and STORE. */
+  final @NotNull List<SerializedClassifierInstance> nodes;
+  /** The partitions removed by DELETE_PARTITIONS. */
+  final @NotNull List<String> ids;
+  /** The first id not yet returned, for IDS. */
+  final int nextId;
+  /** Log sequence number, assigned when the record is appended. */
+  long lsn;
+
+  private LogRecord(
+      @NotNull Type type,
+      @NotNull String repositoryName,
+      @Nullable RepositoryConfiguration configuration,
+      @NotNull List<SerializedClassifierInstance> nodes,
+      @NotNull List<String> ids,
+      int nextId) {
+    this.type = type;
+    this.repositoryName = repositoryName;
+    this.configuration = configuration;
+    this.nodes = nodes;
+    this.ids = ids;
+    this.nextId = nextId;
+  }
+
+  static LogRecord createRepository(@NotNull RepositoryConfiguration configuration) {
+    return new LogRecord(
+        Type.CREATE_REPOSITORY,
+        configuration.getName(),
+        configuration,
+        Collections.emptyList(),
+        Collections.emptyList(),
+        0);
+  }
+
+  static LogRecord deleteRepository(@NotNull String repositoryName) {
+    return new LogRecord(
+        Type.DELETE_REPOSITORY,
+        repositoryName,
+        null,
+        Collections.emptyList(),
+        Collections.emptyList(),
+        0);
+  }
+
+  static LogRecord createPartitions(
+      @NotNull String repositoryName, @NotNull List<SerializedClassifierInstance> nodes) {
+    return new LogRecord(
+        Type.CREATE_PARTITIONS, repositoryName, null, nodes, Collections.emptyList(), 0);
+  }
+
+  static LogRecord deletePartitions(@NotNull String repositoryName, @NotNull List<String> ids) {
+    return new LogRecord(
+        Type.DELETE_PARTITIONS, repositoryName, null, Collections.emptyList(), ids, 0);
+  }
+
+  static LogRecord store(
+      @NotNull String repositoryName, @NotNull List<SerializedClassifierInstance> nodes) {
+    return new LogRecord(Type.STORE, repositoryName, null, nodes, Collections.emptyList(), 0);
+  }
+
+  static LogRecord ids(@NotNull String repositoryName, int nextId) {
+    return new LogRecord(
+        Type.IDS, repositoryName, null, Collections.emptyList(), Collections.emptyList(), nextId);
+  }
+
+  /** Encode the record, without its lsn. */
+  byte[] encode(@NotNull FlatBuffersSerialization serialization, @NotNull LionWebVersion version)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    out.writeByte(type.ordinal());
+    writeString(out, repositoryName);
+    switch (type) {
+      case CREATE_REPOSITORY:
+        writeString(out, configuration.getLionWebVersion().getVersionString());
+        writeString(out, configuration.getHistorySupport().name());
+        break;
+      case CREATE_PARTITIONS:
+      case STORE:
+        byte[] chunk = encodeNodes(serialization, version, nodes);
+        out.writeInt(chunk.length);
+        out.write(chunk);
+        break;
+      case DELETE_PARTITIONS:
+        out.writeInt(ids.size());
+        for (String id : ids) {
+          writeString(out, id);
+        }
+        break;
+      case IDS:
+        out.writeInt(nextId);
+        break;
+      default:
+        break;
+    }
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  static LogRecord decode(
+      long lsn, @NotNull ByteBuffer buffer, @NotNull FlatBuffersSerialization serialization) {
+    Type type = Type.values()[buffer.get()];
+    String repositoryName = readString(buffer);
+    LogRecord record;
+    switch (type) {
+      case CREATE_REPOSITORY:
+        LionWebVersion lionWebVersion = LionWebVersion.fromValue(readString(buffer));
+        HistorySupport historySupport = HistorySupport.valueOf(readString(buffer));
+        record =
+            createRepository(
+                new RepositoryConfiguration(repositoryName, lionWebVersion, historySupport));
+        break;
+      case DELETE_REPOSITORY:
+        record = deleteRepository(repositoryName);
+        break;
+      case CREATE_PARTITIONS:
+        record = createPartitions(repositoryName, decodeNodes(buffer, serialization));
+        break;
+      case STORE:
+        record = store(repositoryName, decodeNodes(buffer, serialization));
+        break;
+      case DELETE_PARTITIONS:
+        int count = buffer.getInt();
+        List<String> ids = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+          ids.add(readString(buffer));
+        }
+        record = deletePartitions(repositoryName, ids);
+        break;
+      case IDS:
+        record = ids(repositoryName, buffer.getInt());
+        break;
+      default:
+        throw new IllegalStateException("Unexpected record type " + type);
+    }
+    record.lsn = lsn;
+    return record;
+  }
+
+  static byte[] encodeNodes(
+      @NotNull FlatBuffersSerialization serialization,
+      @NotNull LionWebVersion version,
+      @NotNull Iterable<SerializedClassifierInstance> nodes) {
+    SerializedChunk chunk = new SerializedChunk();
+    chunk.setSerializationFormatVersion(version.getVersionString());
+    nodes.forEach(chunk::addClassifierInstance);
+    return serialization.serialize(chunk);
+  }
+
+  private static List<SerializedClassifierInstance> decodeNodes(
+      ByteBuffer buffer, FlatBuffersSerialization serialization) {
+    int length = buffer.getInt();
+    ByteBuffer chunk = buffer.slice();
+    // Through Buffer, so that the class links on Java 8 also when compiled by newer JDKs
+    ((Buffer) chunk).limit(length);
+    ((Buffer) buffer).position(buffer.position() + length);
+    return serialization.deserializeToChunk(chunk).getClassifierInstances();
+  }
+
+  static void writeString(DataOutputStream out, String value) throws IOException {
+    byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+    out.writeInt(bytes.length);
+    out.write(bytes);
+  }
+
+  static String readString(ByteBuffer buffer) {
+    byte[] bytes = new byte[buffer.getInt()];
+    buffer.get(bytes);
+    return new String(bytes, StandardCharsets.UTF_8);
+  }
+}
@@ -0,0 +1,375 @@
+package io.lionweb.client.inmemory;
+
+import java.util.*;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * An immutable map, implemented as a hash array mapped trie. Adding or removing an entry produces a
+ * new map, which shares with the original one all the branches of the trie not containing the
+ * entry: each change costs O(log32 n) time and space, so many versions of a large map can be kept
+ * at the cost of the differences between them.
+ *
+ * <p>Neither null keys nor null values are supported. The Map methods changing the map throw
+ * UnsupportedOperationException: {@link #plus(Object, Object)} and {@link #minus(Object)} should be
+ * used instead.
+ */
+final class PersistentMap<K, V> extends AbstractMap<K, V> {
+  private static final int BITS = 5;
+  private static final int MASK = (1 << BITS) - 1;
+  private static final PersistentMap<?, ?> EMPTY = new PersistentMap<>(null, 0);
+
+  private final @Nullable Node root;
+  private final int size;
+
+  private PersistentMap(@Nullable Node root, int size) {
+    this.root = root;
+    this.size = size;
+  }
+
+  @SuppressWarnings("unchecked")
+  static <K, V> PersistentMap<K, V> empty() {
+    return (PersistentMap<K, V>) EMPTY;
+  }
+
+  @Override
+  public int size() {
+    return size;
+  }
+
+  @Override
+  public boolean containsKey(Object key) {
+    return get(key) != null;
+  }
+
+  @Override
+  @SuppressWarnings("unchecked")
+  public @Nullable V get(Object key) {
+    if (root == null || key == null) {
+      return null;
+    }
+    int hash = hash(key);
+    Object current = root;
+    for (int shift = 0; ; shift += BITS) {
+      if (current instanceof Leaf) {
+        Leaf<K, V> leaf = (Leaf<K, V>) current;
+        return leaf.hash == hash && leaf.getKey().equals(key) ? leaf.getValue() : null;
+      }
+      if (current instanceof CollisionNode) {
+        return (V) ((CollisionNode) current).get(hash, key);
+      }
+      BitmapNode node = (BitmapNode) current;
+      int bit = bit(hash, shift);
+      if ((node.bitmap & bit) == 0) {
+        return null;
+      }
+      current = node.slots[node.index(bit)];
+    }
+  }
+
+  /** A map with the given entry, replacing the existing entry for the key, if any. */
+  PersistentMap<K, V> plus(@NotNull K key, @NotNull V value) {
+    Objects.requireNonNull(key, "key should not be null");
+    Objects.requireNonNull(value, "value should not be null");
+    Leaf<K, V> leaf = new Leaf<>(hash(key), key, value);
+    if (root == null) {
+      return new PersistentMap<>(new BitmapNode(bit(leaf.hash, 0), new Object[] {leaf}), 1);
+    }
+    boolean[] added = new boolean[1];
+    Node newRoot = root.plus(0, leaf, added);
+    return newRoot == root ? this : new PersistentMap<>(newRoot, added[0] ? size + 1 : size);
+  }
+
+  /** A map without the entry for the given key, or this map if it does not contain the key. */
+  PersistentMap<K, V> minus(@NotNull Object key) {
+    if (root == null) {
+      return this;
+    }
+    Object newRoot = root.minus(0, hash(key), key);
+    if (newRoot == root) {
+      return this;
+    }
+    if (newRoot == null) {
+      return empty();
+    }
+    if (newRoot instanceof Leaf) {
+      Leaf<?, ?> leaf = (Leaf<?, ?>) newRoot;
+      newRoot = new BitmapNode(bit(leaf.hash, 0), new Object[] {leaf});
+    }
+    return new PersistentMap<>((Node) newRoot, size - 1);
+  }
+
+  @Override
+  public @NotNull Set<Entry<K, V>> entrySet() {
+    return new AbstractSet<Entry<K, V>>() {
+      @Override
+      public Iterator<Entry<K, V>> iterator() {
+        return new LeafIterator<>(root);
+      }
+
+      @Override
+      public int size() {
+        return size;
+      }
+    };
+  }
+
+  private static int hash(Object key) {
+    int h = key.hashCode();
+    return h ^ (h >>> 16);
+  }
+
+  private static int bit(int hash, int shift) {
+    return 1 << ((hash >>> shift) & MASK);
+  }
+
+  /**
+   * The trie of two entries, or of an entry and a CollisionNode, with different hashes. The slots
+   * of the nodes are either Leaves, BitmapNodes or CollisionNodes.
+   */
+  private static Node branch(int shift, Object a, int hashA, Object b, int hashB) {
+    int bitA = bit(hashA, shift);
+    int bitB = bit(hashB, shift);
+    if (bitA == bitB) {
+      return new BitmapNode(bitA, new Object[] {branch(shift + BITS, a, hashA, b, hashB)});
+    }
+    // Slots are sorted by the position of their bit
+    return Integer.compareUnsigned(bitA, bitB) < 0
+        ? new BitmapNode(bitA | bitB, new Object[] {a, b})
+        : new BitmapNode(bitA | bitB, new Object[] {b, a});
+  }
+
+  private static final class Leaf<K, V> extends SimpleImmutableEntry<K, V> {
+    final int hash;
+
+    Leaf(int hash, K key, V value) {
+      super(key, value);
+      this.hash = hash;
+    }
+  }
+
+  private abstract static class Node {
+    final Object[] slots;
+
+    Node(Object[] slots) {
+      this.slots = slots;
+    }
+
+    /** This node, if the entry is already present, or a copy containing it. */
+    abstract Node plus(int shift, Leaf<?, ?> leaf, boolean[] added);
+
+    /**
+     * This node, if the key is not present, otherwise a copy without it: null if the copy would be
+     * empty, or the remaining Leaf, if it would contain only one, so that it can be inlined.
+     */
+    abstract @Nullable Object minus(int shift, int hash, Object key);
+  }
+
+  private static final class BitmapNode extends Node {
+    final int bitmap;
+
+    BitmapNode(int bitmap, Object[] slots) {
+      super(slots);
+      this.bitmap = bitmap;
+    }
+
+    int index(int bit) {
+      return Integer.bitCount(bitmap & (bit - 1));
+    }
+
+    @Override
+    Node plus(int shift, Leaf<?, ?> leaf, boolean[] added) {
+      int bit = bit(leaf.hash, shift);
+      int index = index(bit);
+      if ((bitmap & bit) == 0) {
+        added[0] = true;
+        Object[] newSlots = new Object[slots.length + 1];
+        System.arraycopy(slots, 0, newSlots, 0, index);
+        newSlots[index] = leaf;
+        System.arraycopy(slots, index, newSlots, index + 1, slots.length - index);
+        return new BitmapNode(bitmap | bit, newSlots);
+      }
+      Object slot = slots[index];
+      Object newSlot;
+      if (slot instanceof Leaf) {
+        Leaf<?, ?> existing = (Leaf<?, ?>) slot;
+        if (existing.hash == leaf.hash && existing.getKey().equals(leaf.getKey())) {
+          if (existing.getValue() == leaf.getValue()) {
+            return this;
+          }
+          newSlot = leaf;
+        } else {
+          added[0] = true;
+          newSlot =
+              existing.hash == leaf.hash
+                  ? new CollisionNode(leaf.hash, new Object[] {existing, leaf})
+                  : branch(shift + BITS, existing, existing.hash, leaf, leaf.hash);
+        }
+      } else {
+        newSlot = ((Node) slot).plus(shift + BITS, leaf, added);
+        if (newSlot == slot) {
+          return this;
+        }
+      }
+      Object[] newSlots = slots.clone();
+      newSlots[index] = newSlot;
+      return new BitmapNode(bitmap, newSlots);
+    }
+
+    @Override
+    @Nullable
+    Object minus(int shift, int hash, Object key) {
+      int bit = bit(hash, shift);
+      if ((bitmap & bit) == 0) {
+        return this;
+      }
+      int index = index(bit);
+      Object slot = slots[index];
+      Object newSlot;
+      if (slot instanceof Leaf) {
+        Leaf<?, ?> leaf = (Leaf<?, ?>) slot;
+        if (leaf.hash != hash || !leaf.getKey().equals(key)) {
+          return this;
+        }
+        newSlot = null;
+      } else {
+        newSlot = ((Node) slot).minus(shift + BITS, hash, key);
+        if (newSlot == slot) {
+          return this;
+        }
+      }
+      if (newSlot != null) {
+        if (slots.length == 1 && newSlot instanceof Leaf) {
+          return newSlot;
+        }
+        Object[] newSlots = slots.clone();
+        newSlots[index] = newSlot;
+        return new BitmapNode(bitmap, newSlots);
+      }
+      if (slots.length == 1) {
+        return null;
+      }
+      if (slots.length == 2 && slots[1 - index] instanceof Leaf) {
+        return slots[1 - index];
+      }
+      Object[] newSlots = new Object[slots.length - 1];
+      System.arraycopy(slots, 0, newSlots, 0, index);
+      System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+      return new BitmapNode(bitmap & ~bit, newSlots);
+    }
+  }
+
+  /** Entries whose keys have the same hash. All the slots are Leaves. */
+  private static final class CollisionNode extends Node {
+    final int hash;
+
+    CollisionNode(int hash, Object[] slots) {
+      super(slots);
+      this.hash = hash;
+    }
+
+    private int indexOf(Object key) {
+      for (int i = 0; i < slots.length; i++) {
+        if (((Leaf<?, ?>) slots[i]).getKey().equals(key)) {
+          return i;
+        }
+      }
+      return -1;
+    }
+
+    @Nullable
+    Object get(int hash, Object key) {
+      int index = this.hash == hash ? indexOf(key) : -1;
+      return index == -1 ? null : ((Leaf<?, ?>) slots[index]).getValue();
+    }
+
+    @Override
+    Node plus(int shift, Leaf<?, ?> leaf, boolean[] added) {
+      if (leaf.hash != hash) {
+        added[0] = true;
+        return branch(shift, this, hash, leaf, leaf.hash);
+      }
+      int index = indexOf(leaf.getKey());
+      if (index == -1) {
+        added[0] = true;
+        Object[] newSlots = Arrays.copyOf(slots, slots.length + 1);
+        newSlots[slots.length] = leaf;
+        return new CollisionNode(hash, newSlots);
+      }
+      if (((Leaf<?, ?>) slots[index]).getValue() == leaf.getValue()) {
+        return this;
+      }
+      Object[] newSlots = slots.clone();
+      newSlots[index] = leaf;
+      return new CollisionNode(hash, newSlots);
+    }
+
+    @Override
+    @Nullable
+    Object minus(int shift, int hash, Object key) {
+      int index = this.hash == hash ? indexOf(key) : -1;
+      if (index == -1) {
+        return this;
+      }
+      if (slots.length == 2) {
+        return slots[1 - index];
+      }
+      Object[] newSlots = new Object[slots.length - 1];
+      System.arraycopy(slots, 0, newSlots, 0, index);
+      System.arraycopy(slots, index + 1, newSlots, index, slots.length - index - 1);
+      return new CollisionNode(hash, newSlots);
+    }
+  }
+
+  /** Depth-first visit of the trie. */
+  private static final class LeafIterator<K, V> implements Iterator<Entry<K, V>> {
+    // Seven levels of BitmapNodes consume the 32 bits of the hash, plus one of CollisionNodes
+    private static final int MAX_DEPTH = 8;
+
+    private final Object[][] arrays = new Object[MAX_DEPTH][];
+    private final int[] positions = new int[MAX_DEPTH];
+    private int depth = -1;
+    private @Nullable Leaf<K, V> next;
+
+    LeafIterator(@Nullable Node root) {
+      if (root != null) {
+        arrays[++depth] = root.slots;
+      }
+      advance();
+    }
+
+    @SuppressWarnings("unchecked")
+    private void advance() {
+      next = null;
+      while (next == null && depth >= 0) {
+        Object[] array = arrays[depth];
+        if (positions[depth] == array.length) {
+          depth--;
+          continue;
+        }
+        Object slot = array[positions[depth]++];
+        if (slot instanceof Leaf) {
+          next = (Leaf<K, V>) slot;
+        } else {
+          arrays[++depth] = ((Node) slot).slots;
+          positions[depth] = 0;
+        }
+      }
+    }
+
+    @Override
+    public boolean hasNext() {
+      return next != null;
+    }
+
+    @Override
+    public Entry<K, V> next() {
+      if (next == null) {
+        throw new NoSuchElementException();
+      }
+      Leaf<K, V> result = next;
+      advance();
+      return result;
+    }
+  }
+}
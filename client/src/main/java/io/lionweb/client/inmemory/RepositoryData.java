@@ -1,126 +1,404 @@
 package io.lionweb.client.inmemory;
 
+import io.lionweb.client.api.ClassifierKey;
+import io.lionweb.client.api.HistorySupport;
 import io.lionweb.client.api.RepositoryConfiguration;
 import io.lionweb.client.api.RepositoryVersionToken;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
 import java.util.*;
-import java.util.stream.Collectors;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
 import org.jetbrains.annotations.NotNull;
 
+/**
+ * The data of a single repository. It can be shared by concurrent clients, using multi-version
+ * concurrency control: changes are performed by one writer at a time, via {@link #write(Supplier)},
+ * on a working state which is published as an immutable {@link Snapshot} by {@link
+ * #bumpVersion()}. Readers use the last published snapshot, so they never wait for the writers, nor
+ * see a partial change.
+ *
+ * <p>Nodes are kept in a {@link PersistentMap}, so each snapshot shares with the previous one all
+ * the nodes which have not been changed. When history is enabled the last retainedVersions
+ * snapshots are kept, and can be read through {@link #snapshot(RepositoryVersionToken)}.
+ *
+ * <p>The ids of the nodes are also indexed by classifier and by language, so that inspections cost
+ * in proportion to their result. The indexes are updated with each node added or removed, through
+ * {@link #putNode(SerializedClassifierInstance)} and {@link #dropNode(String)}, and they are
+ * published in the snapshots together with the nodes.
+ */
 class RepositoryData {
   @NotNull RepositoryConfiguration configuration;
+  // The working state, guarded by writeLock
   final List<String> partitionIDs = new ArrayList<>();
-  final Map<String, SerializedClassifierInstance> nodesByID = new HashMap<>();
-  private int currentVersion = 0;
-  private int nextId = 1;
+  PersistentMap<String, SerializedClassifierInstance> nodesByID = PersistentMap.empty();
+  PersistentMap<ClassifierKey, PersistentMap<String, Boolean>> idsByClassifier =
+      PersistentMap.empty();
+  PersistentMap<String, PersistentMap<String, Boolean>> idsByLanguage = PersistentMap.empty();
+  private final ReentrantLock writeLock = new ReentrantLock();
+  private volatile Snapshot current;
+  private final Map<String, Snapshot> history = new ConcurrentHashMap<>();
+  // The tokens of the snapshots in history, from the oldest, guarded by writeLock
+  private final Deque<String> retainedTokens = new ArrayDeque<>();
+  private int retainedVersions;
+  private final AtomicInteger nextId = new AtomicInteger(1);
+  // The lsn of the last change logged for this repository, guarded by writeLock
+  long appliedLsn;
 
-  void deleteNodeAndDescendant(String nodeId) {
-    SerializedClassifierInstance curr = nodesByID.get(nodeId);
-    if (curr == null) {
+  /** The state of the repository at a given version. Snapshots are immutable. */
+  static class Snapshot {
+    final int version;
+    final @NotNull RepositoryVersionToken token;
+    final @NotNull List<String> partitionIDs;
+    final @NotNull PersistentMap<String, SerializedClassifierInstance> nodesByID;
+    final @NotNull PersistentMap<ClassifierKey, PersistentMap<String, Boolean>> idsByClassifier;
+    final @NotNull PersistentMap<String, PersistentMap<String, Boolean>> idsByLanguage;
+
+    private Snapshot(int version, @NotNull List<String> partitionIDs, RepositoryData data) {
+      this.version = version;
+      this.token = new RepositoryVersionToken("v-" + version);
+      this.partitionIDs = partitionIDs;
+      this.nodesByID = data.nodesByID;
+      this.idsByClassifier = data.idsByClassifier;
+      this.idsByLanguage = data.idsByLanguage;
+    }
+
+    /**
+     * Add the node and its descendants, up to the given depth, in pre-order. The tree is visited
+     * with an explicit stack, so that its depth is not limited by the one of the call stack.
+     */
+    void retrieve(String nodeId, int limit, List<SerializedClassifierInstance> retrieved) {
+      Deque<String> ids = new ArrayDeque<>();
+      Deque<Integer> limits = new ArrayDeque<>();
+      ids.push(nodeId);
+      limits.push(limit);
+      while (!ids.isEmpty()) {
+        SerializedClassifierInstance node = nodesByID.get(ids.pop());
+        int remaining = limits.pop();
+        if (node == null) {
+          throw new IllegalArgumentException();
+        }
+        retrieved.add(node);
+        if (remaining > 0) {
+          // Pushed in reverse order, so that the first child is visited first
+          List<String> children = node.getChildren();
+          for (int i = children.size() - 1; i >= 0; i--) {
+            ids.push(children.get(i));
+            limits.push(remaining - 1);
+          }
+        }
+      }
+    }
+  }
+
+  /** The number of nodes affected by a change to the working state. */
+  static class Changes {
+    int addedNodes;
+    int movedNodes;
+    int removedNodes;
+  }
+
+  /** Delete a node and its descendants, returning the number of nodes deleted. */
+  int deleteNodeAndDescendant(String nodeId) {
+    if (!nodesByID.containsKey(nodeId)) {
       throw new IllegalArgumentException("Node " + nodeId + " does not exist");
     }
-    nodesByID.remove(nodeId);
-    curr.getChildren().forEach(this::deleteNodeAndDescendant);
+    return deleteSubtrees(Collections.singletonList(nodeId), Collections.emptySet());
+  }
+
+  /**
+   * Delete the given nodes and their descendants, except for the nodes in kept and their
+   * descendants. The trees are visited with an explicit stack, so that their depth is not limited
+   * by the one of the call stack. Returns the number of nodes deleted.
+   */
+  private int deleteSubtrees(Collection<String> roots, Set<String> kept) {
+    int deleted = 0;
+    Deque<String> stack = new ArrayDeque<>(roots);
+    while (!stack.isEmpty()) {
+      SerializedClassifierInstance node = nodesByID.get(stack.pop());
+      // A node can be reached twice, if it was listed as a child of two nodes
+      if (node == null) {
+        continue;
+      }
+      for (String child : node.getChildren()) {
+        if (!kept.contains(child)) {
+          stack.push(child);
+        }
+      }
+      dropNode(node.getID());
+      deleted++;
+    }
+    return deleted;
   }
 
+  /** Add or replace a node, updating the indexes. */
+  void putNode(@NotNull SerializedClassifierInstance node) {
+    SerializedClassifierInstance previous = nodesByID.get(node.getID());
+    nodesByID = nodesByID.plus(node.getID(), node);
+    if (previous != null) {
+      if (previous.getClassifier().equals(node.getClassifier())) {
+        return;
+      }
+      unindex(previous);
+    }
+    index(node);
+  }
+
+  /** Remove a node, if present, updating the indexes. */
+  void dropNode(@NotNull String nodeId) {
+    SerializedClassifierInstance previous = nodesByID.get(nodeId);
+    if (previous != null) {
+      nodesByID = nodesByID.minus(nodeId);
+      unindex(previous);
+    }
+  }
+
+  private void index(SerializedClassifierInstance node) {
+    idsByClassifier = addId(idsByClassifier, classifierKey(node), node.getID());
+    idsByLanguage = addId(idsByLanguage, node.getClassifier().getLanguage(), node.getID());
+  }
+
+  private void unindex(SerializedClassifierInstance node) {
+    idsByClassifier = removeId(idsByClassifier, classifierKey(node), node.getID());
+    idsByLanguage = removeId(idsByLanguage, node.getClassifier().getLanguage(), node.getID());
+  }
+
+  private static ClassifierKey classifierKey(SerializedClassifierInstance node) {
+    return new ClassifierKey(node.getClassifier().getLanguage(), node.getClassifier().getKey());
+  }
+
+  private static <K> PersistentMap<K, PersistentMap<String, Boolean>> addId(
+      PersistentMap<K, PersistentMap<String, Boolean>> index, K key, String id) {
+    PersistentMap<String, Boolean> ids = index.get(key);
+    if (ids == null) {
+      ids = PersistentMap.empty();
+    }
+    return index.plus(key, ids.plus(id, Boolean.TRUE));
+  }
+
+  private static <K> PersistentMap<K, PersistentMap<String, Boolean>> removeId(
+      PersistentMap<K, PersistentMap<String, Boolean>> index, K key, String id) {
+    PersistentMap<String, Boolean> ids = index.get(key);
+    if (ids == null) {
+      return index;
+    }
+    ids = ids.minus(id);
+    // Classifiers and languages without nodes are not reported
+    return ids.isEmpty() ? index.minus(key) : index.plus(key, ids);
+  }
+
+  /**
+   * Stores a set of nodes, removing the nodes which are no longer children of the stored ones. The
+   * children of each node are compared through hash sets, so the cost is linear in the number of
+   * children, also for very wide nodes.
+   */
   private class ChangeCalculator {
-    private final Map<String, SerializedClassifierInstance> addedNodes = new HashMap<>();
-    private final Map<String, SerializedClassifierInstance> changedNodes = new HashMap<>();
-    private final Set<String> removedNodes = new HashSet<>();
+    private final Changes changes = new Changes();
 
-    void store(List<SerializedClassifierInstance> updatedNodes) {
-      Map<String, SerializedClassifierInstance> updatedNodesAsMap = new HashMap<>();
+    Changes store(List<SerializedClassifierInstance> updatedNodes) {
+      Map<String, SerializedClassifierInstance> updatedNodesAsMap =
+          new HashMap<>(updatedNodes.size() * 2);
       updatedNodes.forEach(n -> updatedNodesAsMap.put(n.getID(), n));
-      for (SerializedClassifierInstance updatedNode : updatedNodes) {
-        if (nodesByID.containsKey(updatedNode.getID())) {
-          // Have we changed children?
-          List<String> currentChildren = nodesByID.get(updatedNode.getID()).getChildren();
-          List<String> updatedChildren = updatedNode.getChildren();
-          updatedChildren.stream()
-              .filter(n -> !currentChildren.contains(n))
-              .forEach(n -> this.addedNodes.put(n, updatedNodesAsMap.get(n)));
-          List<String> unknownChildren =
-              updatedChildren.stream()
-                  .filter(c -> !updatedNodesAsMap.containsKey(c) && !nodesByID.containsKey(c))
-                  .collect(Collectors.toList());
-          if (!unknownChildren.isEmpty()) {
-            throw new IllegalArgumentException(
-                "We got unknown nodes as children: " + unknownChildren);
+      // The children of the stored nodes are kept, even if their previous parent lost them
+      Set<String> attached = new HashSet<>();
+      List<String> detached = new ArrayList<>();
+      List<String> unknownChildren = new ArrayList<>();
+      for (SerializedClassifierInstance updatedNode : updatedNodesAsMap.values()) {
+        List<String> updatedChildren = updatedNode.getChildren();
+        attached.addAll(updatedChildren);
+        SerializedClassifierInstance currentNode = nodesByID.get(updatedNode.getID());
+        if (currentNode == null) {
+          changes.addedNodes++;
+          changes.movedNodes +=
+              (int) updatedChildren.stream().filter(nodesByID::containsKey).count();
+          continue;
+        }
+        List<String> currentChildren = currentNode.getChildren();
+        if (currentChildren.equals(updatedChildren)) {
+          continue;
+        }
+        Set<String> currentSet = new HashSet<>(currentChildren);
+        for (String child : updatedChildren) {
+          if (!currentSet.contains(child)) {
+            if (nodesByID.containsKey(child)) {
+              changes.movedNodes++;
+            } else if (!updatedNodesAsMap.containsKey(child)) {
+              unknownChildren.add(child);
+            }
           }
-          this.removedNodes.addAll(
-              currentChildren.stream()
-                  .filter(n -> !updatedChildren.contains(n))
-                  .collect(Collectors.toList()));
-        } else {
-          changedNodes.put(updatedNode.getID(), updatedNode);
         }
-      }
-      // They have been moved and not removed
-      removedNodes.removeAll(addedNodes.keySet());
-      nodesByID.putAll(updatedNodesAsMap);
-      removedNodes.forEach(this::removeNode);
-    }
-
-    private void removeNode(String removeNodeId) {
-      SerializedClassifierInstance serializedClassifierInstance = nodesByID.get(removeNodeId);
-      for (String child : serializedClassifierInstance.getChildren()) {
-        if (!addedNodes.containsKey(child)) {
-          removeNode(child);
+        Set<String> updatedSet = new HashSet<>(updatedChildren);
+        for (String child : currentChildren) {
+          if (!updatedSet.contains(child)) {
+            detached.add(child);
+          }
         }
       }
-      nodesByID.remove(removeNodeId);
+      if (!unknownChildren.isEmpty()) {
+        throw new IllegalArgumentException("We got unknown nodes as children: " + unknownChildren);
+      }
+      updatedNodesAsMap.values().forEach(RepositoryData.this::putNode);
+      // They have been moved and not removed
+      detached.removeIf(attached::contains);
+      changes.removedNodes += deleteSubtrees(detached, attached);
+      return changes;
     }
   }
 
   RepositoryData(@NotNull RepositoryConfiguration configuration) {
+    this(configuration, InMemoryServer.DEFAULT_RETAINED_VERSIONS);
+  }
+
+  RepositoryData(@NotNull RepositoryConfiguration configuration, int retainedVersions) {
     this.configuration = configuration;
+    this.retainedVersions = retainedVersions;
+    publish(0);
+  }
+
+  /**
+   * Perform a change. If it fails, the working state is reverted to the last published snapshot,
+   * so that a failed change has no effect.
+   */
+  <T> T write(Supplier<T> operation) {
+    writeLock.lock();
+    try {
+      return operation.get();
+    } catch (RuntimeException | Error e) {
+      partitionIDs.clear();
+      partitionIDs.addAll(current.partitionIDs);
+      nodesByID = current.nodesByID;
+      idsByClassifier = current.idsByClassifier;
+      idsByLanguage = current.idsByLanguage;
+      throw e;
+    } finally {
+      writeLock.unlock();
+    }
   }
 
+  /** Publish the working state as a new version. */
   RepositoryVersionToken bumpVersion() {
-    return new RepositoryVersionToken("v-" + ++currentVersion);
+    publish(current.version + 1);
+    return current.token;
+  }
+
+  /** Replace the working state with one read from a snapshot, and publish it. */
+  void restore(@NotNull ServerStorage.RepositoryState state) {
+    write(
+        () -> {
+          partitionIDs.clear();
+          partitionIDs.addAll(state.partitionIDs);
+          nodesByID = state.nodesByID;
+          idsByClassifier = PersistentMap.empty();
+          idsByLanguage = PersistentMap.empty();
+          state.nodesByID.values().forEach(this::index);
+          nextId.set(state.nextId);
+          appliedLsn = state.appliedLsn;
+          history.clear();
+          retainedTokens.clear();
+          publish(state.version);
+          return null;
+        });
+  }
+
+  /** The state of the last published version, to be written in a snapshot. */
+  @NotNull
+  ServerStorage.RepositoryState capture() {
+    return write(
+        () ->
+            new ServerStorage.RepositoryState(
+                configuration,
+                current.version,
+                nextId.get(),
+                appliedLsn,
+                current.partitionIDs,
+                current.nodesByID));
+  }
+
+  private void publish(int version) {
+    // Partitions change rarely, so their list is shared by all the versions not changing them
+    List<String> publishedPartitionIDs =
+        current != null && current.partitionIDs.equals(partitionIDs)
+            ? current.partitionIDs
+            : Collections.unmodifiableList(new ArrayList<>(partitionIDs));
+    current = new Snapshot(version, publishedPartitionIDs, this);
+    if (configuration.getHistorySupport() == HistorySupport.ENABLED) {
+      history.put(current.token.getToken(), current);
+      retainedTokens.addLast(current.token.getToken());
+      discardOldVersions();
+    }
+  }
+
+  private void discardOldVersions() {
+    while (retainedTokens.size() > retainedVersions) {
+      history.remove(retainedTokens.removeFirst());
+    }
+  }
+
+  void setRetainedVersions(int retainedVersions) {
+    write(
+        () -> {
+          this.retainedVersions = retainedVersions;
+          discardOldVersions();
+          return null;
+        });
+  }
+
+  /** The last published version. */
+  @NotNull
+  Snapshot snapshot() {
+    return current;
+  }
+
+  /** A version still retained in the history. */
+  @NotNull
+  Snapshot snapshot(@NotNull RepositoryVersionToken token) {
+    Objects.requireNonNull(token, "token should not be null");
+    if (configuration.getHistorySupport() != HistorySupport.ENABLED) {
+      throw new IllegalArgumentException(
+          "Repository " + configuration.getName() + " does not support history");
+    }
+    Snapshot snapshot = history.get(token.getToken());
+    if (snapshot == null) {
+      throw new IllegalArgumentException(
+          "Version "
+              + token.getToken()
+              + " is not available in repository "
+              + configuration.getName());
+    }
+    return snapshot;
   }
 
   List<String> ids(int count) {
+    // Reserve the whole range at once, so that the ids of a request are consecutive
+    int first = nextId.getAndAdd(count);
     List<String> res = new ArrayList<>(count);
     for (int i = 0; i < count; i++) {
-      res.add("id-" + (nextId++));
+      res.add("id-" + (first + i));
     }
     return res;
   }
 
-  void store(List<SerializedClassifierInstance> newNodes) {
+  int nextId() {
+    return nextId.get();
+  }
+
+  /** Make sure that the ids preceding nextId are not returned again. */
+  void reserveIds(int nextId) {
+    this.nextId.accumulateAndGet(nextId, Math::max);
+  }
+
+  Changes store(List<SerializedClassifierInstance> newNodes) {
+    Set<String> partitions = new HashSet<>(partitionIDs);
     newNodes.stream()
         .filter(n -> n.getParentNodeID() == null)
         .forEach(
             n -> {
-              if (!partitionIDs.contains(n.getID())) {
+              if (!partitions.contains(n.getID())) {
                 throw new IllegalArgumentException(
                     "Node " + n + " should be registered as a partition");
               }
             });
-    new ChangeCalculator().store(newNodes);
-  }
-
-  List<SerializedClassifierInstance> retrieveTrees(List<String> ids) {
-    List<SerializedClassifierInstance> nodes = new ArrayList<>();
-    ids.forEach(n -> retrieveTree(n, nodes));
-    return nodes;
-  }
-
-  private void retrieveTree(String id, List<SerializedClassifierInstance> nodes) {
-    SerializedClassifierInstance n = nodesByID.get(id);
-    nodes.add(n);
-    n.getChildren().forEach(c -> retrieveTree(c, nodes));
-  }
-
-  void retrieve(String nodeId, int limit, List<SerializedClassifierInstance> retrieved) {
-    SerializedClassifierInstance node = nodesByID.get(nodeId);
-    if (node == null) {
-      throw new IllegalArgumentException();
-    }
-    retrieved.add(node);
-    if (limit > 0) {
-      node.getChildren().forEach(c -> retrieve(c, limit - 1, retrieved));
-    }
+    return new ChangeCalculator().store(newNodes);
   }
 }
@@ -0,0 +1,568 @@
+package io.lionweb.client.inmemory;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.serialization.FlatBuffersSerialization;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.*;
+import java.nio.Buffer;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.*;
+import java.util.*;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+import java.util.zip.CRC32;
+import org.jetbrains.annotations.NotNull;
+import org.jetbrains.annotations.Nullable;
+
+/**
+ * Persists the changes of an InMemoryServer in a directory, as a write-ahead log periodically
+ * compacted into a snapshot.
+ *
+ * <p>The log is split in segments, named after the sequence number (lsn) from which they start.
+ * Each record is framed as [length][lsn][crc32][body]: a record whose frame is incomplete or whose
+ * checksum does not match is a write interrupted by a crash, and it is discarded at the end of the
+ * last segment. Records are appended to a buffer, which is written and forced by the first thread
+ * waiting for its records to be durable: the records appended by the other threads in the meantime
+ * are forced together, sharing the cost of the sync (group commit).
+ *
+ * <p>A checkpoint starts a new segment, whose first lsn is the boundary of the snapshot, and then
+ * captures the current state of the repositories. The state may already include some records
+ * following the boundary: each repository remembers the lsn of the last record applied to it, so
+ * that they are not replayed twice. Once the snapshot is written the older segments are deleted.
+ *
+ * <p>Snapshots contain the nodes as FlatBuffers chunks, which are memory-mapped and decoded in
+ * parallel during the recovery.
+ */
+final class ServerStorage implements Closeable {
+  private static final String SEGMENT_PREFIX = "log-";
+  private static final String SEGMENT_SUFFIX = ".wal";
+  private static final String SNAPSHOT_PREFIX = "snapshot-";
+  private static final String SNAPSHOT_SUFFIX = ".dat";
+  private static final int SNAPSHOT_MAGIC = 0x4C575331;
+  // length, lsn and crc32
+  private static final int FRAME_HEADER_SIZE = 4 + 8 + 4;
+
+  /** The state of a repository, as captured by a checkpoint or restored from a snapshot. */
+  static final class RepositoryState {
+    final @NotNull RepositoryConfiguration configuration;
+    final int version;
+    final int nextId;
+    final long appliedLsn;
+    final @NotNull List<String> partitionIDs;
+    final @NotNull PersistentMap<String, SerializedClassifierInstance> nodesByID;
+
+    RepositoryState(
+        @NotNull RepositoryConfiguration configuration,
+        int version,
+        int nextId,
+        long appliedLsn,
+        @NotNull List<String> partitionIDs,
+        @NotNull PersistentMap<String, SerializedClassifierInstance> nodesByID) {
+      this.configuration = configuration;
+      this.version = version;
+      this.nextId = nextId;
+      this.appliedLsn = appliedLsn;
+      this.partitionIDs = partitionIDs;
+      this.nodesByID = nodesByID;
+    }
+  }
+
+  private final @NotNull File directory;
+  private final @NotNull StorageSettings settings;
+  private final FlatBuffersSerialization serialization = new FlatBuffersSerialization();
+  private final ReentrantLock checkpointLock = new ReentrantLock();
+
+  // The log, guarded by lock
+  private final ReentrantLock lock = new ReentrantLock();
+  private final Condition flushed = lock.newCondition();
+  private List<ByteBuffer> pending = new ArrayList<>();
+  private long pendingBytes;
+  private FileChannel segment;
+  private long nextLsn = 1;
+  private long durableLsn;
+  private boolean flushing;
+  private @Nullable IOException failure;
+  private boolean closed;
+  // Bytes of log written since the last checkpoint
+  private volatile long logSize;
+
+  ServerStorage(@NotNull File directory, @NotNull StorageSettings settings) {
+    this.directory = Objects.requireNonNull(directory, "directory should not be null");
+    this.settings = Objects.requireNonNull(settings, "settings should not be null");
+  }
+
+  /**
+   * Restore the state of the server from the last snapshot and replay the log following it. Then
+   * the log is open for appending.
+   */
+  void recover(@NotNull InMemoryServer server) throws IOException {
+    if (!directory.isDirectory() && !directory.mkdirs()) {
+      throw new IOException("Cannot create directory " + directory);
+    }
+    long boundary = 0;
+    File snapshotFile = lastFile(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+    if (snapshotFile != null) {
+      boundary = lsnOf(snapshotFile, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX);
+      readSnapshot(snapshotFile, boundary).forEach(server::restore);
+    }
+    long lastLsn = boundary - 1;
+    List<File> segments = files(SEGMENT_PREFIX, SEGMENT_SUFFIX);
+    for (int i = 0; i < segments.size(); i++) {
+      boolean last = i == segments.size() - 1;
+      lastLsn = Math.max(lastLsn, replay(segments.get(i), boundary, last, server));
+    }
+    nextLsn = Math.max(lastLsn + 1, 1);
+    durableLsn = nextLsn - 1;
+    File current = segments.isEmpty() ? segmentFile(nextLsn) : segments.get(segments.size() - 1);
+    segment = openSegment(current);
+    logSize = segments.stream().mapToLong(File::length).sum();
+  }
+
+  byte[] encode(@NotNull LogRecord record, @NotNull LionWebVersion version) {
+    try {
+      return record.encode(serialization, version);
+    } catch (IOException e) {
+      throw new UncheckedIOException(e);
+    }
+  }
+
+  /**
+   * Append an encoded record to the log, assigning its lsn. The record is durable only after
+   * {@link #awaitDurable(long)}.
+   */
+  long append(byte[] body) throws IOException {
+    lock.lock();
+    try {
+      checkUsable();
+      long lsn = nextLsn++;
+      CRC32 crc = new CRC32();
+      ByteBuffer header = ByteBuffer.allocate(FRAME_HEADER_SIZE);
+      header.putInt(body.length).putLong(lsn);
+      crc.update(header.array(), 4, 8);
+      crc.update(body);
+      header.putInt((int) crc.getValue());
+      // Through Buffer, so that the class links on Java 8 also when compiled by newer JDKs
+      ((Buffer) header).flip();
+      pending.add(header);
+      pending.add(ByteBuffer.wrap(body));
+      pendingBytes += FRAME_HEADER_SIZE + body.length;
+      return lsn;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /** Wait until the record with the given lsn, and all the ones preceding it, are durable. */
+  void awaitDurable(long lsn) throws IOException {
+    lock.lock();
+    try {
+      while (durableLsn < lsn) {
+        checkUsable();
+        if (flushing) {
+          flushed.awaitUninterruptibly();
+        } else {
+          flush();
+        }
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  /**
+   * Write and force the pending records, releasing the lock meanwhile, so that other threads can
+   * keep appending records for the next flush. To be called holding the lock, when no other flush
+   * is in progress.
+   */
+  private void flush() throws IOException {
+    flushing = true;
+    ByteBuffer[] buffers = pending.toArray(new ByteBuffer[0]);
+    long bytes = pendingBytes;
+    long upTo = nextLsn - 1;
+    FileChannel channel = segment;
+    pending = new ArrayList<>();
+    pendingBytes = 0;
+    lock.unlock();
+    IOException error = null;
+    try {
+      while (buffers.length > 0 && buffers[buffers.length - 1].hasRemaining()) {
+        channel.write(buffers);
+      }
+      if (settings.isSync()) {
+        channel.force(false);
+      }
+    } catch (IOException e) {
+      error = e;
+    } finally {
+      lock.lock();
+    }
+    flushing = false;
+    flushed.signalAll();
+    if (error != null) {
+      // What was written is unknown, so no further record can be appended
+      failure = error;
+      throw error;
+    }
+    durableLsn = Math.max(durableLsn, upTo);
+    logSize += bytes;
+  }
+
+  private void checkUsable() throws IOException {
+    if (failure != null) {
+      throw new IOException("The log cannot be written anymore", failure);
+    }
+    if (closed) {
+      throw new IllegalStateException("The storage has been closed");
+    }
+  }
+
+  boolean needsCheckpoint() {
+    return logSize >= settings.getCheckpointThreshold();
+  }
+
+  /**
+   * Write a snapshot of the state returned by capture and delete the log preceding it.
+   *
+   * @param wait if false, the checkpoint is skipped when another one is in progress
+   */
+  void checkpoint(@NotNull Supplier<List<RepositoryState>> capture, boolean wait)
+      throws IOException {
+    if (wait) {
+      checkpointLock.lock();
+    } else if (!checkpointLock.tryLock()) {
+      return;
+    }
+    try {
+      long boundary = startSegment();
+      writeSnapshot(boundary, capture.get());
+      for (File file : files(SEGMENT_PREFIX, SEGMENT_SUFFIX)) {
+        if (lsnOf(file, SEGMENT_PREFIX, SEGMENT_SUFFIX) < boundary) {
+          Files.delete(file.toPath());
+        }
+      }
+      for (File file : files(SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX)) {
+        if (lsnOf(file, SNAPSHOT_PREFIX, SNAPSHOT_SUFFIX) < boundary) {
+          Files.delete(file.toPath());
+        }
+      }
+    } finally {
+      checkpointLock.unlock();
+    }
+  }
+
+  /**
+   * Close the current segment and start a new one, named after the next lsn. Pending records are
+   * written to the new segment: their lsn precedes the boundary, so they are already reflected by
+   * the snapshot.
+   */
+  private long startSegment() throws IOException {
+    lock.lock();
+    try {
+      while (flushing) {
+        flushed.awaitUninterruptibly();
+      }
+      checkUsable();
+      long boundary = nextLsn;
+      FileChannel newSegment = openSegment(segmentFile(boundary));
+      segment.force(true);
+      segment.close();
+      segment = newSegment;
+      logSize = pendingBytes;
+      return boundary;
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  @Override
+  public void close() throws IOException {
+    lock.lock();
+    try {
+      if (closed) {
+        return;
+      }
+      while (flushing) {
+        flushed.awaitUninterruptibly();
+      }
+      try {
+        if (failure == null && !pending.isEmpty()) {
+          flush();
+        }
+        segment.force(true);
+      } finally {
+        closed = true;
+        segment.close();
+      }
+    } finally {
+      lock.unlock();
+    }
+  }
+
+  //
+  // Snapshots
+  //
+
+  private void writeSnapshot(long boundary, List<RepositoryState> repositories) throws IOException {
+    File file = snapshotFile(boundary);
+    File temporary = new File(directory, file.getName() + ".tmp");
+    try (FileOutputStream fileOutput = new FileOutputStream(temporary)) {
+      DataOutputStream out = new DataOutputStream(new BufferedOutputStream(fileOutput, 1 << 16));
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.writeInt(repositories.size());
+      for (RepositoryState repository : repositories) {
+        List<byte[]> chunks = new ArrayList<>();
+        List<SerializedClassifierInstance> nodes = new ArrayList<>(settings.getSnapshotChunkSize());
+        LionWebVersion version = repository.configuration.getLionWebVersion();
+        for (SerializedClassifierInstance node : repository.nodesByID.values()) {
+          nodes.add(node);
+          if (nodes.size() == settings.getSnapshotChunkSize()) {
+            chunks.add(LogRecord.encodeNodes(serialization, version, nodes));
+            nodes.clear();
+          }
+        }
+        if (!nodes.isEmpty()) {
+          chunks.add(LogRecord.encodeNodes(serialization, version, nodes));
+        }
+        writeFrame(out, repositoryHeader(repository, chunks.size()));
+        for (byte[] chunk : chunks) {
+          writeFrame(out, chunk);
+        }
+      }
+      out.writeInt(SNAPSHOT_MAGIC);
+      out.flush();
+      fileOutput.getFD().sync();
+    }
+    Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE);
+    syncDirectory();
+  }
+
+  private static byte[] repositoryHeader(RepositoryState repository, int chunks)
+      throws IOException {
+    ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+    DataOutputStream out = new DataOutputStream(bytes);
+    RepositoryConfiguration configuration = repository.configuration;
+    LogRecord.writeString(out, configuration.getName());
+    LogRecord.writeString(out, configuration.getLionWebVersion().getVersionString());
+    LogRecord.writeString(out, configuration.getHistorySupport().name());
+    out.writeInt(repository.version);
+    out.writeInt(repository.nextId);
+    out.writeLong(repository.appliedLsn);
+    out.writeInt(repository.partitionIDs.size());
+    for (String partitionID : repository.partitionIDs) {
+      LogRecord.writeString(out, partitionID);
+    }
+    out.writeInt(chunks);
+    out.flush();
+    return bytes.toByteArray();
+  }
+
+  private static void writeFrame(DataOutputStream out, byte[] data) throws IOException {
+    out.writeInt(data.length);
+    out.write(data);
+  }
+
+  /**
+   * Read the headers of the repositories, then map the chunks of nodes and decode them in
+   * parallel.
+   */
+  private List<RepositoryState> readSnapshot(File file, long boundary) throws IOException {
+    List<RepositoryState> repositories = new ArrayList<>();
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      long position = 0;
+      if (read(channel, position, 4).getInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Invalid snapshot " + file);
+      }
+      int count = read(channel, position + 4, 4).getInt();
+      position += 8;
+      List<ByteBuffer> allChunks = new ArrayList<>();
+      List<Integer> chunksPerRepository = new ArrayList<>();
+      List<ByteBuffer> headers = new ArrayList<>();
+      for (int i = 0; i < count; i++) {
+        int length = read(channel, position, 4).getInt();
+        ByteBuffer header = read(channel, position + 4, length);
+        position += 4 + length;
+        headers.add(header);
+        // The number of chunks ends the header
+        int chunks = header.getInt(length - 4);
+        chunksPerRepository.add(chunks);
+        for (int c = 0; c < chunks; c++) {
+          int chunkLength = read(channel, position, 4).getInt();
+          allChunks.add(channel.map(FileChannel.MapMode.READ_ONLY, position + 4, chunkLength));
+          position += 4 + chunkLength;
+        }
+      }
+      if (read(channel, position, 4).getInt() != SNAPSHOT_MAGIC) {
+        throw new IOException("Truncated snapshot " + file);
+      }
+      List<List<SerializedClassifierInstance>> decoded =
+          allChunks.parallelStream()
+              .map(c -> serialization.deserializeToChunk(c).getClassifierInstances())
+              .collect(Collectors.toList());
+      int nextChunk = 0;
+      for (int i = 0; i < count; i++) {
+        PersistentMap<String, SerializedClassifierInstance> nodesByID = PersistentMap.empty();
+        for (int c = 0; c < chunksPerRepository.get(i); c++) {
+          for (SerializedClassifierInstance node : decoded.get(nextChunk++)) {
+            nodesByID = nodesByID.plus(node.getID(), node);
+          }
+        }
+        repositories.add(readRepositoryHeader(headers.get(i), nodesByID));
+      }
+    } catch (RuntimeException e) {
+      throw new IOException("Invalid snapshot " + file + " for lsn " + boundary, e);
+    }
+    return repositories;
+  }
+
+  private static RepositoryState readRepositoryHeader(
+      ByteBuffer header, PersistentMap<String, SerializedClassifierInstance> nodesByID) {
+    String name = LogRecord.readString(header);
+    LionWebVersion lionWebVersion = LionWebVersion.fromValue(LogRecord.readString(header));
+    HistorySupport historySupport = HistorySupport.valueOf(LogRecord.readString(header));
+    int version = header.getInt();
+    int nextId = header.getInt();
+    long appliedLsn = header.getLong();
+    int partitions = header.getInt();
+    List<String> partitionIDs = new ArrayList<>(partitions);
+    for (int i = 0; i < partitions; i++) {
+      partitionIDs.add(LogRecord.readString(header));
+    }
+    return new RepositoryState(
+        new RepositoryConfiguration(name, lionWebVersion, historySupport),
+        version,
+        nextId,
+        appliedLsn,
+        partitionIDs,
+        nodesByID);
+  }
+
+  //
+  // Log segments
+  //
+
+  /**
+   * Replay the records of a segment following the boundary, returning the last lsn read. A
+   * damaged record at the end of the last segment is the trace of an interrupted write, and it is
+   * truncated.
+   */
+  private long replay(File file, long boundary, boolean last, InMemoryServer server)
+      throws IOException {
+    long lastLsn = 0;
+    try (FileChannel channel =
+        FileChannel.open(file.toPath(), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+      long size = channel.size();
+      long position = 0;
+      while (position < size) {
+        LogRecord record = readRecord(channel, position, size);
+        if (record == null) {
+          if (!last) {
+            throw new IOException("Corrupted record at " + position + " in " + file);
+          }
+          channel.truncate(position);
+          channel.force(true);
+          break;
+        }
+        if (record.lsn >= boundary) {
+          server.replay(record);
+        }
+        lastLsn = record.lsn;
+        position = channel.position();
+      }
+    }
+    return lastLsn;
+  }
+
+  /**
+   * The record at the given position, leaving the channel positioned after it, or null if it is
+   * incomplete or damaged.
+   */
+  private @Nullable LogRecord readRecord(FileChannel channel, long position, long size)
+      throws IOException {
+    if (size - position < FRAME_HEADER_SIZE) {
+      return null;
+    }
+    ByteBuffer header = read(channel, position, FRAME_HEADER_SIZE);
+    int length = header.getInt();
+    long lsn = header.getLong();
+    int expectedCrc = header.getInt();
+    if (length < 0 || size - position - FRAME_HEADER_SIZE < length) {
+      return null;
+    }
+    ByteBuffer body = read(channel, position + FRAME_HEADER_SIZE, length);
+    CRC32 crc = new CRC32();
+    crc.update(header.array(), 4, 8);
+    crc.update(body.array(), 0, length);
+    if ((int) crc.getValue() != expectedCrc) {
+      return null;
+    }
+    channel.position(position + FRAME_HEADER_SIZE + length);
+    return LogRecord.decode(lsn, body, serialization);
+  }
+
+  private static FileChannel openSegment(File file) throws IOException {
+    FileChannel channel =
+        FileChannel.open(file.toPath(), StandardOpenOption.CREATE, StandardOpenOption.WRITE);
+    channel.position(channel.size());
+    return channel;
+  }
+
+  //
+  // Files
+  //
+
+  private static ByteBuffer read(FileChannel channel, long position, int length)
+      throws IOException {
+    ByteBuffer buffer = ByteBuffer.allocate(length);
+    while (buffer.hasRemaining()) {
+      if (channel.read(buffer, position + buffer.position()) < 0) {
+        throw new EOFException();
+      }
+    }
+    ((Buffer) buffer).flip();
+    return buffer;
+  }
+
+  private File segmentFile(long lsn) {
+    return new File(directory, String.format("%s%020d%s", SEGMENT_PREFIX, lsn, SEGMENT_SUFFIX));
+  }
+
+  private File snapshotFile(long lsn) {
+    return new File(directory, String.format("%s%020d%s", SNAPSHOT_PREFIX, lsn, SNAPSHOT_SUFFIX));
+  }
+
+  private static long lsnOf(File file, String prefix, String suffix) {
+    String name = file.getName();
+    return Long.parseLong(name.substring(prefix.length(), name.length() - suffix.length()));
+  }
+
+  /** The files with the given prefix and suffix, sorted by lsn. */
+  private List<File> files(String prefix, String suffix) {
+    File[] files =
+        directory.listFiles((dir, name) -> name.startsWith(prefix) && name.endsWith(suffix));
+    if (files == null) {
+      return Collections.emptyList();
+    }
+    return Arrays.stream(files)
+        .sorted(Comparator.comparingLong(f -> lsnOf(f, prefix, suffix)))
+        .collect(Collectors.toList());
+  }
+
+  private @Nullable File lastFile(String prefix, String suffix) {
+    List<File> files = files(prefix, suffix);
+    return files.isEmpty() ? null : files.get(files.size() - 1);
+  }
+
+  /** Make the renaming of a file durable. Not all the platforms support it. */
+  private void syncDirectory() {
+    try (FileChannel channel = FileChannel.open(directory.toPath(), StandardOpenOption.READ)) {
+      channel.force(true);
+    } catch (IOException e) {
+      // Not supported, e.g. on Windows
+    }
+  }
+}
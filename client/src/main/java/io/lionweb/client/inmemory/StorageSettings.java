@@ -0,0 +1,65 @@
+package io.lionweb.client.inmemory;
+
+/**
+ * Controls how an InMemoryServer opened with {@link InMemoryServer#open(java.io.File,
+ * StorageSettings)} persists its data.
+ *
+ * <p>Changes are appended to a log, which is periodically compacted into a snapshot. When syncing,
+ * each change returns only once it has been forced to the disk: concurrent changes are forced
+ * together, so that they share the cost of the sync. Without syncing, changes survive the crash of
+ * the JVM but not of the operating system.
+ */
+public class StorageSettings {
+  public static final long DEFAULT_CHECKPOINT_THRESHOLD = 64L * 1024 * 1024;
+  public static final int DEFAULT_SNAPSHOT_CHUNK_SIZE = 50_000;
+
+  /** Syncing each change, taking a snapshot every 64 MiB of log. */
+  public static final StorageSettings DEFAULT =
+      new StorageSettings(true, DEFAULT_CHECKPOINT_THRESHOLD, DEFAULT_SNAPSHOT_CHUNK_SIZE);
+
+  private final boolean sync;
+  private final long checkpointThreshold;
+  private final int snapshotChunkSize;
+
+  /**
+   * @param sync whether each change is forced to the disk before returning
+   * @param checkpointThreshold size in bytes of the log after which a snapshot is taken
+   * @param snapshotChunkSize number of nodes stored in each chunk of a snapshot. Chunks are
+   *     decoded in parallel during the recovery
+   */
+  public StorageSettings(boolean sync, long checkpointThreshold, int snapshotChunkSize) {
+    if (checkpointThreshold < 1) {
+      throw new IllegalArgumentException("checkpointThreshold should be at least 1");
+    }
+    if (snapshotChunkSize < 1) {
+      throw new IllegalArgumentException("snapshotChunkSize should be at least 1");
+    }
+    this.sync = sync;
+    this.checkpointThreshold = checkpointThreshold;
+    this.snapshotChunkSize = snapshotChunkSize;
+  }
+
+  public boolean isSync() {
+    return sync;
+  }
+
+  public long getCheckpointThreshold() {
+    return checkpointThreshold;
+  }
+
+  public int getSnapshotChunkSize() {
+    return snapshotChunkSize;
+  }
+
+  @Override
+  public String toString() {
+    return "StorageSettings{"
+        + "sync="
+        + sync
+        + ", checkpointThreshold="
+        + checkpointThreshold
+        + ", snapshotChunkSize="
+        + snapshotChunkSize
+        + '}';
+  }
+}
@@ -0,0 +1,75 @@
+package io.lionweb.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.zip.GZIPInputStream;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.junit.jupiter.api.Test;
+
+public class CompressionSupportTest {
+
+  private static String content() {
+    StringBuilder sb = new StringBuilder("{\"nodes\": [");
+    for (int i = 0; i < 1000; i++) {
+      sb.append("{\"id\": \"node-").append(i).append("\", \"classifier\": \"c\"},");
+    }
+    return sb.append("]}").toString();
+  }
+
+  private static byte[] write(RequestBody body) throws IOException {
+    Buffer buffer = new Buffer();
+    body.writeTo(buffer);
+    return buffer.readByteArray();
+  }
+
+  private static String decompress(byte[] bytes) throws IOException {
+    try (InputStream in = new GZIPInputStream(new ByteArrayInputStream(bytes))) {
+      ByteArrayOutputStream out = new ByteArrayOutputStream();
+      byte[] chunk = new byte[4096];
+      int read;
+      while ((read = in.read(chunk)) != -1) {
+        out.write(chunk, 0, read);
+      }
+      return new String(out.toByteArray(), StandardCharsets.UTF_8);
+    }
+  }
+
+  @Test
+  public void bufferedCompressionKnowsTheContentLength() throws IOException {
+    RequestBody body = CompressionSupport.compress(content(), GzipSettings.DEFAULT);
+    byte[] bytes = write(body);
+    assertEquals(bytes.length, body.contentLength());
+    assertEquals(content(), decompress(bytes));
+    // The body can be written again, when the request is retried
+    assertArrayEquals(bytes, write(body));
+  }
+
+  @Test
+  public void streamingCompressionUsesChunkedTransfer() throws IOException {
+    RequestBody body = CompressionSupport.compress(content(), new GzipSettings(1, 512, true));
+    assertEquals(-1, body.contentLength());
+    assertEquals(content(), decompress(write(body)));
+  }
+
+  @Test
+  public void compressionLevelIsConsidered() throws IOException {
+    byte[] stored = write(CompressionSupport.compress(content(), new GzipSettings(0, 8192, true)));
+    byte[] best = write(CompressionSupport.compress(content(), new GzipSettings(9, 8192, true)));
+    assertTrue(best.length < stored.length);
+    assertTrue(stored.length > content().length());
+    assertEquals(content(), decompress(stored));
+  }
+
+  @Test
+  public void invalidSettingsAreRejected() {
+    assertThrows(IllegalArgumentException.class, () -> new GzipSettings(10, 8192, false));
+    assertThrows(IllegalArgumentException.class, () -> new GzipSettings(-2, 8192, false));
+    assertThrows(IllegalArgumentException.class, () -> new GzipSettings(5, 0, false));
+  }
+}
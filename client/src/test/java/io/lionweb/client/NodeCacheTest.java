@@ -0,0 +1,144 @@
+package io.lionweb.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.*;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class NodeCacheTest {
+
+  private static final MetaPointer CONCEPT = new MetaPointer("l1", "1.0", "c1");
+  private static final MetaPointer CONTAINMENT = new MetaPointer("l1", "1.0", "children");
+
+  private static SerializedClassifierInstance node(String id, String... children) {
+    SerializedClassifierInstance node = new SerializedClassifierInstance(id, CONCEPT);
+    if (children.length > 0) {
+      node.addChildren(CONTAINMENT, Arrays.asList(children));
+    }
+    return node;
+  }
+
+  private static Set<String> ids(List<SerializedClassifierInstance> nodes) {
+    return nodes.stream().map(SerializedClassifierInstance::getID).collect(Collectors.toSet());
+  }
+
+  @Test
+  public void lookupConsidersTheDepthLimit() {
+    NodeCache cache = new NodeCache(10);
+    cache.store(
+        Arrays.asList(node("a", "b"), node("b", "c")),
+        new RepositoryVersionToken("1"),
+        cache.getGeneration());
+
+    assertEquals(new HashSet<>(Arrays.asList("a")), ids(cache.lookup(Arrays.asList("a"), 0)));
+    assertEquals(new HashSet<>(Arrays.asList("a", "b")), ids(cache.lookup(Arrays.asList("a"), 1)));
+    // c is needed but it is not cached
+    assertNull(cache.lookup(Arrays.asList("a"), 2));
+
+    NodeCache.Statistics statistics = cache.getStatistics();
+    assertEquals(2, statistics.getHits());
+    assertEquals(1, statistics.getMisses());
+    assertEquals(2, statistics.getSize());
+  }
+
+  @Test
+  public void nodesRequestedAtDifferentDepthsAreCollectedUpToTheLargestOne() {
+    NodeCache cache = new NodeCache(10);
+    cache.store(
+        Arrays.asList(node("a", "c"), node("c", "d"), node("d", "e"), node("e")),
+        new RepositoryVersionToken("1"),
+        cache.getGeneration());
+
+    // c is first reached as a child of a, with a smaller depth limit than requested for c itself
+    assertEquals(
+        Arrays.asList("a", "c", "d", "e"),
+        cache.lookup(Arrays.asList("a", "c"), 2).stream()
+            .map(SerializedClassifierInstance::getID)
+            .collect(Collectors.toList()));
+    assertEquals(
+        new HashSet<>(Arrays.asList("a", "c", "d", "e")),
+        ids(cache.lookup(Arrays.asList("c", "a"), 2)));
+    // e is beyond the depth limit of both a and c
+    assertEquals(
+        new HashSet<>(Arrays.asList("a", "c", "d")), ids(cache.lookup(Arrays.asList("a", "c"), 1)));
+  }
+
+  @Test
+  public void deepTreesAreLookedUp() {
+    int depth = 100_000;
+    NodeCache cache = new NodeCache(depth + 1);
+    List<SerializedClassifierInstance> chain = new ArrayList<>();
+    for (int i = 0; i < depth; i++) {
+      chain.add(node("n" + i, "n" + (i + 1)));
+    }
+    chain.add(node("n" + depth));
+    cache.store(chain, new RepositoryVersionToken("1"), cache.getGeneration());
+
+    List<SerializedClassifierInstance> found =
+        cache.lookup(Collections.singletonList("n0"), Integer.MAX_VALUE);
+    assertEquals(depth + 1, found.size());
+    assertEquals("n" + depth, found.get(depth).getID());
+  }
+
+  @Test
+  public void leastRecentlyUsedNodesAreEvicted() {
+    NodeCache cache = new NodeCache(2);
+    cache.store(Arrays.asList(node("a"), node("b")), null, cache.getGeneration());
+    assertNotNull(cache.lookup(Arrays.asList("a"), 0));
+    cache.store(Arrays.asList(node("c")), null, cache.getGeneration());
+
+    assertNotNull(cache.lookup(Arrays.asList("a"), 0));
+    assertNull(cache.lookup(Arrays.asList("b"), 0));
+    assertNotNull(cache.lookup(Arrays.asList("c"), 0));
+    assertEquals(1, cache.getStatistics().getEvictions());
+    assertEquals(2, cache.getStatistics().getSize());
+
+    cache.resetStatistics();
+    assertEquals(0, cache.getStatistics().getHits());
+    assertEquals(0.0, cache.getStatistics().getHitRate());
+  }
+
+  @Test
+  public void invalidationDiscardsResponsesToOlderRequests() {
+    NodeCache cache = new NodeCache(10);
+    long generation = cache.getGeneration();
+    cache.store(Arrays.asList(node("a")), new RepositoryVersionToken("1"), generation);
+
+    cache.invalidate(new RepositoryVersionToken("2"));
+    assertNull(cache.lookup(Arrays.asList("a"), 0));
+    assertEquals(new RepositoryVersionToken("2"), cache.getRepositoryVersion());
+
+    // The request was sent before the modification, so its data may be stale
+    cache.store(Arrays.asList(node("a")), new RepositoryVersionToken("1"), generation);
+    assertNull(cache.lookup(Arrays.asList("a"), 0));
+
+    cache.store(Arrays.asList(node("a")), new RepositoryVersionToken("2"), cache.getGeneration());
+    assertNotNull(cache.lookup(Arrays.asList("a"), 0));
+  }
+
+  @Test
+  public void newerVersionsReplaceTheCachedData() {
+    NodeCache cache = new NodeCache(10);
+    cache.store(Arrays.asList(node("a")), new RepositoryVersionToken("3"), cache.getGeneration());
+
+    // Data older than the one cached is ignored
+    cache.store(Arrays.asList(node("b")), new RepositoryVersionToken("2"), cache.getGeneration());
+    assertNull(cache.lookup(Arrays.asList("b"), 0));
+    assertNotNull(cache.lookup(Arrays.asList("a"), 0));
+
+    // Data from a newer version replaces everything cached
+    cache.store(Arrays.asList(node("c")), new RepositoryVersionToken("4"), cache.getGeneration());
+    assertNull(cache.lookup(Arrays.asList("a"), 0));
+    assertNotNull(cache.lookup(Arrays.asList("c"), 0));
+    assertEquals(new RepositoryVersionToken("4"), cache.getRepositoryVersion());
+  }
+
+  @Test
+  public void maxNodesShouldBePositive() {
+    assertThrows(IllegalArgumentException.class, () -> new NodeCache(0));
+  }
+}
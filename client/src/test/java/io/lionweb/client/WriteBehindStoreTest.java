@@ -0,0 +1,124 @@
+package io.lionweb.client;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.client.inmemory.ChunkLevelInMemoryServerClient;
+import io.lionweb.client.inmemory.InMemoryServer;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collections;
+import org.junit.jupiter.api.Test;
+
+public class WriteBehindStoreTest {
+
+  private static final MetaPointer CONCEPT = new MetaPointer("l1", "1.0", "c1");
+  private static final MetaPointer NAME = new MetaPointer("l1", "1.0", "name");
+
+  private static SerializedClassifierInstance partition(String id, String name) {
+    SerializedClassifierInstance node = new SerializedClassifierInstance(id, CONCEPT);
+    node.setPropertyValue(NAME, name);
+    return node;
+  }
+
+  private static ChunkLevelInMemoryServerClient client(String... partitionIDs) {
+    ChunkLevelInMemoryServerClient client =
+        new ChunkLevelInMemoryServerClient(new InMemoryServer());
+    client.createRepository(
+        new RepositoryConfiguration("MyRepo", LionWebVersion.v2024_1, HistorySupport.DISABLED));
+    client.setRepositoryName("MyRepo");
+    for (String id : partitionIDs) {
+      client.createPartitionsFromChunk(Collections.singletonList(partition(id, "initial")));
+    }
+    return client;
+  }
+
+  private static String storedName(ChunkLevelInMemoryServerClient client, String id) {
+    return client.retrieveAsChunk(Collections.singletonList(id), 0).get(0).getPropertyValue(NAME);
+  }
+
+  @Test
+  public void pendingChangesAreCoalesced() throws IOException {
+    ChunkLevelInMemoryServerClient client = client("p1");
+    WriteBehindStore store = new WriteBehindStore(client, 100, 1_000_000, 0);
+    for (int i = 0; i < 10; i++) {
+      store.storeChunk(Collections.singletonList(partition("p1", "v" + i)));
+    }
+    assertEquals(0, store.getRequests());
+    assertEquals(1, store.getPendingNodes());
+    assertEquals("initial", storedName(client, "p1"));
+
+    store.flush();
+    assertEquals(1, store.getRequests());
+    assertEquals(10, store.getStoredNodes());
+    assertEquals(1, store.getSentNodes());
+    assertEquals("v9", storedName(client, "p1"));
+  }
+
+  @Test
+  public void nodesAreFlushedWhenTheNodesBudgetIsReached() throws IOException {
+    ChunkLevelInMemoryServerClient client = client("p1", "p2", "p3");
+    WriteBehindStore store = new WriteBehindStore(client, 2, 1_000_000, 0);
+    store.storeChunk(Arrays.asList(partition("p1", "a"), partition("p2", "a")));
+    assertEquals(1, store.getRequests());
+    assertEquals(0, store.getPendingNodes());
+
+    store.storeChunk(Collections.singletonList(partition("p3", "a")));
+    assertEquals(1, store.getPendingNodes());
+    store.close();
+    assertEquals(2, store.getRequests());
+    assertEquals("a", storedName(client, "p3"));
+    assertThrows(
+        IllegalStateException.class,
+        () -> store.storeChunk(Collections.singletonList(partition("p3", "b"))));
+  }
+
+  @Test
+  public void nodesAreFlushedWhenTheBytesBudgetIsReached() throws IOException {
+    ChunkLevelInMemoryServerClient client = client("p1", "p2");
+    SerializedClassifierInstance p1 = partition("p1", "a");
+    WriteBehindStore store =
+        new WriteBehindStore(client, 100, WriteBehindStore.estimateSize(p1) + 1, 0);
+    store.storeChunk(Collections.singletonList(p1));
+    assertEquals(0, store.getRequests());
+    store.storeChunk(Collections.singletonList(partition("p2", "a")));
+    assertEquals(1, store.getRequests());
+    assertEquals(2, store.getSentNodes());
+  }
+
+  @Test
+  public void nodesAreFlushedAfterTheInterval() throws IOException, InterruptedException {
+    ChunkLevelInMemoryServerClient client = client("p1");
+    try (WriteBehindStore store = new WriteBehindStore(client, 100, 1_000_000, 20)) {
+      store.storeChunk(Collections.singletonList(partition("p1", "a")));
+      long deadline = System.currentTimeMillis() + 10_000;
+      // The nodes stop being pending before they are stored: we wait for the request to complete
+      while (store.getRequests() < 1 && System.currentTimeMillis() < deadline) {
+        Thread.sleep(10);
+      }
+      assertEquals(0, store.getPendingNodes());
+      assertEquals(1, store.getRequests());
+      assertEquals("a", storedName(client, "p1"));
+    }
+  }
+
+  @Test
+  public void nodesAreKeptPendingWhenTheFlushFails() throws IOException {
+    ChunkLevelInMemoryServerClient client = client();
+    WriteBehindStore store = new WriteBehindStore(client, 100, 1_000_000, 0);
+    // p1 has not been created as a partition, so storing it fails
+    store.storeChunk(Collections.singletonList(partition("p1", "a")));
+    assertThrows(IllegalArgumentException.class, store::flush);
+    assertEquals(1, store.getPendingNodes());
+    assertEquals(0, store.getRequests());
+
+    client.createPartitionsFromChunk(Collections.singletonList(partition("p1", "initial")));
+    store.flush();
+    assertEquals(0, store.getPendingNodes());
+    assertEquals("a", storedName(client, "p1"));
+  }
+}
@@ -0,0 +1,94 @@
+package io.lionweb.client.impl;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParser;
+import io.lionweb.serialization.data.SerializedChunk;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import org.junit.jupiter.api.Test;
+
+public class BulkResponseTest {
+
+  private static final String NODE =
+      "{\"id\": \"n1\", \"classifier\": {\"language\": \"l\", \"version\": \"1\", \"key\": \"c\"}, "
+          + "\"properties\": [], \"containments\": [], \"references\": [], "
+          + "\"annotations\": [], \"parent\": null}";
+
+  private static InputStream body(String json) {
+    return new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void successfulResponseIsReadInOnePass() throws IOException {
+    String json =
+        "{\"success\": true, \"messages\": [{\"kind\": \"RepoVersion\", \"message\": \"\", "
+            + "\"data\": {\"version\": 3}}], \"chunk\": {\"serializationFormatVersion\": "
+            + "\"2023.1\", \"languages\": [{\"key\": \"l\", \"version\": \"1\"}], \"nodes\": ["
+            + NODE
+            + "]}}";
+    BulkResponse response = BulkResponse.read(body(json));
+    assertTrue(response.isSuccess());
+    assertEquals(1, response.getMessages().size());
+    SerializedChunk chunk = response.getChunk();
+    assertEquals("2023.1", chunk.getSerializationFormatVersion());
+    assertEquals(1, chunk.getLanguages().size());
+    assertEquals(1, chunk.getClassifierInstances().size());
+    assertEquals("n1", chunk.getClassifierInstances().get(0).getID());
+  }
+
+  @Test
+  public void nodesCanBeConsumedWhileReading() throws IOException {
+    String json =
+        "{\"chunk\": {\"serializationFormatVersion\": \"2023.1\", \"languages\": [], \"nodes\": ["
+            + NODE
+            + "]}, \"success\": true, \"other\": {\"a\": [1, 2]}}";
+    List<SerializedClassifierInstance> consumed = new ArrayList<>();
+    BulkResponse response = BulkResponse.read(body(json), consumed::add);
+    assertTrue(response.isSuccess());
+    assertNull(response.getMessages());
+    assertEquals(1, consumed.size());
+    assertEquals(0, response.getChunk().getClassifierInstances().size());
+  }
+
+  @Test
+  public void failureIsDescribedWithoutTheChunk() throws IOException {
+    String json = "{\"success\": false, \"messages\": [{\"kind\": \"Error\", \"message\": \"x\"}]}";
+    BulkResponse response = BulkResponse.read(body(json));
+    assertFalse(response.isSuccess());
+    assertEquals(
+        "{\"success\":false,\"messages\":[{\"kind\":\"Error\",\"message\":\"x\"}]}",
+        response.describe());
+    assertThrows(IllegalStateException.class, response::getChunk);
+  }
+
+  @Test
+  public void chunkIsCopiedAsGsonWouldWriteIt() throws IOException {
+    String json =
+        "{\"success\": true, \"chunk\": {\"serializationFormatVersion\": \"2023.1\", "
+            + "\"languages\": [], \"nodes\": ["
+            + NODE
+            + "], \"extra\": [1.5, true, \"\\u00e8\", \"<a>\"]}}";
+    StringWriter writer = new StringWriter();
+    BulkResponse response = BulkResponse.copyChunk(body(json), writer);
+    assertTrue(response.isSuccess());
+    assertEquals(
+        "{\"serializationFormatVersion\":\"2023.1\",\"languages\":[],\"nodes\":["
+            + NODE.replace(" ", "")
+            + "],\"extra\":[1.5,true,\"\u00e8\",\"\\u003ca\\u003e\"]}",
+        writer.toString());
+    assertEquals(
+        new GsonBuilder()
+            .serializeNulls()
+            .create()
+            .toJson(JsonParser.parseString(json).getAsJsonObject().get("chunk")),
+        writer.toString());
+  }
+}
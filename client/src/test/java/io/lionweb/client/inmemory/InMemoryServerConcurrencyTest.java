@@ -0,0 +1,157 @@
+package io.lionweb.client.inmemory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.*;
+import java.util.concurrent.*;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryServerConcurrencyTest {
+  private static final MetaPointer CONCEPT = new MetaPointer("l1", "1.0", "c1");
+  private static final MetaPointer CONTAINMENT = new MetaPointer("l1", "1.0", "containmentA");
+  private static final int WRITERS = 8;
+  private static final int READERS = 4;
+  private static final int ITERATIONS = 200;
+
+  /** A partition with a single child, which is replaced at each iteration. */
+  private static List<SerializedClassifierInstance> partition(String partitionID, int iteration) {
+    String childID = partitionID + "-child-" + iteration;
+    SerializedClassifierInstance partition = new SerializedClassifierInstance(partitionID, CONCEPT);
+    partition.addChildren(CONTAINMENT, Collections.singletonList(childID));
+    SerializedClassifierInstance child = new SerializedClassifierInstance(childID, CONCEPT);
+    child.setParentNodeID(partitionID);
+    return Arrays.asList(partition, child);
+  }
+
+  private static <T> List<T> runConcurrently(int threads, Callable<List<T>> task) throws Exception {
+    ExecutorService executor = Executors.newFixedThreadPool(threads);
+    try {
+      CountDownLatch start = new CountDownLatch(1);
+      List<Future<List<T>>> futures = new ArrayList<>();
+      for (int i = 0; i < threads; i++) {
+        futures.add(
+            executor.submit(
+                () -> {
+                  start.await();
+                  return task.call();
+                }));
+      }
+      start.countDown();
+      List<T> results = new ArrayList<>();
+      for (Future<List<T>> future : futures) {
+        results.addAll(future.get(60, TimeUnit.SECONDS));
+      }
+      return results;
+    } finally {
+      executor.shutdownNow();
+    }
+  }
+
+  @Test
+  public void concurrentWritersAndReaders() throws Exception {
+    InMemoryServer server = new InMemoryServer();
+    server.createRepository(
+        new RepositoryConfiguration("MyRepo", LionWebVersion.v2024_1, HistorySupport.DISABLED));
+    ConcurrentLinkedQueue<String> writers = new ConcurrentLinkedQueue<>();
+    for (int i = 0; i < WRITERS; i++) {
+      writers.add("p" + i);
+    }
+
+    List<RepositoryVersionToken> results =
+        runConcurrently(
+            WRITERS + READERS,
+            () -> {
+              List<RepositoryVersionToken> tokens = new ArrayList<>();
+              String partitionID = writers.poll();
+              if (partitionID != null) {
+                tokens.add(server.createPartitionFromChunk("MyRepo", partition(partitionID, 0)));
+                for (int i = 1; i <= ITERATIONS; i++) {
+                  tokens.add(server.store("MyRepo", partition(partitionID, i)));
+                  List<SerializedClassifierInstance> retrieved =
+                      server.retrieve("MyRepo", Collections.singletonList(partitionID), 1);
+                  // Other writers never touch this partition
+                  assertEquals(2, retrieved.size());
+                  assertEquals(
+                      Collections.singletonList(partitionID + "-child-" + i),
+                      retrieved.get(0).getChildren());
+                }
+              } else {
+                for (int i = 0; i < ITERATIONS; i++) {
+                  for (String id : server.listPartitionIDs("MyRepo")) {
+                    // The tree retrieved is always complete
+                    List<SerializedClassifierInstance> retrieved =
+                        server.retrieve("MyRepo", Collections.singletonList(id), 1);
+                    assertEquals(2, retrieved.size());
+                  }
+                  server.nodesByClassifier("MyRepo");
+                }
+              }
+              return tokens;
+            });
+
+    // Each change got its own version
+    assertEquals(WRITERS * (ITERATIONS + 1), results.size());
+    Set<String> versions = new HashSet<>();
+    for (RepositoryVersionToken token : results) {
+      versions.add(token.getToken());
+    }
+    assertEquals(results.size(), versions.size());
+
+    assertEquals(WRITERS, server.listPartitionIDs("MyRepo").size());
+    // Children replaced by later stores have been removed
+    assertEquals(
+        WRITERS * 2, server.nodesByLanguage("MyRepo").get(CONCEPT.getLanguage()).getSize());
+  }
+
+  @Test
+  public void concurrentIdsAreUnique() throws Exception {
+    InMemoryServer server = new InMemoryServer();
+    server.createRepository(
+        new RepositoryConfiguration("MyRepo", LionWebVersion.v2024_1, HistorySupport.DISABLED));
+
+    List<String> ids =
+        runConcurrently(
+            WRITERS,
+            () -> {
+              List<String> res = new ArrayList<>();
+              for (int i = 0; i < ITERATIONS; i++) {
+                res.addAll(server.ids("MyRepo", 5));
+              }
+              return res;
+            });
+
+    assertEquals(WRITERS * ITERATIONS * 5, new HashSet<>(ids).size());
+  }
+
+  @Test
+  public void concurrentRepositories() throws Exception {
+    InMemoryServer server = new InMemoryServer();
+    ConcurrentLinkedQueue<String> names = new ConcurrentLinkedQueue<>();
+    for (int i = 0; i < WRITERS; i++) {
+      names.add("Repo" + i);
+    }
+
+    runConcurrently(
+        WRITERS,
+        () -> {
+          String name = names.poll();
+          server.createRepository(
+              new RepositoryConfiguration(name, LionWebVersion.v2024_1, HistorySupport.DISABLED));
+          for (int i = 0; i < ITERATIONS; i++) {
+            server.createPartitionFromChunk(name, partition("p" + i, 0));
+          }
+          return Collections.emptyList();
+        });
+
+    assertEquals(WRITERS, server.listRepositories().size());
+    for (RepositoryConfiguration configuration : server.listRepositories()) {
+      assertEquals(ITERATIONS, server.listPartitionIDs(configuration.getName()).size());
+    }
+  }
+}
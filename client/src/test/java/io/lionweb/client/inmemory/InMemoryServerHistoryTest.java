@@ -0,0 +1,237 @@
+package io.lionweb.client.inmemory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.language.Concept;
+import io.lionweb.language.Language;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.IOException;
+import java.util.*;
+import java.util.stream.Collectors;
+import org.junit.jupiter.api.Test;
+
+public class InMemoryServerHistoryTest {
+  private static final MetaPointer CONCEPT = new MetaPointer("l1", "1.0", "c1");
+  private static final MetaPointer CONTAINMENT = new MetaPointer("l1", "1.0", "containmentA");
+  private static final MetaPointer NAME = new MetaPointer("l1", "1.0", "name");
+
+  private static InMemoryServer serverWithRepository(HistorySupport historySupport) {
+    InMemoryServer server = new InMemoryServer();
+    server.createRepository(
+        new RepositoryConfiguration("MyRepo", LionWebVersion.v2024_1, historySupport));
+    return server;
+  }
+
+  private static SerializedClassifierInstance node(
+      String id, String name, String parentID, String... children) {
+    SerializedClassifierInstance node = new SerializedClassifierInstance(id, CONCEPT);
+    node.setParentNodeID(parentID);
+    node.setPropertyValue(NAME, name);
+    if (children.length > 0) {
+      node.addChildren(CONTAINMENT, Arrays.asList(children));
+    }
+    return node;
+  }
+
+  private static String name(SerializedClassifierInstance node) {
+    return node.getPropertyValue(NAME);
+  }
+
+  @Test
+  public void previousVersionsCanBeRetrieved() {
+    InMemoryServer server = serverWithRepository(HistorySupport.ENABLED);
+    RepositoryVersionToken v1 =
+        server.createPartitionFromChunk(
+            "MyRepo", Arrays.asList(node("p", "P", null, "a"), node("a", "A", "p")));
+    RepositoryVersionToken v2 =
+        server.store("MyRepo", Arrays.asList(node("p", "P", null, "b"), node("b", "B", "p")));
+    RepositoryVersionToken v3 =
+        server.createPartitionFromChunk("MyRepo", Collections.singletonList(node("q", "Q", null)));
+
+    List<SerializedClassifierInstance> atV1 =
+        server.retrieve("MyRepo", v1, Collections.singletonList("p"), Integer.MAX_VALUE);
+    assertEquals(Arrays.asList("p", "a"), ids(atV1));
+    List<SerializedClassifierInstance> atV2 =
+        server.retrieve("MyRepo", v2, Collections.singletonList("p"), Integer.MAX_VALUE);
+    assertEquals(Arrays.asList("p", "b"), ids(atV2));
+    assertThrows(
+        IllegalArgumentException.class,
+        () -> server.retrieve("MyRepo", v2, Collections.singletonList("q"), 0));
+
+    assertEquals(Collections.singletonList("p"), server.listPartitionIDs("MyRepo", v2));
+    assertEquals(Arrays.asList("p", "q"), server.listPartitionIDs("MyRepo", v3));
+    assertEquals(Arrays.asList("p", "q"), server.listPartitionIDs("MyRepo"));
+    assertEquals(
+        Collections.emptyList(),
+        server.listPartitionIDs("MyRepo", new RepositoryVersionToken("v-0")));
+  }
+
+  @Test
+  public void unchangedNodesAreShared() {
+    RepositoryData data =
+        new RepositoryData(
+            new RepositoryConfiguration("MyRepo", LionWebVersion.v2024_1, HistorySupport.ENABLED));
+    RepositoryVersionToken v1 =
+        data.write(
+            () -> {
+              data.partitionIDs.add("p");
+              data.store(
+                  Arrays.asList(
+                      node("p", "P", null, "a", "b"), node("a", "A", "p"), node("b", "B", "p")));
+              return data.bumpVersion();
+            });
+    RepositoryVersionToken v2 =
+        data.write(
+            () -> {
+              data.store(Collections.singletonList(node("a", "A2", "p")));
+              return data.bumpVersion();
+            });
+
+    RepositoryData.Snapshot atV1 = data.snapshot(v1);
+    RepositoryData.Snapshot atV2 = data.snapshot(v2);
+    assertEquals("A", name(atV1.nodesByID.get("a")));
+    assertEquals("A2", name(atV2.nodesByID.get("a")));
+    assertSame(atV1.nodesByID.get("b"), atV2.nodesByID.get("b"));
+  }
+
+  @Test
+  public void oldVersionsAreDiscarded() {
+    InMemoryServer server = serverWithRepository(HistorySupport.ENABLED);
+    server.setRetainedVersions(3);
+    List<RepositoryVersionToken> versions = new ArrayList<>();
+    versions.add(
+        server.createPartitionFromChunk("MyRepo", Collections.singletonList(node("p", "0", null))));
+    for (int i = 1; i < 5; i++) {
+      versions.add(
+          server.store("MyRepo", Collections.singletonList(node("p", String.valueOf(i), null))));
+    }
+
+    for (int i = 0; i < 5; i++) {
+      RepositoryVersionToken version = versions.get(i);
+      if (i < 2) {
+        assertThrows(
+            IllegalArgumentException.class, () -> server.listPartitionIDs("MyRepo", version));
+      } else {
+        List<SerializedClassifierInstance> retrieved =
+            server.retrieve("MyRepo", version, Collections.singletonList("p"), 0);
+        assertEquals(String.valueOf(i), name(retrieved.get(0)));
+      }
+    }
+
+    server.setRetainedVersions(1);
+    assertThrows(
+        IllegalArgumentException.class, () -> server.listPartitionIDs("MyRepo", versions.get(3)));
+    assertEquals(
+        Collections.singletonList("p"), server.listPartitionIDs("MyRepo", versions.get(4)));
+  }
+
+  @Test
+  public void historyRequiresHistorySupport() {
+    InMemoryServer server = serverWithRepository(HistorySupport.DISABLED);
+    RepositoryVersionToken v1 =
+        server.createPartitionFromChunk("MyRepo", Collections.singletonList(node("p", "P", null)));
+
+    assertThrows(IllegalArgumentException.class, () -> server.listPartitionIDs("MyRepo", v1));
+  }
+
+  @Test
+  public void failedChangesHaveNoEffect() {
+    InMemoryServer server = serverWithRepository(HistorySupport.ENABLED);
+    RepositoryVersionToken v1 =
+        server.createPartitionFromChunk(
+            "MyRepo", Arrays.asList(node("p", "P", null, "a"), node("a", "A", "p")));
+
+    // The partition is changed, but one of its children is unknown
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            server.store(
+                "MyRepo",
+                Arrays.asList(node("p", "P2", null, "a", "b", "unknown"), node("b", "B", "p"))));
+
+    List<SerializedClassifierInstance> retrieved =
+        server.retrieve("MyRepo", Collections.singletonList("p"), Integer.MAX_VALUE);
+    assertEquals(Arrays.asList("p", "a"), ids(retrieved));
+    assertEquals("P", name(retrieved.get(0)));
+    RepositoryVersionToken v2 =
+        server.store("MyRepo", Collections.singletonList(node("a", "A2", "p")));
+    assertEquals("v-1", v1.getToken());
+    assertEquals("v-2", v2.getToken());
+  }
+
+  @Test
+  public void historyThroughTheNodesLevelClient() throws IOException {
+    InMemoryServer server = serverWithRepository(HistorySupport.ENABLED);
+    NodesLevelInMemoryServerClient client = new NodesLevelInMemoryServerClient(server, "MyRepo");
+    Language language =
+        new Language(LionWebVersion.v2024_1, "MyLanguage")
+            .setID("l-id")
+            .setKey("l-key")
+            .setVersion("1.0");
+    new Concept(language, "MyConcept").setID("c-id").setKey("c-key");
+    RepositoryVersionToken v1 = client.createPartitions(Collections.singletonList(language));
+    client.deletePartitions(Collections.singletonList("l-id"));
+
+    assertEquals(Collections.emptyList(), client.listPartitionsIDs());
+    assertEquals(1, client.listPartitions(v1).size());
+    Node retrieved = client.retrieve(v1, "l-id");
+    assertEquals("l-id", retrieved.getID());
+    assertEquals(
+        Collections.singletonList("c-id"),
+        client.retrieve(v1, Collections.singletonList("c-id"), 0).stream()
+            .map(Node::getID)
+            .collect(Collectors.toList()));
+  }
+
+  @Test
+  public void changingNodesOutsideTheServerDoesNotChangeHistory() {
+    InMemoryServer server = serverWithRepository(HistorySupport.ENABLED);
+    SerializedClassifierInstance stored = node("p", "P", null);
+    RepositoryVersionToken v1 =
+        server.createPartitionFromChunk("MyRepo", Collections.singletonList(stored));
+    stored.addChildren(CONTAINMENT, Collections.singletonList("a"));
+    server
+        .retrieve("MyRepo", v1, Collections.singletonList("p"), 0)
+        .get(0)
+        .setPropertyValue(NAME, "changed");
+
+    SerializedClassifierInstance atV1 =
+        server.retrieve("MyRepo", v1, Collections.singletonList("p"), Integer.MAX_VALUE).get(0);
+    assertEquals(node("p", "P", null), atV1);
+  }
+
+  @Test
+  public void deepTreesAreRetrievedInPreOrder() {
+    InMemoryServer server = serverWithRepository(HistorySupport.DISABLED);
+    int depth = 100_000;
+    List<SerializedClassifierInstance> nodes = new ArrayList<>();
+    nodes.add(node("n0", "N", null, "n1", "leaf"));
+    for (int i = 1; i < depth - 1; i++) {
+      nodes.add(node("n" + i, "N", "n" + (i - 1), "n" + (i + 1)));
+    }
+    nodes.add(node("n" + (depth - 1), "N", "n" + (depth - 2)));
+    nodes.add(node("leaf", "L", "n0"));
+    server.createPartitionFromChunk("MyRepo", nodes);
+
+    List<String> retrieved =
+        ids(server.retrieve("MyRepo", Collections.singletonList("n0"), Integer.MAX_VALUE));
+    assertEquals(depth + 1, retrieved.size());
+    assertEquals("n1", retrieved.get(1));
+    assertEquals("leaf", retrieved.get(depth));
+    assertEquals(
+        Arrays.asList("n0", "n1", "leaf"),
+        ids(server.retrieve("MyRepo", Collections.singletonList("n0"), 1)));
+  }
+
+  private static List<String> ids(List<SerializedClassifierInstance> nodes) {
+    List<String> ids = new ArrayList<>();
+    nodes.forEach(n -> ids.add(n.getID()));
+    return ids;
+  }
+}
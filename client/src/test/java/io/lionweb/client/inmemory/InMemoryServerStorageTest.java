@@ -0,0 +1,196 @@
+package io.lionweb.client.inmemory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.HistorySupport;
+import io.lionweb.client.api.RepositoryConfiguration;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.*;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class InMemoryServerStorageTest {
+  private static final MetaPointer CONCEPT = new MetaPointer("l1", "1.0", "c1");
+  private static final MetaPointer CONTAINMENT = new MetaPointer("l1", "1.0", "containmentA");
+  private static final MetaPointer NAME = new MetaPointer("l1", "1.0", "name");
+
+  @TempDir File directory;
+
+  private static SerializedClassifierInstance node(
+      String id, String name, String parentID, String... children) {
+    SerializedClassifierInstance node = new SerializedClassifierInstance(id, CONCEPT);
+    node.setParentNodeID(parentID);
+    node.setPropertyValue(NAME, name);
+    if (children.length > 0) {
+      node.addChildren(CONTAINMENT, Arrays.asList(children));
+    }
+    return node;
+  }
+
+  private static void createRepository(InMemoryServer server, String name) {
+    server.createRepository(
+        new RepositoryConfiguration(name, LionWebVersion.v2024_1, HistorySupport.DISABLED));
+  }
+
+  private static Map<String, String> names(InMemoryServer server, String repositoryName) {
+    Map<String, String> names = new TreeMap<>();
+    server
+        .retrieve(repositoryName, server.listPartitionIDs(repositoryName), Integer.MAX_VALUE)
+        .forEach(n -> names.put(n.getID(), n.getPropertyValue(NAME)));
+    return names;
+  }
+
+  @Test
+  public void dataSurvivesRestart() throws IOException {
+    List<String> ids;
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      createRepository(server, "MyRepo");
+      server.createPartitionFromChunk(
+          "MyRepo", Arrays.asList(node("p", "P", null, "a"), node("a", "A", "p")));
+      server.createPartitionFromChunk("MyRepo", Collections.singletonList(node("q", "Q", null)));
+      server.store("MyRepo", Arrays.asList(node("p", "P", null, "b"), node("b", "B", "p")));
+      server.deletePartitions("MyRepo", Collections.singletonList("q"));
+      ids = server.ids("MyRepo", 3);
+    }
+
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      assertEquals(Collections.singletonList("p"), server.listPartitionIDs("MyRepo"));
+      Map<String, String> expected = new TreeMap<>();
+      expected.put("p", "P");
+      expected.put("b", "B");
+      assertEquals(expected, names(server, "MyRepo"));
+      assertEquals(
+          LionWebVersion.v2024_1,
+          server.getRepositoryConfiguration("MyRepo").getLionWebVersion());
+      assertFalse(ids.contains(server.ids("MyRepo", 1).get(0)));
+      // The version continues from the one before the restart
+      RepositoryVersionToken version =
+          server.store("MyRepo", Collections.singletonList(node("b", "B2", "p")));
+      assertEquals("v-5", version.getToken());
+    }
+  }
+
+  @Test
+  public void snapshotsAreCombinedWithTheLog() throws IOException {
+    // A checkpoint after each change, and chunks of two nodes
+    StorageSettings settings = new StorageSettings(false, 1, 2);
+    try (InMemoryServer server = InMemoryServer.open(directory, settings)) {
+      createRepository(server, "MyRepo");
+      createRepository(server, "Other");
+      for (int i = 0; i < 5; i++) {
+        server.createPartitionFromChunk(
+            "MyRepo",
+            Arrays.asList(node("p" + i, "P" + i, null, "c" + i), node("c" + i, "C" + i, "p" + i)));
+      }
+      server.createPartitionFromChunk("Other", Collections.singletonList(node("o", "O", null)));
+    }
+    File[] snapshots = directory.listFiles((dir, name) -> name.startsWith("snapshot-"));
+    assertEquals(1, snapshots.length);
+
+    StorageSettings rarely = new StorageSettings(false, Long.MAX_VALUE, 2);
+    try (InMemoryServer server = InMemoryServer.open(directory, rarely)) {
+      assertEquals(10, names(server, "MyRepo").size());
+      server.store("MyRepo", Collections.singletonList(node("c0", "changed", "p0")));
+      server.checkpoint();
+      server.deletePartitions("MyRepo", Collections.singletonList("p1"));
+    }
+
+    try (InMemoryServer server = InMemoryServer.open(directory, rarely)) {
+      Map<String, String> names = names(server, "MyRepo");
+      assertEquals(8, names.size());
+      assertEquals("changed", names.get("c0"));
+      assertFalse(names.containsKey("c1"));
+      assertEquals(Collections.singletonMap("o", "O"), names(server, "Other"));
+    }
+  }
+
+  @Test
+  public void interruptedWritesAreDiscarded() throws IOException {
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      createRepository(server, "MyRepo");
+      server.createPartitionFromChunk("MyRepo", Collections.singletonList(node("p", "P", null)));
+    }
+    File[] segments = directory.listFiles((dir, name) -> name.endsWith(".wal"));
+    assertEquals(1, segments.length);
+    long size = segments[0].length();
+    // A record whose body was not completely written
+    try (FileOutputStream out = new FileOutputStream(segments[0], true)) {
+      out.write(new byte[] {0, 0, 1, 0, 0, 0, 0, 0, 0, 0, 0, 3, 1, 2});
+    }
+
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      assertEquals(size, segments[0].length());
+      assertEquals(Collections.singletonMap("p", "P"), names(server, "MyRepo"));
+      server.store("MyRepo", Collections.singletonList(node("p", "P2", null)));
+    }
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      assertEquals(Collections.singletonMap("p", "P2"), names(server, "MyRepo"));
+    }
+  }
+
+  @Test
+  public void concurrentChangesAreDurable() throws Exception {
+    int threads = 8;
+    int changes = 50;
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      createRepository(server, "MyRepo");
+      ExecutorService executor = Executors.newFixedThreadPool(threads);
+      try {
+        List<Future<?>> futures = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+          String prefix = "t" + t + "-";
+          futures.add(
+              executor.submit(
+                  () -> {
+                    for (int i = 0; i < changes; i++) {
+                      server.createPartitionFromChunk(
+                          "MyRepo", Collections.singletonList(node(prefix + i, "N", null)));
+                    }
+                  }));
+        }
+        for (Future<?> future : futures) {
+          future.get();
+        }
+      } finally {
+        executor.shutdown();
+      }
+    }
+
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      assertEquals(threads * changes, server.listPartitionIDs("MyRepo").size());
+    }
+  }
+
+  @Test
+  public void deletedRepositoriesStayDeleted() throws IOException {
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      createRepository(server, "Deleted");
+      createRepository(server, "Recreated");
+      server.createPartitionFromChunk("Recreated", Collections.singletonList(node("p", "P", null)));
+      server.checkpoint();
+      server.deleteRepository("Deleted");
+      server.deleteRepository("Recreated");
+      createRepository(server, "Recreated");
+      server.createPartitionFromChunk("Recreated", Collections.singletonList(node("q", "Q", null)));
+    }
+
+    try (InMemoryServer server = InMemoryServer.open(directory)) {
+      assertEquals(1, server.listRepositories().size());
+      assertEquals(Collections.singletonMap("q", "Q"), names(server, "Recreated"));
+    }
+  }
+
+  @Test
+  public void checkpointRequiresStorage() {
+    assertThrows(IllegalStateException.class, () -> new InMemoryServer().checkpoint());
+  }
+}
@@ -0,0 +1,89 @@
+package io.lionweb.client.inmemory;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+import java.util.*;
+import org.junit.jupiter.api.Test;
+
+public class PersistentMapTest {
+
+  /** Key with a chosen hash, to produce collisions. */
+  private static final class Key {
+    private final String name;
+    private final int hash;
+
+    Key(String name, int hash) {
+      this.name = name;
+      this.hash = hash;
+    }
+
+    @Override
+    public boolean equals(Object o) {
+      return o instanceof Key && ((Key) o).name.equals(name);
+    }
+
+    @Override
+    public int hashCode() {
+      return hash;
+    }
+
+    @Override
+    public String toString() {
+      return name;
+    }
+  }
+
+  @Test
+  public void behavesAsAMap() {
+    Random random = new Random(1);
+    Map<Key, Integer> expected = new HashMap<>();
+    PersistentMap<Key, Integer> map = PersistentMap.empty();
+    for (int i = 0; i < 20_000; i++) {
+      // Few distinct hashes, so that collisions are frequent
+      int n = random.nextInt(2000);
+      Key key = new Key("k" + n, n % 3 == 0 ? n % 300 : n * 0x9E3779B9);
+      if (random.nextInt(3) == 0) {
+        expected.remove(key);
+        map = map.minus(key);
+      } else {
+        expected.put(key, i);
+        map = map.plus(key, i);
+      }
+      assertEquals(expected.size(), map.size());
+      assertEquals(expected.get(key), map.get(key));
+    }
+    assertEquals(expected, map);
+    assertEquals(expected.keySet(), map.keySet());
+  }
+
+  @Test
+  public void versionsAreIndependent() {
+    PersistentMap<String, Integer> v0 = PersistentMap.empty();
+    PersistentMap<String, Integer> v1 = v0.plus("a", 1).plus("b", 2);
+    PersistentMap<String, Integer> v2 = v1.plus("a", 3).minus("b");
+
+    assertTrue(v0.isEmpty());
+    assertEquals(2, v1.size());
+    assertEquals(Integer.valueOf(1), v1.get("a"));
+    assertEquals(Integer.valueOf(2), v1.get("b"));
+    assertEquals(Collections.singletonMap("a", 3), v2);
+  }
+
+  @Test
+  public void unchangedMapsAreReused() {
+    PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", 1);
+    Integer value = map.get("a");
+
+    assertSame(map, map.plus("a", value));
+    assertSame(map, map.minus("b"));
+    assertSame(PersistentMap.empty(), map.minus("a"));
+  }
+
+  @Test
+  public void mutatorsAreNotSupported() {
+    PersistentMap<String, Integer> map = PersistentMap.<String, Integer>empty().plus("a", 1);
+
+    assertThrows(UnsupportedOperationException.class, () -> map.put("b", 2));
+    assertThrows(UnsupportedOperationException.class, () -> map.entrySet().clear());
+  }
+}
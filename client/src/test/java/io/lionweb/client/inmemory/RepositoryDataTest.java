@@ -1,15 +1,22 @@
 package io.lionweb.client.inmemory;
 
 import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
 
 import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.ClassifierKey;
 import io.lionweb.client.api.HistorySupport;
 import io.lionweb.client.api.RepositoryConfiguration;
 import io.lionweb.serialization.data.MetaPointer;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collections;
+import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import org.junit.jupiter.api.Test;
 
 public class RepositoryDataTest {
@@ -94,4 +101,183 @@ public class RepositoryDataTest {
     // however n4 should disappear
     assertEquals(new HashSet<>(Arrays.asList("n1", "n3", "n5")), repositoryData.nodesByID.keySet());
   }
+
+  @Test
+  public void indexesFollowChanges() {
+    RepositoryData repositoryData =
+        new RepositoryData(
+            new RepositoryConfiguration("repo1", LionWebVersion.v2023_1, HistorySupport.DISABLED));
+    MetaPointer containment = new MetaPointer("l1", "1.0", "containmentA");
+    SerializedClassifierInstance n1 =
+        new SerializedClassifierInstance("n1", new MetaPointer("l1", "1.0", "c1"));
+    SerializedClassifierInstance n2 =
+        new SerializedClassifierInstance("n2", new MetaPointer("l1", "1.0", "c2"));
+    SerializedClassifierInstance n3 =
+        new SerializedClassifierInstance("n3", new MetaPointer("l2", "1.0", "c1"));
+    n1.addChildren(containment, Arrays.asList("n2", "n3"));
+    n2.setParentNodeID("n1");
+    n3.setParentNodeID("n1");
+    repositoryData.partitionIDs.add("n1");
+    repositoryData.store(Arrays.asList(n1, n2, n3));
+
+    Map<ClassifierKey, Set<String>> byClassifier = new HashMap<>();
+    byClassifier.put(new ClassifierKey("l1", "c1"), Collections.singleton("n1"));
+    byClassifier.put(new ClassifierKey("l1", "c2"), Collections.singleton("n2"));
+    byClassifier.put(new ClassifierKey("l2", "c1"), Collections.singleton("n3"));
+    assertEquals(byClassifier, ids(repositoryData.idsByClassifier));
+    Map<String, Set<String>> byLanguage = new HashMap<>();
+    byLanguage.put("l1", new HashSet<>(Arrays.asList("n1", "n2")));
+    byLanguage.put("l2", Collections.singleton("n3"));
+    assertEquals(byLanguage, ids(repositoryData.idsByLanguage));
+
+    // n2 changes classifier, n3 is implicitly removed
+    SerializedClassifierInstance n1b =
+        new SerializedClassifierInstance("n1", new MetaPointer("l1", "1.0", "c1"));
+    SerializedClassifierInstance n2b =
+        new SerializedClassifierInstance("n2", new MetaPointer("l1", "1.0", "c1"));
+    n1b.addChildren(containment, Collections.singletonList("n2"));
+    n2b.setParentNodeID("n1");
+    repositoryData.store(Arrays.asList(n1b, n2b));
+    assertEquals(
+        Collections.singletonMap(
+            new ClassifierKey("l1", "c1"), new HashSet<>(Arrays.asList("n1", "n2"))),
+        ids(repositoryData.idsByClassifier));
+    assertEquals(
+        Collections.singletonMap("l1", new HashSet<>(Arrays.asList("n1", "n2"))),
+        ids(repositoryData.idsByLanguage));
+
+    repositoryData.deleteNodeAndDescendant("n1");
+    assertEquals(Collections.emptyMap(), ids(repositoryData.idsByClassifier));
+    assertEquals(Collections.emptyMap(), ids(repositoryData.idsByLanguage));
+  }
+
+  @Test
+  public void indexesOfFailedChangesAreReverted() {
+    RepositoryData repositoryData =
+        new RepositoryData(
+            new RepositoryConfiguration("repo1", LionWebVersion.v2023_1, HistorySupport.DISABLED));
+    SerializedClassifierInstance n1 =
+        new SerializedClassifierInstance("n1", new MetaPointer("l1", "1.0", "c1"));
+    repositoryData.partitionIDs.add("n1");
+    repositoryData.store(Collections.singletonList(n1));
+    repositoryData.bumpVersion();
+
+    assertThrows(
+        IllegalStateException.class,
+        () ->
+            repositoryData.write(
+                () -> {
+                  repositoryData.dropNode("n1");
+                  throw new IllegalStateException();
+                }));
+    assertEquals(
+        Collections.singletonMap(new ClassifierKey("l1", "c1"), Collections.singleton("n1")),
+        ids(repositoryData.snapshot().idsByClassifier));
+    assertEquals(repositoryData.snapshot().idsByLanguage, repositoryData.idsByLanguage);
+  }
+
+  @Test
+  public void nodesMovedUnderNewNodesAreKept() {
+    RepositoryData repositoryData =
+        new RepositoryData(
+            new RepositoryConfiguration("repo1", LionWebVersion.v2023_1, HistorySupport.DISABLED));
+    MetaPointer containment = new MetaPointer("l1", "1.0", "containmentA");
+    SerializedClassifierInstance n1 =
+        new SerializedClassifierInstance("n1", new MetaPointer("l1", "1.0", "c1"));
+    SerializedClassifierInstance n2 =
+        new SerializedClassifierInstance("n2", new MetaPointer("l1", "1.0", "c1"));
+    SerializedClassifierInstance n3 =
+        new SerializedClassifierInstance("n3", new MetaPointer("l1", "1.0", "c1"));
+    n1.addChildren(containment, Arrays.asList("n2", "n3"));
+    n2.setParentNodeID("n1");
+    n3.setParentNodeID("n1");
+    repositoryData.partitionIDs.add("n1");
+    repositoryData.store(Arrays.asList(n1, n2, n3));
+
+    // n2 is moved under the new node n4, n3 is removed
+    SerializedClassifierInstance n1b =
+        new SerializedClassifierInstance("n1", new MetaPointer("l1", "1.0", "c1"));
+    SerializedClassifierInstance n4 =
+        new SerializedClassifierInstance("n4", new MetaPointer("l1", "1.0", "c1"));
+    n1b.addChildren(containment, Collections.singletonList("n4"));
+    n4.setParentNodeID("n1");
+    n4.addChildren(containment, Collections.singletonList("n2"));
+    RepositoryData.Changes changes = repositoryData.store(Arrays.asList(n1b, n4));
+
+    assertEquals(new HashSet<>(Arrays.asList("n1", "n2", "n4")), repositoryData.nodesByID.keySet());
+    assertEquals(1, changes.addedNodes);
+    assertEquals(1, changes.movedNodes);
+    assertEquals(1, changes.removedNodes);
+  }
+
+  @Test
+  public void wideNodes() {
+    RepositoryData repositoryData =
+        new RepositoryData(
+            new RepositoryConfiguration("repo1", LionWebVersion.v2023_1, HistorySupport.DISABLED));
+    int width = 100_000;
+    repositoryData.partitionIDs.add("p");
+    repositoryData.store(wideTree(width, "a"));
+
+    // The second half of the children is replaced
+    RepositoryData.Changes changes = repositoryData.store(wideTree(width, "b"));
+
+    assertEquals(width + 1, repositoryData.nodesByID.size());
+    assertEquals(width / 2, changes.addedNodes);
+    assertEquals(0, changes.movedNodes);
+    assertEquals(width / 2, changes.removedNodes);
+  }
+
+  @Test
+  public void deepTrees() {
+    RepositoryData repositoryData =
+        new RepositoryData(
+            new RepositoryConfiguration("repo1", LionWebVersion.v2023_1, HistorySupport.DISABLED));
+    MetaPointer containment = new MetaPointer("l1", "1.0", "containmentA");
+    int depth = 100_000;
+    List<SerializedClassifierInstance> nodes = new ArrayList<>();
+    for (int i = 0; i < depth; i++) {
+      SerializedClassifierInstance node =
+          new SerializedClassifierInstance("n" + i, new MetaPointer("l1", "1.0", "c1"));
+      node.setParentNodeID(i == 0 ? null : "n" + (i - 1));
+      if (i < depth - 1) {
+        node.addChildren(containment, Collections.singletonList("n" + (i + 1)));
+      }
+      nodes.add(node);
+    }
+    repositoryData.partitionIDs.add("n0");
+    repositoryData.store(nodes);
+
+    SerializedClassifierInstance emptyRoot =
+        new SerializedClassifierInstance("n0", new MetaPointer("l1", "1.0", "c1"));
+    RepositoryData.Changes changes = repositoryData.store(Collections.singletonList(emptyRoot));
+    assertEquals(depth - 1, changes.removedNodes);
+    assertEquals(Collections.singleton("n0"), repositoryData.nodesByID.keySet());
+    assertEquals(1, repositoryData.deleteNodeAndDescendant("n0"));
+  }
+
+  /** A partition whose first half of the children is the same for every variant. */
+  private static List<SerializedClassifierInstance> wideTree(int width, String variant) {
+    MetaPointer concept = new MetaPointer("l1", "1.0", "c1");
+    SerializedClassifierInstance root = new SerializedClassifierInstance("p", concept);
+    List<SerializedClassifierInstance> nodes = new ArrayList<>();
+    nodes.add(root);
+    List<String> children = new ArrayList<>();
+    for (int i = 0; i < width; i++) {
+      String id = (i < width / 2 ? "shared" : variant) + "-" + i;
+      SerializedClassifierInstance child = new SerializedClassifierInstance(id, concept);
+      child.setParentNodeID("p");
+      nodes.add(child);
+      children.add(id);
+    }
+    root.addChildren(new MetaPointer("l1", "1.0", "containmentA"), children);
+    return nodes;
+  }
+
+  private static <K> Map<K, Set<String>> ids(
+      PersistentMap<K, PersistentMap<String, Boolean>> index) {
+    Map<K, Set<String>> ids = new HashMap<>();
+    index.forEach((key, value) -> ids.put(key, new HashSet<>(value.keySet())));
+    return ids;
+  }
 }
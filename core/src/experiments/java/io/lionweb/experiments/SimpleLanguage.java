@@ -6,9 +6,9 @@ import java.util.List;
 
 public class SimpleLanguage {
 
-  static Language language;
-  static Concept baseConcept;
-  static List<Concept> subConcepts;
+  public static Language language;
+  public static Concept baseConcept;
+  public static List<Concept> subConcepts;
 
   static {
     language = new Language("MyLanguage", "simple-language-id", "simple-language-key");
@@ -39,6 +39,14 @@ public class SimpleLanguage {
       subConcept.addFeature(intProperty);
 
       subConcept.addFeature(containment);
+
+      Reference reference = new Reference("myReference", subConcept);
+      reference.setID("myReference-" + i + "-id");
+      reference.setKey("myReference-" + i + "-key");
+      reference.setMultiple(true);
+      reference.setOptional(true);
+      reference.setType(baseConcept);
+      subConcept.addFeature(reference);
       subConcept.setExtendedConcept(baseConcept);
       subConcepts.add(subConcept);
     }
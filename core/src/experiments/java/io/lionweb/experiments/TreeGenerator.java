@@ -3,13 +3,29 @@ package io.lionweb.experiments;
 import io.lionweb.language.Concept;
 import io.lionweb.model.ClassifierInstanceUtils;
 import io.lionweb.model.Node;
+import io.lionweb.model.ReferenceValue;
 import io.lionweb.model.impl.DynamicNode;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 
 public class TreeGenerator {
 
+  /** Distribution of the nodes in the generated trees. */
+  public enum Shape {
+    /** Each node is attached to a random node already in the tree. */
+    RANDOM,
+    /** Nodes are attached to a small number of containers, resulting in a shallow tree. */
+    WIDE,
+    /** Nodes are attached to one of the last nodes added, resulting in long chains. */
+    DEEP,
+    /** As {@link #RANDOM}, but each node also refers to several other nodes of the tree. */
+    REFERENCE_HEAVY
+  }
+
+  private static final int REFERENCES_PER_NODE = 5;
+
   private Random random;
 
   public TreeGenerator(long seed) {
@@ -17,14 +33,28 @@ public class TreeGenerator {
   }
 
   public Node generate(int size) {
+    return generate(size, Shape.RANDOM);
+  }
+
+  public Node generate(int size, Shape shape) {
     if (size < 1) {
       throw new IllegalArgumentException();
     }
     Node root = generateNode();
-    List<Node> allNodes = new LinkedList<>();
+    List<Node> allNodes = new ArrayList<>(size);
     allNodes.add(root);
     for (int i = 0; i < size - 1; i++) {
-      growTree(root, allNodes);
+      attachNode(generateNode(), allNodes, shape);
+    }
+    if (shape == Shape.REFERENCE_HEAVY) {
+      for (Node node : allNodes) {
+        List<ReferenceValue> referenceValues = new ArrayList<>(REFERENCES_PER_NODE);
+        for (int i = 0; i < REFERENCES_PER_NODE; i++) {
+          Node target = allNodes.get(random.nextInt(allNodes.size()));
+          referenceValues.add(new ReferenceValue(target, target.getID()));
+        }
+        ClassifierInstanceUtils.setReferenceValuesByName(node, "myReference", referenceValues);
+      }
     }
     if (root.thisAndAllDescendants().size() != size) {
       throw new IllegalStateException();
@@ -67,12 +97,20 @@ public class TreeGenerator {
     return node;
   }
 
-  private void growTree(Node root, List<Node> allNodes) {
-    attachNode(root, generateNode(), allNodes);
-  }
-
-  private void attachNode(Node root, Node newNode, List<Node> allNodes) {
-    Node container = allNodes.get(random.nextInt(allNodes.size()));
+  private void attachNode(Node newNode, List<Node> allNodes, Shape shape) {
+    Node container;
+    switch (shape) {
+      case WIDE:
+        // About 100 children for each container
+        container = allNodes.get(random.nextInt(allNodes.size() / 100 + 1));
+        break;
+      case DEEP:
+        int distanceFromLast = random.nextInt(Math.min(allNodes.size(), 10));
+        container = allNodes.get(allNodes.size() - 1 - distanceFromLast);
+        break;
+      default:
+        container = allNodes.get(random.nextInt(allNodes.size()));
+    }
     allNodes.add(newNode);
     ClassifierInstanceUtils.addChild(container, "myContainment", newNode);
   }
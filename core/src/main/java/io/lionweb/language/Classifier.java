@@ -4,7 +4,6 @@ import io.lionweb.LionWebVersion;
 import io.lionweb.model.impl.M3Node;
 import io.lionweb.serialization.data.MetaPointer;
 import java.util.*;
-import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -24,6 +23,8 @@ import javax.annotation.Nullable;
  */
 public abstract class Classifier<T extends M3Node> extends LanguageEntity<T>
     implements NamespaceProvider {
+  private volatile @Nullable ClassifierLayout layout = null;
+
   public Classifier() {
     super();
   }
@@ -47,10 +48,7 @@ public abstract class Classifier<T extends M3Node> extends LanguageEntity<T>
 
   public @Nullable Feature getFeatureByName(@Nonnull String name) {
     Objects.requireNonNull(name, "name should not be null");
-    return allFeatures().stream()
-        .filter(feature -> feature.getName().equals(name))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getFeatureByName(name);
   }
 
   public abstract @Nonnull List<Classifier<?>> directAncestors();
@@ -77,43 +75,73 @@ public abstract class Classifier<T extends M3Node> extends LanguageEntity<T>
   }
 
   public @Nonnull List<Feature<?>> allFeatures() {
+    return new ArrayList<>(getLayout().getFeatures());
+  }
+
+  /**
+   * Return the features of this classifier, including the inherited ones, with precomputed lookup
+   * tables. The layout is cached and recomputed only after the language of this classifier, or the
+   * language of one of its ancestors, is modified, so it should be preferred to {@link
+   * #allFeatures()} and similar methods on hot paths.
+   */
+  public @Nonnull ClassifierLayout getLayout() {
+    ClassifierLayout current = layout;
+    if (current == null || !isUpToDate(current)) {
+      List<Classifier<?>> sources = new ArrayList<>();
+      sources.add(this);
+      sources.addAll(allAncestors());
+      M3Node<?>[] roots = new M3Node<?>[sources.size()];
+      long[] modificationCounts = new long[sources.size()];
+      // Counters are read before computing the features, so that concurrent changes are not missed
+      for (int i = 0; i < roots.length; i++) {
+        roots[i] = getM3Root(sources.get(i));
+        modificationCounts[i] = getModificationCount(roots[i]);
+      }
+      current =
+          new ClassifierLayout(
+              computeAllFeatures(),
+              sources.toArray(new Classifier<?>[0]),
+              roots,
+              modificationCounts);
+      layout = current;
+    }
+    return current;
+  }
+
+  private static boolean isUpToDate(@Nonnull ClassifierLayout layout) {
+    for (int i = 0; i < layout.sources.length; i++) {
+      M3Node<?> root = getM3Root(layout.sources[i]);
+      if (root != layout.roots[i] || getModificationCount(root) != layout.modificationCounts[i]) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private @Nonnull List<Feature<?>> computeAllFeatures() {
     // TODO Should this return features which are overriden?
     // TODO Should features be returned in a particular order?
-    List<Feature<?>> result = new LinkedList<>();
-    result.addAll(this.getFeatures());
+    List<Feature<?>> result = new ArrayList<>(this.getFeatures());
     combineFeatures(result, this.inheritedFeatures());
-
     return result;
   }
 
   public abstract @Nonnull List<Feature<?>> inheritedFeatures();
 
   public @Nonnull List<Property> allProperties() {
-    return allFeatures().stream()
-        .filter(f -> f instanceof Property)
-        .map(f -> (Property) f)
-        .collect(Collectors.toList());
+    return new ArrayList<>(getLayout().getProperties());
   }
 
   public @Nonnull List<Containment> allContainments() {
-    return allFeatures().stream()
-        .filter(f -> f instanceof Containment)
-        .map(f -> (Containment) f)
-        .collect(Collectors.toList());
+    return new ArrayList<>(getLayout().getContainments());
   }
 
   public @Nonnull List<Reference> allReferences() {
-    return allFeatures().stream()
-        .filter(f -> f instanceof Reference)
-        .map(f -> (Reference) f)
-        .collect(Collectors.toList());
+    return new ArrayList<>(getLayout().getReferences());
   }
 
   public @Nonnull List<Link<?>> allLinks() {
-    return allFeatures().stream()
-        .filter(f -> f instanceof Link)
-        .map(f -> (Link<?>) f)
-        .collect(Collectors.toList());
+    return new ArrayList<>(getLayout().getLinks());
   }
 
   // TODO should this expose an immutable list to force users to use methods on this class
@@ -144,62 +172,32 @@ public abstract class Classifier<T extends M3Node> extends LanguageEntity<T>
 
   public @Nullable Property getPropertyByID(@Nonnull String propertyId) {
     Objects.requireNonNull(propertyId, "propertyId should not be null");
-    return allFeatures().stream()
-        .filter(f -> f instanceof Property)
-        .map(f -> (Property) f)
-        .filter(p -> Objects.equals(p.getID(), propertyId))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getPropertyByID(propertyId);
   }
 
   public @Nullable Property getPropertyByName(@Nonnull String propertyName) {
     Objects.requireNonNull(propertyName, "propertyName should not be null");
-    return allFeatures().stream()
-        .filter(f -> f instanceof Property)
-        .map(f -> (Property) f)
-        .filter(p -> Objects.equals(p.getName(), propertyName))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getPropertyByName(propertyName);
   }
 
   public @Nullable Containment getContainmentByID(@Nonnull String containmentID) {
     Objects.requireNonNull(containmentID, "containmentID should not be null");
-    return allFeatures().stream()
-        .filter(f -> f instanceof Containment)
-        .map(f -> (Containment) f)
-        .filter(c -> Objects.equals(c.getID(), containmentID))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getContainmentByID(containmentID);
   }
 
   public @Nullable Containment getContainmentByName(@Nonnull String containmentName) {
     Objects.requireNonNull(containmentName, "containmentName should not be null");
-    return allFeatures().stream()
-        .filter(f -> f instanceof Containment)
-        .map(f -> (Containment) f)
-        .filter(c -> Objects.equals(c.getName(), containmentName))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getContainmentByName(containmentName);
   }
 
   public @Nullable Reference getReferenceByID(@Nonnull String referenceID) {
     Objects.requireNonNull(referenceID, "referenceID should not be null");
-    return allFeatures().stream()
-        .filter(f -> f instanceof Reference)
-        .map(f -> (Reference) f)
-        .filter(c -> Objects.equals(c.getID(), referenceID))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getReferenceByID(referenceID);
   }
 
   public @Nullable Reference getReferenceByName(@Nonnull String referenceName) {
     Objects.requireNonNull(referenceName, "referenceName should not be null");
-    return allFeatures().stream()
-        .filter(f -> f instanceof Reference)
-        .map(f -> (Reference) f)
-        .filter(c -> Objects.equals(c.getName(), referenceName))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getReferenceByName(referenceName);
   }
 
   public @Nonnull Containment requireContainmentByName(@Nonnull String containmentName) {
@@ -222,34 +220,19 @@ public abstract class Classifier<T extends M3Node> extends LanguageEntity<T>
 
   public @Nullable Link getLinkByName(@Nonnull String linkName) {
     Objects.requireNonNull(linkName, "linkName should not be null");
-    return allFeatures().stream()
-        .filter(f -> f instanceof Link)
-        .map(f -> (Link) f)
-        .filter(c -> Objects.equals(c.getName(), linkName))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getLinkByName(linkName);
   }
 
   public @Nullable Property getPropertyByMetaPointer(MetaPointer metaPointer) {
-
-    return this.allProperties().stream()
-        .filter(p -> MetaPointer.from(p).equals(metaPointer))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getPropertyByMetaPointer(metaPointer);
   }
 
   public @Nullable Containment getContainmentByMetaPointer(MetaPointer metaPointer) {
-    return this.allContainments().stream()
-        .filter(p -> MetaPointer.from(p).equals(metaPointer))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getContainmentByMetaPointer(metaPointer);
   }
 
   public @Nullable Reference getReferenceByMetaPointer(MetaPointer metaPointer) {
-    return this.allReferences().stream()
-        .filter(p -> MetaPointer.from(p).equals(metaPointer))
-        .findFirst()
-        .orElse(null);
+    return getLayout().getReferenceByMetaPointer(metaPointer);
   }
 
   protected void combineFeatures(List<Feature<?>> featuresA, List<Feature<?>> featuresB) {
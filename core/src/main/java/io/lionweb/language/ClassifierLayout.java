@@ -0,0 +1,196 @@
+package io.lionweb.language;
+
+import io.lionweb.model.impl.M3Node;
+import io.lionweb.serialization.data.MetaPointer;
+import java.util.*;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Precomputed view of all the features of a {@link Classifier}, including the inherited ones.
+ *
+ * <p>Computing {@link Classifier#allFeatures()} requires walking the whole inheritance hierarchy,
+ * so the layout is computed once and reused until the classifier or one of its ancestors is
+ * modified, together with the languages containing them. It gives constant-time membership checks
+ * and lookups by name, ID and MetaPointer, and assigns to each property, containment and reference
+ * a stable index that can be used to store values in arrays.
+ *
+ * <p>Instances are immutable and obtained through {@link Classifier#getLayout()}.
+ */
+public final class ClassifierLayout {
+  private final List<Feature<?>> features;
+  private final List<Link<?>> links;
+  private final Map<String, Feature<?>> featuresByName = new HashMap<>();
+  private final FeatureGroup<Property> properties = new FeatureGroup<>();
+  private final FeatureGroup<Containment> containments = new FeatureGroup<>();
+  private final FeatureGroup<Reference> references = new FeatureGroup<>();
+  private final FeatureGroup<Link<?>> linksGroup = new FeatureGroup<>();
+  // The classifiers the layout was computed from, with the roots of their trees and the
+  // modification counts of those roots at that time
+  final Classifier<?>[] sources;
+  final M3Node<?>[] roots;
+  final long[] modificationCounts;
+
+  ClassifierLayout(
+      @Nonnull List<Feature<?>> allFeatures,
+      @Nonnull Classifier<?>[] sources,
+      @Nonnull M3Node<?>[] roots,
+      @Nonnull long[] modificationCounts) {
+    this.sources = sources;
+    this.roots = roots;
+    this.modificationCounts = modificationCounts;
+    for (Feature<?> feature : allFeatures) {
+      if (feature.getName() != null) {
+        featuresByName.putIfAbsent(feature.getName(), feature);
+      }
+      if (feature instanceof Property) {
+        properties.add((Property) feature);
+      } else if (feature instanceof Containment) {
+        containments.add((Containment) feature);
+      } else if (feature instanceof Reference) {
+        references.add((Reference) feature);
+      }
+      if (feature instanceof Link) {
+        linksGroup.add((Link<?>) feature);
+      }
+    }
+    this.features = Collections.unmodifiableList(new ArrayList<>(allFeatures));
+    this.links = linksGroup.view;
+  }
+
+  public @Nonnull List<Feature<?>> getFeatures() {
+    return features;
+  }
+
+  public @Nonnull List<Property> getProperties() {
+    return properties.view;
+  }
+
+  public @Nonnull List<Containment> getContainments() {
+    return containments.view;
+  }
+
+  public @Nonnull List<Reference> getReferences() {
+    return references.view;
+  }
+
+  public @Nonnull List<Link<?>> getLinks() {
+    return links;
+  }
+
+  /** Equivalent to {@code getProperties().contains(property)}, but typically in constant time. */
+  public boolean contains(@Nonnull Property property) {
+    return properties.indexOf(property) != -1;
+  }
+
+  public boolean contains(@Nonnull Containment containment) {
+    return containments.indexOf(containment) != -1;
+  }
+
+  public boolean contains(@Nonnull Reference reference) {
+    return references.indexOf(reference) != -1;
+  }
+
+  /**
+   * Return the position of the given property among {@link #getProperties()}, or -1 if the
+   * property does not belong to the classifier.
+   */
+  public int indexOf(@Nonnull Property property) {
+    return properties.indexOf(property);
+  }
+
+  public int indexOf(@Nonnull Containment containment) {
+    return containments.indexOf(containment);
+  }
+
+  public int indexOf(@Nonnull Reference reference) {
+    return references.indexOf(reference);
+  }
+
+  public @Nullable Feature<?> getFeatureByName(@Nonnull String name) {
+    return featuresByName.get(name);
+  }
+
+  public @Nullable Property getPropertyByName(@Nonnull String name) {
+    return properties.byName.get(name);
+  }
+
+  public @Nullable Containment getContainmentByName(@Nonnull String name) {
+    return containments.byName.get(name);
+  }
+
+  public @Nullable Reference getReferenceByName(@Nonnull String name) {
+    return references.byName.get(name);
+  }
+
+  public @Nullable Link<?> getLinkByName(@Nonnull String name) {
+    return linksGroup.byName.get(name);
+  }
+
+  public @Nullable Property getPropertyByID(@Nonnull String id) {
+    return properties.byID.get(id);
+  }
+
+  public @Nullable Containment getContainmentByID(@Nonnull String id) {
+    return containments.byID.get(id);
+  }
+
+  public @Nullable Reference getReferenceByID(@Nonnull String id) {
+    return references.byID.get(id);
+  }
+
+  public @Nullable Property getPropertyByMetaPointer(@Nullable MetaPointer metaPointer) {
+    return properties.getByMetaPointer(metaPointer);
+  }
+
+  public @Nullable Containment getContainmentByMetaPointer(@Nullable MetaPointer metaPointer) {
+    return containments.getByMetaPointer(metaPointer);
+  }
+
+  public @Nullable Reference getReferenceByMetaPointer(@Nullable MetaPointer metaPointer) {
+    return references.getByMetaPointer(metaPointer);
+  }
+
+  /** Features of one kind, with their lookup tables. When names or IDs clash, the first wins. */
+  private static class FeatureGroup<F extends Feature<?>> {
+    private final List<F> features = new ArrayList<>();
+    private final List<F> view = Collections.unmodifiableList(features);
+    private final Map<F, Integer> indexes = new IdentityHashMap<>();
+    private final Map<String, F> byName = new HashMap<>();
+    private final Map<String, F> byID = new HashMap<>();
+    // Computed on demand, as it requires all the features to be part of a language
+    private volatile Map<MetaPointer, F> byMetaPointer = null;
+
+    private void add(F feature) {
+      indexes.putIfAbsent(feature, features.size());
+      features.add(feature);
+      if (feature.getName() != null) {
+        byName.putIfAbsent(feature.getName(), feature);
+      }
+      if (feature.getID() != null) {
+        byID.putIfAbsent(feature.getID(), feature);
+      }
+    }
+
+    private @Nullable F getByMetaPointer(@Nullable MetaPointer metaPointer) {
+      Map<MetaPointer, F> map = byMetaPointer;
+      if (map == null) {
+        map = new HashMap<>();
+        for (F feature : features) {
+          map.putIfAbsent(MetaPointer.from(feature).intern(), feature);
+        }
+        byMetaPointer = map;
+      }
+      return map.get(metaPointer);
+    }
+
+    private int indexOf(F feature) {
+      Integer index = indexes.get(feature);
+      if (index != null) {
+        return index;
+      }
+      // Identity covers virtually all lookups, but we still honor equality, as List.contains does
+      return features.indexOf(feature);
+    }
+  }
+}
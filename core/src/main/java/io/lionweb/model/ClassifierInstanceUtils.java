@@ -75,7 +75,7 @@ public class ClassifierInstanceUtils {
   public static List<Node> getChildren(@Nonnull ClassifierInstance<?> _this) {
     Objects.requireNonNull(_this, "_this should not be null");
     List<Node> allChildren = new LinkedList<>();
-    _this.getClassifier().allContainments().stream()
+    _this.getClassifier().getLayout().getContainments().stream()
         .map(c -> _this.getChildren(c))
         .forEach(children -> allChildren.addAll(children));
     return allChildren;
@@ -129,7 +129,7 @@ public class ClassifierInstanceUtils {
   public static List<ReferenceValue> getReferenceValues(@Nonnull ClassifierInstance<?> _this) {
     Objects.requireNonNull(_this, "_this should not be null");
     List<ReferenceValue> allReferredValues = new LinkedList<>();
-    _this.getClassifier().allReferences().stream()
+    _this.getClassifier().getLayout().getReferences().stream()
         .map(r -> _this.getReferenceValues(r))
         .forEach(referenceValues -> allReferredValues.addAll(referenceValues));
     return allReferredValues;
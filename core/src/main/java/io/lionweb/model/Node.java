@@ -71,7 +71,7 @@ public interface Node extends ClassifierInstance<Concept> {
     if (parent == null) {
       return null;
     }
-    for (Containment containment : parent.getClassifier().allContainments()) {
+    for (Containment containment : parent.getClassifier().getLayout().getContainments()) {
       if (parent.getChildren(containment).stream().anyMatch(it -> it == this)) {
         return containment;
       }
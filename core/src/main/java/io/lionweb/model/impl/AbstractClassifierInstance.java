@@ -89,7 +89,7 @@ public abstract class AbstractClassifierInstance<T extends Classifier<T>>
 
   @Override
   public void removeChild(Node child) {
-    for (Containment containment : this.getClassifier().allContainments()) {
+    for (Containment containment : this.getClassifier().getLayout().getContainments()) {
       List<? extends Node> children = this.getChildren(containment);
       if (children.remove(child)) {
         if (child instanceof HasSettableParent) {
@@ -102,7 +102,7 @@ public abstract class AbstractClassifierInstance<T extends Classifier<T>>
 
   @Override
   public void removeChild(@Nonnull Containment containment, int index) {
-    if (!getClassifier().allContainments().contains(containment)) {
+    if (!getClassifier().getLayout().contains(containment)) {
       throw new IllegalArgumentException("Containment not belonging to this concept");
     }
     List<? extends Node> children = this.getChildren(containment);
@@ -118,7 +118,7 @@ public abstract class AbstractClassifierInstance<T extends Classifier<T>>
 
   @Override
   public void removeReferenceValue(@Nonnull Reference reference, int index) {
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this concept");
     }
     getReferenceValues(reference).remove(index);
@@ -127,7 +127,7 @@ public abstract class AbstractClassifierInstance<T extends Classifier<T>>
   @Override
   public void removeReferenceValue(
       @Nonnull Reference reference, @Nullable ReferenceValue referenceValue) {
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this concept");
     }
     if (!getReferenceValues(reference).remove(referenceValue)) {
@@ -0,0 +1,453 @@
+package io.lionweb.model.impl;
+
+import static io.lionweb.model.ClassifierInstanceUtils.shallowAnnotationsEquality;
+import static io.lionweb.model.ClassifierInstanceUtils.shallowClassifierInstanceEquality;
+
+import io.lionweb.language.*;
+import io.lionweb.model.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Alternative to {@link DynamicNode}, designed to keep millions of nodes in memory.
+ *
+ * <p>Instead of maps keyed by feature keys, all values are stored in a single array, with one slot
+ * for each property, containment and reference of the Concept, as described by its {@link
+ * ClassifierLayout}. Links holding a single value store it directly in the slot, without wrapping
+ * it in a list. The array is allocated only when the first value is set.
+ *
+ * <p>Lists returned by {@link #getChildren(Containment)} and {@link #getReferenceValues(Reference)}
+ * cannot be modified: changes should go through the methods of this class.
+ */
+public class CompactDynamicNode extends AbstractClassifierInstance<Concept>
+    implements Node, HasSettableParent, HasSettableID {
+  private @Nullable String id;
+  private @Nullable ClassifierInstance<?> parent = null;
+  private final @Nonnull Concept concept;
+
+  /** The layout used to assign slots. It is replaced when the Concept is modified. */
+  private @Nullable ClassifierLayout layout = null;
+
+  /**
+   * Properties, then containments, then references. Links contain either null, a single value, or
+   * a list of values.
+   */
+  private @Nullable Object[] slots = null;
+
+  public CompactDynamicNode(@Nullable String id, @Nonnull Concept concept) {
+    Objects.requireNonNull(concept, "concept should not be null");
+    this.id = id;
+    this.concept = concept;
+  }
+
+  @Nullable
+  @Override
+  public String getID() {
+    return id;
+  }
+
+  @Override
+  public @Nonnull CompactDynamicNode setID(@Nonnull String id) {
+    Objects.requireNonNull(id);
+    this.id = id;
+    return this;
+  }
+
+  @Override
+  public ClassifierInstance<?> getParent() {
+    return parent;
+  }
+
+  @Override
+  public CompactDynamicNode setParent(@Nullable ClassifierInstance<?> parent) {
+    this.parent = parent;
+    return this;
+  }
+
+  @Override
+  public Concept getClassifier() {
+    return concept;
+  }
+
+  // Public methods for properties
+
+  @Override
+  public Object getPropertyValue(@Nonnull Property property) {
+    Objects.requireNonNull(property, "Property should not be null");
+    int index = currentLayout().indexOf(property);
+    if (index == -1) {
+      throw new IllegalArgumentException("Property not belonging to this classifier");
+    }
+    Object storedValue = slots == null ? null : slots[index];
+    if (storedValue == null
+        && property.getType() == LionCoreBuiltins.getBoolean(concept.getLionWebVersion())
+        && property.isRequired()) {
+      return false;
+    }
+    return storedValue;
+  }
+
+  @Override
+  public void setPropertyValue(@Nonnull Property property, @Nullable Object value) {
+    Objects.requireNonNull(property, "Property should not be null");
+    int index = currentLayout().indexOf(property);
+    if (index == -1) {
+      throw new IllegalArgumentException(
+          "Property " + property + " is not belonging to classifier " + concept);
+    }
+    if ((value == null || value == Boolean.FALSE) && property.isRequired()) {
+      // As DynamicNode does, we do not store default values, so that comparisons are simplified
+      value = null;
+    }
+    setSlot(index, value);
+  }
+
+  // Public methods for containments
+
+  @Nonnull
+  @Override
+  public List<Node> getChildren(@Nonnull Containment containment) {
+    Objects.requireNonNull(containment, "Containment should not be null");
+    return asList(getSlot(containmentSlot(containment)));
+  }
+
+  @Override
+  public void addChild(@Nonnull Containment containment, @Nonnull Node child) {
+    Objects.requireNonNull(containment);
+    Objects.requireNonNull(child);
+    int index = containmentSlot(containment);
+    if (containment.isMultiple()) {
+      setSlot(index, append(getSlot(index), child));
+    } else {
+      for (Node previous : new ArrayList<>(getChildren(containment))) {
+        removeChild(previous);
+      }
+      setSlot(index, child);
+    }
+    if (child instanceof HasSettableParent) {
+      ((HasSettableParent) child).setParent(this);
+    }
+  }
+
+  @Override
+  public void removeChild(@Nonnull Node node) {
+    ClassifierLayout currentLayout = currentLayout();
+    int first = currentLayout.getProperties().size();
+    int last = first + currentLayout.getContainments().size();
+    for (int index = first; index < last; index++) {
+      List<Node> children = asList(getSlot(index));
+      int position = children.indexOf(node);
+      if (position != -1) {
+        setSlot(index, removeAt(getSlot(index), position));
+        if (node instanceof HasSettableParent) {
+          ((HasSettableParent) node).setParent(null);
+        }
+        return;
+      }
+    }
+    throw new IllegalArgumentException("The given node is not a child of this node");
+  }
+
+  @Override
+  public void removeChild(@Nonnull Containment containment, int index) {
+    Objects.requireNonNull(containment);
+    int slot = containmentSlot(containment);
+    int size = asList(getSlot(slot)).size();
+    if (size > index) {
+      setSlot(slot, removeAt(getSlot(slot), index));
+    } else {
+      throw new IllegalArgumentException("Invalid index " + index + " when children are " + size);
+    }
+  }
+
+  // Public methods for references
+
+  @Nonnull
+  @Override
+  public List<ReferenceValue> getReferenceValues(@Nonnull Reference reference) {
+    Objects.requireNonNull(reference);
+    return asList(getSlot(referenceSlot(reference)));
+  }
+
+  @Override
+  public void addReferenceValue(@Nonnull Reference reference, @Nullable ReferenceValue value) {
+    Objects.requireNonNull(reference, "Reference should not be null");
+    int index = referenceSlot(reference);
+    if (reference.isMultiple()) {
+      // As DynamicNode does, null values are ignored by multiple references
+      if (value != null) {
+        setSlot(index, append(getSlot(index), value));
+      }
+    } else {
+      setSlot(index, value);
+    }
+  }
+
+  @Override
+  public void removeReferenceValue(
+      @Nonnull Reference reference, @Nullable ReferenceValue referenceValue) {
+    Objects.requireNonNull(reference, "Reference should not be null");
+    int index = referenceSlot(reference);
+    int position = asList(getSlot(index)).indexOf(referenceValue);
+    if (position == -1) {
+      throw new IllegalArgumentException(
+          "The given reference value could not be found under reference " + reference.getName());
+    }
+    setSlot(index, removeAt(getSlot(index), position));
+  }
+
+  @Override
+  public void removeReferenceValue(@Nonnull Reference reference, int index) {
+    Objects.requireNonNull(reference, "Reference should not be null");
+    int slot = referenceSlot(reference);
+    int size = asList(getSlot(slot)).size();
+    if (size > index) {
+      setSlot(slot, removeAt(getSlot(slot), index));
+    } else {
+      throw new IllegalArgumentException(
+          "Invalid index " + index + " when reference values are " + size);
+    }
+  }
+
+  @Override
+  public void setReferenceValues(
+      @Nonnull Reference reference, @Nonnull List<? extends ReferenceValue> values) {
+    Objects.requireNonNull(reference, "Reference should not be null");
+    Objects.requireNonNull(values, "values should not be null");
+    int index = referenceSlot(reference);
+    if (values.isEmpty()) {
+      setSlot(index, null);
+    } else if (values.size() == 1 && values.get(0) != null) {
+      setSlot(index, values.get(0));
+    } else {
+      setSlot(index, new ArrayList<>(values));
+    }
+  }
+
+  // Slots management
+
+  private int containmentSlot(@Nonnull Containment containment) {
+    ClassifierLayout currentLayout = currentLayout();
+    int index = currentLayout.indexOf(containment);
+    if (index == -1) {
+      throw new IllegalArgumentException("Containment not belonging to this concept");
+    }
+    return currentLayout.getProperties().size() + index;
+  }
+
+  private int referenceSlot(@Nonnull Reference reference) {
+    ClassifierLayout currentLayout = currentLayout();
+    int index = currentLayout.indexOf(reference);
+    if (index == -1) {
+      throw new IllegalArgumentException("Reference not belonging to this concept");
+    }
+    return currentLayout.getProperties().size() + currentLayout.getContainments().size() + index;
+  }
+
+  private @Nullable Object getSlot(int index) {
+    return slots == null ? null : slots[index];
+  }
+
+  private void setSlot(int index, @Nullable Object value) {
+    if (slots == null) {
+      if (value == null) {
+        return;
+      }
+      slots = new Object[slotsCount(layout)];
+    }
+    slots[index] = value;
+  }
+
+  /**
+   * Return the current layout of the Concept. If the features of the Concept have changed since
+   * the slots were assigned, the values are moved to the slots of the features in the new layout,
+   * and the values of removed features are dropped.
+   */
+  private @Nonnull ClassifierLayout currentLayout() {
+    ClassifierLayout current = concept.getLayout();
+    if (current != layout) {
+      if (layout != null && slots != null && !sameSlots(layout, current)) {
+        Object[] newSlots = new Object[slotsCount(current)];
+        int offset = 0;
+        int newContainmentsOffset = current.getProperties().size();
+        int newReferencesOffset = newContainmentsOffset + current.getContainments().size();
+        for (Property property : layout.getProperties()) {
+          moveSlot(newSlots, offset++, current.indexOf(property), 0);
+        }
+        for (Containment containment : layout.getContainments()) {
+          moveSlot(newSlots, offset++, current.indexOf(containment), newContainmentsOffset);
+        }
+        for (Reference reference : layout.getReferences()) {
+          moveSlot(newSlots, offset++, current.indexOf(reference), newReferencesOffset);
+        }
+        slots = newSlots;
+      }
+      layout = current;
+    }
+    return current;
+  }
+
+  /** Layouts are recomputed also when, for example, a feature is renamed: slots stay the same. */
+  private static boolean sameSlots(
+      @Nonnull ClassifierLayout layout, @Nonnull ClassifierLayout other) {
+    return sameFeatures(layout.getProperties(), other.getProperties())
+        && sameFeatures(layout.getContainments(), other.getContainments())
+        && sameFeatures(layout.getReferences(), other.getReferences());
+  }
+
+  private static boolean sameFeatures(
+      @Nonnull List<? extends Feature<?>> features, @Nonnull List<? extends Feature<?>> other) {
+    if (features.size() != other.size()) {
+      return false;
+    }
+    for (int i = 0; i < features.size(); i++) {
+      if (features.get(i) != other.get(i)) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  private void moveSlot(Object[] newSlots, int oldIndex, int newIndex, int newOffset) {
+    if (newIndex != -1) {
+      newSlots[newOffset + newIndex] = slots[oldIndex];
+    }
+  }
+
+  private static int slotsCount(@Nonnull ClassifierLayout layout) {
+    return layout.getProperties().size()
+        + layout.getContainments().size()
+        + layout.getReferences().size();
+  }
+
+  @SuppressWarnings("unchecked")
+  private static <E> List<E> asList(@Nullable Object slotValue) {
+    if (slotValue == null) {
+      return Collections.emptyList();
+    } else if (slotValue instanceof List) {
+      return Collections.unmodifiableList((List<E>) slotValue);
+    } else {
+      return Collections.singletonList((E) slotValue);
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static Object append(@Nullable Object slotValue, @Nonnull Object value) {
+    if (slotValue == null) {
+      return value;
+    } else if (slotValue instanceof List) {
+      ((List<Object>) slotValue).add(value);
+      return slotValue;
+    } else {
+      List<Object> values = new ArrayList<>(2);
+      values.add(slotValue);
+      values.add(value);
+      return values;
+    }
+  }
+
+  @SuppressWarnings("unchecked")
+  private static @Nullable Object removeAt(@Nonnull Object slotValue, int index) {
+    if (!(slotValue instanceof List)) {
+      return null;
+    }
+    List<Object> values = (List<Object>) slotValue;
+    values.remove(index);
+    if (values.isEmpty()) {
+      return null;
+    } else if (values.size() == 1 && values.get(0) != null) {
+      return values.get(0);
+    } else {
+      return values;
+    }
+  }
+
+  @Override
+  public boolean equals(Object o) {
+    if (this == o) {
+      return true;
+    }
+    if (!(o instanceof CompactDynamicNode)) {
+      return false;
+    }
+    CompactDynamicNode that = (CompactDynamicNode) o;
+    if (!Objects.equals(getID(), that.getID())
+        || !shallowClassifierInstanceEquality(parent, that.parent)
+        || !shallowClassifierInstanceEquality(concept, that.concept)
+        || !shallowAnnotationsEquality(annotations, that.annotations)) {
+      return false;
+    }
+    ClassifierLayout currentLayout = currentLayout();
+    if (currentLayout != that.currentLayout()) {
+      return false;
+    }
+    for (Property property : currentLayout.getProperties()) {
+      if (!Objects.equals(getPropertyValue(property), that.getPropertyValue(property))) {
+        return false;
+      }
+    }
+    for (Containment containment : currentLayout.getContainments()) {
+      if (!ClassifierInstanceUtils.shallowContainmentEquality(
+          getChildren(containment), that.getChildren(containment))) {
+        return false;
+      }
+    }
+    for (Reference reference : currentLayout.getReferences()) {
+      if (!ClassifierInstanceUtils.shallowReferenceEquality(
+          getReferenceValues(reference), that.getReferenceValues(reference))) {
+        return false;
+      }
+    }
+    return true;
+  }
+
+  @Override
+  public int hashCode() {
+    return Objects.hash(getID());
+  }
+
+  @Override
+  public String toString() {
+    String qualifiedName;
+    try {
+      qualifiedName = concept.qualifiedName();
+    } catch (RuntimeException t) {
+      qualifiedName = "<cannot be calculated>";
+    }
+    ClassifierLayout currentLayout = currentLayout();
+    return "CompactDynamicNode{"
+        + "id='"
+        + getID()
+        + '\''
+        + ", parent="
+        + (parent == null ? "null" : parent.getID())
+        + ", concept="
+        + qualifiedName
+        + ", propertyValues={"
+        + currentLayout.getProperties().stream()
+            .filter(p -> getPropertyValue(p) != null)
+            .map(p -> p.getKey() + "=" + getPropertyValue(p))
+            .collect(Collectors.joining(", "))
+        + "}, containmentValues={"
+        + currentLayout.getContainments().stream()
+            .filter(c -> !getChildren(c).isEmpty())
+            .map(
+                c ->
+                    c.getKey()
+                        + "="
+                        + getChildren(c).stream()
+                            .map(Node::getID)
+                            .collect(Collectors.joining(", ")))
+            .collect(Collectors.joining(", "))
+        + "}, referenceValues={"
+        + currentLayout.getReferences().stream()
+            .filter(r -> !getReferenceValues(r).isEmpty())
+            .map(r -> r.getKey() + "=" + getReferenceValues(r))
+            .collect(Collectors.joining(", "))
+        + "}, annotations={"
+        + annotations
+        + "} }";
+  }
+}
@@ -50,7 +50,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
     Objects.requireNonNull(property, "Property should not be null");
     Objects.requireNonNull(
         property.getKey(), "Property.key should not be null (property: " + property + ")");
-    if (!getClassifier().allProperties().contains(property)) {
+    if (!getClassifier().getLayout().contains(property)) {
       throw new IllegalArgumentException("Property not belonging to this classifier");
     }
     Object storedValue = propertyValues.get(property.getKey());
@@ -67,7 +67,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
   public void setPropertyValue(@Nonnull Property property, @Nullable Object value) {
     Objects.requireNonNull(property, "Property should not be null");
     Objects.requireNonNull(property.getKey(), "Cannot assign a property with no Key specified");
-    if (!getClassifier().allProperties().contains(property)) {
+    if (!getClassifier().getLayout().contains(property)) {
       throw new IllegalArgumentException(
           "Property " + property + " is not belonging to classifier " + getClassifier());
     }
@@ -86,7 +86,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
   public List<Node> getChildren(@Nonnull Containment containment) {
     Objects.requireNonNull(containment, "Containment should not be null");
     Objects.requireNonNull(containment.getKey(), "Containment.key should not be null");
-    if (!getClassifier().allContainments().contains(containment)) {
+    if (!getClassifier().getLayout().contains(containment)) {
       throw new IllegalArgumentException("Containment not belonging to this concept");
     }
     if (containmentValues != null && containmentValues.containsKey(containment.getKey())) {
@@ -130,7 +130,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
     if (containmentValues == null) {
       throw new IllegalArgumentException("Invalid index " + index + " when children are 0");
     }
-    if (!getClassifier().allContainments().contains(containment)) {
+    if (!getClassifier().getLayout().contains(containment)) {
       throw new IllegalArgumentException("Containment not belonging to this concept");
     }
     if (containmentValues.containsKey(containment.getKey())) {
@@ -149,7 +149,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
   public List<ReferenceValue> getReferenceValues(@Nonnull Reference reference) {
     Objects.requireNonNull(reference);
     Objects.requireNonNull(reference.getKey());
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this concept");
     }
     if (referenceValues != null && referenceValues.containsKey(reference.getKey())) {
@@ -176,7 +176,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
       @Nonnull Reference reference, @Nullable ReferenceValue referenceValue) {
     Objects.requireNonNull(reference, "Reference should not be null");
     Objects.requireNonNull(reference.getKey(), "Reference.key should not be null");
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this concept");
     }
     if (referenceValues != null && referenceValues.containsKey(reference.getKey())) {
@@ -204,7 +204,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
   public void removeReferenceValue(@Nonnull Reference reference, int index) {
     Objects.requireNonNull(reference, "Reference should not be null");
     Objects.requireNonNull(reference.getKey(), "Reference.key should not be null");
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this classifier");
     }
     if (referenceValues != null && referenceValues.containsKey(reference.getKey())) {
@@ -226,7 +226,7 @@ public abstract class DynamicClassifierInstance<T extends Classifier<T>>
       @Nonnull Reference reference, @Nonnull List<? extends ReferenceValue> values) {
     Objects.requireNonNull(reference, "Reference should not be null");
     Objects.requireNonNull(reference.getKey(), "Reference.key should not be null");
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this classifier");
     }
     initReferences();
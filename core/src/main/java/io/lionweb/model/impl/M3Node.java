@@ -35,6 +35,14 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
   private final Map<String, List<Node>> containmentValues = new HashMap<>();
   private final Map<String, List<ReferenceValue>> referenceValues = new HashMap<>();
 
+  /**
+   * Only used for nodes which are the root of their tree, typically Languages: incremented every
+   * time any M3Node in the tree is modified. Derived information computed from language elements,
+   * such as {@link io.lionweb.language.ClassifierLayout}, records the counters of the trees it
+   * depends on and is recomputed only when one of them changes.
+   */
+  private volatile long modificationCount = 0;
+
   protected M3Node() {
     this.lionWebVersion = LionWebVersion.currentVersion;
   }
@@ -51,11 +59,15 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
   public @Nonnull T setID(@Nonnull String id) {
     Objects.requireNonNull(id);
     this.id = id;
+    languageModified();
     return (T) this;
   }
 
   public T setParent(ClassifierInstance<?> parent) {
+    // Both the tree we leave and the one we join are modified
+    languageModified();
     this.parent = parent;
+    languageModified();
     return (T) this;
   }
 
@@ -68,7 +80,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
   @Override
   public @Nullable Object getPropertyValue(@Nonnull Property property) {
     Objects.requireNonNull(property, "property should not be null");
-    if (!getClassifier().allProperties().contains(property)) {
+    if (!getClassifier().getLayout().contains(property)) {
       throw new IllegalArgumentException("Property not belonging to this concept: " + property);
     }
     return propertyValues.get(property.getName());
@@ -95,7 +107,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
   @Override
   public void setPropertyValue(@Nonnull Property property, @Nullable Object value) {
     Objects.requireNonNull(property, "property should not be null");
-    if (!getClassifier().allProperties().contains(property)) {
+    if (!getClassifier().getLayout().contains(property)) {
       throw new IllegalArgumentException("Property not belonging to this concept");
     }
     setPropertyValue(property.getName(), value);
@@ -103,12 +115,13 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
 
   protected void setPropertyValue(String propertyName, Object value) {
     propertyValues.put(propertyName, value);
+    languageModified();
   }
 
   @Override
   public @Nonnull List<Node> getChildren(@Nonnull Containment containment) {
     Objects.requireNonNull(containment, "containment should not be null");
-    if (!getClassifier().allContainments().contains(containment)) {
+    if (!getClassifier().getLayout().contains(containment)) {
       throw new IllegalArgumentException("Containment not belonging to this concept");
     }
     return containmentValues.getOrDefault(containment.getName(), Collections.emptyList());
@@ -148,6 +161,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
 
     List<Node> children = containmentValues.get(feature.getName());
     children.remove(child);
+    languageModified();
     if (child instanceof HasSettableParent) {
       ((HasSettableParent) child).setParent(null);
     }
@@ -157,7 +171,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
   @Override
   public List<ReferenceValue> getReferenceValues(@Nonnull Reference reference) {
     Objects.requireNonNull(reference, "reference should not be null");
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this concept");
     }
     return referenceValues.getOrDefault(reference.getName(), Collections.emptyList());
@@ -167,7 +181,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
   public void addReferenceValue(
       @Nonnull Reference reference, @Nullable ReferenceValue referenceValue) {
     Objects.requireNonNull(reference, "reference should not be null");
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this concept: " + reference);
     }
     if (reference.isMultiple()) {
@@ -181,10 +195,30 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
   public void setReferenceValues(
       @Nonnull Reference reference, @Nonnull List<? extends ReferenceValue> values) {
     Objects.requireNonNull(reference, "reference should not be null");
-    if (!getClassifier().allReferences().contains(reference)) {
+    if (!getClassifier().getLayout().contains(reference)) {
       throw new IllegalArgumentException("Reference not belonging to this concept");
     }
     referenceValues.put(reference.getName(), (List<ReferenceValue>) values);
+    languageModified();
+  }
+
+  @Override
+  public void removeChild(@Nonnull Containment containment, int index) {
+    super.removeChild(containment, index);
+    languageModified();
+  }
+
+  @Override
+  public void removeReferenceValue(@Nonnull Reference reference, int index) {
+    super.removeReferenceValue(reference, index);
+    languageModified();
+  }
+
+  @Override
+  public void removeReferenceValue(
+      @Nonnull Reference reference, @Nullable ReferenceValue referenceValue) {
+    super.removeReferenceValue(reference, referenceValue);
+    languageModified();
   }
 
   @Nullable
@@ -267,6 +301,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
       ((M3Node) value).setParent(this);
       containmentValues.put(linkName, new ArrayList(Arrays.asList(value)));
     }
+    languageModified();
   }
 
   /*
@@ -280,6 +315,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
     } else {
       referenceValues.put(linkName, new ArrayList(Arrays.asList(value)));
     }
+    languageModified();
   }
 
   /**
@@ -300,6 +336,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
     } else {
       containmentValues.put(linkName, new ArrayList(Arrays.asList(value)));
     }
+    languageModified();
     return true;
   }
 
@@ -312,6 +349,7 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
     } else {
       referenceValues.put(linkName, new ArrayList(Arrays.asList(value)));
     }
+    languageModified();
   }
 
   @Nonnull
@@ -319,6 +357,32 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
     return lionWebVersion;
   }
 
+  /** Return the topmost M3Node containing the given node, or the node itself. */
+  protected static @Nonnull M3Node<?> getM3Root(@Nonnull M3Node<?> node) {
+    M3Node<?> root = node;
+    while (root.parent instanceof M3Node) {
+      root = (M3Node<?>) root.parent;
+    }
+    return root;
+  }
+
+  /**
+   * Return a counter which changes every time an M3Node in the tree of the given root is modified.
+   */
+  protected static long getModificationCount(@Nonnull M3Node<?> root) {
+    return root.modificationCount;
+  }
+
+  /**
+   * Subclasses modifying their state without going through the methods of this class should call
+   * this method, to invalidate derived information computed from the language elements in the
+   * same tree.
+   */
+  protected void languageModified() {
+    M3Node<?> root = getM3Root(this);
+    root.modificationCount = root.modificationCount + 1;
+  }
+
   @Override
   public boolean equals(Object o) {
     if (this == o) return true;
@@ -328,11 +392,11 @@ public abstract class M3Node<T extends M3Node> extends AbstractClassifierInstanc
     return Objects.equals(getID(), other.getID())
         && shallowClassifierInstanceEquality(parent, other.getParent())
         && shallowClassifierInstanceEquality(getClassifier(), other.getClassifier())
-        && getClassifier().allProperties().stream()
+        && getClassifier().getLayout().getProperties().stream()
             .allMatch(p -> Objects.equals(getPropertyValue(p), other.getPropertyValue(p)))
-        && getClassifier().allContainments().stream()
+        && getClassifier().getLayout().getContainments().stream()
             .allMatch(c -> shallowContainmentEquality(getChildren(c), other.getChildren(c)))
-        && getClassifier().allReferences().stream()
+        && getClassifier().getLayout().getReferences().stream()
             .allMatch(
                 r -> shallowReferenceEquality(getReferenceValues(r), other.getReferenceValues(r)))
         && shallowAnnotationsEquality(annotations, other.getAnnotations());
@@ -11,7 +11,13 @@ import io.lionweb.model.impl.AbstractClassifierInstance;
 import io.lionweb.model.impl.ProxyNode;
 import io.lionweb.serialization.data.*;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import java.util.function.Consumer;
+import java.util.function.IntConsumer;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
@@ -56,6 +62,25 @@ public abstract class AbstractSerialization {
 
   protected boolean builtinsReferenceDangling = false;
 
+  /**
+   * When not null, the instantiation and the population of nodes during deserialization are split
+   * across the threads of this executor.
+   */
+  private @Nullable Executor parallelDeserializationExecutor = null;
+
+  private int parallelDeserializationParallelism = 1;
+
+  /**
+   * When deserializing in parallel we do not split the work in chunks smaller than this, as the
+   * overhead of scheduling would be larger than the gain.
+   */
+  private static final int MIN_PARALLEL_CHUNK_SIZE = 256;
+
+  private final List<SerializationListener> listeners = new CopyOnWriteArrayList<>();
+
+  /** Returned by {@link #startPhase()} when no listener is registered. */
+  protected static final long PHASE_NOT_TIMED = Long.MIN_VALUE;
+
   protected AbstractSerialization() {
     this(LionWebVersion.currentVersion);
   }
@@ -108,7 +133,15 @@ public abstract class AbstractSerialization {
   }
 
   public void enableDynamicNodes() {
-    instantiator.enableDynamicNodes();
+    enableDynamicNodes(DynamicNodeStorage.HASH_MAPS);
+  }
+
+  /**
+   * As {@link #enableDynamicNodes()}, choosing how the dynamic nodes store their values. {@link
+   * DynamicNodeStorage#SLOT_ARRAYS} is more convenient when loading large models.
+   */
+  public void enableDynamicNodes(@Nonnull DynamicNodeStorage storage) {
+    instantiator.enableDynamicNodes(storage);
     primitiveValuesSerialization.enableDynamicNodes();
   }
 
@@ -158,6 +191,89 @@ public abstract class AbstractSerialization {
     this.builtinsReferenceDangling = true;
   }
 
+  /**
+   * Instantiate and populate the nodes using the common ForkJoinPool. See {@link
+   * #enableParallelDeserialization(Executor, int)}.
+   */
+  public void enableParallelDeserialization() {
+    enableParallelDeserialization(
+        ForkJoinPool.commonPool(), ForkJoinPool.commonPool().getParallelism());
+  }
+
+  /**
+   * Instantiate and populate the nodes by splitting the work across the threads of the given
+   * executor. The result is identical to the one obtained by deserializing sequentially.
+   *
+   * <p>Nodes are instantiated level by level, starting from the leaves, as a node can be
+   * instantiated only after its children. Custom instantiators registered on the {@link
+   * Instantiator} and custom primitive deserializers must be thread-safe when this mode is enabled.
+   *
+   * @param executor the executor used to run the work
+   * @param parallelism the number of threads of the executor we expect to keep busy
+   */
+  public void enableParallelDeserialization(@Nonnull Executor executor, int parallelism) {
+    Objects.requireNonNull(executor, "executor should not be null");
+    if (parallelism < 1) {
+      throw new IllegalArgumentException("parallelism should be at least 1");
+    }
+    this.parallelDeserializationExecutor = executor;
+    this.parallelDeserializationParallelism = parallelism;
+  }
+
+  public void disableParallelDeserialization() {
+    this.parallelDeserializationExecutor = null;
+    this.parallelDeserializationParallelism = 1;
+  }
+
+  public boolean isParallelDeserializationEnabled() {
+    return parallelDeserializationExecutor != null;
+  }
+
+  /**
+   * Register a listener, which will receive the duration of each phase of serialization and
+   * deserialization, the number of bytes read, and statistics about the caches used.
+   */
+  public void addListener(@Nonnull SerializationListener listener) {
+    Objects.requireNonNull(listener, "listener should not be null");
+    listeners.add(listener);
+  }
+
+  public void removeListener(@Nonnull SerializationListener listener) {
+    listeners.remove(listener);
+  }
+
+  //
+  // Instrumentation
+  //
+
+  /** Metrics are collected only when at least one listener is registered. */
+  protected boolean isInstrumented() {
+    return !listeners.isEmpty();
+  }
+
+  /**
+   * Return the start time of a phase, to be passed to {@link #phaseCompleted(SerializationPhase,
+   * long, int)}, or {@link #PHASE_NOT_TIMED} when no listener is registered.
+   */
+  protected long startPhase() {
+    return listeners.isEmpty() ? PHASE_NOT_TIMED : System.nanoTime();
+  }
+
+  protected void phaseCompleted(@Nonnull SerializationPhase phase, long start, int nodes) {
+    if (start != PHASE_NOT_TIMED) {
+      long durationNanos = System.nanoTime() - start;
+      for (SerializationListener listener : listeners) {
+        listener.phaseCompleted(phase, durationNanos, nodes);
+      }
+    }
+  }
+
+  protected void bytesRead(long bytes) {
+    for (SerializationListener listener : listeners) {
+      listener.bytesRead(bytes);
+    }
+  }
+
   //
   // Serialization to chunk
   //
@@ -178,6 +294,7 @@ public abstract class AbstractSerialization {
 
   public SerializedChunk serializeNodesToSerializationChunk(
       Collection<ClassifierInstance<?>> classifierInstances) {
+    long start = startPhase();
     SerializedChunk serializedChunk = new SerializedChunk();
     serializedChunk.setSerializationFormatVersion(lionWebVersion.getVersionString());
     SerializationStatus serializationStatus = new SerializationStatus();
@@ -196,6 +313,8 @@ public abstract class AbstractSerialization {
           languageConsumer, classifierInstance.getClassifier().getLanguage());
     }
     serializedChunk.populateUsedLanguages();
+    phaseCompleted(
+        SerializationPhase.SERIALIZATION, start, serializedChunk.getClassifierInstances().size());
     return serializedChunk;
   }
 
@@ -366,8 +485,14 @@ public abstract class AbstractSerialization {
    * or in other words that a parent never precedes its children.
    */
   private DeserializationStatus sortLeavesFirst(List<SerializedClassifierInstance> originalList) {
+    long start = startPhase();
     DeserializationStatus deserializationStatus =
-        new DeserializationStatus(originalList, instanceResolver, primitiveValuesSerialization);
+        new DeserializationStatus(
+            originalList,
+            instanceResolver,
+            primitiveValuesSerialization,
+            isParallelDeserializationEnabled(),
+            isInstrumented());
 
     // We create the list going from the roots, to their children and so on, and then we will revert
     // the list
@@ -414,32 +539,51 @@ public abstract class AbstractSerialization {
         }
     }
 
-    // We can start by putting at the start all the elements which either have no parent,
-    // or had a parent already added to the list
-    while (deserializationStatus.howManySorted() < originalList.size()) {
-      int initialLength = deserializationStatus.howManySorted();
-      for (int i = 0; i < deserializationStatus.howManyToSort(); i++) {
-        SerializedClassifierInstance node = deserializationStatus.getNodeToSort(i);
-        if (node.getParentNodeID() == null
-            || deserializationStatus.isSortedID(node.getParentNodeID())) {
-          deserializationStatus.place(node);
-          i--;
-        }
+    // We index the nodes still to be placed by their parent ID. Each node is indexed once and
+    // visited once, so the sorting is linear in the number of nodes
+    Map<String, List<SerializedClassifierInstance>> childrenByParentID = new HashMap<>();
+    for (SerializedClassifierInstance node : originalList) {
+      if (deserializationStatus.isPlaced(node)) {
+        continue;
       }
-      if (initialLength == deserializationStatus.howManySorted()) {
-        if (deserializationStatus.howManySorted() == 0) {
-          throw new DeserializationException(
-              "No root found, we cannot deserialize this tree. Original list: " + originalList);
-        } else {
-          throw new DeserializationException(
-              "Something is not right: we are unable to complete sorting the list "
-                  + originalList
-                  + ". Probably there is a containment loop");
-        }
+      if (node.getParentNodeID() == null) {
+        deserializationStatus.place(node);
+      } else {
+        childrenByParentID
+            .computeIfAbsent(node.getParentNodeID(), id -> new ArrayList<>(1))
+            .add(node);
+      }
+    }
+
+    // We visit the placed nodes breadth-first: the sorted list grows while we iterate on it, as we
+    // place the children of each node right after it has been visited
+    for (int i = 0; i < deserializationStatus.howManySorted(); i++) {
+      String parentID = deserializationStatus.getSorted(i).getID();
+      if (parentID == null) {
+        continue;
+      }
+      List<SerializedClassifierInstance> children = childrenByParentID.remove(parentID);
+      if (children != null) {
+        children.forEach(deserializationStatus::place);
+      }
+    }
+
+    // Nodes which have not been reached have a parent which is not available or are part of a
+    // containment loop
+    if (deserializationStatus.howManySorted() < originalList.size()) {
+      if (deserializationStatus.howManySorted() == 0) {
+        throw new DeserializationException(
+            "No root found, we cannot deserialize this tree. Original list: " + originalList);
+      } else {
+        throw new DeserializationException(
+            "Something is not right: we are unable to complete sorting the list "
+                + originalList
+                + ". Probably there is a containment loop");
       }
     }
 
     deserializationStatus.reverse();
+    phaseCompleted(SerializationPhase.SORTING, start, originalList.size());
     return deserializationStatus;
   }
 
@@ -465,16 +609,23 @@ public abstract class AbstractSerialization {
     Map<String, ClassifierInstance<?>> deserializedByID = new HashMap<>();
     IdentityHashMap<SerializedClassifierInstance, ClassifierInstance<?>> serializedToInstanceMap =
         new IdentityHashMap<>();
-    sortedSerializedClassifierInstances.forEach(
-        n -> {
-          ClassifierInstance<?> instantiated =
-              instantiateFromSerialized(lionWebVersion, deserializationStatus, n, deserializedByID);
-          if (n.getID() != null && deserializedByID.containsKey(n.getID())) {
-            throw new IllegalStateException("Duplicate ID found: " + n.getID());
-          }
-          deserializedByID.put(n.getID(), instantiated);
-          serializedToInstanceMap.put(n, instantiated);
-        });
+    long instantiationStart = startPhase();
+    if (isParallelDeserializationEnabled()) {
+      instantiateInParallel(
+          lionWebVersion,
+          deserializationStatus,
+          sortedSerializedClassifierInstances,
+          deserializedByID,
+          serializedToInstanceMap);
+    } else {
+      sortedSerializedClassifierInstances.forEach(
+          n -> {
+            ClassifierInstance<?> instantiated =
+                instantiateFromSerialized(
+                    lionWebVersion, deserializationStatus, n, deserializedByID);
+            registerInstantiated(n, instantiated, deserializedByID, serializedToInstanceMap);
+          });
+    }
     if (sortedSerializedClassifierInstances.size() != serializedToInstanceMap.size()) {
       throw new IllegalStateException(
           "We got "
@@ -482,6 +633,9 @@ public abstract class AbstractSerialization {
               + " nodes to deserialize, but we deserialized "
               + serializedToInstanceMap.size());
     }
+    int nNodes = serializedClassifierInstances.size();
+    phaseCompleted(SerializationPhase.INSTANTIATION, instantiationStart, nNodes);
+    long populationStart = startPhase();
     ClassifierInstanceResolver classifierInstanceResolver =
         new CompositeClassifierInstanceResolver(
             new MapBasedResolver(deserializedByID),
@@ -489,36 +643,33 @@ public abstract class AbstractSerialization {
             this.instanceResolver);
     NodePopulator nodePopulator =
         new NodePopulator(this, classifierInstanceResolver, deserializationStatus, lionWebVersion);
-    serializedClassifierInstances.forEach(
-        node -> {
-          ClassifierInstance<?> classifierInstance = serializedToInstanceMap.get(node);
-          nodePopulator.populateClassifierInstance(classifierInstance, node);
-          ClassifierInstance<?> parent = classifierInstanceResolver.resolve(node.getParentNodeID());
-          if (parent instanceof ProxyNode
-              && unavailableParentPolicy == UnavailableNodePolicy.PROXY_NODES) {
-            // For real parents, the parent is not set directly, but it is set indirectly
-            // when adding the child to the parent. For proxy nodes instead we need to set
-            // the parent explicitly
-            ProxyNode proxyParent = (ProxyNode) parent;
-            if (classifierInstance instanceof HasSettableParent) {
-              ((HasSettableParent) classifierInstance).setParent(proxyParent);
-            } else {
-              throw new UnsupportedOperationException(
-                  "We do not know how to set explicitly the parent of " + classifierInstance);
-            }
-          }
-          if (classifierInstance instanceof AnnotationInstance) {
-            AbstractClassifierInstance<?> abstractClassifierInstance =
-                (AbstractClassifierInstance<?>) deserializedByID.get(node.getParentNodeID());
-            AnnotationInstance annotationInstance = (AnnotationInstance) classifierInstance;
-            if (abstractClassifierInstance != null) {
-              abstractClassifierInstance.addAnnotation(annotationInstance);
-            } else {
-              throw new IllegalStateException(
-                  "Cannot resolved annotated node " + annotationInstance.getParent());
-            }
-          }
-        });
+    if (isParallelDeserializationEnabled()) {
+      // Each node populates only its own containments and references, so nodes can be populated
+      // independently. Attaching annotations modifies the annotated node, so we do it afterward
+      int proxiesBeforePopulation = deserializationStatus.howManyProxies();
+      forEachInParallel(
+          serializedClassifierInstances.size(),
+          i -> {
+            SerializedClassifierInstance node = serializedClassifierInstances.get(i);
+            nodePopulator.populateClassifierInstance(serializedToInstanceMap.get(node), node);
+          });
+      deserializationStatus.sortProxiesCreatedAfter(
+          proxiesBeforePopulation, serializedClassifierInstances);
+      serializedClassifierInstances.forEach(
+          node ->
+              attachToParent(
+                  node,
+                  serializedToInstanceMap.get(node),
+                  classifierInstanceResolver,
+                  deserializedByID));
+    } else {
+      serializedClassifierInstances.forEach(
+          node -> {
+            ClassifierInstance<?> classifierInstance = serializedToInstanceMap.get(node);
+            nodePopulator.populateClassifierInstance(classifierInstance, node);
+            attachToParent(node, classifierInstance, classifierInstanceResolver, deserializedByID);
+          });
+    }
 
     // We want the nodes returned to be sorted as the original serializedNodes
     List<ClassifierInstance<?>> nodesWithOriginalSorting =
@@ -526,9 +677,178 @@ public abstract class AbstractSerialization {
             .map(serializedToInstanceMap::get)
             .collect(Collectors.toList());
     nodesWithOriginalSorting.addAll(deserializationStatus.proxies);
+    phaseCompleted(SerializationPhase.POPULATION, populationStart, nNodes);
+    if (deserializationStatus.instrumented) {
+      reportDeserializationStatistics(deserializationStatus, nNodes);
+    }
     return nodesWithOriginalSorting;
   }
 
+  private void reportDeserializationStatistics(
+      DeserializationStatus deserializationStatus, int nNodes) {
+    for (SerializationListener listener : listeners) {
+      listener.phaseCompleted(
+          SerializationPhase.CLASSIFIER_RESOLUTION,
+          deserializationStatus.classifierResolutionNanos.sum(),
+          nNodes);
+      listener.phaseCompleted(
+          SerializationPhase.PROPERTY_DECODING,
+          deserializationStatus.propertyDecodingNanos.sum(),
+          nNodes);
+      listener.cacheUsed(
+          SerializationListener.Cache.FEATURES,
+          deserializationStatus.featuresCacheLookups.sum()
+              - deserializationStatus.featuresCacheMisses.sum(),
+          deserializationStatus.featuresCacheMisses.sum());
+      listener.cacheUsed(
+          SerializationListener.Cache.PROPERTY_VALUES,
+          deserializationStatus.propertyValuesCacheLookups.sum()
+              - deserializationStatus.propertyValuesCacheMisses.sum(),
+          deserializationStatus.propertyValuesCacheMisses.sum());
+    }
+  }
+
+  private void registerInstantiated(
+      SerializedClassifierInstance serializedClassifierInstance,
+      ClassifierInstance<?> instantiated,
+      Map<String, ClassifierInstance<?>> deserializedByID,
+      Map<SerializedClassifierInstance, ClassifierInstance<?>> serializedToInstanceMap) {
+    String id = serializedClassifierInstance.getID();
+    if (id != null && deserializedByID.containsKey(id)) {
+      throw new IllegalStateException("Duplicate ID found: " + id);
+    }
+    deserializedByID.put(id, instantiated);
+    serializedToInstanceMap.put(serializedClassifierInstance, instantiated);
+  }
+
+  private void attachToParent(
+      SerializedClassifierInstance node,
+      ClassifierInstance<?> classifierInstance,
+      ClassifierInstanceResolver classifierInstanceResolver,
+      Map<String, ClassifierInstance<?>> deserializedByID) {
+    ClassifierInstance<?> parent = classifierInstanceResolver.resolve(node.getParentNodeID());
+    if (parent instanceof ProxyNode
+        && unavailableParentPolicy == UnavailableNodePolicy.PROXY_NODES) {
+      // For real parents, the parent is not set directly, but it is set indirectly
+      // when adding the child to the parent. For proxy nodes instead we need to set
+      // the parent explicitly
+      ProxyNode proxyParent = (ProxyNode) parent;
+      if (classifierInstance instanceof HasSettableParent) {
+        ((HasSettableParent) classifierInstance).setParent(proxyParent);
+      } else {
+        throw new UnsupportedOperationException(
+            "We do not know how to set explicitly the parent of " + classifierInstance);
+      }
+    }
+    if (classifierInstance instanceof AnnotationInstance) {
+      AbstractClassifierInstance<?> abstractClassifierInstance =
+          (AbstractClassifierInstance<?>) deserializedByID.get(node.getParentNodeID());
+      AnnotationInstance annotationInstance = (AnnotationInstance) classifierInstance;
+      if (abstractClassifierInstance != null) {
+        abstractClassifierInstance.addAnnotation(annotationInstance);
+      } else {
+        throw new IllegalStateException(
+            "Cannot resolved annotated node " + annotationInstance.getParent());
+      }
+    }
+  }
+
+  /**
+   * A node can be instantiated only after its children, as they could be passed to its
+   * constructor. For this reason we group the nodes by height (leaves have height zero) and
+   * instantiate each group in parallel, one group after the other.
+   */
+  private void instantiateInParallel(
+      @Nonnull LionWebVersion lionWebVersion,
+      DeserializationStatus deserializationStatus,
+      List<SerializedClassifierInstance> sortedSerializedClassifierInstances,
+      Map<String, ClassifierInstance<?>> deserializedByID,
+      Map<SerializedClassifierInstance, ClassifierInstance<?>> serializedToInstanceMap) {
+    Map<String, SerializedClassifierInstance> byID = new HashMap<>();
+    sortedSerializedClassifierInstances.forEach(n -> byID.putIfAbsent(n.getID(), n));
+    IdentityHashMap<SerializedClassifierInstance, Integer> heights = new IdentityHashMap<>();
+    List<List<SerializedClassifierInstance>> levels = new ArrayList<>();
+    // The list is sorted leaves-first, so the height of a node is final when we reach it
+    for (SerializedClassifierInstance node : sortedSerializedClassifierInstances) {
+      int height = heights.getOrDefault(node, 0);
+      while (levels.size() <= height) {
+        levels.add(new ArrayList<>());
+      }
+      levels.get(height).add(node);
+      SerializedClassifierInstance parent =
+          node.getParentNodeID() == null ? null : byID.get(node.getParentNodeID());
+      if (parent != null) {
+        heights.merge(parent, height + 1, Math::max);
+      }
+    }
+
+    for (List<SerializedClassifierInstance> level : levels) {
+      ClassifierInstance<?>[] instantiated = new ClassifierInstance<?>[level.size()];
+      forEachInParallel(
+          level.size(),
+          i ->
+              instantiated[i] =
+                  instantiateFromSerialized(
+                      lionWebVersion, deserializationStatus, level.get(i), deserializedByID));
+      // Registering is done sequentially, so that the nodes of the next level can see the nodes
+      // of this level in deserializedByID
+      for (int i = 0; i < level.size(); i++) {
+        registerInstantiated(
+            level.get(i), instantiated[i], deserializedByID, serializedToInstanceMap);
+      }
+    }
+  }
+
+  /**
+   * Execute the action for each index from 0 (included) to size (excluded), splitting the indexes
+   * in contiguous chunks executed on the parallel deserialization executor. If the action fails
+   * for some indexes, the exception of the chunk with the lowest indexes is rethrown.
+   */
+  private void forEachInParallel(int size, IntConsumer action) {
+    Executor executor = parallelDeserializationExecutor;
+    int nChunks =
+        Math.min(
+            parallelDeserializationParallelism * 4,
+            (size + MIN_PARALLEL_CHUNK_SIZE - 1) / MIN_PARALLEL_CHUNK_SIZE);
+    if (executor == null || nChunks <= 1) {
+      for (int i = 0; i < size; i++) {
+        action.accept(i);
+      }
+      return;
+    }
+    int chunkSize = (size + nChunks - 1) / nChunks;
+    List<CompletableFuture<Void>> futures = new ArrayList<>(nChunks);
+    for (int start = 0; start < size; start += chunkSize) {
+      int chunkStart = start;
+      int chunkEnd = Math.min(start + chunkSize, size);
+      futures.add(
+          CompletableFuture.runAsync(
+              () -> {
+                for (int i = chunkStart; i < chunkEnd; i++) {
+                  action.accept(i);
+                }
+              },
+              executor));
+    }
+    Throwable failure = null;
+    for (CompletableFuture<Void> future : futures) {
+      try {
+        future.join();
+      } catch (CompletionException e) {
+        if (failure == null) {
+          failure = e.getCause() == null ? e : e.getCause();
+        }
+      }
+    }
+    if (failure instanceof RuntimeException) {
+      throw (RuntimeException) failure;
+    } else if (failure instanceof Error) {
+      throw (Error) failure;
+    } else if (failure != null) {
+      throw new RuntimeException(failure);
+    }
+  }
+
   private ClassifierInstance<?> instantiateFromSerialized(
       @Nonnull LionWebVersion lionWebVersion,
       DeserializationStatus deserializationStatus,
@@ -539,7 +859,13 @@ public abstract class AbstractSerialization {
     if (serializedClassifier == null) {
       throw new RuntimeException("No metaPointer available for " + serializedClassifierInstance);
     }
+    boolean instrumented = deserializationStatus.instrumented;
+    long resolutionStart = instrumented ? System.nanoTime() : 0L;
     Classifier<?> classifier = getClassifierResolver().resolveClassifier(serializedClassifier);
+    long decodingStart = instrumented ? System.nanoTime() : 0L;
+    if (instrumented) {
+      deserializationStatus.classifierResolutionNanos.add(decodingStart - resolutionStart);
+    }
 
     // We prepare all the properties values and pass them to instantiator, as it could use them to
     // build the node
@@ -570,6 +896,9 @@ public abstract class AbstractSerialization {
                       property.isRequired());
               propertiesValues.put(property, deserializedValue);
             });
+    if (instrumented) {
+      deserializationStatus.propertyDecodingNanos.add(System.nanoTime() - decodingStart);
+    }
     ClassifierInstance<?> classifierInstance =
         getInstantiator()
             .instantiate(
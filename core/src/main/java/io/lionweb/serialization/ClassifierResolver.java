@@ -66,10 +66,10 @@ public class ClassifierResolver {
   }
 
   private void registerConcept(Concept concept) {
-    registeredConcepts.put(MetaPointer.from(concept), concept);
+    registeredConcepts.put(MetaPointer.from(concept).intern(), concept);
   }
 
   private void registerAnnotation(Annotation annotation) {
-    registeredAnnotations.put(MetaPointer.from(annotation), annotation);
+    registeredAnnotations.put(MetaPointer.from(annotation).intern(), annotation);
   }
 }
@@ -9,7 +9,11 @@ import io.lionweb.model.Node;
 import io.lionweb.model.impl.ProxyNode;
 import io.lionweb.serialization.data.MetaPointer;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
+import io.lionweb.serialization.data.SerializedReferenceValue;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.Function;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
@@ -20,16 +24,37 @@ import javax.annotation.Nullable;
  * list of unserialized nodes.
  */
 class DeserializationStatus {
+  private final List<SerializedClassifierInstance> originalList;
   private final List<SerializedClassifierInstance> sortedList;
-  private final List<SerializedClassifierInstance> nodesToSort;
+
+  /** Nodes already placed in the sorted list, compared by identity. */
+  private final Set<SerializedClassifierInstance> placed =
+      Collections.newSetFromMap(new IdentityHashMap<>());
   final List<ProxyNode> proxies = new ArrayList<>();
   private final LocalClassifierInstanceResolver proxiesInstanceResolver;
   private final Set<String> sortedIDs = new HashSet<>();
   private final PrimitiveValuesSerialization primitiveValuesSerialization;
-  private final IdentityHashMap<Classifier<?>, Map<MetaPointer, Feature<?>>> featuresCache =
-      new IdentityHashMap<>();
-  private final IdentityHashMap<DataType<?>, Map<String, Object>> propertyValuesCache =
-      new IdentityHashMap<>();
+  private final Map<Classifier<?>, Map<MetaPointer, Feature<?>>> featuresCache;
+  private final Map<DataType<?>, Map<String, Object>> propertyValuesCache;
+
+  /**
+   * When true, the caches and the proxies can be accessed by several threads at the same time, as
+   * it happens during parallel deserialization.
+   */
+  private final boolean concurrent;
+
+  /**
+   * When true, the time spent in the phases which are executed for each node and the usage of the
+   * caches are tracked.
+   */
+  final boolean instrumented;
+
+  final LongAdder classifierResolutionNanos = new LongAdder();
+  final LongAdder propertyDecodingNanos = new LongAdder();
+  final LongAdder featuresCacheLookups = new LongAdder();
+  final LongAdder featuresCacheMisses = new LongAdder();
+  final LongAdder propertyValuesCacheLookups = new LongAdder();
+  final LongAdder propertyValuesCacheMisses = new LongAdder();
 
   /**
    * Represent the combination of different ways to solve an instances resolver. It considers the
@@ -42,59 +67,104 @@ class DeserializationStatus {
       List<SerializedClassifierInstance> originalList,
       ClassifierInstanceResolver outsideInstancesResolver,
       PrimitiveValuesSerialization primitiveValuesSerialization) {
+    this(originalList, outsideInstancesResolver, primitiveValuesSerialization, false, false);
+  }
+
+  DeserializationStatus(
+      List<SerializedClassifierInstance> originalList,
+      ClassifierInstanceResolver outsideInstancesResolver,
+      PrimitiveValuesSerialization primitiveValuesSerialization,
+      boolean concurrent,
+      boolean instrumented) {
     this.primitiveValuesSerialization = primitiveValuesSerialization;
-    sortedList = new ArrayList<>();
-    nodesToSort = new ArrayList<>(originalList);
+    this.concurrent = concurrent;
+    this.instrumented = instrumented;
+    if (concurrent) {
+      this.featuresCache = Collections.synchronizedMap(new IdentityHashMap<>());
+      this.propertyValuesCache = Collections.synchronizedMap(new IdentityHashMap<>());
+    } else {
+      this.featuresCache = new IdentityHashMap<>();
+      this.propertyValuesCache = new IdentityHashMap<>();
+    }
+    this.originalList = originalList;
+    sortedList = new ArrayList<>(originalList.size());
     this.proxiesInstanceResolver = new LocalClassifierInstanceResolver();
     this.globalInstanceResolver =
         new CompositeClassifierInstanceResolver(outsideInstancesResolver, proxiesInstanceResolver);
   }
 
   public Property getProperty(Classifier<?> classifier, MetaPointer metaPointer) {
-    Map<MetaPointer, Feature<?>> featuresMap =
-        featuresCache.computeIfAbsent(classifier, c -> new HashMap<>());
-    return (Property)
-        featuresMap.computeIfAbsent(metaPointer, classifier::getPropertyByMetaPointer);
+    return (Property) getFeature(classifier, metaPointer, classifier::getPropertyByMetaPointer);
   }
 
   public Containment getContainment(Classifier<?> classifier, MetaPointer metaPointer) {
-
-    Map<MetaPointer, Feature<?>> featuresMap =
-        featuresCache.computeIfAbsent(classifier, c -> new HashMap<>());
     return (Containment)
-        featuresMap.computeIfAbsent(metaPointer, classifier::getContainmentByMetaPointer);
+        getFeature(classifier, metaPointer, classifier::getContainmentByMetaPointer);
   }
 
   public Reference getReference(Classifier<?> classifier, MetaPointer metaPointer) {
+    return (Reference) getFeature(classifier, metaPointer, classifier::getReferenceByMetaPointer);
+  }
+
+  private Feature<?> getFeature(
+      Classifier<?> classifier,
+      MetaPointer metaPointer,
+      Function<MetaPointer, Feature<?>> lookup) {
     Map<MetaPointer, Feature<?>> featuresMap =
-        featuresCache.computeIfAbsent(classifier, c -> new HashMap<>());
-    return (Reference)
-        featuresMap.computeIfAbsent(metaPointer, classifier::getReferenceByMetaPointer);
+        featuresCache.computeIfAbsent(classifier, c -> newCacheMap());
+    if (!instrumented) {
+      return featuresMap.computeIfAbsent(metaPointer, lookup);
+    }
+    featuresCacheLookups.increment();
+    return featuresMap.computeIfAbsent(
+        metaPointer,
+        mp -> {
+          featuresCacheMisses.increment();
+          return lookup.apply(mp);
+        });
   }
 
   public Object deserializePropertyValue(
       DataType<?> dataType, String serializedValue, boolean isRequired) {
-    ;
-    Map<String, Object> map = propertyValuesCache.computeIfAbsent(dataType, dt -> new HashMap<>());
+    Map<String, Object> map = propertyValuesCache.computeIfAbsent(dataType, dt -> newCacheMap());
     String key = serializedValue + "@required@" + isRequired;
+    if (instrumented) {
+      propertyValuesCacheLookups.increment();
+    }
     return map.computeIfAbsent(
-        key, k -> primitiveValuesSerialization.deserialize(dataType, serializedValue, isRequired));
+        key,
+        k -> {
+          if (instrumented) {
+            propertyValuesCacheMisses.increment();
+          }
+          return primitiveValuesSerialization.deserialize(dataType, serializedValue, isRequired);
+        });
   }
 
   void putNodesWithNullIDsInFront() {
     // Nodes with null IDs are ambiguous but they cannot be the children of any node: they can
     // just be parent of other nodes, so we put all of them at the start (so they end up at the
     // end when we reverse the list)
-    nodesToSort.stream().filter(n -> n.getID() == null).forEach(sortedList::add);
-    sortedList.forEach(n -> sortedIDs.add(n.getID()));
-    nodesToSort.removeAll(sortedList);
+    for (SerializedClassifierInstance node : originalList) {
+      if (node.getID() == null) {
+        place(node);
+      }
+    }
   }
 
-  /** We place the node in the sorted list. */
+  /**
+   * We place the node in the sorted list. Nodes which have been already placed are ignored, so
+   * that each node appears only once in the sorted list.
+   */
   void place(SerializedClassifierInstance node) {
-    sortedList.add(node);
-    nodesToSort.remove(node);
-    sortedIDs.add(node.getID());
+    if (placed.add(node)) {
+      sortedList.add(node);
+      sortedIDs.add(node.getID());
+    }
+  }
+
+  boolean isPlaced(SerializedClassifierInstance node) {
+    return placed.contains(node);
   }
 
   public List<SerializedClassifierInstance> getSortedList() {
@@ -109,12 +179,8 @@ class DeserializationStatus {
     return sortedList.size();
   }
 
-  int howManyToSort() {
-    return nodesToSort.size();
-  }
-
-  SerializedClassifierInstance getNodeToSort(int index) {
-    return nodesToSort.get(index);
+  SerializedClassifierInstance getSorted(int index) {
+    return sortedList.get(index);
   }
 
   public boolean isSortedID(String nodeID) {
@@ -126,7 +192,7 @@ class DeserializationStatus {
    * a previously instantiated ProxyNode, otherwise created a ProxyNode and return it.
    */
   @Nullable
-  Node resolve(@Nullable String nodeID) {
+  synchronized Node resolve(@Nullable String nodeID) {
     if (nodeID == null) {
       return null;
     }
@@ -146,7 +212,7 @@ class DeserializationStatus {
    * given ID then an error will be thrown. To avoid this, consider using the resolve method.
    */
   @Nonnull
-  ProxyNode createProxy(@Nonnull String nodeID) {
+  synchronized ProxyNode createProxy(@Nonnull String nodeID) {
     Objects.requireNonNull(nodeID, "nodeID should not be null");
     if (globalInstanceResolver.resolve(nodeID) != null) {
       throw new IllegalStateException(
@@ -160,7 +226,55 @@ class DeserializationStatus {
     return proxyNode;
   }
 
-  public LocalClassifierInstanceResolver getProxiesInstanceResolver() {
-    return proxiesInstanceResolver;
+  /**
+   * Return a resolver for the proxies created during this deserialization process. When the status
+   * is concurrent, the resolver can be used while other threads create proxies.
+   */
+  public ClassifierInstanceResolver getProxiesInstanceResolver() {
+    if (concurrent) {
+      return nodeID -> {
+        synchronized (this) {
+          return proxiesInstanceResolver.resolve(nodeID);
+        }
+      };
+    } else {
+      return proxiesInstanceResolver;
+    }
+  }
+
+  int howManyProxies() {
+    return proxies.size();
+  }
+
+  /**
+   * Proxies created for reference targets while populating nodes in parallel are created in a
+   * non-deterministic order. This sorts the proxies created after the given index in the order in
+   * which the references to them appear in the given nodes, which is the order in which they would
+   * have been created by a sequential deserialization.
+   */
+  void sortProxiesCreatedAfter(int index, List<SerializedClassifierInstance> nodes) {
+    if (proxies.size() <= index) {
+      return;
+    }
+    Map<String, ProxyNode> toSort = new HashMap<>();
+    proxies.subList(index, proxies.size()).forEach(p -> toSort.put(p.getID(), p));
+    List<ProxyNode> sorted = new ArrayList<>(toSort.size());
+    for (SerializedClassifierInstance node : nodes) {
+      for (SerializedReferenceValue referenceValue : node.getReferences()) {
+        for (SerializedReferenceValue.Entry entry : referenceValue.getValue()) {
+          ProxyNode proxyNode = toSort.remove(entry.getReference());
+          if (proxyNode != null) {
+            sorted.add(proxyNode);
+          }
+        }
+      }
+    }
+    sorted.addAll(toSort.values());
+    proxies.subList(index, proxies.size()).clear();
+    proxies.addAll(sorted);
+  }
+
+  private <K, V> Map<K, V> newCacheMap() {
+    return concurrent ? new ConcurrentHashMap<>() : new HashMap<>();
   }
 }
@@ -0,0 +1,14 @@
+package io.lionweb.serialization;
+
+/**
+ * When dynamic nodes are enabled, this specifies how the values of the nodes are stored in memory.
+ */
+public enum DynamicNodeStorage {
+  /** Nodes are instances of {@link io.lionweb.model.impl.DynamicNode}. */
+  HASH_MAPS,
+  /**
+   * Nodes are instances of {@link io.lionweb.model.impl.CompactDynamicNode}, which take less memory
+   * when large models are loaded.
+   */
+  SLOT_ARRAYS
+}
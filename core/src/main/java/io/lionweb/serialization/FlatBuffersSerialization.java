@@ -6,9 +6,12 @@ import io.lionweb.model.*;
 import io.lionweb.model.impl.ProxyNode;
 import io.lionweb.serialization.data.*;
 import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.flatbuffers.FlatBuffersChunkView;
 import io.lionweb.serialization.flatbuffers.gen.*;
 import java.io.*;
 import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.*;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
@@ -24,6 +27,9 @@ public class FlatBuffersSerialization extends AbstractSerialization {
   }
 
   public List<io.lionweb.model.Node> deserializeToNodes(byte[] bytes) throws IOException {
+    if (isInstrumented()) {
+      bytesRead(bytes.length);
+    }
     ByteBuffer bb = ByteBuffer.wrap(bytes);
     return deserializeToNodes(FBChunk.getRootAsFBChunk(bb));
   }
@@ -36,14 +42,48 @@ public class FlatBuffersSerialization extends AbstractSerialization {
   }
 
   public List<ClassifierInstance<?>> deserializeToClassifierInstances(FBChunk chunk) {
+    long start = startPhase();
     SerializedChunk serializationBlock = deserializeSerializationChunk(chunk);
+    phaseCompleted(
+        SerializationPhase.PARSING, start, serializationBlock.getClassifierInstances().size());
     validateSerializationBlock(serializationBlock);
     return deserializeSerializationChunk(serializationBlock);
   }
 
+  /**
+   * Open a read-only view over the chunk contained in the given buffer. Nothing is copied: nodes
+   * are decoded lazily, when accessed. The classifiers used in the chunk should have been
+   * registered in this serialization.
+   */
+  public FlatBuffersChunkView openChunkView(@Nonnull ByteBuffer buffer) {
+    return new FlatBuffersChunkView(
+        buffer, getClassifierResolver(), getPrimitiveValuesSerialization());
+  }
+
+  public FlatBuffersChunkView openChunkView(@Nonnull byte[] bytes) {
+    return openChunkView(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Memory-map the given file and open a read-only view over it. The mapping remains valid after
+   * this method returns, and it is released when the view is garbage collected.
+   */
+  public FlatBuffersChunkView openChunkView(@Nonnull File file) throws IOException {
+    try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+      return openChunkView(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+    }
+  }
+
   public SerializedChunk deserializeToChunk(byte[] bytes) {
-    ByteBuffer bb = ByteBuffer.wrap(bytes);
-    return deserializeSerializationChunk(FBChunk.getRootAsFBChunk(bb));
+    return deserializeToChunk(ByteBuffer.wrap(bytes));
+  }
+
+  /**
+   * Deserialize a chunk from the remaining bytes of the buffer, without copying them. This permits
+   * to read chunks directly from memory-mapped files. The position of the buffer is not changed.
+   */
+  public SerializedChunk deserializeToChunk(@Nonnull ByteBuffer buffer) {
+    return deserializeSerializationChunk(FBChunk.getRootAsFBChunk(buffer.slice()));
   }
 
   public byte[] serializeTreesToByteArray(ClassifierInstance<?>... roots) {
@@ -98,6 +138,14 @@ public class FlatBuffersSerialization extends AbstractSerialization {
   }
 
   public byte[] serialize(SerializedChunk serializedChunk) {
+    long start = startPhase();
+    byte[] bytes = encode(serializedChunk);
+    phaseCompleted(
+        SerializationPhase.ENCODING, start, serializedChunk.getClassifierInstances().size());
+    return bytes;
+  }
+
+  private byte[] encode(SerializedChunk serializedChunk) {
     FlatBufferBuilder builder = new FlatBufferBuilder(1024);
 
     FBHelper helper = new FBHelper(builder);
@@ -257,7 +305,8 @@ public class FlatBuffersSerialization extends AbstractSerialization {
     }
   }
 
-  private static final String NULL_CONSTANT = "NULL";
+  /** Placeholder stored instead of the ID of children which have no ID. */
+  public static final String NULL_CONSTANT = "NULL";
 
   private static class DeserializationHelper {
 
@@ -270,13 +319,8 @@ public class FlatBuffersSerialization extends AbstractSerialization {
       }
       return metaPointersCache.computeIfAbsent(
           classifier,
-          fbMetaPointer -> {
-            MetaPointer metaPointer = new MetaPointer();
-            metaPointer.setKey(classifier.key());
-            metaPointer.setLanguage(classifier.language());
-            metaPointer.setVersion(classifier.version());
-            return metaPointer;
-          });
+          fbMetaPointer ->
+              MetaPointer.get(classifier.language(), classifier.version(), classifier.key()));
     }
 
     public SerializedContainmentValue deserialize(FBContainment containment) {
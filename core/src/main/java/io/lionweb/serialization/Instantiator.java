@@ -5,11 +5,13 @@ import io.lionweb.language.*;
 import io.lionweb.lioncore.LionCore;
 import io.lionweb.model.ClassifierInstance;
 import io.lionweb.model.Node;
+import io.lionweb.model.impl.CompactDynamicNode;
 import io.lionweb.model.impl.DynamicAnnotationInstance;
 import io.lionweb.model.impl.DynamicNode;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
 import java.util.HashMap;
 import java.util.Map;
+import java.util.Objects;
 import javax.annotation.Nonnull;
 
 /**
@@ -38,9 +40,21 @@ public class Instantiator {
   public Instantiator() {}
 
   public Instantiator enableDynamicNodes() {
+    return enableDynamicNodes(DynamicNodeStorage.HASH_MAPS);
+  }
+
+  /**
+   * Instantiate nodes and annotation instances for which no specific instantiator is registered as
+   * dynamic instances. Nodes are represented according to the given storage.
+   */
+  public Instantiator enableDynamicNodes(@Nonnull DynamicNodeStorage storage) {
+    Objects.requireNonNull(storage, "storage should not be null");
     defaultNodeDeserializer =
         (classifier, serializedNode, deserializedNodesByID, propertiesValues) -> {
           if (classifier instanceof Concept) {
+            if (storage == DynamicNodeStorage.SLOT_ARRAYS) {
+              return new CompactDynamicNode(serializedNode.getID(), (Concept) classifier);
+            }
             return new DynamicNode(serializedNode.getID(), (Concept) classifier);
           } else if (classifier instanceof Annotation) {
             return new DynamicAnnotationInstance(serializedNode.getID(), (Annotation) classifier);
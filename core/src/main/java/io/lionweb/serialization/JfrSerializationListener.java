@@ -0,0 +1,84 @@
+package io.lionweb.serialization;
+
+import javax.annotation.Nonnull;
+import jdk.jfr.*;
+
+/**
+ * Listener emitting the metrics received as Java Flight Recorder events, so that they can be
+ * correlated with the other events of a recording. It requires a JVM supporting JFR, and it should
+ * be registered only on such JVMs.
+ */
+public class JfrSerializationListener implements SerializationListener {
+
+  @Name("io.lionweb.SerializationPhase")
+  @Label("Serialization Phase")
+  @Category("LionWeb")
+  @StackTrace(false)
+  static class PhaseEvent extends Event {
+    @Label("Phase")
+    String phase;
+
+    @Label("Phase Duration")
+    @Timespan(Timespan.NANOSECONDS)
+    long phaseDuration;
+
+    @Label("Nodes")
+    int nodes;
+  }
+
+  @Name("io.lionweb.DeserializationCache")
+  @Label("Deserialization Cache")
+  @Category("LionWeb")
+  @StackTrace(false)
+  static class CacheEvent extends Event {
+    @Label("Cache")
+    String cache;
+
+    @Label("Hits")
+    long hits;
+
+    @Label("Misses")
+    long misses;
+  }
+
+  @Name("io.lionweb.BytesRead")
+  @Label("Serialization Bytes Read")
+  @Category("LionWeb")
+  @StackTrace(false)
+  static class BytesReadEvent extends Event {
+    @Label("Bytes")
+    @DataAmount
+    long bytes;
+  }
+
+  @Override
+  public void phaseCompleted(@Nonnull SerializationPhase phase, long durationNanos, int nodes) {
+    PhaseEvent event = new PhaseEvent();
+    if (event.shouldCommit()) {
+      event.phase = phase.name();
+      event.phaseDuration = durationNanos;
+      event.nodes = nodes;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void bytesRead(long bytes) {
+    BytesReadEvent event = new BytesReadEvent();
+    if (event.shouldCommit()) {
+      event.bytes = bytes;
+      event.commit();
+    }
+  }
+
+  @Override
+  public void cacheUsed(@Nonnull Cache cache, long hits, long misses) {
+    CacheEvent event = new CacheEvent();
+    if (event.shouldCommit()) {
+      event.cache = cache.name();
+      event.hits = hits;
+      event.misses = misses;
+      event.commit();
+    }
+  }
+}
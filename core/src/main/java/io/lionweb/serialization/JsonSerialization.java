@@ -2,7 +2,8 @@ package io.lionweb.serialization;
 
 import static io.lionweb.serialization.SerializationProvider.getStandardJsonSerialization;
 
-import com.google.gson.GsonBuilder;
+import com.google.common.base.Utf8;
+import com.google.common.io.CountingInputStream;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
 import io.lionweb.LionWebVersion;
@@ -105,23 +106,105 @@ public class JsonSerialization extends AbstractSerialization {
   //
 
   public String serializeToJsonString(SerializedChunk serializedChunk) {
-    return new LowLevelJsonSerialization().serializeToJsonString(serializedChunk);
+    long start = startPhase();
+    String json = new LowLevelJsonSerialization().serializeToJsonString(serializedChunk);
+    phaseCompleted(
+        SerializationPhase.ENCODING, start, serializedChunk.getClassifierInstances().size());
+    return json;
+  }
+
+  /**
+   * Write the given chunk to the output stream, as UTF-8 encoded JSON. The output stream is
+   * flushed but not closed.
+   */
+  public void serializeToOutputStream(SerializedChunk serializedChunk, OutputStream outputStream)
+      throws IOException {
+    long start = startPhase();
+    new LowLevelJsonSerialization().serializeToOutputStream(serializedChunk, outputStream);
+    phaseCompleted(
+        SerializationPhase.ENCODING, start, serializedChunk.getClassifierInstances().size());
   }
 
   public JsonElement serializeTreeToJsonElement(ClassifierInstance<?> classifierInstance) {
+    return serializeNodesToJsonElement(collectNodesOfTree(classifierInstance));
+  }
+
+  public JsonElement serializeTreesToJsonElement(ClassifierInstance<?>... roots) {
+    return serializeNodesToJsonElement(collectNodesOfTrees(roots));
+  }
+
+  public JsonElement serializeNodesToJsonElement(List<ClassifierInstance<?>> classifierInstances) {
+    return new LowLevelJsonSerialization()
+        .serializeToJsonElement(serializeNodesToCheckedChunk(classifierInstances));
+  }
+
+  public JsonElement serializeNodesToJsonElement(ClassifierInstance<?>... classifierInstances) {
+    return serializeNodesToJsonElement(Arrays.asList(classifierInstances));
+  }
+
+  public String serializeTreeToJsonString(ClassifierInstance<?> classifierInstance) {
+    return serializeNodesToJsonString(collectNodesOfTree(classifierInstance));
+  }
+
+  public String serializeTreesToJsonString(ClassifierInstance<?>... classifierInstances) {
+    return serializeNodesToJsonString(collectNodesOfTrees(classifierInstances));
+  }
+
+  public String serializeNodesToJsonString(List<ClassifierInstance<?>> classifierInstances) {
+    return serializeToJsonString(serializeNodesToCheckedChunk(classifierInstances));
+  }
+
+  public String serializeNodesToJsonString(ClassifierInstance<?>... classifierInstances) {
+    return serializeNodesToJsonString(Arrays.asList(classifierInstances));
+  }
+
+  /**
+   * Write the tree to the output stream, as UTF-8 encoded JSON, without building the JsonElement or
+   * the String representation in memory. The output is identical to the one produced by {@link
+   * #serializeTreeToJsonString(ClassifierInstance)}. The output stream is flushed but not closed.
+   */
+  public void serializeTreeToOutputStream(
+      ClassifierInstance<?> classifierInstance, OutputStream outputStream) throws IOException {
+    serializeNodesToOutputStream(collectNodesOfTree(classifierInstance), outputStream);
+  }
+
+  /**
+   * Write the trees to the output stream, as UTF-8 encoded JSON, without building the JsonElement
+   * or the String representation in memory. The output is identical to the one produced by {@link
+   * #serializeTreesToJsonString(ClassifierInstance[])}. The output stream is flushed but not
+   * closed.
+   */
+  public void serializeTreesToOutputStream(
+      OutputStream outputStream, ClassifierInstance<?>... roots) throws IOException {
+    serializeNodesToOutputStream(collectNodesOfTrees(roots), outputStream);
+  }
+
+  /**
+   * Write the nodes to the output stream, as UTF-8 encoded JSON, without building the JsonElement
+   * or the String representation in memory. The output stream is flushed but not closed.
+   */
+  public void serializeNodesToOutputStream(
+      List<ClassifierInstance<?>> classifierInstances, OutputStream outputStream)
+      throws IOException {
+    serializeToOutputStream(serializeNodesToCheckedChunk(classifierInstances), outputStream);
+  }
+
+  //
+  // Serialization - Private
+  //
+
+  private List<ClassifierInstance<?>> collectNodesOfTree(ClassifierInstance<?> classifierInstance) {
     if (classifierInstance instanceof ProxyNode) {
       throw new IllegalArgumentException("Proxy nodes cannot be serialized");
     }
     Set<ClassifierInstance<?>> classifierInstances = new LinkedHashSet<>();
     ClassifierInstance.collectSelfAndDescendants(classifierInstance, true, classifierInstances);
-
-    return serializeNodesToJsonElement(
-        classifierInstances.stream()
-            .filter(n -> !(n instanceof ProxyNode))
-            .collect(Collectors.toList()));
+    return classifierInstances.stream()
+        .filter(n -> !(n instanceof ProxyNode))
+        .collect(Collectors.toList());
   }
 
-  public JsonElement serializeTreesToJsonElement(ClassifierInstance<?>... roots) {
+  private List<ClassifierInstance<?>> collectNodesOfTrees(ClassifierInstance<?>... roots) {
     Set<String> nodesIDs = new HashSet<>();
     List<ClassifierInstance<?>> allNodes = new ArrayList<>();
     for (ClassifierInstance<?> root : roots) {
@@ -141,44 +224,15 @@ public class JsonSerialization extends AbstractSerialization {
             }
           });
     }
-    return serializeNodesToJsonElement(
-        allNodes.stream().filter(n -> !(n instanceof ProxyNode)).collect(Collectors.toList()));
+    return allNodes.stream().filter(n -> !(n instanceof ProxyNode)).collect(Collectors.toList());
   }
 
-  public JsonElement serializeNodesToJsonElement(List<ClassifierInstance<?>> classifierInstances) {
+  private SerializedChunk serializeNodesToCheckedChunk(
+      List<ClassifierInstance<?>> classifierInstances) {
     if (classifierInstances.stream().anyMatch(n -> n instanceof ProxyNode)) {
       throw new IllegalArgumentException("Proxy nodes cannot be serialized");
     }
-    SerializedChunk serializedChunk = serializeNodesToSerializationChunk(classifierInstances);
-    return new LowLevelJsonSerialization().serializeToJsonElement(serializedChunk);
-  }
-
-  public JsonElement serializeNodesToJsonElement(ClassifierInstance<?>... classifierInstances) {
-    return serializeNodesToJsonElement(Arrays.asList(classifierInstances));
-  }
-
-  public String serializeTreeToJsonString(ClassifierInstance<?> classifierInstance) {
-    return jsonElementToString(serializeTreeToJsonElement(classifierInstance));
-  }
-
-  public String serializeTreesToJsonString(ClassifierInstance<?>... classifierInstances) {
-    return jsonElementToString(serializeTreesToJsonElement(classifierInstances));
-  }
-
-  public String serializeNodesToJsonString(List<ClassifierInstance<?>> classifierInstances) {
-    return jsonElementToString(serializeNodesToJsonElement(classifierInstances));
-  }
-
-  public String serializeNodesToJsonString(ClassifierInstance<?>... classifierInstances) {
-    return jsonElementToString(serializeNodesToJsonElement(classifierInstances));
-  }
-
-  //
-  // Serialization - Private
-  //
-
-  private String jsonElementToString(JsonElement element) {
-    return new GsonBuilder().setPrettyPrinting().serializeNulls().create().toJson(element);
+    return serializeNodesToSerializationChunk(classifierInstances);
   }
 
   //
@@ -190,29 +244,58 @@ public class JsonSerialization extends AbstractSerialization {
   }
 
   public List<Node> deserializeToNodes(JsonElement jsonElement) {
-    return deserializeToClassifierInstances(jsonElement).stream()
-        .filter(ci -> ci instanceof Node)
-        .map(ci -> (Node) ci)
-        .collect(Collectors.toList());
+    return onlyNodes(deserializeToClassifierInstances(jsonElement));
   }
 
   public List<ClassifierInstance<?>> deserializeToClassifierInstances(JsonElement jsonElement) {
+    return deserializeToClassifierInstances(jsonElement, startPhase());
+  }
+
+  /**
+   * @param parsingStart when the parsing started, as the JsonElement could have been obtained by
+   *     parsing a String or a stream
+   */
+  private List<ClassifierInstance<?>> deserializeToClassifierInstances(
+      JsonElement jsonElement, long parsingStart) {
     SerializedChunk serializationBlock =
         new LowLevelJsonSerialization().deserializeSerializationBlock(jsonElement);
+    phaseCompleted(
+        SerializationPhase.PARSING,
+        parsingStart,
+        serializationBlock.getClassifierInstances().size());
     validateSerializationBlock(serializationBlock);
     return deserializeSerializationChunk(serializationBlock);
   }
 
+  private static List<Node> onlyNodes(List<ClassifierInstance<?>> classifierInstances) {
+    return classifierInstances.stream()
+        .filter(ci -> ci instanceof Node)
+        .map(ci -> (Node) ci)
+        .collect(Collectors.toList());
+  }
+
   public List<Node> deserializeToNodes(URL url) throws IOException {
     String content = NetworkUtils.getStringFromUrl(url);
     return deserializeToNodes(content);
   }
 
   public List<Node> deserializeToNodes(String json) {
-    return deserializeToNodes(JsonParser.parseString(json));
+    long start = startPhase();
+    if (start != PHASE_NOT_TIMED) {
+      // The size the string has in UTF-8, as read by deserializeToNodes(InputStream)
+      bytesRead(Utf8.encodedLength(json));
+    }
+    return onlyNodes(deserializeToClassifierInstances(JsonParser.parseString(json), start));
   }
 
   public List<Node> deserializeToNodes(InputStream inputStream) {
-    return deserializeToNodes(JsonParser.parseReader(new InputStreamReader(inputStream)));
+    long start = startPhase();
+    if (start == PHASE_NOT_TIMED) {
+      return deserializeToNodes(JsonParser.parseReader(new InputStreamReader(inputStream)));
+    }
+    CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+    JsonElement jsonElement = JsonParser.parseReader(new InputStreamReader(countingInputStream));
+    bytesRead(countingInputStream.getCount());
+    return onlyNodes(deserializeToClassifierInstances(jsonElement, start));
   }
 }
@@ -1,14 +1,21 @@
 package io.lionweb.serialization;
 
 import com.google.gson.*;
+import com.google.gson.stream.JsonReader;
+import com.google.gson.stream.JsonToken;
+import com.google.gson.stream.JsonWriter;
 import io.lionweb.LionWebVersion;
 import io.lionweb.serialization.data.*;
-import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
 import java.util.Arrays;
 import java.util.Collection;
 import java.util.HashSet;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.StreamSupport;
 import javax.annotation.Nullable;
@@ -72,6 +79,89 @@ public class LowLevelJsonSerialization {
     return deserializeSerializationBlock(JsonParser.parseReader(new FileReader(file)));
   }
 
+  /**
+   * This reads a serialization block without building the complete JSON tree in memory. Each
+   * classifier instance is passed to the given consumer as soon as it has been parsed, so the
+   * memory needed depends on the size of the single nodes and not on the size of the whole block.
+   *
+   * <p>The same validation performed by {@link #deserializeSerializationBlock(JsonElement)} is
+   * applied.
+   *
+   * @return a SerializedChunk containing the serializationFormatVersion and the languages, but no
+   *     classifier instances, as those have been passed to the consumer
+   */
+  public SerializedChunk deserializeSerializationBlock(
+      Reader reader, Consumer<SerializedClassifierInstance> classifierInstanceConsumer)
+      throws IOException {
+    return deserializeSerializationBlock(new JsonReader(reader), classifierInstanceConsumer);
+  }
+
+  /**
+   * Variant of {@link #deserializeSerializationBlock(Reader, Consumer)} reading the serialization
+   * block from the current position of the given JsonReader. This permits to read a serialization
+   * block embedded in a larger JSON document, such as the response of a repository. After
+   * returning, the JsonReader is positioned after the serialization block.
+   */
+  public SerializedChunk deserializeSerializationBlock(
+      JsonReader jsonReader, Consumer<SerializedClassifierInstance> classifierInstanceConsumer)
+      throws IOException {
+    SerializedChunk serializedChunk = new SerializedChunk();
+    List<String> expectedKeys = Arrays.asList("nodes", "serializationFormatVersion", "languages");
+    Collection<String> foundKeys = new HashSet<>();
+    jsonReader.beginObject();
+    while (jsonReader.hasNext()) {
+      String key = jsonReader.nextName();
+      foundKeys.add(key);
+      switch (key) {
+        case "serializationFormatVersion":
+          {
+            JsonObject topLevel = new JsonObject();
+            topLevel.add(key, JsonParser.parseReader(jsonReader));
+            readSerializationFormatVersion(serializedChunk, topLevel);
+            break;
+          }
+        case "languages":
+          {
+            JsonObject topLevel = new JsonObject();
+            topLevel.add(key, JsonParser.parseReader(jsonReader));
+            readLanguages(serializedChunk, topLevel);
+            break;
+          }
+        case "nodes":
+          streamClassifierInstances(jsonReader, classifierInstanceConsumer);
+          break;
+        default:
+          throw new RuntimeException(
+              "Extra keys found: [" + key + "]. Expected keys: " + expectedKeys);
+      }
+    }
+    jsonReader.endObject();
+    if (!foundKeys.contains("serializationFormatVersion")) {
+      throw new IllegalArgumentException("serializationFormatVersion not specified");
+    }
+    if (!foundKeys.contains("languages")) {
+      throw new IllegalArgumentException("languages not specified");
+    }
+    if (!foundKeys.contains("nodes")) {
+      throw new IllegalArgumentException("nodes not specified");
+    }
+    return serializedChunk;
+  }
+
+  /**
+   * This reads a serialization block from a file, without building the complete JSON tree in
+   * memory. See {@link #deserializeSerializationBlock(Reader, Consumer)}.
+   */
+  public SerializedChunk deserializeSerializationBlock(
+      File file, Consumer<SerializedClassifierInstance> classifierInstanceConsumer)
+      throws IOException {
+    try (Reader reader =
+        new BufferedReader(
+            new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8))) {
+      return deserializeSerializationBlock(reader, classifierInstanceConsumer);
+    }
+  }
+
   public JsonElement serializeToJsonElement(SerializedChunk serializedChunk) {
     JsonObject topLevel = new JsonObject();
     topLevel.addProperty(
@@ -132,11 +222,122 @@ public class LowLevelJsonSerialization {
   }
 
   public String serializeToJsonString(SerializedChunk serializedChunk) {
-    return new GsonBuilder()
-        .serializeNulls()
-        .setPrettyPrinting()
-        .create()
-        .toJson(serializeToJsonElement(serializedChunk));
+    StringWriter stringWriter = new StringWriter();
+    try {
+      serializeToWriter(serializedChunk, stringWriter);
+    } catch (IOException e) {
+      // A StringWriter does not throw IOExceptions
+      throw new UncheckedIOException(e);
+    }
+    return stringWriter.toString();
+  }
+
+  /**
+   * This writes the JSON representation of the given chunk directly to the output stream, encoded
+   * as UTF-8, without building an intermediate JsonElement or String. The output is identical to
+   * the one produced by {@link #serializeToJsonString(SerializedChunk)}. The output stream is
+   * flushed but not closed.
+   */
+  public void serializeToOutputStream(SerializedChunk serializedChunk, OutputStream outputStream)
+      throws IOException {
+    Writer writer =
+        new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+    serializeToWriter(serializedChunk, writer);
+  }
+
+  /**
+   * This writes the JSON representation of the given chunk directly to the writer, without
+   * building an intermediate JsonElement. The writer is flushed but not closed.
+   */
+  public void serializeToWriter(SerializedChunk serializedChunk, Writer writer) throws IOException {
+    // These settings match the ones used by Gson when pretty printing with serializeNulls
+    JsonWriter jsonWriter = new JsonWriter(writer);
+    jsonWriter.setIndent("  ");
+    jsonWriter.setHtmlSafe(true);
+    jsonWriter.setSerializeNulls(true);
+
+    jsonWriter.beginObject();
+    jsonWriter
+        .name("serializationFormatVersion")
+        .value(serializedChunk.getSerializationFormatVersion());
+
+    jsonWriter.name("languages").beginArray();
+    for (UsedLanguage usedLanguage : serializedChunk.getLanguages()) {
+      jsonWriter.beginObject();
+      jsonWriter.name("key").value(usedLanguage.getKey());
+      jsonWriter.name("version").value(usedLanguage.getVersion());
+      jsonWriter.endObject();
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.name("nodes").beginArray();
+    for (SerializedClassifierInstance node : serializedChunk.getClassifierInstances()) {
+      writeClassifierInstance(jsonWriter, node);
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.endObject();
+    jsonWriter.flush();
+  }
+
+  /**
+   * This writes a serialization block containing the classifier instances produced by the given
+   * iterator, consuming it while writing, so that the classifier instances do not need to be all in
+   * memory at the same time. As the languages used are known only once all the classifier instances
+   * have been written, they are written after the nodes. The JSON is not indented. The writer is
+   * flushed but not closed.
+   *
+   * @return the number of classifier instances written
+   */
+  public int serializeToWriter(
+      String serializationFormatVersion,
+      Iterator<SerializedClassifierInstance> classifierInstances,
+      Writer writer)
+      throws IOException {
+    JsonWriter jsonWriter = new JsonWriter(writer);
+    jsonWriter.setHtmlSafe(true);
+    jsonWriter.setSerializeNulls(true);
+
+    jsonWriter.beginObject();
+    jsonWriter.name("serializationFormatVersion").value(serializationFormatVersion);
+
+    Set<UsedLanguage> languages = new LinkedHashSet<>();
+    int count = 0;
+    jsonWriter.name("nodes").beginArray();
+    while (classifierInstances.hasNext()) {
+      SerializedClassifierInstance node = classifierInstances.next();
+      writeClassifierInstance(jsonWriter, node);
+      collectUsedLanguages(node, languages);
+      count++;
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.name("languages").beginArray();
+    for (UsedLanguage usedLanguage : languages) {
+      jsonWriter.beginObject();
+      jsonWriter.name("key").value(usedLanguage.getKey());
+      jsonWriter.name("version").value(usedLanguage.getVersion());
+      jsonWriter.endObject();
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.endObject();
+    jsonWriter.flush();
+    return count;
+  }
+
+  private static void collectUsedLanguages(
+      SerializedClassifierInstance node, Set<UsedLanguage> languages) {
+    languages.add(UsedLanguage.fromMetaPointer(node.getClassifier()));
+    for (SerializedContainmentValue containmentValue : node.getContainments()) {
+      languages.add(UsedLanguage.fromMetaPointer(containmentValue.getMetaPointer()));
+    }
+    for (SerializedReferenceValue referenceValue : node.getReferences()) {
+      languages.add(UsedLanguage.fromMetaPointer(referenceValue.getMetaPointer()));
+    }
+    for (SerializedPropertyValue propertyValue : node.getProperties()) {
+      languages.add(UsedLanguage.fromMetaPointer(propertyValue.getMetaPointer()));
+    }
   }
 
   /** Create a SerializedChunk containing the given nodes. */
@@ -229,6 +430,103 @@ public class LowLevelJsonSerialization {
     }
   }
 
+  private void streamClassifierInstances(
+      JsonReader jsonReader, Consumer<SerializedClassifierInstance> classifierInstanceConsumer)
+      throws IOException {
+    if (jsonReader.peek() != JsonToken.BEGIN_ARRAY) {
+      throw new IllegalArgumentException(
+          "We expected a Json Array, we got instead: " + JsonParser.parseReader(jsonReader));
+    }
+    jsonReader.beginArray();
+    while (jsonReader.hasNext()) {
+      classifierInstanceConsumer.accept(deserializeClassifierInstance(jsonReader));
+    }
+    jsonReader.endArray();
+  }
+
+  /**
+   * Read a single classifier instance from the current position of the given JsonReader. Only this
+   * classifier instance is materialized as a JsonElement.
+   */
+  public SerializedClassifierInstance deserializeClassifierInstance(JsonReader jsonReader)
+      throws IOException {
+    JsonElement element = JsonParser.parseReader(jsonReader);
+    try {
+      return deserializeClassifierInstance(element);
+    } catch (DeserializationException e) {
+      throw new DeserializationException("Issue while deserializing classifier instances", e);
+    } catch (Exception e) {
+      throw new RuntimeException("Issue while deserializing " + element, e);
+    }
+  }
+
+  private void writeClassifierInstance(JsonWriter jsonWriter, SerializedClassifierInstance node)
+      throws IOException {
+    jsonWriter.beginObject();
+    jsonWriter.name("id").value(node.getID());
+
+    jsonWriter.name("classifier");
+    writeMetaPointer(jsonWriter, node.getClassifier());
+
+    jsonWriter.name("properties").beginArray();
+    for (SerializedPropertyValue propertyValue : node.getProperties()) {
+      jsonWriter.beginObject();
+      jsonWriter.name("property");
+      writeMetaPointer(jsonWriter, propertyValue.getMetaPointer());
+      jsonWriter.name("value").value(propertyValue.getValue());
+      jsonWriter.endObject();
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.name("containments").beginArray();
+    for (SerializedContainmentValue childrenValue : node.getContainments()) {
+      jsonWriter.beginObject();
+      jsonWriter.name("containment");
+      writeMetaPointer(jsonWriter, childrenValue.getMetaPointer());
+      jsonWriter.name("children").beginArray();
+      for (String childID : childrenValue.getValue()) {
+        jsonWriter.value(childID);
+      }
+      jsonWriter.endArray();
+      jsonWriter.endObject();
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.name("references").beginArray();
+    for (SerializedReferenceValue referenceValue : node.getReferences()) {
+      jsonWriter.beginObject();
+      jsonWriter.name("reference");
+      writeMetaPointer(jsonWriter, referenceValue.getMetaPointer());
+      jsonWriter.name("targets").beginArray();
+      for (SerializedReferenceValue.Entry entry : referenceValue.getValue()) {
+        jsonWriter.beginObject();
+        jsonWriter.name("resolveInfo").value(entry.getResolveInfo());
+        jsonWriter.name("reference").value(entry.getReference());
+        jsonWriter.endObject();
+      }
+      jsonWriter.endArray();
+      jsonWriter.endObject();
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.name("annotations").beginArray();
+    for (String annotationID : node.getAnnotations()) {
+      jsonWriter.value(annotationID);
+    }
+    jsonWriter.endArray();
+
+    jsonWriter.name("parent").value(node.getParentNodeID());
+    jsonWriter.endObject();
+  }
+
+  private void writeMetaPointer(JsonWriter jsonWriter, MetaPointer metapointer) throws IOException {
+    jsonWriter.beginObject();
+    jsonWriter.name("language").value(metapointer.getLanguage());
+    jsonWriter.name("version").value(metapointer.getVersion());
+    jsonWriter.name("key").value(metapointer.getKey());
+    jsonWriter.endObject();
+  }
+
   private JsonElement serializeToJsonElement(MetaPointer metapointer) {
     JsonObject jsonObject = new JsonObject();
     jsonObject.addProperty("language", metapointer.getLanguage());
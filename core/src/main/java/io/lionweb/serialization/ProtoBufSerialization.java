@@ -1,5 +1,6 @@
 package io.lionweb.serialization;
 
+import com.google.common.io.CountingInputStream;
 import io.lionweb.LionWebVersion;
 import io.lionweb.model.ClassifierInstance;
 import io.lionweb.model.impl.ProxyNode;
@@ -22,7 +23,11 @@ public class ProtoBufSerialization extends AbstractSerialization {
   }
 
   public List<io.lionweb.model.Node> deserializeToNodes(byte[] bytes) throws IOException {
-    return deserializeToNodes(new ByteArrayInputStream(bytes));
+    long start = startPhase();
+    if (start != PHASE_NOT_TIMED) {
+      bytesRead(bytes.length);
+    }
+    return onlyNodes(deserializeToClassifierInstances(PBChunk.parseFrom(bytes), start));
   }
 
   public SerializedChunk deserializeToChunk(byte[] bytes) throws IOException {
@@ -36,22 +41,47 @@ public class ProtoBufSerialization extends AbstractSerialization {
 
   public List<io.lionweb.model.Node> deserializeToNodes(InputStream inputStream)
       throws IOException {
-    return deserializeToNodes(PBChunk.parseFrom(inputStream));
+    long start = startPhase();
+    if (start == PHASE_NOT_TIMED) {
+      return deserializeToNodes(PBChunk.parseFrom(inputStream));
+    }
+    CountingInputStream countingInputStream = new CountingInputStream(inputStream);
+    PBChunk chunk = PBChunk.parseFrom(countingInputStream);
+    bytesRead(countingInputStream.getCount());
+    return onlyNodes(deserializeToClassifierInstances(chunk, start));
   }
 
   public List<io.lionweb.model.Node> deserializeToNodes(PBChunk chunk) {
-    return deserializeToClassifierInstances(chunk).stream()
-        .filter(ci -> ci instanceof io.lionweb.model.Node)
-        .map(ci -> (io.lionweb.model.Node) ci)
-        .collect(Collectors.toList());
+    return onlyNodes(deserializeToClassifierInstances(chunk));
   }
 
   public List<ClassifierInstance<?>> deserializeToClassifierInstances(PBChunk chunk) {
+    return deserializeToClassifierInstances(chunk, startPhase());
+  }
+
+  /**
+   * @param parsingStart when the parsing started, as the PBChunk could have been obtained by
+   *     parsing bytes or a stream
+   */
+  private List<ClassifierInstance<?>> deserializeToClassifierInstances(
+      PBChunk chunk, long parsingStart) {
     SerializedChunk serializationBlock = deserializeSerializationChunk(chunk);
+    phaseCompleted(
+        SerializationPhase.PARSING,
+        parsingStart,
+        serializationBlock.getClassifierInstances().size());
     validateSerializationBlock(serializationBlock);
     return deserializeSerializationChunk(serializationBlock);
   }
 
+  private static List<io.lionweb.model.Node> onlyNodes(
+      List<ClassifierInstance<?>> classifierInstances) {
+    return classifierInstances.stream()
+        .filter(ci -> ci instanceof io.lionweb.model.Node)
+        .map(ci -> (io.lionweb.model.Node) ci)
+        .collect(Collectors.toList());
+  }
+
   private SerializedChunk deserializeSerializationChunk(PBChunk chunk) {
     Map<Integer, String> stringsMap = new HashMap<>();
     for (int i = 0; i < chunk.getStringValuesCount(); i++) {
@@ -60,10 +90,11 @@ public class ProtoBufSerialization extends AbstractSerialization {
     Map<Integer, MetaPointer> metapointersMap = new HashMap<>();
     for (int i = 0; i < chunk.getMetaPointersCount(); i++) {
       PBMetaPointer mp = chunk.getMetaPointers(i);
-      MetaPointer metaPointer = new MetaPointer();
-      metaPointer.setKey(stringsMap.get(mp.getKey()));
-      metaPointer.setLanguage(stringsMap.get(mp.getLanguage()));
-      metaPointer.setVersion(stringsMap.get(mp.getVersion()));
+      MetaPointer metaPointer =
+          MetaPointer.get(
+              stringsMap.get(mp.getLanguage()),
+              stringsMap.get(mp.getVersion()),
+              stringsMap.get(mp.getKey()));
       metapointersMap.put(i, metaPointer);
     }
     ;
@@ -170,7 +201,11 @@ public class ProtoBufSerialization extends AbstractSerialization {
   }
 
   public byte[] serializeToByteArray(SerializedChunk serializedChunk) {
-    return serialize(serializedChunk).toByteArray();
+    long start = startPhase();
+    byte[] bytes = serialize(serializedChunk).toByteArray();
+    phaseCompleted(
+        SerializationPhase.ENCODING, start, serializedChunk.getClassifierInstances().size());
+    return bytes;
   }
 
   protected class SerializeHelper {
@@ -0,0 +1,40 @@
+package io.lionweb.serialization;
+
+import javax.annotation.Nonnull;
+
+/**
+ * Receives metrics about serialization and deserialization operations. Listeners are registered
+ * through {@link AbstractSerialization#addListener(SerializationListener)}. When no listener is
+ * registered, no metrics are collected.
+ *
+ * <p>Listeners can be invoked from different threads, when the same serialization instance is used
+ * concurrently, so implementations should be thread-safe.
+ *
+ * @see SerializationMetrics
+ * @see JfrSerializationListener
+ */
+public interface SerializationListener {
+
+  /** Caches used during deserialization. */
+  enum Cache {
+    /** Features looked up by classifier and MetaPointer. */
+    FEATURES,
+    /** Property values deserialized, by data type and serialized value. */
+    PROPERTY_VALUES
+  }
+
+  /**
+   * A phase has been completed.
+   *
+   * @param phase the phase completed
+   * @param durationNanos the time spent in the phase, in nanoseconds
+   * @param nodes the number of classifier instances processed in the phase
+   */
+  void phaseCompleted(@Nonnull SerializationPhase phase, long durationNanos, int nodes);
+
+  /** The given number of bytes have been read while parsing. */
+  default void bytesRead(long bytes) {}
+
+  /** Report how a cache has been used during a deserialization. */
+  default void cacheUsed(@Nonnull Cache cache, long hits, long misses) {}
+}
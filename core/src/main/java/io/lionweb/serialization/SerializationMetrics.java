@@ -0,0 +1,107 @@
+package io.lionweb.serialization;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import javax.annotation.Nonnull;
+
+/**
+ * Listener accumulating the metrics received, so that they can be inspected after one or more
+ * operations. It is thread-safe.
+ */
+public class SerializationMetrics implements SerializationListener {
+  private static final int PHASES = SerializationPhase.values().length;
+  private static final int CACHES = Cache.values().length;
+
+  private final AtomicLongArray durations = new AtomicLongArray(PHASES);
+  private final AtomicLongArray nodes = new AtomicLongArray(PHASES);
+  private final AtomicLongArray invocations = new AtomicLongArray(PHASES);
+  private final AtomicLongArray cacheHits = new AtomicLongArray(CACHES);
+  private final AtomicLongArray cacheMisses = new AtomicLongArray(CACHES);
+  private final AtomicLongArray bytes = new AtomicLongArray(1);
+
+  @Override
+  public void phaseCompleted(@Nonnull SerializationPhase phase, long durationNanos, int nodes) {
+    durations.addAndGet(phase.ordinal(), durationNanos);
+    this.nodes.addAndGet(phase.ordinal(), nodes);
+    invocations.incrementAndGet(phase.ordinal());
+  }
+
+  @Override
+  public void bytesRead(long bytes) {
+    this.bytes.addAndGet(0, bytes);
+  }
+
+  @Override
+  public void cacheUsed(@Nonnull Cache cache, long hits, long misses) {
+    cacheHits.addAndGet(cache.ordinal(), hits);
+    cacheMisses.addAndGet(cache.ordinal(), misses);
+  }
+
+  /** Total time spent in the given phase, in nanoseconds. */
+  public long getDurationNanos(@Nonnull SerializationPhase phase) {
+    return durations.get(phase.ordinal());
+  }
+
+  /** Total number of classifier instances processed in the given phase. */
+  public long getNodes(@Nonnull SerializationPhase phase) {
+    return nodes.get(phase.ordinal());
+  }
+
+  /** How many times the given phase has been completed. */
+  public long getInvocations(@Nonnull SerializationPhase phase) {
+    return invocations.get(phase.ordinal());
+  }
+
+  public long getBytesRead() {
+    return bytes.get(0);
+  }
+
+  public long getCacheHits(@Nonnull Cache cache) {
+    return cacheHits.get(cache.ordinal());
+  }
+
+  public long getCacheMisses(@Nonnull Cache cache) {
+    return cacheMisses.get(cache.ordinal());
+  }
+
+  /** Ratio of lookups served by the cache, or zero if the cache has not been used. */
+  public double getCacheHitRate(@Nonnull Cache cache) {
+    long hits = getCacheHits(cache);
+    long total = hits + getCacheMisses(cache);
+    return total == 0 ? 0.0 : ((double) hits) / total;
+  }
+
+  public void reset() {
+    for (int i = 0; i < PHASES; i++) {
+      durations.set(i, 0);
+      nodes.set(i, 0);
+      invocations.set(i, 0);
+    }
+    for (int i = 0; i < CACHES; i++) {
+      cacheHits.set(i, 0);
+      cacheMisses.set(i, 0);
+    }
+    bytes.set(0, 0);
+  }
+
+  @Override
+  public String toString() {
+    StringBuilder sb = new StringBuilder("SerializationMetrics{");
+    for (SerializationPhase phase : SerializationPhase.values()) {
+      if (getInvocations(phase) > 0) {
+        sb.append(phase)
+            .append("=")
+            .append(getDurationNanos(phase) / 1_000_000)
+            .append("ms/")
+            .append(getNodes(phase))
+            .append(" nodes, ");
+      }
+    }
+    for (Cache cache : Cache.values()) {
+      sb.append(cache)
+          .append(" hit rate=")
+          .append(String.format("%.2f", getCacheHitRate(cache)))
+          .append(", ");
+    }
+    return sb.append("bytesRead=").append(getBytesRead()).append("}").toString();
+  }
+}
@@ -0,0 +1,27 @@
+package io.lionweb.serialization;
+
+/** Phases of serialization and deserialization reported to {@link SerializationListener}s. */
+public enum SerializationPhase {
+  /** Conversion of nodes into a {@link io.lionweb.serialization.data.SerializedChunk}. */
+  SERIALIZATION,
+  /** Encoding of a SerializedChunk in the physical format (JSON, ProtoBuf, FlatBuffers). */
+  ENCODING,
+  /** Decoding of the physical format into a SerializedChunk. */
+  PARSING,
+  /** Sorting of the serialized nodes, so that leaves come first. */
+  SORTING,
+  /**
+   * Resolution of the classifiers of the serialized nodes. It is part of {@link #INSTANTIATION},
+   * and it is reported once per deserialization, summing the time spent on each node.
+   */
+  CLASSIFIER_RESOLUTION,
+  /**
+   * Deserialization of the property values. It is part of {@link #INSTANTIATION}, and it is
+   * reported once per deserialization, summing the time spent on each node.
+   */
+  PROPERTY_DECODING,
+  /** Creation of the nodes, including the resolution of classifiers and property values. */
+  INSTANTIATION,
+  /** Setting of children, references and annotations on the instantiated nodes. */
+  POPULATION
+}
@@ -1,27 +1,69 @@
 package io.lionweb.serialization.data;
 
+import com.google.common.collect.Interner;
+import com.google.common.collect.Interners;
 import io.lionweb.language.Feature;
 import io.lionweb.language.IKeyed;
 import io.lionweb.language.Language;
 import io.lionweb.language.LanguageEntity;
 import java.util.Objects;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
 
 /**
  * A MetaPointer is the combination of the pair Language and Version with a Key, which identify one
  * element within that language.
+ *
+ * <p>The deserializers obtain MetaPointers through {@link #get(String, String, String)}, which
+ * returns canonical instances: equal MetaPointers are then the very same object, so comparing and
+ * hashing them is cheap. Canonical instances cannot be modified.
+ *
+ * <p>The pool holds its instances weakly, so the MetaPointers of languages which are not used
+ * anymore can be garbage collected.
  */
 public class MetaPointer {
+  private static final Interner<MetaPointer> CANONICAL_INSTANCES = Interners.newWeakInterner();
+
   private String key;
   private String version;
   private String language;
+  private final boolean canonical;
+  private int hashCode = 0;
 
   public MetaPointer(String language, String version, String key) {
+    this(language, version, key, false);
+  }
+
+  public MetaPointer() {
+    this.canonical = false;
+  }
+
+  private MetaPointer(String language, String version, String key, boolean canonical) {
     this.key = key;
     this.version = version;
     this.language = language;
+    this.canonical = canonical;
   }
 
-  public MetaPointer() {}
+  /** Return the canonical, immutable MetaPointer with the given language, version, and key. */
+  @Nonnull
+  public static MetaPointer get(
+      @Nullable String language, @Nullable String version, @Nullable String key) {
+    return CANONICAL_INSTANCES.intern(new MetaPointer(language, version, key, true));
+  }
+
+  /** Return the canonical MetaPointer equal to this one. */
+  @Nonnull
+  public MetaPointer intern() {
+    if (canonical) {
+      return this;
+    }
+    return get(language, version, key);
+  }
+
+  public boolean isCanonical() {
+    return canonical;
+  }
 
   public static MetaPointer from(Feature<?> feature) {
     return from(feature, feature.getDeclaringLanguage());
@@ -56,7 +98,9 @@ public class MetaPointer {
   }
 
   public void setLanguage(String language) {
+    checkNotCanonical();
     this.language = language;
+    this.hashCode = 0;
   }
 
   public String getKey() {
@@ -64,7 +108,9 @@ public class MetaPointer {
   }
 
   public void setKey(String key) {
+    checkNotCanonical();
     this.key = key;
+    this.hashCode = 0;
   }
 
   public String getVersion() {
@@ -76,6 +122,8 @@ public class MetaPointer {
     if (this == o) return true;
     if (!(o instanceof MetaPointer)) return false;
     MetaPointer that = (MetaPointer) o;
+    // Hash codes are cached, so they discard most of the different MetaPointers cheaply
+    if (hashCode() != that.hashCode()) return false;
     return Objects.equals(key, that.key)
         && Objects.equals(version, that.version)
         && Objects.equals(language, that.language);
@@ -83,11 +131,24 @@ public class MetaPointer {
 
   @Override
   public int hashCode() {
-    return Objects.hash(key, version, language);
+    int h = hashCode;
+    if (h == 0) {
+      h = Objects.hash(key, version, language);
+      hashCode = h;
+    }
+    return h;
   }
 
   public void setVersion(String version) {
+    checkNotCanonical();
     this.version = version;
+    this.hashCode = 0;
+  }
+
+  private void checkNotCanonical() {
+    if (canonical) {
+      throw new UnsupportedOperationException("Canonical MetaPointers cannot be modified");
+    }
   }
 
   @Override
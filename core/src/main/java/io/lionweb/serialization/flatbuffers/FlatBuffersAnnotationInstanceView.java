@@ -0,0 +1,31 @@
+package io.lionweb.serialization.flatbuffers;
+
+import io.lionweb.language.Annotation;
+import io.lionweb.model.AnnotationInstance;
+import io.lionweb.serialization.flatbuffers.gen.FBNode;
+import javax.annotation.Nonnull;
+
+/** Read-only {@link AnnotationInstance} backed directly by an {@link FBNode}. */
+public class FlatBuffersAnnotationInstanceView extends FlatBuffersClassifierInstanceView<Annotation>
+    implements AnnotationInstance {
+  private final @Nonnull Annotation annotation;
+
+  FlatBuffersAnnotationInstanceView(
+      @Nonnull FlatBuffersChunkView chunkView,
+      @Nonnull FBNode fbNode,
+      @Nonnull Annotation annotation) {
+    super(chunkView, fbNode);
+    this.annotation = annotation;
+  }
+
+  @Override
+  public Annotation getAnnotationDefinition() {
+    return annotation;
+  }
+
+  @Nonnull
+  @Override
+  public Annotation getClassifier() {
+    return annotation;
+  }
+}
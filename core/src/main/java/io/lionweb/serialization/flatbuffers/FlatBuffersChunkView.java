@@ -0,0 +1,159 @@
+package io.lionweb.serialization.flatbuffers;
+
+import io.lionweb.language.Annotation;
+import io.lionweb.language.Classifier;
+import io.lionweb.language.Concept;
+import io.lionweb.model.ClassifierInstance;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.ClassifierResolver;
+import io.lionweb.serialization.PrimitiveValuesSerialization;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.flatbuffers.gen.FBChunk;
+import io.lionweb.serialization.flatbuffers.gen.FBMetaPointer;
+import io.lionweb.serialization.flatbuffers.gen.FBNode;
+import java.nio.ByteBuffer;
+import java.util.*;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Read-only view over a FlatBuffers chunk. Differently from {@link
+ * io.lionweb.serialization.FlatBuffersSerialization#deserializeToNodes(byte[])}, nothing is copied
+ * when the view is opened: nodes are exposed as {@link FlatBuffersNodeView} and {@link
+ * FlatBuffersAnnotationInstanceView} instances which decode properties, children, and references
+ * directly from the underlying buffer when they are accessed.
+ *
+ * <p>The buffer can be memory-mapped, so that even very large chunks can be opened almost instantly
+ * and only the nodes actually visited are paged in. The index from node IDs to positions in the
+ * chunk is built on the first lookup by ID and then reused.
+ *
+ * <p>Nodes referred to, but not contained in the chunk, are represented as {@link
+ * io.lionweb.model.impl.ProxyNode}s. Views are not thread-safe.
+ */
+public class FlatBuffersChunkView {
+  private final @Nonnull FBChunk chunk;
+  private final @Nonnull ClassifierResolver classifierResolver;
+  private final @Nonnull PrimitiveValuesSerialization primitiveValuesSerialization;
+  private final Map<Integer, FlatBuffersClassifierInstanceView<?>> viewsByIndex = new HashMap<>();
+  private final Map<MetaPointer, Classifier<?>> classifiersCache = new HashMap<>();
+  private @Nullable Map<String, Integer> indexByID = null;
+
+  public FlatBuffersChunkView(
+      @Nonnull ByteBuffer buffer,
+      @Nonnull ClassifierResolver classifierResolver,
+      @Nonnull PrimitiveValuesSerialization primitiveValuesSerialization) {
+    Objects.requireNonNull(buffer, "buffer should not be null");
+    Objects.requireNonNull(classifierResolver, "classifierResolver should not be null");
+    Objects.requireNonNull(
+        primitiveValuesSerialization, "primitiveValuesSerialization should not be null");
+    this.chunk = FBChunk.getRootAsFBChunk(buffer);
+    this.classifierResolver = classifierResolver;
+    this.primitiveValuesSerialization = primitiveValuesSerialization;
+  }
+
+  public @Nullable String getSerializationFormatVersion() {
+    return chunk.serializationFormatVersion();
+  }
+
+  /** Number of classifier instances (nodes and annotation instances) contained in the chunk. */
+  public int size() {
+    return chunk.nodesLength();
+  }
+
+  /** Return the classifier instance at the given position in the chunk. */
+  public @Nonnull ClassifierInstance<?> getClassifierInstance(int index) {
+    if (index < 0 || index >= size()) {
+      throw new IndexOutOfBoundsException("Index " + index + ", size " + size());
+    }
+    FlatBuffersClassifierInstanceView<?> view = viewsByIndex.get(index);
+    if (view == null) {
+      view = createView(chunk.nodes(index));
+      viewsByIndex.put(index, view);
+    }
+    return view;
+  }
+
+  /** Return the classifier instance with the given ID, or null if it is not part of the chunk. */
+  public @Nullable ClassifierInstance<?> getClassifierInstanceByID(@Nonnull String id) {
+    Objects.requireNonNull(id, "id should not be null");
+    Integer index = getIndexByID().get(id);
+    return index == null ? null : getClassifierInstance(index);
+  }
+
+  public boolean contains(@Nonnull String id) {
+    Objects.requireNonNull(id, "id should not be null");
+    return getIndexByID().containsKey(id);
+  }
+
+  /**
+   * Lazy list of all the classifier instances in the chunk, in the order in which they have been
+   * serialized.
+   */
+  public @Nonnull List<ClassifierInstance<?>> getClassifierInstances() {
+    return new AbstractList<ClassifierInstance<?>>() {
+      @Override
+      public ClassifierInstance<?> get(int index) {
+        return getClassifierInstance(index);
+      }
+
+      @Override
+      public int size() {
+        return FlatBuffersChunkView.this.size();
+      }
+    };
+  }
+
+  /** Return the nodes without a parent. This requires reading the parent of every node. */
+  public @Nonnull List<Node> getRoots() {
+    List<Node> roots = new ArrayList<>();
+    FBNode fbNode = new FBNode();
+    for (int i = 0; i < size(); i++) {
+      if (chunk.nodes(fbNode, i).parent() == null) {
+        ClassifierInstance<?> classifierInstance = getClassifierInstance(i);
+        if (classifierInstance instanceof Node) {
+          roots.add((Node) classifierInstance);
+        }
+      }
+    }
+    return roots;
+  }
+
+  @Nonnull
+  PrimitiveValuesSerialization getPrimitiveValuesSerialization() {
+    return primitiveValuesSerialization;
+  }
+
+  @Nonnull
+  private Map<String, Integer> getIndexByID() {
+    if (indexByID == null) {
+      Map<String, Integer> index = new HashMap<>(size() * 4 / 3 + 1);
+      FBNode fbNode = new FBNode();
+      for (int i = 0; i < size(); i++) {
+        String id = chunk.nodes(fbNode, i).id();
+        if (id != null) {
+          index.putIfAbsent(id, i);
+        }
+      }
+      indexByID = index;
+    }
+    return indexByID;
+  }
+
+  private FlatBuffersClassifierInstanceView<?> createView(FBNode fbNode) {
+    FBMetaPointer fbClassifier = fbNode.classifier();
+    if (fbClassifier == null) {
+      throw new IllegalStateException("Classifier should not be null");
+    }
+    MetaPointer metaPointer =
+        MetaPointer.get(fbClassifier.language(), fbClassifier.version(), fbClassifier.key());
+    Classifier<?> classifier =
+        classifiersCache.computeIfAbsent(metaPointer, classifierResolver::resolveClassifier);
+    if (classifier instanceof Concept) {
+      return new FlatBuffersNodeView(this, fbNode, (Concept) classifier);
+    } else if (classifier instanceof Annotation) {
+      return new FlatBuffersAnnotationInstanceView(this, fbNode, (Annotation) classifier);
+    } else {
+      throw new IllegalStateException("Unsupported classifier " + classifier);
+    }
+  }
+}
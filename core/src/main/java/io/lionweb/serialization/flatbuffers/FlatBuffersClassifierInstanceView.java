@@ -0,0 +1,201 @@
+package io.lionweb.serialization.flatbuffers;
+
+import io.lionweb.language.*;
+import io.lionweb.model.AnnotationInstance;
+import io.lionweb.model.ClassifierInstance;
+import io.lionweb.model.Node;
+import io.lionweb.model.ReferenceValue;
+import io.lionweb.model.impl.ProxyNode;
+import io.lionweb.serialization.DeserializationException;
+import io.lionweb.serialization.FlatBuffersSerialization;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.flatbuffers.gen.*;
+import java.util.*;
+import java.util.stream.Collectors;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Base class for the read-only classifier instances exposed by a {@link FlatBuffersChunkView}. All
+ * the values are decoded from the underlying {@link FBNode} every time they are requested, and all
+ * modifications are rejected with an {@link UnsupportedOperationException}.
+ */
+public abstract class FlatBuffersClassifierInstanceView<T extends Classifier<T>>
+    implements ClassifierInstance<T> {
+  protected final @Nonnull FlatBuffersChunkView chunkView;
+  protected final @Nonnull FBNode fbNode;
+
+  protected FlatBuffersClassifierInstanceView(
+      @Nonnull FlatBuffersChunkView chunkView, @Nonnull FBNode fbNode) {
+    this.chunkView = chunkView;
+    this.fbNode = fbNode;
+  }
+
+  @Nullable
+  @Override
+  public String getID() {
+    return fbNode.id();
+  }
+
+  @Nullable
+  @Override
+  public ClassifierInstance<?> getParent() {
+    String parentID = fbNode.parent();
+    if (parentID == null) {
+      return null;
+    }
+    return resolve(parentID);
+  }
+
+  @Nullable
+  @Override
+  public Object getPropertyValue(@Nonnull Property property) {
+    Objects.requireNonNull(property, "Property should not be null");
+    MetaPointer metaPointer = MetaPointer.from(property);
+    for (int i = 0; i < fbNode.propertiesLength(); i++) {
+      FBProperty fbProperty = fbNode.properties(i);
+      if (matches(fbProperty.metaPointer(), metaPointer)) {
+        return chunkView
+            .getPrimitiveValuesSerialization()
+            .deserialize(property.getType(), fbProperty.value(), property.isRequired());
+      }
+    }
+    return null;
+  }
+
+  @Nonnull
+  @Override
+  public List<? extends Node> getChildren(@Nonnull Containment containment) {
+    Objects.requireNonNull(containment, "Containment should not be null");
+    MetaPointer metaPointer = MetaPointer.from(containment);
+    for (int i = 0; i < fbNode.containmentsLength(); i++) {
+      FBContainment fbContainment = fbNode.containments(i);
+      if (matches(fbContainment.metaPointer(), metaPointer)) {
+        List<Node> children = new ArrayList<>(fbContainment.childrenLength());
+        for (int j = 0; j < fbContainment.childrenLength(); j++) {
+          String childID = fbContainment.children(j);
+          if (FlatBuffersSerialization.NULL_CONSTANT.equals(childID)) {
+            throw new DeserializationException("Unable to deserialize child identified by Null ID");
+          }
+          children.add((Node) resolve(childID));
+        }
+        return Collections.unmodifiableList(children);
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  @Nonnull
+  @Override
+  public List<ReferenceValue> getReferenceValues(@Nonnull Reference reference) {
+    Objects.requireNonNull(reference, "Reference should not be null");
+    MetaPointer metaPointer = MetaPointer.from(reference);
+    for (int i = 0; i < fbNode.referencesLength(); i++) {
+      FBReference fbReference = fbNode.references(i);
+      if (matches(fbReference.metaPointer(), metaPointer)) {
+        List<ReferenceValue> values = new ArrayList<>(fbReference.valuesLength());
+        for (int j = 0; j < fbReference.valuesLength(); j++) {
+          FBReferenceValue fbReferenceValue = fbReference.values(j);
+          String referredID = fbReferenceValue.referred();
+          Node referred = referredID == null ? null : (Node) resolve(referredID);
+          values.add(new ReferenceValue(referred, fbReferenceValue.resolveInfo()));
+        }
+        return Collections.unmodifiableList(values);
+      }
+    }
+    return Collections.emptyList();
+  }
+
+  @Nonnull
+  @Override
+  public List<AnnotationInstance> getAnnotations() {
+    List<AnnotationInstance> annotations = new ArrayList<>(fbNode.annotationsLength());
+    for (int i = 0; i < fbNode.annotationsLength(); i++) {
+      annotations.add((AnnotationInstance) resolve(fbNode.annotations(i)));
+    }
+    return Collections.unmodifiableList(annotations);
+  }
+
+  @Nonnull
+  @Override
+  public List<AnnotationInstance> getAnnotations(@Nonnull Annotation annotation) {
+    return getAnnotations().stream()
+        .filter(a -> a.getAnnotationDefinition() == annotation)
+        .collect(Collectors.toList());
+  }
+
+  @Override
+  public void setPropertyValue(@Nonnull Property property, @Nullable Object value) {
+    throw readOnly();
+  }
+
+  @Override
+  public void addChild(@Nonnull Containment containment, @Nonnull Node child) {
+    throw readOnly();
+  }
+
+  @Override
+  public void removeChild(@Nonnull Node node) {
+    throw readOnly();
+  }
+
+  @Override
+  public void removeChild(@Nonnull Containment containment, int index) {
+    throw readOnly();
+  }
+
+  @Override
+  public void addReferenceValue(
+      @Nonnull Reference reference, @Nullable ReferenceValue referredNode) {
+    throw readOnly();
+  }
+
+  @Override
+  public void removeReferenceValue(
+      @Nonnull Reference reference, @Nullable ReferenceValue referenceValue) {
+    throw readOnly();
+  }
+
+  @Override
+  public void removeReferenceValue(@Nonnull Reference reference, int index) {
+    throw readOnly();
+  }
+
+  @Override
+  public void setReferenceValues(
+      @Nonnull Reference reference, @Nonnull List<? extends ReferenceValue> values) {
+    throw readOnly();
+  }
+
+  @Override
+  public void addAnnotation(@Nonnull AnnotationInstance instance) {
+    throw readOnly();
+  }
+
+  @Override
+  public void removeAnnotation(@Nonnull AnnotationInstance instance) {
+    throw readOnly();
+  }
+
+  @Override
+  public String toString() {
+    return getClass().getSimpleName() + "(" + getID() + ")";
+  }
+
+  private ClassifierInstance<?> resolve(@Nonnull String id) {
+    ClassifierInstance<?> classifierInstance = chunkView.getClassifierInstanceByID(id);
+    return classifierInstance == null ? new ProxyNode(id) : classifierInstance;
+  }
+
+  private static boolean matches(@Nullable FBMetaPointer fbMetaPointer, MetaPointer metaPointer) {
+    return fbMetaPointer != null
+        && Objects.equals(fbMetaPointer.key(), metaPointer.getKey())
+        && Objects.equals(fbMetaPointer.language(), metaPointer.getLanguage())
+        && Objects.equals(fbMetaPointer.version(), metaPointer.getVersion());
+  }
+
+  private UnsupportedOperationException readOnly() {
+    return new UnsupportedOperationException(
+        "Nodes read from a FlatBuffers chunk view are read-only (nodeID: " + getID() + ")");
+  }
+}
@@ -0,0 +1,24 @@
+package io.lionweb.serialization.flatbuffers;
+
+import io.lionweb.language.Concept;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.flatbuffers.gen.FBNode;
+import javax.annotation.Nonnull;
+
+/** Read-only {@link Node} backed directly by an {@link FBNode}. */
+public class FlatBuffersNodeView extends FlatBuffersClassifierInstanceView<Concept>
+    implements Node {
+  private final @Nonnull Concept concept;
+
+  FlatBuffersNodeView(
+      @Nonnull FlatBuffersChunkView chunkView, @Nonnull FBNode fbNode, @Nonnull Concept concept) {
+    super(chunkView, fbNode);
+    this.concept = concept;
+  }
+
+  @Nonnull
+  @Override
+  public Concept getClassifier() {
+    return concept;
+  }
+}
@@ -0,0 +1,113 @@
+package io.lionweb.language;
+
+import static org.junit.Assert.*;
+
+import io.lionweb.serialization.data.MetaPointer;
+import java.util.Arrays;
+import org.junit.Test;
+
+public class ClassifierLayoutTest {
+
+  @Test
+  public void layoutIncludesInheritedFeatures() {
+    Language l = new Language("MyLanguage", "l-id", "l-key", "1");
+    Interface i = new Interface(l, "I", "i-id", "i-key");
+    Property name = Property.createRequired("name", LionCoreBuiltins.getString(), "name-id");
+    name.setKey("name-key");
+    i.addFeature(name);
+    Concept a = new Concept(l, "A", "a-id", "a-key");
+    Containment children = Containment.createMultiple("children", a, "children-id");
+    children.setKey("children-key");
+    a.addFeature(children);
+    Concept b = new Concept(l, "B", "b-id", "b-key");
+    b.setExtendedConcept(a);
+    b.addImplementedInterface(i);
+    Reference target = Reference.createOptional("target", a, "target-id");
+    target.setKey("target-key");
+    b.addFeature(target);
+
+    ClassifierLayout layout = b.getLayout();
+    assertEquals(b.allFeatures(), layout.getFeatures());
+    assertEquals(Arrays.asList(name), layout.getProperties());
+    assertEquals(Arrays.asList(children), layout.getContainments());
+    assertEquals(Arrays.asList(target), layout.getReferences());
+    assertEquals(Arrays.asList(target, children), layout.getLinks());
+
+    assertTrue(layout.contains(name));
+    assertTrue(layout.contains(children));
+    assertTrue(layout.contains(target));
+    assertFalse(a.getLayout().contains(target));
+    assertEquals(0, layout.indexOf(name));
+    assertEquals(-1, a.getLayout().indexOf(name));
+
+    assertSame(name, layout.getPropertyByName("name"));
+    assertSame(children, layout.getContainmentByID("children-id"));
+    assertSame(target, layout.getLinkByName("target"));
+    assertNull(layout.getPropertyByName("target"));
+    assertSame(name, layout.getPropertyByMetaPointer(new MetaPointer("l-key", "1", "name-key")));
+    assertNull(layout.getReferenceByMetaPointer(new MetaPointer("l-key", "2", "target-key")));
+  }
+
+  @Test
+  public void layoutIsCachedUntilLanguageElementsChange() {
+    Language l = new Language("MyLanguage", "l-id", "l-key", "1");
+    Concept a = new Concept(l, "A", "a-id", "a-key");
+    Concept b = new Concept(l, "B", "b-id", "b-key");
+    b.setExtendedConcept(a);
+
+    ClassifierLayout layout = b.getLayout();
+    assertSame(layout, b.getLayout());
+    assertTrue(layout.getFeatures().isEmpty());
+
+    Property p1 = Property.createOptional("p1", LionCoreBuiltins.getString(), "p1-id");
+    a.addFeature(p1);
+    assertNotSame(layout, b.getLayout());
+    assertEquals(Arrays.asList(p1), b.getLayout().getProperties());
+
+    Concept c = new Concept(l, "C", "c-id", "c-key");
+    Property p2 = Property.createOptional("p2", LionCoreBuiltins.getString(), "p2-id");
+    c.addFeature(p2);
+    b.setExtendedConcept(c);
+    assertEquals(Arrays.asList(p2), b.getLayout().getProperties());
+
+    p2.setName("renamed");
+    assertSame(p2, b.getPropertyByName("renamed"));
+    assertNull(b.getPropertyByName("p2"));
+
+    c.removeFeature(p2);
+    assertTrue(b.getLayout().getProperties().isEmpty());
+  }
+
+  @Test
+  public void layoutIsKeptWhenUnrelatedLanguagesChange() {
+    Language l1 = new Language("L1", "l1-id", "l1-key", "1");
+    Interface i = new Interface(l1, "I", "i-id", "i-key");
+    Language l2 = new Language("L2", "l2-id", "l2-key", "1");
+    Concept a = new Concept(l2, "A", "a-id", "a-key");
+    a.addImplementedInterface(i);
+    Language other = new Language("Other", "other-id", "other-key", "1");
+    Concept unrelated = new Concept(other, "U", "u-id", "u-key");
+
+    ClassifierLayout layout = a.getLayout();
+    unrelated.addFeature(Property.createOptional("p", LionCoreBuiltins.getString(), "p-id"));
+    other.setVersion("2");
+    assertSame(layout, a.getLayout());
+
+    // Changes to the language of an ancestor are taken into account
+    Property name = Property.createOptional("name", LionCoreBuiltins.getString(), "name-id");
+    i.addFeature(name);
+    assertEquals(Arrays.asList(name), a.getLayout().getProperties());
+
+    // As well as moving the classifier to another language
+    layout = a.getLayout();
+    other.addElement(a);
+    assertNotSame(layout, a.getLayout());
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void layoutIsImmutable() {
+    Language l = new Language("MyLanguage", "l-id", "l-key", "1");
+    Concept a = new Concept(l, "A", "a-id", "a-key");
+    a.getLayout().getFeatures().add(Property.createOptional("p", LionCoreBuiltins.getString()));
+  }
+}
@@ -0,0 +1,251 @@
+package io.lionweb.model.impl;
+
+import static org.junit.Assert.*;
+
+import io.lionweb.language.*;
+import io.lionweb.model.ClassifierInstance;
+import io.lionweb.model.ClassifierInstanceUtils;
+import io.lionweb.model.Node;
+import io.lionweb.model.ReferenceValue;
+import io.lionweb.serialization.DynamicNodeStorage;
+import io.lionweb.serialization.JsonSerialization;
+import io.lionweb.serialization.SerializationProvider;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import org.junit.Test;
+
+public class CompactDynamicNodeTest {
+
+  private final Language language = new Language("L", "l-id", "l-key", "1");
+  private final Concept item = new Concept(language, "Item", "item-id", "item-key");
+  private final Property name =
+      Property.createOptional("name", LionCoreBuiltins.getString(), "item-name-id")
+          .setKey("item-name-key");
+  private final Property flag =
+      Property.createRequired("flag", LionCoreBuiltins.getBoolean(), "item-flag-id")
+          .setKey("item-flag-key");
+  private final Containment items =
+      Containment.createMultiple("items", item, "item-items-id").setKey("item-items-key");
+  private final Containment main =
+      Containment.createOptional("main", item, "item-main-id").setKey("item-main-key");
+  private final Reference refs =
+      Reference.createMultiple("refs", item, "item-refs-id").setKey("item-refs-key");
+  private final Reference ref =
+      Reference.createOptional("ref", item, "item-ref-id").setKey("item-ref-key");
+
+  public CompactDynamicNodeTest() {
+    language.addElement(item);
+    item.addFeature(name);
+    item.addFeature(flag);
+    item.addFeature(items);
+    item.addFeature(main);
+    item.addFeature(refs);
+    item.addFeature(ref);
+  }
+
+  @Test
+  public void properties() {
+    CompactDynamicNode n = new CompactDynamicNode("n", item);
+    assertNull(n.getPropertyValue(name));
+    assertEquals(false, n.getPropertyValue(flag));
+
+    n.setPropertyValue(name, "foo");
+    n.setPropertyValue(flag, true);
+    assertEquals("foo", n.getPropertyValue(name));
+    assertEquals(true, n.getPropertyValue(flag));
+
+    n.setPropertyValue(flag, false);
+    assertEquals(false, n.getPropertyValue(flag));
+    assertEquals(withName("n", "foo"), n);
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void propertiesOfOtherConceptsAreRejected() {
+    Property other = Property.createOptional("other", LionCoreBuiltins.getString(), "other-id");
+    new CompactDynamicNode("n", item).setPropertyValue(other, "foo");
+  }
+
+  @Test
+  public void multipleContainment() {
+    CompactDynamicNode n = new CompactDynamicNode("n", item);
+    CompactDynamicNode c1 = new CompactDynamicNode("c1", item);
+    CompactDynamicNode c2 = new CompactDynamicNode("c2", item);
+    CompactDynamicNode c3 = new CompactDynamicNode("c3", item);
+    assertEquals(Collections.emptyList(), n.getChildren(items));
+
+    n.addChild(items, c1);
+    assertEquals(Arrays.asList(c1), n.getChildren(items));
+    assertSame(n, c1.getParent());
+    n.addChild(items, c2);
+    n.addChild(items, c3);
+    assertEquals(Arrays.asList(c1, c2, c3), n.getChildren(items));
+    assertEquals(Arrays.asList(c1, c2, c3), ClassifierInstanceUtils.getChildren(n));
+
+    n.removeChild(c2);
+    assertNull(c2.getParent());
+    assertEquals(Arrays.asList(c1, c3), n.getChildren(items));
+    n.removeChild(items, 0);
+    assertEquals(Arrays.asList(c3), n.getChildren(items));
+    n.removeChild(c3);
+    assertEquals(Collections.emptyList(), n.getChildren(items));
+    assertThrows(IllegalArgumentException.class, () -> n.removeChild(c3));
+  }
+
+  @Test
+  public void singleContainmentReplacesThePreviousChild() {
+    CompactDynamicNode n = new CompactDynamicNode("n", item);
+    CompactDynamicNode c1 = new CompactDynamicNode("c1", item);
+    CompactDynamicNode c2 = new CompactDynamicNode("c2", item);
+    n.addChild(main, c1);
+    assertEquals(Arrays.asList(c1), n.getChildren(main));
+    n.addChild(main, c2);
+    assertEquals(Arrays.asList(c2), n.getChildren(main));
+    assertNull(c1.getParent());
+    assertSame(n, c2.getParent());
+  }
+
+  @Test
+  public void references() {
+    CompactDynamicNode n = new CompactDynamicNode("n", item);
+    ReferenceValue rv1 = new ReferenceValue(new CompactDynamicNode("t1", item), "t1");
+    ReferenceValue rv2 = new ReferenceValue(null, "t2");
+
+    n.addReferenceValue(ref, rv1);
+    n.addReferenceValue(ref, rv2);
+    assertEquals(Arrays.asList(rv2), n.getReferenceValues(ref));
+    n.addReferenceValue(ref, null);
+    assertEquals(Collections.emptyList(), n.getReferenceValues(ref));
+
+    n.addReferenceValue(refs, rv1);
+    n.addReferenceValue(refs, rv2);
+    assertEquals(Arrays.asList(rv1, rv2), n.getReferenceValues(refs));
+    n.removeReferenceValue(refs, rv1);
+    assertEquals(Arrays.asList(rv2), n.getReferenceValues(refs));
+    n.setReferenceValues(refs, Arrays.asList(rv2, rv1));
+    assertEquals(Arrays.asList(rv2, rv1), n.getReferenceValues(refs));
+    n.removeReferenceValue(refs, 1);
+    assertEquals(Arrays.asList(rv2), n.getReferenceValues(refs));
+    n.setReferenceValues(refs, Collections.emptyList());
+    assertEquals(Collections.emptyList(), n.getReferenceValues(refs));
+  }
+
+  @Test
+  public void nullValuesOfMultipleReferencesAreIgnoredAsInDynamicNode() {
+    ReferenceValue rv = new ReferenceValue(null, "t");
+    CompactDynamicNode compact = new CompactDynamicNode("n", item);
+    DynamicNode dynamic = new DynamicNode("n", item);
+    for (ClassifierInstance<?> n : Arrays.asList(compact, dynamic)) {
+      n.addReferenceValue(refs, rv);
+      n.addReferenceValue(refs, null);
+    }
+    assertEquals(Arrays.asList(rv), compact.getReferenceValues(refs));
+    assertEquals(dynamic.getReferenceValues(refs), compact.getReferenceValues(refs));
+  }
+
+  @Test
+  public void valuesAreKeptWhenFeaturesAreRenamed() {
+    CompactDynamicNode n = withName("n", "foo");
+    n.setPropertyValue(flag, true);
+    name.setName("renamed");
+    assertEquals("foo", n.getPropertyValue(name));
+    assertEquals(true, n.getPropertyValue(flag));
+  }
+
+  @Test(expected = UnsupportedOperationException.class)
+  public void returnedListsCannotBeModified() {
+    CompactDynamicNode n = new CompactDynamicNode("n", item);
+    n.addChild(items, new CompactDynamicNode("c1", item));
+    n.addChild(items, new CompactDynamicNode("c2", item));
+    n.getChildren(items).clear();
+  }
+
+  @Test
+  public void valuesAreKeptWhenTheConceptChanges() {
+    CompactDynamicNode n = withName("n", "foo");
+    CompactDynamicNode c = new CompactDynamicNode("c", item);
+    n.addChild(items, c);
+
+    Property added =
+        Property.createOptional("added", LionCoreBuiltins.getInteger(), "item-added-id")
+            .setKey("item-added-key");
+    Concept base = new Concept(language, "Base", "base-id", "base-key");
+    base.addFeature(added);
+    item.setExtendedConcept(base);
+    item.removeFeature(flag);
+
+    assertEquals("foo", n.getPropertyValue(name));
+    assertNull(n.getPropertyValue(added));
+    assertEquals(Arrays.asList(c), n.getChildren(items));
+    n.setPropertyValue(added, 3);
+    assertEquals(3, n.getPropertyValue(added));
+    assertEquals("foo", n.getPropertyValue(name));
+  }
+
+  @Test
+  public void equality() {
+    CompactDynamicNode n1 = withName("n", "foo");
+    CompactDynamicNode n2 = withName("n", "foo");
+    assertEquals(n1, n2);
+    n1.addChild(items, withName("c", "bar"));
+    assertNotEquals(n1, n2);
+    n2.addChild(items, withName("c", "bar"));
+    assertEquals(n1, n2);
+    n2.setPropertyValue(name, "baz");
+    assertNotEquals(n1, n2);
+  }
+
+  @Test
+  public void annotations() {
+    Annotation note = new Annotation(language, "Note", "note-id", "note-key");
+    note.setAnnotates(item);
+    CompactDynamicNode n1 = new CompactDynamicNode("n1", item);
+    CompactDynamicNode n2 = new CompactDynamicNode("n2", item);
+    DynamicAnnotationInstance a = new DynamicAnnotationInstance("a", note, n1);
+    assertEquals(Arrays.asList(a), n1.getAnnotations());
+    a.setAnnotated(n2);
+    assertEquals(Collections.emptyList(), n1.getAnnotations());
+    assertEquals(Arrays.asList(a), n2.getAnnotations());
+  }
+
+  @Test
+  public void deserializationWithSlotArrays() {
+    DynamicNode root = new DynamicNode("root", item);
+    root.setPropertyValue(name, "root");
+    root.setPropertyValue(flag, true);
+    DynamicNode child1 = new DynamicNode("child1", item);
+    DynamicNode child2 = new DynamicNode("child2", item);
+    root.addChild(items, child1);
+    root.addChild(items, child2);
+    root.addChild(main, new DynamicNode("main", item));
+    child1.addReferenceValue(ref, new ReferenceValue(child2, "child2"));
+    child2.addReferenceValue(refs, new ReferenceValue(root, "root"));
+    child2.addReferenceValue(refs, new ReferenceValue(child1, "child1"));
+
+    JsonSerialization serialization = SerializationProvider.getStandardJsonSerialization();
+    serialization.registerLanguage(language);
+    serialization.enableDynamicNodes(DynamicNodeStorage.SLOT_ARRAYS);
+    List<Node> nodes =
+        serialization.deserializeToNodes(serialization.serializeTreesToJsonString(root));
+    assertEquals(4, nodes.size());
+    for (ClassifierInstance<?> node : nodes) {
+      assertTrue(node instanceof CompactDynamicNode);
+    }
+    Node deserializedRoot = nodes.get(0);
+    assertEquals("root", deserializedRoot.getPropertyValue(name));
+    assertEquals(true, deserializedRoot.getPropertyValue(flag));
+    assertEquals(2, deserializedRoot.getChildren(items).size());
+    Node deserializedChild1 = deserializedRoot.getChildren(items).get(0);
+    Node deserializedChild2 = deserializedRoot.getChildren(items).get(1);
+    assertSame(deserializedRoot, deserializedChild1.getParent());
+    assertSame(deserializedChild2, deserializedChild1.getReferenceValues(ref).get(0).getReferred());
+    assertEquals(2, deserializedChild2.getReferenceValues(refs).size());
+    assertEquals("main", deserializedRoot.getChildren(main).get(0).getID());
+  }
+
+  private CompactDynamicNode withName(String id, String value) {
+    CompactDynamicNode n = new CompactDynamicNode(id, item);
+    n.setPropertyValue(name, value);
+    return n;
+  }
+}
@@ -7,23 +7,32 @@ import io.lionweb.language.*;
 import io.lionweb.model.*;
 import io.lionweb.model.impl.DynamicAnnotationInstance;
 import io.lionweb.model.impl.DynamicNode;
+import io.lionweb.model.impl.ProxyNode;
 import io.lionweb.serialization.data.*;
+import io.lionweb.serialization.flatbuffers.FlatBuffersChunkView;
 import io.lionweb.serialization.refsmm.ContainerNode;
 import io.lionweb.serialization.refsmm.RefNode;
 import io.lionweb.serialization.refsmm.RefsLanguage;
 import io.lionweb.serialization.simplemath.IntLiteral;
 import io.lionweb.serialization.simplemath.SimpleMathLanguage;
 import io.lionweb.serialization.simplemath.Sum;
+import java.io.File;
 import java.io.IOException;
+import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
 import java.util.stream.Collectors;
 import org.junit.Assert;
+import org.junit.Rule;
 import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
 
 /** Testing various functionalities of FlatBuffersSerialization. */
 public class FlatbuffersSerializationTest extends SerializationTest {
 
+  @Rule public TemporaryFolder temporaryFolder = new TemporaryFolder();
+
   private void prepareDeserializationOfSimpleMath(
       FlatBuffersSerialization flatBuffersSerialization) {
     flatBuffersSerialization.getClassifierResolver().registerLanguage(SimpleMathLanguage.INSTANCE);
@@ -455,6 +464,96 @@ public class FlatbuffersSerializationTest extends SerializationTest {
     assertInstancesAreEquals(myLanguage, flatBuffersSerialization.deserializeToNodes(bytes).get(0));
   }
 
+  @Test
+  public void chunkViewExposesNodesWithoutDeserializingThem() {
+    Language l = new Language("l", "l", "l", "1");
+    Concept c = new Concept(l, "c", "c", "c");
+    Annotation a = new Annotation(l, "a", "a", "a");
+    Property name =
+        Property.createRequired("name", LionCoreBuiltins.getString()).setID("n").setKey("n");
+    Containment children = Containment.createMultiple("children", c).setID("ch").setKey("ch");
+    Reference refs = Reference.createMultiple("refs", c).setID("r").setKey("r");
+    c.addFeature(name);
+    c.addFeature(children);
+    c.addFeature(refs);
+
+    DynamicNode root = new DynamicNode("root", c);
+    root.setPropertyValue(name, "Root");
+    DynamicNode child1 = new DynamicNode("child1", c);
+    child1.setPropertyValue(name, "Child 1");
+    DynamicNode child2 = new DynamicNode("child2", c);
+    child2.setPropertyValue(name, "Child 2");
+    root.addChild(children, child1);
+    root.addChild(children, child2);
+    child1.addReferenceValue(refs, new ReferenceValue(child2, "Child 2"));
+    child1.addReferenceValue(refs, new ReferenceValue(new ProxyNode("elsewhere"), "Elsewhere"));
+    new DynamicAnnotationInstance("ann1", a, child2);
+
+    FlatBuffersSerialization serialization =
+        SerializationProvider.getStandardFlatBuffersSerialization();
+    byte[] bytes = serialization.serializeTree(root);
+    serialization.registerLanguage(l);
+    FlatBuffersChunkView view = serialization.openChunkView(bytes);
+
+    assertEquals(4, view.size());
+    assertEquals(
+        Arrays.asList("root", "child1", "child2", "ann1"), ids(view.getClassifierInstances()));
+    Node viewRoot = view.getRoots().get(0);
+    assertEquals(Collections.singletonList(viewRoot), view.getRoots());
+    assertEquals(c, viewRoot.getClassifier());
+    assertEquals("Root", viewRoot.getPropertyValue(name));
+    assertNull(viewRoot.getParent());
+
+    List<? extends Node> viewChildren = viewRoot.getChildren(children);
+    assertEquals(Arrays.asList("child1", "child2"), ids(viewChildren));
+    Node viewChild1 = viewChildren.get(0);
+    Node viewChild2 = viewChildren.get(1);
+    assertSame(viewRoot, viewChild1.getParent());
+    assertSame(viewChild1, view.getClassifierInstanceByID("child1"));
+    assertEquals(children, viewChild1.getContainmentFeature());
+    assertEquals("Child 1", viewChild1.getPropertyValue(name));
+
+    List<ReferenceValue> referenceValues = viewChild1.getReferenceValues(refs);
+    assertEquals(2, referenceValues.size());
+    assertSame(viewChild2, referenceValues.get(0).getReferred());
+    assertEquals("Child 2", referenceValues.get(0).getResolveInfo());
+    assertEquals(new ProxyNode("elsewhere"), referenceValues.get(1).getReferred());
+    assertEquals("Elsewhere", referenceValues.get(1).getResolveInfo());
+    assertEquals(Collections.emptyList(), viewChild2.getReferenceValues(refs));
+
+    AnnotationInstance viewAnn = viewChild2.getAnnotations().get(0);
+    assertEquals(a, viewAnn.getAnnotationDefinition());
+    assertSame(viewChild2, viewAnn.getParent());
+    assertEquals(Collections.singletonList(viewAnn), viewChild2.getAnnotations(a));
+    assertNull(view.getClassifierInstanceByID("elsewhere"));
+
+    assertThrows(
+        UnsupportedOperationException.class, () -> viewChild1.setPropertyValue(name, "Other"));
+    assertThrows(UnsupportedOperationException.class, () -> viewRoot.removeChild(viewChild1));
+  }
+
+  @Test
+  public void chunkViewOverMemoryMappedFile() throws IOException {
+    Sum sum = new Sum(new IntLiteral(1, "int_1"), new IntLiteral(2, "int_2"), "sum");
+    FlatBuffersSerialization serialization =
+        SerializationProvider.getStandardFlatBuffersSerialization();
+    File file = temporaryFolder.newFile("chunk.fb");
+    Files.write(file.toPath(), serialization.serializeTree(sum));
+    serialization.registerLanguage(SimpleMathLanguage.INSTANCE);
+
+    FlatBuffersChunkView view = serialization.openChunkView(file);
+    Node viewSum = (Node) view.getClassifierInstanceByID("sum");
+    assertEquals(SimpleMathLanguage.SUM, viewSum.getClassifier());
+    Node left = viewSum.getChildren(SimpleMathLanguage.SUM.getContainmentByName("left")).get(0);
+    assertEquals("int_1", left.getID());
+    Property value = SimpleMathLanguage.INT_LITERAL.getPropertyByName("value");
+    assertEquals(1, left.getPropertyValue(value));
+  }
+
+  private List<String> ids(List<? extends ClassifierInstance<?>> classifierInstances) {
+    return classifierInstances.stream().map(ClassifierInstance::getID).collect(Collectors.toList());
+  }
+
   private void assertSerializedChunkContainsLanguage(
       SerializedChunk serializedChunk, Language language) {
     assertTrue(
@@ -20,8 +20,12 @@ import io.lionweb.serialization.simplemath.IntLiteral;
 import io.lionweb.serialization.simplemath.SimpleMathLanguage;
 import io.lionweb.serialization.simplemath.Sum;
 import io.lionweb.utils.LanguageValidator;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashSet;
 import java.util.List;
@@ -1081,4 +1085,63 @@ public class JsonSerializationTest extends SerializationTest {
     Language l2unserialized = jsonSerialization.loadLanguage(serializedL2);
     assertInstancesAreEquals(l2, l2unserialized);
   }
+
+  @Test
+  public void serializeTreesToOutputStreamProducesSameOutputAsJsonString() throws IOException {
+    InputStream inputStream = this.getClass().getResourceAsStream("/serialization/lioncore.json");
+    JsonSerialization jsonSerialization =
+        SerializationProvider.getStandardJsonSerialization(LionWebVersion.v2023_1);
+    List<Node> nodes = jsonSerialization.deserializeToNodes(inputStream);
+    Node root = nodes.get(0);
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    jsonSerialization.serializeTreesToOutputStream(outputStream, root);
+    assertEquals(
+        new GsonBuilder()
+            .setPrettyPrinting()
+            .serializeNulls()
+            .create()
+            .toJson(jsonSerialization.serializeTreesToJsonElement(root)),
+        new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+  }
+
+  @Test
+  public void deserializeDeepChainListedLeavesFirst() {
+    Language language = new Language("L", "l-id", "l-key", "1");
+    Concept concept = new Concept(language, "C", "c-id", "c-key");
+    Containment child = Containment.createOptional("child", concept, "c-child-id", "c-child-key");
+    concept.addFeature(child);
+
+    // The chunk lists the deepest node first, which is the worst case for sorting
+    int depth = 20_000;
+    List<SerializedClassifierInstance> instances = new ArrayList<>();
+    for (int i = depth - 1; i >= 0; i--) {
+      SerializedClassifierInstance instance =
+          new SerializedClassifierInstance("n" + i, MetaPointer.from(concept));
+      if (i > 0) {
+        instance.setParentNodeID("n" + (i - 1));
+      }
+      if (i < depth - 1) {
+        instance.addChildren(MetaPointer.from(child), Arrays.asList("n" + (i + 1)));
+      }
+      instances.add(instance);
+    }
+    SerializedChunk chunk = SerializedChunk.fromNodes(LionWebVersion.currentVersion, instances);
+
+    JsonSerialization js = SerializationProvider.getStandardJsonSerialization();
+    js.registerLanguage(language);
+    js.enableDynamicNodes();
+    SerializationMetrics metrics = new SerializationMetrics();
+    js.addListener(metrics);
+    List<ClassifierInstance<?>> deserialized = js.deserializeSerializationChunk(chunk);
+    assertEquals(depth, deserialized.size());
+    Node root = (Node) deserialized.get(depth - 1);
+    assertEquals("n0", root.getID());
+    assertNull(root.getParent());
+    Node leaf = (Node) deserialized.get(0);
+    assertEquals("n" + (depth - 1), leaf.getID());
+    assertEquals("n" + (depth - 2), leaf.getParent().getID());
+    assertEquals(depth, metrics.getNodes(SerializationPhase.SORTING));
+    assertTrue(metrics.getDurationNanos(SerializationPhase.SORTING) > 0);
+  }
 }
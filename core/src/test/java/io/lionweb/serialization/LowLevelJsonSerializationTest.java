@@ -5,8 +5,10 @@ import static io.lionweb.serialization.SerializedJsonComparisonUtils.assertEquiv
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertNull;
 
+import com.google.gson.GsonBuilder;
 import com.google.gson.JsonElement;
 import com.google.gson.JsonParser;
+import com.google.gson.stream.JsonReader;
 import io.lionweb.LionWebVersion;
 import io.lionweb.language.Annotation;
 import io.lionweb.language.Concept;
@@ -18,9 +20,16 @@ import io.lionweb.model.Node;
 import io.lionweb.model.impl.DynamicAnnotationInstance;
 import io.lionweb.model.impl.DynamicNode;
 import io.lionweb.serialization.data.*;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.Arrays;
+import java.util.HashSet;
 import java.util.List;
 import org.junit.Test;
 
@@ -126,6 +135,146 @@ public class LowLevelJsonSerializationTest extends SerializationTest {
     lljs.deserializeSerializationBlock(json);
   }
 
+  @Test
+  public void deserializeLionCoreToSerializedNodesStreaming() throws IOException {
+    assertTheFileIsDeserializedInStreamingCorrectly("/serialization/lioncore.json");
+  }
+
+  @Test
+  public void deserializeBobsLibraryToSerializedNodesStreaming() throws IOException {
+    assertTheFileIsDeserializedInStreamingCorrectly("/serialization/bobslibrary.json");
+  }
+
+  @Test
+  public void deserializeLanguageEngineeringLibraryToSerializedNodesStreaming() throws IOException {
+    assertTheFileIsDeserializedInStreamingCorrectly("/serialization/langeng-library.json");
+  }
+
+  @Test
+  public void serializeToOutputStreamIsIdenticalToPrettyPrintedJson() throws IOException {
+    assertTheFileIsSerializedToOutputStreamIdentically("/serialization/lioncore.json");
+    assertTheFileIsSerializedToOutputStreamIdentically("/serialization/bobslibrary.json");
+    assertTheFileIsSerializedToOutputStreamIdentically("/serialization/langeng-library.json");
+  }
+
+  @Test(expected = RuntimeException.class)
+  public void unexepectedPropertyStreaming() throws IOException {
+    String json =
+        "{\n"
+            + "  \"serializationFormatVersion\": \"1\",\n"
+            + "  \"languages\": [],\n"
+            + "  \"nodes\": [],\n"
+            + "  \"info\": \"should not be here\"\n"
+            + "}";
+    LowLevelJsonSerialization lljs = new LowLevelJsonSerialization();
+    lljs.deserializeSerializationBlock(new StringReader(json), n -> {});
+  }
+
+  @Test(expected = IllegalArgumentException.class)
+  public void missingNodesStreaming() throws IOException {
+    String json =
+        "{\n"
+            + "  \"serializationFormatVersion\": \"1\",\n"
+            + "  \"languages\": []\n"
+            + "}";
+    LowLevelJsonSerialization lljs = new LowLevelJsonSerialization();
+    lljs.deserializeSerializationBlock(new StringReader(json), n -> {});
+  }
+
+  @Test
+  public void embeddedSerializationBlockStreaming() throws IOException {
+    String json =
+        "{\n"
+            + "  \"success\": true,\n"
+            + "  \"chunk\": {\n"
+            + "    \"serializationFormatVersion\": \"2023.1\",\n"
+            + "    \"languages\": [],\n"
+            + "    \"nodes\": [{\"id\": \"n1\", \"classifier\": "
+            + "{\"language\": \"l\", \"version\": \"1\", \"key\": \"c\"}, "
+            + "\"properties\": [], \"containments\": [], \"references\": [], "
+            + "\"annotations\": [], \"parent\": null}]\n"
+            + "  },\n"
+            + "  \"messages\": []\n"
+            + "}";
+    JsonReader jsonReader = new JsonReader(new StringReader(json));
+    jsonReader.beginObject();
+    assertEquals("success", jsonReader.nextName());
+    jsonReader.skipValue();
+    assertEquals("chunk", jsonReader.nextName());
+    List<SerializedClassifierInstance> streamed = new ArrayList<>();
+    SerializedChunk header =
+        new LowLevelJsonSerialization().deserializeSerializationBlock(jsonReader, streamed::add);
+    assertEquals("2023.1", header.getSerializationFormatVersion());
+    assertEquals(1, streamed.size());
+    assertEquals("n1", streamed.get(0).getID());
+    // The reader can be used to read the rest of the document
+    assertEquals("messages", jsonReader.nextName());
+  }
+
+  @Test
+  public void serializeFromIteratorCanBeDeserialized() throws IOException {
+    InputStream inputStream =
+        this.getClass().getResourceAsStream("/serialization/bobslibrary.json");
+    LowLevelJsonSerialization jsonSerialization = new LowLevelJsonSerialization();
+    SerializedChunk expected =
+        jsonSerialization.deserializeSerializationBlock(
+            JsonParser.parseReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8)));
+
+    StringWriter writer = new StringWriter();
+    int written =
+        jsonSerialization.serializeToWriter(
+            expected.getSerializationFormatVersion(),
+            expected.getClassifierInstances().iterator(),
+            writer);
+    assertEquals(expected.getClassifierInstances().size(), written);
+
+    SerializedChunk actual = jsonSerialization.deserializeSerializationBlock(writer.toString());
+    assertEquals(expected.getSerializationFormatVersion(), actual.getSerializationFormatVersion());
+    // The languages are computed from the nodes written
+    expected.populateUsedLanguages();
+    assertEquals(new HashSet<>(expected.getLanguages()), new HashSet<>(actual.getLanguages()));
+    assertEquals(expected.getClassifierInstances(), actual.getClassifierInstances());
+  }
+
+  private void assertTheFileIsDeserializedInStreamingCorrectly(String filePath) throws IOException {
+    InputStream inputStream = this.getClass().getResourceAsStream(filePath);
+    JsonElement jsonElement =
+        JsonParser.parseReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    LowLevelJsonSerialization jsonSerialization = new LowLevelJsonSerialization();
+    SerializedChunk expected = jsonSerialization.deserializeSerializationBlock(jsonElement);
+
+    List<SerializedClassifierInstance> streamed = new ArrayList<>();
+    SerializedChunk header =
+        jsonSerialization.deserializeSerializationBlock(
+            new InputStreamReader(
+                this.getClass().getResourceAsStream(filePath), StandardCharsets.UTF_8),
+            streamed::add);
+    assertEquals(expected.getSerializationFormatVersion(), header.getSerializationFormatVersion());
+    assertEquals(expected.getLanguages(), header.getLanguages());
+    assertEquals(0, header.getClassifierInstances().size());
+    assertEquals(expected.getClassifierInstances(), streamed);
+  }
+
+  private void assertTheFileIsSerializedToOutputStreamIdentically(String filePath)
+      throws IOException {
+    InputStream inputStream = this.getClass().getResourceAsStream(filePath);
+    JsonElement jsonElement =
+        JsonParser.parseReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    LowLevelJsonSerialization jsonSerialization = new LowLevelJsonSerialization();
+    SerializedChunk serializedChunk = jsonSerialization.deserializeSerializationBlock(jsonElement);
+    String expected =
+        new GsonBuilder()
+            .serializeNulls()
+            .setPrettyPrinting()
+            .create()
+            .toJson(jsonSerialization.serializeToJsonElement(serializedChunk));
+
+    ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+    jsonSerialization.serializeToOutputStream(serializedChunk, outputStream);
+    assertEquals(expected, new String(outputStream.toByteArray(), StandardCharsets.UTF_8));
+    assertEquals(expected, jsonSerialization.serializeToJsonString(serializedChunk));
+  }
+
   private void assertTheFileIsReserializedFromLowLevelCorrectly(String filePath) {
     InputStream inputStream = this.getClass().getResourceAsStream(filePath);
     JsonElement jsonElement = JsonParser.parseReader(new InputStreamReader(inputStream));
@@ -0,0 +1,150 @@
+package io.lionweb.serialization;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertTrue;
+
+import io.lionweb.language.*;
+import io.lionweb.model.AnnotationInstance;
+import io.lionweb.model.ClassifierInstance;
+import io.lionweb.model.Node;
+import io.lionweb.model.ReferenceValue;
+import io.lionweb.model.impl.DynamicAnnotationInstance;
+import io.lionweb.model.impl.DynamicNode;
+import io.lionweb.model.impl.ProxyNode;
+import io.lionweb.serialization.data.SerializedChunk;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.stream.Collectors;
+import org.junit.Test;
+
+public class ParallelDeserializationTest {
+
+  private final Language language = new Language("L", "l-id", "l-key", "1");
+  private final Concept item = new Concept(language, "Item", "item-id", "item-key");
+  private final Annotation note = new Annotation(language, "Note", "note-id", "note-key");
+  private final Property name =
+      Property.createRequired("name", LionCoreBuiltins.getString(), "item-name-id")
+          .setKey("item-name-key");
+  private final Containment items =
+      Containment.createMultiple("items", item, "item-items-id").setKey("item-items-key");
+  private final Reference ref =
+      Reference.createMultiple("ref", item, "item-ref-id").setKey("item-ref-key");
+
+  public ParallelDeserializationTest() {
+    item.addFeature(name);
+    item.addFeature(items);
+    item.addFeature(ref);
+    note.setAnnotates(item);
+  }
+
+  @Test
+  public void parallelDeserializationIsIdenticalToSequentialDeserialization() {
+    SerializedChunk chunk = generateChunk(5_000, false);
+
+    JsonSerialization sequential = prepareSerialization();
+    List<ClassifierInstance<?>> expected = sequential.deserializeSerializationChunk(chunk);
+
+    ExecutorService executor = Executors.newFixedThreadPool(4);
+    try {
+      JsonSerialization parallel = prepareSerialization();
+      parallel.enableParallelDeserialization(executor, 4);
+      assertTrue(parallel.isParallelDeserializationEnabled());
+      List<ClassifierInstance<?>> actual = parallel.deserializeSerializationChunk(chunk);
+      assertSameResult(sequential, expected, actual);
+    } finally {
+      executor.shutdown();
+    }
+  }
+
+  @Test
+  public void parallelDeserializationCreatesTheSameProxies() {
+    SerializedChunk chunk = generateChunk(5_000, true);
+
+    JsonSerialization sequential = prepareSerialization();
+    sequential.setUnavailableReferenceTargetPolicy(UnavailableNodePolicy.PROXY_NODES);
+    List<ClassifierInstance<?>> expected = sequential.deserializeSerializationChunk(chunk);
+    assertTrue(expected.stream().anyMatch(n -> n instanceof ProxyNode));
+
+    JsonSerialization parallel = prepareSerialization();
+    parallel.setUnavailableReferenceTargetPolicy(UnavailableNodePolicy.PROXY_NODES);
+    parallel.enableParallelDeserialization();
+    List<ClassifierInstance<?>> actual = parallel.deserializeSerializationChunk(chunk);
+    assertSameResult(sequential, expected, actual);
+
+    parallel.disableParallelDeserialization();
+    assertFalse(parallel.isParallelDeserializationEnabled());
+  }
+
+  @Test(expected = DeserializationException.class)
+  public void parallelDeserializationPropagatesErrors() {
+    SerializedChunk chunk = generateChunk(5_000, true);
+
+    JsonSerialization parallel = prepareSerialization();
+    parallel.enableParallelDeserialization();
+    parallel.deserializeSerializationChunk(chunk);
+  }
+
+  private JsonSerialization prepareSerialization() {
+    JsonSerialization jsonSerialization = SerializationProvider.getStandardJsonSerialization();
+    jsonSerialization.registerLanguage(language);
+    jsonSerialization.enableDynamicNodes();
+    return jsonSerialization;
+  }
+
+  private SerializedChunk generateChunk(int size, boolean withExternalReferences) {
+    Random random = new Random(1);
+    DynamicNode root = new DynamicNode("n0", item);
+    root.setPropertyValue(name, "root");
+    List<DynamicNode> nodes = new ArrayList<>();
+    nodes.add(root);
+    for (int i = 1; i < size; i++) {
+      DynamicNode node = new DynamicNode("n" + i, item);
+      node.setPropertyValue(name, "name-" + random.nextInt(100));
+      nodes.get(random.nextInt(nodes.size())).addChild(items, node);
+      nodes.add(node);
+    }
+    for (DynamicNode node : nodes) {
+      int nReferences = random.nextInt(3);
+      for (int j = 0; j < nReferences; j++) {
+        DynamicNode target = nodes.get(random.nextInt(nodes.size()));
+        String resolveInfo = (String) target.getPropertyValue(name);
+        node.addReferenceValue(ref, new ReferenceValue(target, resolveInfo));
+      }
+      if (withExternalReferences && random.nextInt(10) == 0) {
+        node.addReferenceValue(
+            ref, new ReferenceValue(new ProxyNode("external-" + random.nextInt(50)), "external"));
+      }
+      if (random.nextInt(20) == 0) {
+        node.addAnnotation(new DynamicAnnotationInstance(node.getID() + "-note", note));
+      }
+    }
+    return SerializationProvider.getStandardJsonSerialization()
+        .serializeTreeToSerializationChunk(root);
+  }
+
+  private void assertSameResult(
+      JsonSerialization jsonSerialization,
+      List<ClassifierInstance<?>> expected,
+      List<ClassifierInstance<?>> actual) {
+    assertEquals(ids(expected), ids(actual));
+    for (int i = 0; i < expected.size(); i++) {
+      assertEquals(expected.get(i).getClass(), actual.get(i).getClass());
+      if (expected.get(i) instanceof AnnotationInstance) {
+        assertEquals(expected.get(i).getParent().getID(), actual.get(i).getParent().getID());
+      }
+    }
+    Node expectedRoot = (Node) expected.get(0);
+    Node actualRoot = (Node) actual.get(0);
+    assertEquals(
+        jsonSerialization.serializeTreeToJsonString(expectedRoot),
+        jsonSerialization.serializeTreeToJsonString(actualRoot));
+  }
+
+  private List<String> ids(List<ClassifierInstance<?>> instances) {
+    return instances.stream().map(ClassifierInstance::getID).collect(Collectors.toList());
+  }
+}
@@ -0,0 +1,146 @@
+package io.lionweb.serialization;
+
+import static org.junit.Assert.*;
+
+import io.lionweb.language.*;
+import io.lionweb.model.Node;
+import io.lionweb.model.impl.DynamicNode;
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import org.junit.Test;
+
+public class SerializationListenerTest {
+
+  private final Language language = new Language("L", "l-id", "l-key", "1");
+  private final Concept item = new Concept(language, "Item", "item-id", "item-key");
+  private final Property name =
+      Property.createRequired("name", LionCoreBuiltins.getString(), "item-name-id")
+          .setKey("item-name-key");
+  private final Containment items =
+      Containment.createMultiple("items", item, "item-items-id").setKey("item-items-key");
+
+  public SerializationListenerTest() {
+    language.addElement(item);
+    item.addFeature(name);
+    item.addFeature(items);
+  }
+
+  private Node tree() {
+    DynamicNode root = new DynamicNode("root", item);
+    root.setPropertyValue(name, "root");
+    for (int i = 0; i < 20; i++) {
+      DynamicNode child = new DynamicNode("child-" + i, item);
+      child.setPropertyValue(name, "child-" + (i % 2));
+      root.addChild(items, child);
+    }
+    return root;
+  }
+
+  private <S extends AbstractSerialization> S prepare(S serialization) {
+    serialization.registerLanguage(language);
+    serialization.enableDynamicNodes();
+    return serialization;
+  }
+
+  @Test
+  public void jsonPhasesAreReported() {
+    JsonSerialization serialization = prepare(SerializationProvider.getStandardJsonSerialization());
+    SerializationMetrics metrics = new SerializationMetrics();
+    serialization.addListener(metrics);
+
+    String json = serialization.serializeTreesToJsonString(tree());
+    assertEquals(1, metrics.getInvocations(SerializationPhase.SERIALIZATION));
+    assertEquals(21, metrics.getNodes(SerializationPhase.SERIALIZATION));
+    assertEquals(1, metrics.getInvocations(SerializationPhase.ENCODING));
+
+    List<Node> nodes =
+        serialization.deserializeToNodes(
+            new ByteArrayInputStream(json.getBytes(StandardCharsets.UTF_8)));
+    assertEquals(21, nodes.size());
+    assertEquals(json.getBytes(StandardCharsets.UTF_8).length, metrics.getBytesRead());
+    assertDeserializationPhasesReported(metrics, 21);
+  }
+
+  @Test
+  public void bytesOfJsonStringsAreReportedInUtf8() {
+    JsonSerialization serialization = prepare(SerializationProvider.getStandardJsonSerialization());
+    // Values which take more bytes than chars in UTF-8
+    String json = serialization.serializeTreesToJsonString(tree()).replace("child-", "chïld-");
+    SerializationMetrics metrics = new SerializationMetrics();
+    serialization.addListener(metrics);
+
+    serialization.deserializeToNodes(json);
+    assertEquals(json.getBytes(StandardCharsets.UTF_8).length, metrics.getBytesRead());
+    assertEquals(1, metrics.getInvocations(SerializationPhase.PARSING));
+  }
+
+  @Test
+  public void protoBufPhasesAreReported() throws IOException {
+    ProtoBufSerialization serialization =
+        prepare(SerializationProvider.getStandardProtoBufSerialization());
+    SerializationMetrics metrics = new SerializationMetrics();
+    serialization.addListener(metrics);
+
+    byte[] bytes = serialization.serializeTreesToByteArray(tree());
+    assertEquals(1, metrics.getInvocations(SerializationPhase.ENCODING));
+    assertEquals(21, serialization.deserializeToNodes(bytes).size());
+    assertEquals(bytes.length, metrics.getBytesRead());
+    assertDeserializationPhasesReported(metrics, 21);
+  }
+
+  @Test
+  public void flatBuffersPhasesAreReported() throws IOException {
+    FlatBuffersSerialization serialization =
+        prepare(SerializationProvider.getStandardFlatBuffersSerialization());
+    SerializationMetrics metrics = new SerializationMetrics();
+    serialization.addListener(metrics);
+
+    byte[] bytes = serialization.serializeTreesToByteArray(tree());
+    assertEquals(1, metrics.getInvocations(SerializationPhase.ENCODING));
+    assertEquals(21, serialization.deserializeToNodes(bytes).size());
+    assertEquals(bytes.length, metrics.getBytesRead());
+    assertDeserializationPhasesReported(metrics, 21);
+  }
+
+  @Test
+  public void nothingIsReportedAfterTheListenerIsRemoved() {
+    JsonSerialization serialization = prepare(SerializationProvider.getStandardJsonSerialization());
+    SerializationMetrics metrics = new SerializationMetrics();
+    serialization.addListener(metrics);
+    serialization.removeListener(metrics);
+
+    serialization.deserializeToNodes(serialization.serializeTreesToJsonString(tree()));
+    for (SerializationPhase phase : SerializationPhase.values()) {
+      assertEquals(0, metrics.getInvocations(phase));
+    }
+    assertEquals(0, metrics.getCacheMisses(SerializationListener.Cache.FEATURES));
+  }
+
+  private void assertDeserializationPhasesReported(SerializationMetrics metrics, int nodes) {
+    for (SerializationPhase phase :
+        new SerializationPhase[] {
+          SerializationPhase.PARSING,
+          SerializationPhase.SORTING,
+          SerializationPhase.CLASSIFIER_RESOLUTION,
+          SerializationPhase.PROPERTY_DECODING,
+          SerializationPhase.INSTANTIATION,
+          SerializationPhase.POPULATION
+        }) {
+      assertEquals(phase.name(), 1, metrics.getInvocations(phase));
+      assertEquals(phase.name(), nodes, metrics.getNodes(phase));
+      assertTrue(phase.name(), metrics.getDurationNanos(phase) >= 0);
+    }
+    // The name property and the items containment are looked up for each node, but resolved only
+    // the first time
+    assertEquals(2, metrics.getCacheMisses(SerializationListener.Cache.FEATURES));
+    assertEquals(2 * nodes - 2, metrics.getCacheHits(SerializationListener.Cache.FEATURES));
+    // Only three distinct values are used for the name property
+    assertEquals(3, metrics.getCacheMisses(SerializationListener.Cache.PROPERTY_VALUES));
+    assertEquals(
+        (double) (nodes - 3) / nodes,
+        metrics.getCacheHitRate(SerializationListener.Cache.PROPERTY_VALUES),
+        0.0001);
+  }
+}
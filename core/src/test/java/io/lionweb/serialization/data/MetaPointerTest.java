@@ -0,0 +1,77 @@
+package io.lionweb.serialization.data;
+
+import static org.junit.Assert.*;
+
+import com.google.gson.JsonElement;
+import com.google.gson.JsonParser;
+import io.lionweb.serialization.LowLevelJsonSerialization;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.nio.charset.StandardCharsets;
+import java.util.HashSet;
+import java.util.Set;
+import org.junit.Test;
+
+public class MetaPointerTest {
+
+  @Test
+  public void canonicalInstancesAreShared() {
+    MetaPointer mp1 = MetaPointer.get("my-language", "1", "my-key");
+    MetaPointer mp2 = MetaPointer.get("my-language", "1", "my-key");
+    assertSame(mp1, mp2);
+    assertTrue(mp1.isCanonical());
+    assertNotSame(mp1, MetaPointer.get("my-language", "2", "my-key"));
+  }
+
+  @Test
+  public void canonicalInstancesAreEqualToNonCanonicalOnes() {
+    MetaPointer canonical = MetaPointer.get("my-language", "1", "my-key");
+    MetaPointer other = new MetaPointer("my-language", "1", "my-key");
+    assertFalse(other.isCanonical());
+    assertEquals(canonical, other);
+    assertEquals(other, canonical);
+    assertEquals(canonical.hashCode(), other.hashCode());
+    assertSame(canonical, other.intern());
+    assertSame(canonical, canonical.intern());
+  }
+
+  @Test
+  public void canonicalInstancesCannotBeModified() {
+    MetaPointer canonical = MetaPointer.get("my-language", "1", "my-key");
+    assertThrows(UnsupportedOperationException.class, () -> canonical.setKey("other-key"));
+    assertThrows(UnsupportedOperationException.class, () -> canonical.setVersion("2"));
+    assertThrows(UnsupportedOperationException.class, () -> canonical.setLanguage("other"));
+  }
+
+  @Test
+  public void hashCodeIsUpdatedWhenNonCanonicalInstancesAreModified() {
+    MetaPointer metaPointer = new MetaPointer("my-language", "1", "my-key");
+    int initialHashCode = metaPointer.hashCode();
+    metaPointer.setKey("other-key");
+    assertEquals(new MetaPointer("my-language", "1", "other-key"), metaPointer);
+    assertEquals(
+        new MetaPointer("my-language", "1", "other-key").hashCode(), metaPointer.hashCode());
+    assertNotEquals(initialHashCode, metaPointer.hashCode());
+  }
+
+  @Test
+  public void deserializedChunksUseCanonicalInstances() {
+    InputStream inputStream =
+        this.getClass().getResourceAsStream("/serialization/library-language.json");
+    JsonElement json =
+        JsonParser.parseReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+    SerializedChunk chunk = new LowLevelJsonSerialization().deserializeSerializationBlock(json);
+    Set<MetaPointer> distinct = new HashSet<>();
+    int occurrences = 0;
+    for (SerializedClassifierInstance instance : chunk.getClassifierInstances()) {
+      assertTrue(instance.getClassifier().isCanonical());
+      for (SerializedPropertyValue propertyValue : instance.getProperties()) {
+        assertTrue(propertyValue.getMetaPointer().isCanonical());
+        assertSame(propertyValue.getMetaPointer(), propertyValue.getMetaPointer().intern());
+        distinct.add(propertyValue.getMetaPointer());
+        occurrences++;
+      }
+    }
+    assertTrue(distinct.size() < occurrences);
+  }
+}
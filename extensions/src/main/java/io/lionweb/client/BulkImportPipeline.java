@@ -0,0 +1,269 @@
+package io.lionweb.client;
+
+import io.lionweb.serialization.LowLevelJsonSerialization;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import io.lionweb.serialization.extensions.AdditionalAPIClient;
+import io.lionweb.serialization.extensions.BulkImport;
+import io.lionweb.serialization.extensions.CompressionCodec;
+import io.lionweb.serialization.extensions.TransferFormat;
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Uploads JSON files through bulk imports, parsing files while previous batches are being sent.
+ * Files are parsed by parserThreads threads, which group whole files in batches limited both in
+ * nodes and in bytes, and batches are sent by senderThreads threads. Files waiting to be parsed and
+ * batches waiting to be sent are kept in bounded queues, so that a slow repository slows down the
+ * parsing, instead of filling the memory.
+ *
+ * <p>At the first failure all the threads stop, and the failure is rethrown by {@link
+ * #run(SourceReader)}. Batches sent before the failure are not rolled back.
+ */
+class BulkImportPipeline {
+  private static final long POLL_INTERVAL_MS = 100;
+  private static final Object END = new Object();
+
+  /** A JSON file containing a serialization chunk. */
+  interface Source {
+    long getSize();
+
+    InputStream open() throws IOException;
+  }
+
+  interface SourceReader {
+    /** The next file to upload, or null if there are no more. */
+    @Nullable
+    Source next() throws IOException;
+  }
+
+  private static class Batch {
+    final BulkImport bulkImport = new BulkImport();
+    long bytes;
+  }
+
+  private final @Nonnull AdditionalAPIClient apiClient;
+  private final @Nonnull TransferFormat transferFormat;
+  private final @Nonnull CompressionCodec compression;
+  private final int maxNodes;
+  private final long maxBytes;
+  private final int parserThreads;
+  private final int senderThreads;
+  private final @Nullable Consumer<ImportProgress> progressListener;
+
+  private final BlockingQueue<Object> sources;
+  private final BlockingQueue<Object> batches;
+  private final AtomicReference<Throwable> failure = new AtomicReference<>();
+  private Batch currentBatch = new Batch();
+
+  private final AtomicLong filesParsed = new AtomicLong();
+  private final AtomicLong nodesParsed = new AtomicLong();
+  private final AtomicLong bytesParsed = new AtomicLong();
+  private final AtomicLong batchesSent = new AtomicLong();
+  private final AtomicLong nodesSent = new AtomicLong();
+  private final AtomicLong bytesSent = new AtomicLong();
+  private long start;
+
+  BulkImportPipeline(
+      @Nonnull AdditionalAPIClient apiClient,
+      @Nonnull TransferFormat transferFormat,
+      @Nonnull CompressionCodec compression,
+      int maxNodes,
+      long maxBytes,
+      int parserThreads,
+      int senderThreads,
+      @Nullable Consumer<ImportProgress> progressListener) {
+    this.apiClient = apiClient;
+    this.transferFormat = transferFormat;
+    this.compression = compression;
+    this.maxNodes = maxNodes;
+    this.maxBytes = maxBytes;
+    this.parserThreads = parserThreads;
+    this.senderThreads = senderThreads;
+    this.progressListener = progressListener;
+    this.sources = new ArrayBlockingQueue<>(parserThreads * 2);
+    this.batches = new ArrayBlockingQueue<>(senderThreads);
+  }
+
+  /** Upload all the files returned by the reader, which is invoked by the calling thread. */
+  void run(@Nonnull SourceReader reader) throws IOException {
+    start = System.nanoTime();
+    AtomicInteger counter = new AtomicInteger();
+    ExecutorService executor =
+        Executors.newFixedThreadPool(
+            parserThreads + senderThreads,
+            runnable -> {
+              Thread thread =
+                  new Thread(runnable, "lionweb-bulk-import-" + counter.incrementAndGet());
+              thread.setDaemon(true);
+              return thread;
+            });
+    try {
+      List<Future<?>> parsers = new ArrayList<>();
+      for (int i = 0; i < parserThreads; i++) {
+        parsers.add(executor.submit(() -> runCatchingFailures(this::parse)));
+      }
+      List<Future<?>> senders = new ArrayList<>();
+      for (int i = 0; i < senderThreads; i++) {
+        senders.add(executor.submit(() -> runCatchingFailures(this::send)));
+      }
+
+      runCatchingFailures(
+          () -> {
+            Source source;
+            while (failure.get() == null && (source = reader.next()) != null) {
+              put(sources, source);
+            }
+          });
+      for (int i = 0; i < parserThreads; i++) {
+        put(sources, END);
+      }
+      awaitAll(parsers);
+
+      // The last batch is not full, so it has not been queued by the parsers
+      if (!currentBatch.bulkImport.isEmpty()) {
+        put(batches, currentBatch);
+      }
+      for (int i = 0; i < senderThreads; i++) {
+        put(batches, END);
+      }
+      awaitAll(senders);
+    } finally {
+      executor.shutdownNow();
+    }
+
+    Throwable t = failure.get();
+    if (t instanceof IOException) {
+      throw (IOException) t;
+    } else if (t instanceof RuntimeException) {
+      throw (RuntimeException) t;
+    } else if (t instanceof Error) {
+      throw (Error) t;
+    } else if (t != null) {
+      throw new IOException(t);
+    }
+    reportProgress();
+  }
+
+  private interface Task {
+    void run() throws Exception;
+  }
+
+  private void runCatchingFailures(Task task) {
+    try {
+      task.run();
+    } catch (Throwable t) {
+      failure.compareAndSet(null, t);
+    }
+  }
+
+  private void parse() throws IOException {
+    LowLevelJsonSerialization serialization = new LowLevelJsonSerialization();
+    Object element;
+    while ((element = take(sources)) != END && element != null) {
+      Source source = (Source) element;
+      List<SerializedClassifierInstance> nodes = new ArrayList<>();
+      try (Reader reader =
+          new BufferedReader(new InputStreamReader(source.open(), StandardCharsets.UTF_8))) {
+        serialization.deserializeSerializationBlock(reader, nodes::add);
+      }
+      filesParsed.incrementAndGet();
+      nodesParsed.addAndGet(nodes.size());
+      bytesParsed.addAndGet(source.getSize());
+
+      Batch full = null;
+      synchronized (this) {
+        currentBatch.bulkImport.addNodes(nodes);
+        currentBatch.bytes += source.getSize();
+        if (currentBatch.bulkImport.numberOfNodes() >= maxNodes
+            || currentBatch.bytes >= maxBytes) {
+          full = currentBatch;
+          currentBatch = new Batch();
+        }
+      }
+      if (full != null) {
+        put(batches, full);
+      }
+    }
+  }
+
+  private void send() throws IOException {
+    Object element;
+    while ((element = take(batches)) != END && element != null) {
+      Batch batch = (Batch) element;
+      apiClient.bulkImport(batch.bulkImport, transferFormat, compression);
+      batchesSent.incrementAndGet();
+      nodesSent.addAndGet(batch.bulkImport.numberOfNodes());
+      bytesSent.addAndGet(batch.bytes);
+      reportProgress();
+    }
+  }
+
+  private void reportProgress() {
+    if (progressListener != null) {
+      progressListener.accept(
+          new ImportProgress(
+              filesParsed.get(),
+              nodesParsed.get(),
+              bytesParsed.get(),
+              batchesSent.get(),
+              nodesSent.get(),
+              bytesSent.get(),
+              System.nanoTime() - start));
+    }
+  }
+
+  /** Wait for space in the queue, giving up if the pipeline failed. */
+  private void put(BlockingQueue<Object> queue, Object element) {
+    try {
+      while (!queue.offer(element, POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) {
+        if (failure.get() != null) {
+          return;
+        }
+      }
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, new InterruptedIOException("The bulk import was interrupted"));
+    }
+  }
+
+  /** Wait for an element of the queue, returning null if the pipeline failed. */
+  private @Nullable Object take(BlockingQueue<Object> queue) {
+    try {
+      Object element;
+      while ((element = queue.poll(POLL_INTERVAL_MS, TimeUnit.MILLISECONDS)) == null) {
+        if (failure.get() != null) {
+          return null;
+        }
+      }
+      return element;
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      failure.compareAndSet(null, new InterruptedIOException("The bulk import was interrupted"));
+      return null;
+    }
+  }
+
+  private void awaitAll(List<Future<?>> futures) {
+    for (Future<?> future : futures) {
+      try {
+        future.get();
+      } catch (InterruptedException e) {
+        Thread.currentThread().interrupt();
+        failure.compareAndSet(null, new InterruptedIOException("The bulk import was interrupted"));
+        return;
+      } catch (ExecutionException e) {
+        // Not expected, as the tasks catch all the failures
+        failure.compareAndSet(null, e.getCause());
+      }
+    }
+  }
+}
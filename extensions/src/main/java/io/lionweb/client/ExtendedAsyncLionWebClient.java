@@ -0,0 +1,36 @@
+package io.lionweb.client;
+
+import io.lionweb.client.impl.ClientConfiguration;
+import io.lionweb.client.impl.ClientForAsyncAdditionalAPIs;
+import io.lionweb.serialization.extensions.*;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Non-blocking view of an {@link ExtendedLionWebClient}. It can be obtained through {@link
+ * ExtendedLionWebClient#async()}.
+ */
+public class ExtendedAsyncLionWebClient extends AsyncLionWebClient
+    implements AsyncAdditionalAPIClient {
+
+  private final ClientForAsyncAdditionalAPIs additionalAPIs;
+
+  public ExtendedAsyncLionWebClient(@Nonnull ClientConfiguration clientConfiguration) {
+    super(clientConfiguration);
+    this.additionalAPIs = new ClientForAsyncAdditionalAPIs(clientConfiguration);
+  }
+
+  @Override
+  public CompletableFuture<Void> bulkImport(
+      @Nonnull BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec compression) {
+    return additionalAPIs.bulkImport(bulkImport, transferFormat, compression);
+  }
+
+  @Override
+  public CompletableFuture<List<NodeInfo>> getNodeTree(
+      List<String> nodeIDs, @Nullable Integer depthLimit) {
+    return additionalAPIs.getNodeTree(nodeIDs, depthLimit);
+  }
+}
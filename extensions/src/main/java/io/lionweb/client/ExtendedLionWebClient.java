@@ -6,36 +6,39 @@ import io.lionweb.client.impl.ClientForAdditionalAPIs;
 import io.lionweb.serialization.extensions.*;
 import io.lionweb.serialization.extensions.AdditionalAPIClient;
 import io.lionweb.serialization.extensions.BulkImport;
-import io.lionweb.serialization.extensions.Compression;
+import io.lionweb.serialization.extensions.CompressionCodec;
 import java.io.IOException;
 import java.util.List;
+import java.util.concurrent.Executor;
+import java.util.concurrent.ForkJoinPool;
 import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 public class ExtendedLionWebClient extends LionWebClient implements AdditionalAPIClient {
 
   private final ClientForAdditionalAPIs additionalAPIs;
+  private final ExtendedAsyncLionWebClient asyncClient;
 
-  public class Builder extends LionWebClient.Builder {
+  public static class Builder extends LionWebClient.Builder {
     @Override
     public ExtendedLionWebClient build() {
-      return new ExtendedLionWebClient(
-          lionWebVersion,
-          hostname,
-          port,
-          authorizationToken,
-          clientID,
-          repository,
-          connectTimeoutInSeconds,
-          callTimeoutInSeconds);
+      return new ExtendedLionWebClient(this);
     }
   }
 
+  protected ExtendedLionWebClient(@Nonnull LionWebClient.Builder builder) {
+    super(builder);
+    ClientConfiguration conf = buildRepositoryConfiguration();
+    this.additionalAPIs = new ClientForAdditionalAPIs(conf);
+    this.asyncClient = new ExtendedAsyncLionWebClient(conf);
+  }
+
   public ExtendedLionWebClient(
       LionWebVersion lionWebVersion, String hostname, int port, String repository) {
     super(lionWebVersion, hostname, port, repository);
     ClientConfiguration conf = buildRepositoryConfiguration();
     this.additionalAPIs = new ClientForAdditionalAPIs(conf);
+    this.asyncClient = new ExtendedAsyncLionWebClient(conf);
   }
 
   public ExtendedLionWebClient(
@@ -47,6 +50,52 @@ public class ExtendedLionWebClient extends LionWebClient implements AdditionalAP
       String repository,
       long connectTimeoutInSeconds,
       long callTimeoutInSeconds) {
+    this(
+        lionWebVersion,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        connectTimeoutInSeconds,
+        callTimeoutInSeconds,
+        ForkJoinPool.commonPool());
+  }
+
+  public ExtendedLionWebClient(
+      LionWebVersion lionWebVersion,
+      String hostname,
+      int port,
+      String authorizationToken,
+      String clientID,
+      String repository,
+      long connectTimeoutInSeconds,
+      long callTimeoutInSeconds,
+      Executor processingExecutor) {
+    this(
+        lionWebVersion,
+        hostname,
+        port,
+        authorizationToken,
+        clientID,
+        repository,
+        connectTimeoutInSeconds,
+        callTimeoutInSeconds,
+        processingExecutor,
+        RetrieveBatching.DISABLED);
+  }
+
+  public ExtendedLionWebClient(
+      LionWebVersion lionWebVersion,
+      String hostname,
+      int port,
+      String authorizationToken,
+      String clientID,
+      String repository,
+      long connectTimeoutInSeconds,
+      long callTimeoutInSeconds,
+      Executor processingExecutor,
+      RetrieveBatching retrieveBatching) {
     super(
         lionWebVersion,
         hostname,
@@ -55,14 +104,22 @@ public class ExtendedLionWebClient extends LionWebClient implements AdditionalAP
         clientID,
         repository,
         connectTimeoutInSeconds,
-        callTimeoutInSeconds);
+        callTimeoutInSeconds,
+        processingExecutor,
+        retrieveBatching);
     ClientConfiguration conf = buildRepositoryConfiguration();
     this.additionalAPIs = new ClientForAdditionalAPIs(conf);
+    this.asyncClient = new ExtendedAsyncLionWebClient(conf);
+  }
+
+  @Override
+  public @Nonnull ExtendedAsyncLionWebClient async() {
+    return asyncClient;
   }
 
   @Override
   public void bulkImport(
-      @Nonnull BulkImport bulkImport, TransferFormat transferFormat, Compression compression)
+      @Nonnull BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec compression)
       throws IOException {
     additionalAPIs.bulkImport(bulkImport, transferFormat, compression);
   }
@@ -0,0 +1,96 @@
+package io.lionweb.client;
+
+/**
+ * Progress of an upload performed by {@link RepoSerialization} through bulk imports. Instances are
+ * immutable snapshots. The sizes are those of the JSON files read, not of the requests sent.
+ */
+public class ImportProgress {
+  private final long filesParsed;
+  private final long nodesParsed;
+  private final long bytesParsed;
+  private final long batchesSent;
+  private final long nodesSent;
+  private final long bytesSent;
+  private final long elapsedNanos;
+
+  public ImportProgress(
+      long filesParsed,
+      long nodesParsed,
+      long bytesParsed,
+      long batchesSent,
+      long nodesSent,
+      long bytesSent,
+      long elapsedNanos) {
+    this.filesParsed = filesParsed;
+    this.nodesParsed = nodesParsed;
+    this.bytesParsed = bytesParsed;
+    this.batchesSent = batchesSent;
+    this.nodesSent = nodesSent;
+    this.bytesSent = bytesSent;
+    this.elapsedNanos = elapsedNanos;
+  }
+
+  public long getFilesParsed() {
+    return filesParsed;
+  }
+
+  public long getNodesParsed() {
+    return nodesParsed;
+  }
+
+  public long getBytesParsed() {
+    return bytesParsed;
+  }
+
+  /** Number of bulk imports completed. */
+  public long getBatchesSent() {
+    return batchesSent;
+  }
+
+  public long getNodesSent() {
+    return nodesSent;
+  }
+
+  public long getBytesSent() {
+    return bytesSent;
+  }
+
+  /** Time passed since the upload started. */
+  public long getElapsedNanos() {
+    return elapsedNanos;
+  }
+
+  /** Average number of nodes sent per second since the upload started. */
+  public double getNodesPerSecond() {
+    return perSecond(nodesSent);
+  }
+
+  /** Average number of bytes sent per second since the upload started. */
+  public double getBytesPerSecond() {
+    return perSecond(bytesSent);
+  }
+
+  private double perSecond(long value) {
+    return elapsedNanos == 0 ? 0 : value * 1_000_000_000.0 / elapsedNanos;
+  }
+
+  @Override
+  public String toString() {
+    return "ImportProgress{"
+        + "filesParsed="
+        + filesParsed
+        + ", nodesParsed="
+        + nodesParsed
+        + ", bytesParsed="
+        + bytesParsed
+        + ", batchesSent="
+        + batchesSent
+        + ", nodesSent="
+        + nodesSent
+        + ", bytesSent="
+        + bytesSent
+        + ", elapsedNanos="
+        + elapsedNanos
+        + '}';
+  }
+}
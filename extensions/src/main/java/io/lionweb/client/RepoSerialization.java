@@ -8,69 +8,413 @@ import io.lionweb.serialization.LowLevelJsonSerialization;
 import io.lionweb.serialization.data.SerializedChunk;
 import io.lionweb.serialization.data.SerializedClassifierInstance;
 import io.lionweb.serialization.extensions.AdditionalAPIClient;
-import io.lionweb.serialization.extensions.BulkImport;
 import io.lionweb.serialization.extensions.Compression;
+import io.lionweb.serialization.extensions.CompressionCodec;
 import io.lionweb.serialization.extensions.TransferFormat;
 import java.io.*;
+import java.lang.reflect.Method;
 import java.nio.charset.StandardCharsets;
 import java.nio.file.Files;
 import java.nio.file.Path;
-import java.nio.file.StandardOpenOption;
 import java.util.Collections;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 import java.util.stream.Collectors;
 import java.util.stream.Stream;
 import java.util.zip.ZipEntry;
 import java.util.zip.ZipInputStream;
 import java.util.zip.ZipOutputStream;
+import javax.annotation.Nullable;
 import kotlin.text.Charsets;
 
 /** This class contains the logic to store and retrieve entire repositories at once. */
 public class RepoSerialization {
   private int numberOfNodesThreshold = 100_000;
   private TransferFormat transferFormat = TransferFormat.FLATBUFFERS;
-  private Compression compression = Compression.DISABLED;
+  private CompressionCodec compression = Compression.DISABLED;
+  private long bytesThreshold = 64L * 1024 * 1024;
+  private int parserThreads = 1;
+  private int senderThreads = 1;
+  private @Nullable Consumer<ImportProgress> progressListener;
+  private int downloadConcurrency = 1;
+  private @Nullable File downloadTemporaryDirectory;
+
+  public int getNumberOfNodesThreshold() {
+    return numberOfNodesThreshold;
+  }
+
+  /** Maximum number of nodes sent by each bulk import. */
+  public void setNumberOfNodesThreshold(int numberOfNodesThreshold) {
+    if (numberOfNodesThreshold < 1) {
+      throw new IllegalArgumentException("numberOfNodesThreshold should be at least 1");
+    }
+    this.numberOfNodesThreshold = numberOfNodesThreshold;
+  }
+
+  public long getBytesThreshold() {
+    return bytesThreshold;
+  }
+
+  /**
+   * Maximum size of the JSON files sent by each bulk import, in bytes. A single file larger than
+   * this is sent by itself.
+   */
+  public void setBytesThreshold(long bytesThreshold) {
+    if (bytesThreshold < 1) {
+      throw new IllegalArgumentException("bytesThreshold should be at least 1");
+    }
+    this.bytesThreshold = bytesThreshold;
+  }
+
+  public int getParserThreads() {
+    return parserThreads;
+  }
+
+  /** Number of threads parsing the files to upload through bulk imports. */
+  public void setParserThreads(int parserThreads) {
+    if (parserThreads < 1) {
+      throw new IllegalArgumentException("parserThreads should be at least 1");
+    }
+    this.parserThreads = parserThreads;
+  }
+
+  public int getSenderThreads() {
+    return senderThreads;
+  }
+
+  /**
+   * Number of bulk imports performed at the same time. When higher than one, the apiClient must be
+   * thread-safe.
+   */
+  public void setSenderThreads(int senderThreads) {
+    if (senderThreads < 1) {
+      throw new IllegalArgumentException("senderThreads should be at least 1");
+    }
+    this.senderThreads = senderThreads;
+  }
+
+  /**
+   * Listener notified of the progress of the uploads performed through bulk imports, after each
+   * bulk import and at the end. It is invoked by the threads sending the bulk imports, so it must
+   * be thread-safe.
+   */
+  public void setProgressListener(@Nullable Consumer<ImportProgress> progressListener) {
+    this.progressListener = progressListener;
+  }
+
+  public TransferFormat getTransferFormat() {
+    return transferFormat;
+  }
+
+  /** Format used by the bulk imports. */
+  public void setTransferFormat(TransferFormat transferFormat) {
+    this.transferFormat = Objects.requireNonNull(transferFormat);
+  }
+
+  public int getDownloadConcurrency() {
+    return downloadConcurrency;
+  }
+
+  /** Maximum number of partitions downloaded at the same time. */
+  public void setDownloadConcurrency(int downloadConcurrency) {
+    if (downloadConcurrency < 1) {
+      throw new IllegalArgumentException("downloadConcurrency should be at least 1");
+    }
+    this.downloadConcurrency = downloadConcurrency;
+  }
+
+  public @Nullable File getDownloadTemporaryDirectory() {
+    return downloadTemporaryDirectory;
+  }
+
+  /**
+   * Directory where the partitions downloaded into a zip file are kept until they are added to it.
+   * When null, the default temporary directory is used.
+   */
+  public void setDownloadTemporaryDirectory(@Nullable File downloadTemporaryDirectory) {
+    this.downloadTemporaryDirectory = downloadTemporaryDirectory;
+  }
+
+  public CompressionCodec getCompression() {
+    return compression;
+  }
+
+  /**
+   * Compression used by the bulk imports. A {@link
+   * io.lionweb.serialization.extensions.DictionaryDeflateCodec} trained on the partitions being
+   * uploaded is typically the most effective.
+   */
+  public void setCompression(CompressionCodec compression) {
+    this.compression = Objects.requireNonNull(compression);
+  }
 
   /**
    * Download all the content of the repository accessed by the apiClient into a directory. In this
    * directory one file per partition is created. The file is in JSON format.
+   *
+   * <p>Up to {@link #getDownloadConcurrency()} partitions are downloaded at the same time, so the
+   * apiClient must be thread-safe. Each partition is written to its file while it is received.
    */
   public <C extends JSONLevelBulkAPIClient & BulkAPIClient> void downloadRepoAsDirectory(
       C apiClient, File directory) throws IOException {
-    for (String partitionID : apiClient.listPartitionsIDs()) {
-      String partitionData =
-          apiClient.rawRetrieve(Collections.singletonList(partitionID), Integer.MAX_VALUE);
-      File partitionFile = new File(directory, partitionID + ".json");
-      Files.write(
-          partitionFile.toPath(),
-          Collections.singletonList(partitionData),
-          StandardOpenOption.CREATE,
-          StandardOpenOption.TRUNCATE_EXISTING);
-    }
+    downloadPartitions(
+        apiClient,
+        partitionID -> {
+          File partitionFile = new File(directory, partitionID + ".json");
+          try (OutputStream os = new BufferedOutputStream(new FileOutputStream(partitionFile))) {
+            apiClient.rawRetrieve(Collections.singletonList(partitionID), Integer.MAX_VALUE, os);
+            // Files have always been terminated by a line separator
+            os.write(System.lineSeparator().getBytes(StandardCharsets.UTF_8));
+          }
+        });
   }
 
   /**
    * Download all the content of the repository accessed by the apiClient into a zip file. In this
    * zip file, one entry per partition is created. The entry is in JSON format.
+   *
+   * <p>Up to {@link #getDownloadConcurrency()} partitions are downloaded at the same time, so the
+   * apiClient must be thread-safe. Each partition is written to a temporary file while it is
+   * received, in {@link #getDownloadTemporaryDirectory()}, so that the memory used does not depend
+   * on the size of the partitions. The zip file is written by the invoking thread, which receives
+   * the downloaded partitions through a bounded queue and streams each temporary file into its
+   * entry, so that at most about twice as many temporary files as the concurrency exist at a time.
    */
   public <C extends JSONLevelBulkAPIClient & BulkAPIClient> void downloadRepoAsZip(
       C apiClient, File zipFile) throws IOException {
     try (FileOutputStream fos = new FileOutputStream(zipFile);
         BufferedOutputStream bos = new BufferedOutputStream(fos);
         ZipOutputStream zos = new ZipOutputStream(bos)) {
+      BlockingQueue<DownloadedPartition> downloaded = new ArrayBlockingQueue<>(downloadConcurrency);
+      AtomicBoolean stopped = new AtomicBoolean();
+      // Set when the partitions are not taken from the queue anymore
+      AtomicBoolean abandoned = new AtomicBoolean();
+      // The temporary files not yet added to the zip file
+      Set<Path> temporaryFiles = ConcurrentHashMap.newKeySet();
+      Downloads downloads =
+          downloadPartitionsInBackground(
+              apiClient,
+              partitionID -> {
+                Path file = createTemporaryFile();
+                // Registered before checking abandoned, so that either this worker or the writing
+                // thread deletes the file
+                temporaryFiles.add(file);
+                try {
+                  try (OutputStream os = new BufferedOutputStream(Files.newOutputStream(file))) {
+                    apiClient.rawRetrieve(
+                        Collections.singletonList(partitionID), Integer.MAX_VALUE, os);
+                  }
+                  put(downloaded, new DownloadedPartition(partitionID, file), abandoned);
+                } catch (IOException | RuntimeException | Error e) {
+                  deleteTemporaryFile(file, temporaryFiles);
+                  throw e;
+                }
+              },
+              () -> put(downloaded, DownloadedPartition.END, abandoned),
+              stopped);
+      DownloadedPartition partition = null;
+      try {
+        while ((partition = takeInterruptibly(downloaded)) != DownloadedPartition.END) {
+          try {
+            ZipEntry entry = new ZipEntry(partition.partitionID + ".json");
+            zos.putNextEntry(entry);
+            Files.copy(partition.file, zos);
+            zos.closeEntry();
+          } finally {
+            deleteTemporaryFile(partition.file, temporaryFiles);
+          }
+        }
+      } finally {
+        if (partition != DownloadedPartition.END) {
+          // Writing failed, possibly because this thread was interrupted: nobody will take what
+          // the workers produce, so they are stopped and what they downloaded is deleted
+          abandoned.set(true);
+          downloads.cancel();
+          for (Path file : temporaryFiles) {
+            deleteTemporaryFile(file, temporaryFiles);
+          }
+        }
+      }
+      getDownloadResult(downloads.result);
+    }
+  }
+
+  private Path createTemporaryFile() throws IOException {
+    return downloadTemporaryDirectory == null
+        ? Files.createTempFile("lionweb-partition-", ".json")
+        : Files.createTempFile(downloadTemporaryDirectory.toPath(), "lionweb-partition-", ".json");
+  }
+
+  /** Delete the file, ignoring failures, as they should not hide the outcome of the download. */
+  private static void deleteTemporaryFile(Path file, Set<Path> temporaryFiles) {
+    temporaryFiles.remove(file);
+    try {
+      Files.deleteIfExists(file);
+    } catch (IOException e) {
+      file.toFile().deleteOnExit();
+    }
+  }
+
+  private interface PartitionDownloader {
+    void download(String partitionID) throws IOException;
+  }
 
-      for (String partitionID : apiClient.listPartitionsIDs()) {
-        String partitionData =
-            apiClient.rawRetrieve(Collections.singletonList(partitionID), Integer.MAX_VALUE);
+  private interface Completion {
+    void run() throws IOException;
+  }
+
+  private <C extends JSONLevelBulkAPIClient & BulkAPIClient> void downloadPartitions(
+      C apiClient, PartitionDownloader downloader) throws IOException {
+    getDownloadResult(
+        downloadPartitionsInBackground(apiClient, downloader, () -> {}, new AtomicBoolean())
+            .result);
+  }
+
+  /** Downloads performed by background workers. */
+  private static class Downloads {
+    final ExecutorService executor;
+    final AtomicBoolean stopped;
+    /** Completed once all the workers terminated, reporting the first failure. */
+    final CompletableFuture<Void> result = new CompletableFuture<>();
 
-        ZipEntry entry = new ZipEntry(partitionID + ".json");
-        zos.putNextEntry(entry);
+    Downloads(ExecutorService executor, AtomicBoolean stopped) {
+      this.executor = executor;
+      this.stopped = stopped;
+    }
+
+    /** Stop the workers, interrupting those which are waiting. */
+    void cancel() {
+      stopped.set(true);
+      executor.shutdownNow();
+    }
+  }
 
-        byte[] dataBytes = partitionData.getBytes(StandardCharsets.UTF_8);
-        zos.write(dataBytes, 0, dataBytes.length);
+  /**
+   * Download the partitions using up to downloadConcurrency workers, which take the partitions
+   * from a shared queue. The workers stop at the first failure or when stopped is set. The
+   * completion is invoked once all the workers terminated, also in case of failure.
+   */
+  private <C extends JSONLevelBulkAPIClient & BulkAPIClient>
+      Downloads downloadPartitionsInBackground(
+          C apiClient, PartitionDownloader downloader, Completion completion, AtomicBoolean stopped)
+          throws IOException {
+    Queue<String> partitionIDs = new ConcurrentLinkedQueue<>(apiClient.listPartitionsIDs());
+    int workers = Math.max(1, Math.min(downloadConcurrency, partitionIDs.size()));
+    Downloads downloads = new Downloads(newDownloadExecutor(workers), stopped);
+    CompletableFuture<Void> result = downloads.result;
+    CountDownLatch running = new CountDownLatch(workers);
+    for (int i = 0; i < workers; i++) {
+      downloads.executor.execute(
+          () -> {
+            try {
+              String partitionID;
+              while (!stopped.get() && (partitionID = partitionIDs.poll()) != null) {
+                downloader.download(partitionID);
+              }
+            } catch (Throwable t) {
+              stopped.set(true);
+              result.completeExceptionally(t);
+            } finally {
+              running.countDown();
+              if (running.getCount() == 0) {
+                try {
+                  completion.run();
+                  result.complete(null);
+                } catch (Throwable t) {
+                  result.completeExceptionally(t);
+                }
+              }
+            }
+          });
+    }
+    downloads.executor.shutdown();
+    return downloads;
+  }
 
-        zos.closeEntry();
+  private static void getDownloadResult(Future<?> downloads) throws IOException {
+    try {
+      downloads.get();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading the partitions");
+    } catch (ExecutionException e) {
+      Throwable cause = e.getCause();
+      if (cause instanceof IOException) {
+        throw (IOException) cause;
+      } else if (cause instanceof RuntimeException) {
+        throw (RuntimeException) cause;
+      } else if (cause instanceof Error) {
+        throw (Error) cause;
       }
+      throw new IOException(cause);
+    }
+  }
+
+  /**
+   * Downloads mostly wait for the repository, so virtual threads are used when available (JDK 21
+   * and later). Otherwise, one platform thread per worker is used.
+   */
+  private static ExecutorService newDownloadExecutor(int workers) {
+    try {
+      Method factory = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+      return (ExecutorService) factory.invoke(null);
+    } catch (ReflectiveOperationException e) {
+      AtomicInteger counter = new AtomicInteger();
+      return Executors.newFixedThreadPool(
+          workers,
+          runnable -> {
+            Thread thread =
+                new Thread(runnable, "lionweb-repo-download-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+          });
+    }
+  }
+
+  /**
+   * Put the element in the queue, waiting for space. Nothing is put once the queue is abandoned,
+   * and the wait ends when it is, also if the interruption of the thread has been lost.
+   */
+  private static <T> void put(BlockingQueue<T> queue, T element, AtomicBoolean abandoned)
+      throws InterruptedIOException {
+    try {
+      do {
+        if (abandoned.get()) {
+          throw new InterruptedIOException("The downloaded partitions are not written anymore");
+        }
+      } while (!queue.offer(element, 100, TimeUnit.MILLISECONDS));
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading the partitions");
+    }
+  }
+
+  private static <T> T takeInterruptibly(BlockingQueue<T> queue) throws InterruptedIOException {
+    try {
+      return queue.take();
+    } catch (InterruptedException e) {
+      Thread.currentThread().interrupt();
+      throw new InterruptedIOException("Interrupted while downloading the partitions");
+    }
+  }
+
+  private static class DownloadedPartition {
+    /** Marks the end of the downloads. */
+    static final DownloadedPartition END = new DownloadedPartition("", null);
+
+    final String partitionID;
+    final Path file;
+
+    DownloadedPartition(String partitionID, Path file) {
+      this.partitionID = partitionID;
+      this.file = file;
     }
   }
 
@@ -113,6 +457,9 @@ public class RepoSerialization {
    * Upload all the content of a directory to a given repository, using the bulkImport operation
    * (and not the standard bulk operations). The directory and all the subdirectories are examined,
    * looking for files with extension ".json" (ignoring case).
+   *
+   * <p>Files are parsed while the previous batches are sent, see {@link #setParserThreads(int)}
+   * and {@link #setSenderThreads(int)}. Each file is sent as part of a single bulk import.
    */
   public void uploadDirectoryToRepoUsingBulkImport(AdditionalAPIClient apiClient, File directory)
       throws IOException {
@@ -121,20 +468,26 @@ public class RepoSerialization {
           "Provided file is not a directory: " + directory.getAbsolutePath());
     }
 
-    LowLevelJsonSerialization lowLevelJsonSerialization = new LowLevelJsonSerialization();
-    BulkImport bulkImport = new BulkImport();
-    for (File file : findJsonFilesRecursively(directory)) {
-      SerializedChunk serializedChunk =
-          lowLevelJsonSerialization.deserializeSerializationBlock(file);
-      bulkImport.addNodes(serializedChunk.getClassifierInstances());
-      if (bulkImport.numberOfNodes() >= numberOfNodesThreshold) {
-        apiClient.bulkImport(bulkImport, transferFormat, compression);
-        bulkImport.clear();
-      }
-    }
-    if (!bulkImport.isEmpty()) {
-      apiClient.bulkImport(bulkImport, transferFormat, compression);
-    }
+    Iterator<File> files = findJsonFilesRecursively(directory).iterator();
+    newBulkImportPipeline(apiClient)
+        .run(
+            () -> {
+              if (!files.hasNext()) {
+                return null;
+              }
+              File file = files.next();
+              return new BulkImportPipeline.Source() {
+                @Override
+                public long getSize() {
+                  return file.length();
+                }
+
+                @Override
+                public InputStream open() throws IOException {
+                  return new FileInputStream(file);
+                }
+              };
+            });
   }
 
   /**
@@ -195,6 +548,10 @@ public class RepoSerialization {
    * Upload all the content of a zip to a given repository, using the bulkImport operation (and not
    * the standard bulk operations). All the zip is examined, looking for entries with extension
    * ".json" (ignoring case).
+   *
+   * <p>The entries are read by the invoking thread and parsed while the previous batches are sent,
+   * see {@link #setParserThreads(int)} and {@link #setSenderThreads(int)}. Each entry is sent as
+   * part of a single bulk import.
    */
   public void uploadZipToRepoUsingBulkImport(AdditionalAPIClient apiClient, File zip)
       throws IOException {
@@ -205,49 +562,51 @@ public class RepoSerialization {
 
     final int BUFFER_SIZE = 32 * 1024;
 
-    LowLevelJsonSerialization lowLevelJsonSerialization = new LowLevelJsonSerialization();
-    BulkImport bulkImport = new BulkImport();
-
     try (FileInputStream fis = new FileInputStream(zip);
         ZipInputStream zis = new ZipInputStream(fis, StandardCharsets.UTF_8)) {
-
-      ZipEntry entry;
       byte[] buffer = new byte[BUFFER_SIZE];
-
-      while ((entry = zis.getNextEntry()) != null) {
-        if (!entry.getName().toLowerCase().endsWith(".json")) {
-          continue;
-        }
-
-        ByteArrayOutputStream baos = new ByteArrayOutputStream();
-        int bytesRead;
-        while ((bytesRead = zis.read(buffer)) != -1) {
-          baos.write(buffer, 0, bytesRead);
-        }
-
-        // Write to temp file (needed because deserializeSerializationBlock expects a File)
-        File tempFile = File.createTempFile("partition-", ".json");
-        tempFile.deleteOnExit();
-        try (FileOutputStream fos = new FileOutputStream(tempFile)) {
-          baos.writeTo(fos);
-        }
-
-        SerializedChunk serializedChunk =
-            lowLevelJsonSerialization.deserializeSerializationBlock(tempFile);
-        bulkImport.addNodes(serializedChunk.getClassifierInstances());
-
-        if (bulkImport.numberOfNodes() >= numberOfNodesThreshold) {
-          apiClient.bulkImport(bulkImport, transferFormat, compression);
-          bulkImport.clear();
-        }
-
-        zis.closeEntry();
-      }
+      newBulkImportPipeline(apiClient)
+          .run(
+              () -> {
+                ZipEntry entry;
+                while ((entry = zis.getNextEntry()) != null) {
+                  if (!entry.getName().toLowerCase().endsWith(".json")) {
+                    continue;
+                  }
+                  ByteArrayOutputStream baos = new ByteArrayOutputStream();
+                  int bytesRead;
+                  while ((bytesRead = zis.read(buffer)) != -1) {
+                    baos.write(buffer, 0, bytesRead);
+                  }
+                  zis.closeEntry();
+                  byte[] content = baos.toByteArray();
+                  return new BulkImportPipeline.Source() {
+                    @Override
+                    public long getSize() {
+                      return content.length;
+                    }
+
+                    @Override
+                    public InputStream open() {
+                      return new ByteArrayInputStream(content);
+                    }
+                  };
+                }
+                return null;
+              });
     }
+  }
 
-    if (!bulkImport.isEmpty()) {
-      apiClient.bulkImport(bulkImport, transferFormat, compression);
-    }
+  private BulkImportPipeline newBulkImportPipeline(AdditionalAPIClient apiClient) {
+    return new BulkImportPipeline(
+        apiClient,
+        transferFormat,
+        compression,
+        numberOfNodesThreshold,
+        bytesThreshold,
+        parserThreads,
+        senderThreads,
+        progressListener);
   }
 
   private static List<File> findJsonFilesRecursively(File directory) throws IOException {
@@ -1,7 +1,5 @@
 package io.lionweb.client.impl;
 
-import static io.lionweb.serialization.extensions.CompressionSupport.considerCompression;
-
 import com.google.gson.*;
 import io.lionweb.client.RequestFailureException;
 import io.lionweb.protobuf.PBBulkImport;
@@ -9,7 +7,9 @@ import io.lionweb.serialization.JsonSerialization;
 import io.lionweb.serialization.LowLevelJsonSerialization;
 import io.lionweb.serialization.extensions.*;
 import java.io.IOException;
+import java.net.HttpURLConnection;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 import java.util.stream.Collectors;
 import javax.annotation.Nonnull;
 import okhttp3.*;
@@ -20,30 +20,92 @@ public class ClientForAdditionalAPIs extends LionWebClientImplHelper
   private static final MediaType PROTOBUF = MediaType.get("application/protobuf");
   private static final MediaType FLATBUFFERS = MediaType.get("application/flatbuffers");
 
+  /** Content encodings rejected by the server, which are not used again. */
+  private final Set<String> unsupportedEncodings = ConcurrentHashMap.newKeySet();
+
   public ClientForAdditionalAPIs(ClientConfiguration clientConfiguration) {
     super(clientConfiguration);
   }
 
+  /**
+   * Import the nodes, compressing the request with the given codec. When the server rejects the
+   * Content-Encoding of the codec with 415 (Unsupported Media Type), the request is retried with
+   * the fallback of the codec, which is then used for all the following requests.
+   */
   @Override
   public void bulkImport(
-      @Nonnull BulkImport bulkImport, TransferFormat transferFormat, Compression compression)
+      @Nonnull BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec compression)
       throws IOException {
     if (bulkImport.isEmpty()) {
       return;
     }
+    CompressionCodec codec = negotiateCodec(compression);
+    while (true) {
+      try {
+        performCall(bulkImportRequest(bulkImport, transferFormat, codec), this::handleBulkImport);
+        return;
+      } catch (RequestFailureException e) {
+        codec = codecForRetry(codec, e);
+      }
+    }
+  }
+
+  /**
+   * The codec to be used instead of the requested one, considering the encodings rejected by the
+   * server. {@link Compression#ENABLED} uses the GZIP settings of the client.
+   */
+  CompressionCodec negotiateCodec(CompressionCodec compression) {
+    CompressionCodec codec =
+        compression == Compression.ENABLED ? new GzipCodec(conf.getGzipSettings()) : compression;
+    while (codec.getContentEncoding() != null
+        && unsupportedEncodings.contains(codec.getContentEncoding())) {
+      CompressionCodec fallback = codec.getFallback();
+      codec = fallback == null ? Compression.DISABLED : fallback;
+    }
+    return codec;
+  }
+
+  /**
+   * The codec to retry the request with, if it failed because the server does not support the
+   * encoding. Otherwise the failure is rethrown.
+   */
+  CompressionCodec codecForRetry(CompressionCodec codec, RequestFailureException failure) {
+    if (failure.getResponseCode() != HttpURLConnection.HTTP_UNSUPPORTED_TYPE
+        || codec.getContentEncoding() == null) {
+      throw failure;
+    }
+    unsupportedEncodings.add(codec.getContentEncoding());
+    return negotiateCodec(codec);
+  }
+
+  Request bulkImportRequest(
+      @Nonnull BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec codec)
+      throws IOException {
+    RequestBody requestBody;
     switch (transferFormat) {
       case JSON:
-        bulkImportUsingJson(bulkImport, compression);
-        return;
+        requestBody = bulkImportBodyUsingJson(bulkImport);
+        break;
       case PROTOBUF:
-        bulkImportUsingProtobuf(bulkImport, compression);
-        return;
+        requestBody = bulkImportBodyUsingProtobuf(bulkImport);
+        break;
       case FLATBUFFERS:
-        bulkImportUsingFlatbuffers(bulkImport, compression);
-        return;
+        requestBody = bulkImportBodyUsingFlatbuffers(bulkImport);
+        break;
       default:
         throw new UnsupportedOperationException();
     }
+    Request.Builder rq = buildRequest("/additional/bulkImport");
+    if (codec.getContentEncoding() != null) {
+      rq = rq.addHeader("Content-Encoding", codec.getContentEncoding());
+    }
+    rq.post(codec.compress(requestBody));
+    return rq.build();
+  }
+
+  Void handleBulkImport(Response response, String responseBody) {
+    repositoryModified(getRepoVersionFromResponse(checkSuccess(response, responseBody)));
+    return null;
   }
 
   @Override
@@ -52,6 +114,14 @@ public class ClientForAdditionalAPIs extends LionWebClientImplHelper
     if (nodeIDs.isEmpty()) {
       return Collections.emptyList();
     }
+    Map<String, String> params = new HashMap<>();
+    if (depthLimit != null) {
+      params.put("depthLimit", depthLimit.toString());
+    }
+    return performCall(getNodeTreeRequest(nodeIDs, depthLimit), this::handleGetNodeTree);
+  }
+
+  Request getNodeTreeRequest(List<String> nodeIDs, @javax.annotation.Nullable Integer depthLimit) {
     Map<String, String> params = new HashMap<>();
     if (depthLimit != null) {
       params.put("depthLimit", depthLimit.toString());
@@ -63,34 +133,36 @@ public class ClientForAdditionalAPIs extends LionWebClientImplHelper
     bodyJO.add("ids", ids);
     String bodyJson = gson.toJson(bodyJO);
     RequestBody requestBody = RequestBody.create(bodyJson, JSON);
-    Request request = rq.post(requestBody).build();
-    return performCall(
-        request,
-        (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
-            throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
-          }
-          JsonArray data = responseData.get("data").getAsJsonArray();
-          return data.asList().stream()
-              .map(
-                  entry -> {
-                    JsonObject entryJO = entry.getAsJsonObject();
-                    String id = entryJO.get("id").getAsString();
-                    JsonElement parentValue = entryJO.get("parent");
-                    String parent =
-                        parentValue.isJsonNull() ? null : entryJO.get("parent").getAsString();
-                    int depth = entryJO.get("depth").getAsInt();
-                    return new NodeInfo(id, parent, depth);
-                  })
-              .collect(Collectors.toList());
-        });
+    return rq.post(requestBody).build();
   }
 
-  private void bulkImportUsingJson(BulkImport bulkImport, Compression compression)
-      throws IOException {
+  List<NodeInfo> handleGetNodeTree(Response response, String responseBody) {
+    JsonObject responseData = checkSuccess(response, responseBody);
+    JsonArray data = responseData.get("data").getAsJsonArray();
+    return data.asList().stream()
+        .map(
+            entry -> {
+              JsonObject entryJO = entry.getAsJsonObject();
+              String id = entryJO.get("id").getAsString();
+              JsonElement parentValue = entryJO.get("parent");
+              String parent = parentValue.isJsonNull() ? null : entryJO.get("parent").getAsString();
+              int depth = entryJO.get("depth").getAsInt();
+              return new NodeInfo(id, parent, depth);
+            })
+        .collect(Collectors.toList());
+  }
+
+  private JsonObject checkSuccess(Response response, String responseBody) {
+    JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
+    boolean success = responseData.get("success").getAsBoolean();
+    if (!success) {
+      throw new RequestFailureException(
+          response.request().url().toString(), response.code(), responseBody);
+    }
+    return responseData;
+  }
+
+  private RequestBody bulkImportBodyUsingJson(BulkImport bulkImport) {
     JsonObject body = new JsonObject();
     JsonArray bodyAttachPoints = new JsonArray();
     bulkImport.getAttachPoints().stream()
@@ -117,13 +189,10 @@ public class ClientForAdditionalAPIs extends LionWebClientImplHelper
     body.add("nodes", bodyNodes);
     String bodyJson = new Gson().toJson(body);
 
-    RequestBody requestBody = RequestBody.create(JSON, bodyJson);
-    requestBody = considerCompression(requestBody, compression);
-    bulkImport(requestBody, compression);
+    return RequestBody.create(JSON, bodyJson);
   }
 
-  private void bulkImportUsingProtobuf(BulkImport bulkImport, Compression compression)
-      throws IOException {
+  private RequestBody bulkImportBodyUsingProtobuf(BulkImport bulkImport) {
     JsonSerialization jsonSerialization = conf.getJsonSerialization();
 
     ExtraProtoBufSerialization pbSerialization = new ExtraProtoBufSerialization();
@@ -138,13 +207,10 @@ public class ClientForAdditionalAPIs extends LionWebClientImplHelper
         jsonSerialization.getPrimitiveValuesSerialization());
     PBBulkImport pbBulkImport = pbSerialization.serializeBulkImport(bulkImport);
     byte[] bytes = pbBulkImport.toByteArray();
-    RequestBody requestBody = RequestBody.create(PROTOBUF, bytes);
-    requestBody = considerCompression(requestBody, compression);
-    bulkImport(requestBody, compression);
+    return RequestBody.create(PROTOBUF, bytes);
   }
 
-  private void bulkImportUsingFlatbuffers(BulkImport bulkImport, Compression compression)
-      throws IOException {
+  private RequestBody bulkImportBodyUsingFlatbuffers(BulkImport bulkImport) {
     JsonSerialization jsonSerialization = conf.getJsonSerialization();
 
     ExtraFlatBuffersSerialization fbSerialization = new ExtraFlatBuffersSerialization();
@@ -158,29 +224,6 @@ public class ClientForAdditionalAPIs extends LionWebClientImplHelper
     fbSerialization.setPrimitiveValuesSerialization(
         jsonSerialization.getPrimitiveValuesSerialization());
     byte[] bytes = fbSerialization.serializeBulkImport(bulkImport);
-    RequestBody requestBody = RequestBody.create(FLATBUFFERS, bytes);
-    requestBody = considerCompression(requestBody, compression);
-    bulkImport(requestBody, compression);
-  }
-
-  private void bulkImport(RequestBody requestBody, Compression compression) throws IOException {
-    Request.Builder rq = buildRequest("/additional/bulkImport");
-    if (compression == Compression.ENABLED) {
-      rq = rq.addHeader("Content-Encoding", "gzip");
-    }
-    rq.post(requestBody);
-    Request request = rq.build();
-
-    performCall(
-        request,
-        (response, responseBody) -> {
-          JsonObject responseData = JsonParser.parseString(responseBody).getAsJsonObject();
-          boolean success = responseData.get("success").getAsBoolean();
-          if (!success) {
-            throw new RequestFailureException(
-                request.url().toString(), response.code(), responseBody);
-          }
-          return null;
-        });
+    return RequestBody.create(FLATBUFFERS, bytes);
   }
 }
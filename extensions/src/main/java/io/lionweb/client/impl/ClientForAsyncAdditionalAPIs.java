@@ -0,0 +1,90 @@
+package io.lionweb.client.impl;
+
+import io.lionweb.client.RequestFailureException;
+import io.lionweb.serialization.extensions.*;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+public class ClientForAsyncAdditionalAPIs extends LionWebClientImplHelper
+    implements AsyncAdditionalAPIClient {
+
+  private final ClientForAdditionalAPIs syncClient;
+
+  public ClientForAsyncAdditionalAPIs(ClientConfiguration clientConfiguration) {
+    super(clientConfiguration);
+    syncClient = new ClientForAdditionalAPIs(clientConfiguration);
+  }
+
+  /**
+   * See {@link ClientForAdditionalAPIs#bulkImport(BulkImport, TransferFormat, CompressionCodec)}
+   * for how the codec is negotiated with the server.
+   */
+  @Override
+  public CompletableFuture<Void> bulkImport(
+      @Nonnull BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec compression) {
+    if (bulkImport.isEmpty()) {
+      return CompletableFuture.completedFuture(null);
+    }
+    return bulkImportWithCodec(bulkImport, transferFormat, syncClient.negotiateCodec(compression));
+  }
+
+  private CompletableFuture<Void> bulkImportWithCodec(
+      BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec codec) {
+    CompletableFuture<Void> result = new CompletableFuture<>();
+    performCallAsync(
+            () -> {
+              try {
+                return syncClient.bulkImportRequest(bulkImport, transferFormat, codec);
+              } catch (IOException e) {
+                throw new UncheckedIOException(e);
+              }
+            },
+            syncClient::handleBulkImport)
+        .whenComplete(
+            (value, failure) -> {
+              if (failure == null) {
+                result.complete(value);
+                return;
+              }
+              Throwable cause =
+                  failure instanceof CompletionException ? failure.getCause() : failure;
+              if (!(cause instanceof RequestFailureException)) {
+                result.completeExceptionally(cause);
+                return;
+              }
+              CompressionCodec retryCodec;
+              try {
+                retryCodec = syncClient.codecForRetry(codec, (RequestFailureException) cause);
+              } catch (RequestFailureException e) {
+                result.completeExceptionally(e);
+                return;
+              }
+              bulkImportWithCodec(bulkImport, transferFormat, retryCodec)
+                  .whenComplete(
+                      (v, t) -> {
+                        if (t == null) {
+                          result.complete(v);
+                        } else {
+                          result.completeExceptionally(t);
+                        }
+                      });
+            });
+    return result;
+  }
+
+  @Override
+  public CompletableFuture<List<NodeInfo>> getNodeTree(
+      List<String> nodeIDs, @Nullable Integer depthLimit) {
+    if (nodeIDs.isEmpty()) {
+      return CompletableFuture.completedFuture(Collections.emptyList());
+    }
+    return performCallAsync(
+        syncClient.getNodeTreeRequest(nodeIDs, depthLimit), syncClient::handleGetNodeTree);
+  }
+}
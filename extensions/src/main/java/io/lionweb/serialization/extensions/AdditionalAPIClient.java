@@ -7,7 +7,8 @@ import javax.annotation.Nonnull;
 import javax.annotation.Nullable;
 
 public interface AdditionalAPIClient {
-  void bulkImport(BulkImport bulkImport, TransferFormat transferFormat, Compression compression)
+  void bulkImport(
+      BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec compression)
       throws IOException;
 
   List<NodeInfo> getNodeTree(List<String> nodeIDs, @Nullable Integer depthLimit) throws IOException;
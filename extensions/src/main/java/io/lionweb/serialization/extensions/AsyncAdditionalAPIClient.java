@@ -0,0 +1,26 @@
+package io.lionweb.serialization.extensions;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+
+/**
+ * Non-blocking counterpart of {@link AdditionalAPIClient}. Failures are reported by completing the
+ * returned futures exceptionally.
+ */
+public interface AsyncAdditionalAPIClient {
+  CompletableFuture<Void> bulkImport(
+      BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec compression);
+
+  CompletableFuture<List<NodeInfo>> getNodeTree(List<String> nodeIDs, @Nullable Integer depthLimit);
+
+  default CompletableFuture<List<NodeInfo>> getNodeTree(List<String> nodeIDs) {
+    return getNodeTree(nodeIDs, null);
+  }
+
+  default CompletableFuture<List<NodeInfo>> getNodeTree(@Nonnull String nodeID) {
+    return getNodeTree(Collections.singletonList(nodeID));
+  }
+}
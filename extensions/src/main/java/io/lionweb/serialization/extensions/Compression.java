@@ -1,6 +1,65 @@
 package io.lionweb.serialization.extensions;
 
-public enum Compression {
-  ENABLED,
-  DISABLED
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import okhttp3.RequestBody;
+
+/**
+ * The basic codecs: no compression and GZIP. When used by the client, ENABLED compresses according
+ * to the GZIP settings of the client.
+ */
+public enum Compression implements CompressionCodec {
+  ENABLED {
+    @Override
+    public String getContentEncoding() {
+      return "gzip";
+    }
+
+    @Override
+    public OutputStream compress(@Nonnull OutputStream outputStream) throws IOException {
+      return new GZIPOutputStream(outputStream);
+    }
+
+    @Override
+    public InputStream decompress(@Nonnull InputStream inputStream) throws IOException {
+      return new GZIPInputStream(inputStream);
+    }
+
+    @Override
+    public CompressionCodec getFallback() {
+      return DISABLED;
+    }
+
+    @Override
+    public RequestBody compress(@Nonnull RequestBody body) {
+      return io.lionweb.client.CompressionSupport.compress(body);
+    }
+  },
+  DISABLED {
+    @Nullable
+    @Override
+    public String getContentEncoding() {
+      return null;
+    }
+
+    @Override
+    public OutputStream compress(@Nonnull OutputStream outputStream) {
+      return outputStream;
+    }
+
+    @Override
+    public InputStream decompress(@Nonnull InputStream inputStream) {
+      return inputStream;
+    }
+
+    @Override
+    public RequestBody compress(@Nonnull RequestBody body) {
+      return body;
+    }
+  }
 }
@@ -0,0 +1,59 @@
+package io.lionweb.serialization.extensions;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import javax.annotation.Nonnull;
+import javax.annotation.Nullable;
+import okhttp3.RequestBody;
+
+/**
+ * Compression applied to the bodies of the requests, and to the data they carry. Each codec is
+ * identified by the value of the Content-Encoding header sent with the compressed bodies, which the
+ * server uses to decompress them.
+ *
+ * <p>See {@link Compression} for the identity codec and for GZIP with the settings of the client,
+ * {@link GzipCodec} for GZIP at a specific level and {@link DictionaryDeflateCodec} for deflate
+ * with a preset dictionary.
+ */
+public interface CompressionCodec {
+
+  /** Value of the Content-Encoding header, or null if the data is not compressed. */
+  @Nullable
+  String getContentEncoding();
+
+  /**
+   * Wraps the output stream, compressing what is written to it. Closing the returned stream closes
+   * the given one.
+   */
+  @Nonnull
+  OutputStream compress(@Nonnull OutputStream outputStream) throws IOException;
+
+  /** Wraps the input stream, decompressing what is read from it. */
+  @Nonnull
+  InputStream decompress(@Nonnull InputStream inputStream) throws IOException;
+
+  /**
+   * Codec to be used instead of this one when the server does not support it, rejecting the
+   * requests with 415 (Unsupported Media Type). Null if there is no alternative.
+   */
+  @Nullable
+  default CompressionCodec getFallback() {
+    return null;
+  }
+
+  /**
+   * Whether the bodies compressed by {@link #compress(RequestBody)} are sent while they are
+   * compressed, with chunked transfer encoding, rather than written to memory first so that their
+   * content length is known.
+   */
+  default boolean isStreaming() {
+    return false;
+  }
+
+  /** Compresses the body, so that it can be sent with the Content-Encoding of this codec. */
+  @Nonnull
+  default RequestBody compress(@Nonnull RequestBody body) throws IOException {
+    return CompressionSupport.compress(body, this);
+  }
+}
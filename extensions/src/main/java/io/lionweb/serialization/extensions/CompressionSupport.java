@@ -1,60 +1,63 @@
 package io.lionweb.serialization.extensions;
 
+import io.lionweb.client.GzipSettings;
 import java.io.IOException;
 import okhttp3.MediaType;
 import okhttp3.RequestBody;
-import okio.Buffer;
 import okio.BufferedSink;
-import okio.GzipSink;
 import okio.Okio;
 
 public class CompressionSupport {
 
   public static RequestBody considerCompression(RequestBody original, Compression compression)
       throws IOException {
-    return compression == Compression.ENABLED ? forceContentLength(gzip(original)) : original;
+    return considerCompression(original, compression, GzipSettings.DEFAULT);
   }
 
-  private static RequestBody forceContentLength(final RequestBody requestBody) throws IOException {
-    final Buffer buffer = new Buffer();
-    requestBody.writeTo(buffer);
-    return new RequestBody() {
-      @Override
-      public MediaType contentType() {
-        return requestBody.contentType();
-      }
-
-      @Override
-      public long contentLength() throws IOException {
-        return buffer.size();
-      }
-
-      @Override
-      public void writeTo(BufferedSink sink) throws IOException {
-        sink.write(buffer.snapshot());
-      }
-    };
+  /**
+   * Compress the body, if compression is enabled, as specified by the settings. See {@link
+   * io.lionweb.client.CompressionSupport#compress(RequestBody, GzipSettings)}.
+   */
+  public static RequestBody considerCompression(
+      RequestBody original, Compression compression, GzipSettings settings) throws IOException {
+    return compression == Compression.ENABLED
+        ? io.lionweb.client.CompressionSupport.compress(original, settings)
+        : original;
   }
 
-  private static RequestBody gzip(final RequestBody body) {
-    return new RequestBody() {
-      @Override
-      public MediaType contentType() {
-        return body.contentType();
-      }
-
-      @Override
-      public long contentLength() {
-        // We don't know the compressed length in advance.
-        return -1;
-      }
-
-      @Override
-      public void writeTo(BufferedSink sink) throws IOException {
-        BufferedSink gzipSink = Okio.buffer(new GzipSink(sink));
-        body.writeTo(gzipSink);
-        gzipSink.close();
-      }
-    };
+  /**
+   * Compress the body using the output stream provided by the codec. Unless the codec is {@link
+   * CompressionCodec#isStreaming() streaming}, the compressed body is written to memory, so that
+   * the content length is known.
+   */
+  public static RequestBody compress(final RequestBody original, final CompressionCodec codec) {
+    RequestBody compressed =
+        new RequestBody() {
+          @Override
+          public MediaType contentType() {
+            return original.contentType();
+          }
+
+          @Override
+          public long contentLength() {
+            return -1;
+          }
+
+          @Override
+          public boolean isOneShot() {
+            return original.isOneShot();
+          }
+
+          @Override
+          public void writeTo(BufferedSink sink) throws IOException {
+            BufferedSink compressingSink =
+                Okio.buffer(Okio.sink(codec.compress(sink.outputStream())));
+            original.writeTo(compressingSink);
+            compressingSink.close();
+          }
+        };
+    return codec.isStreaming()
+        ? compressed
+        : io.lionweb.client.CompressionSupport.forceContentLength(compressed);
   }
 }
@@ -0,0 +1,246 @@
+package io.lionweb.serialization.extensions;
+
+import com.google.gson.Gson;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedChunk;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import io.lionweb.serialization.data.SerializedContainmentValue;
+import io.lionweb.serialization.data.SerializedPropertyValue;
+import io.lionweb.serialization.data.SerializedReferenceValue;
+import io.lionweb.serialization.data.UsedLanguage;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.*;
+import java.util.zip.Adler32;
+import java.util.zip.Deflater;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.Inflater;
+import java.util.zip.InflaterInputStream;
+import javax.annotation.Nonnull;
+
+/**
+ * Deflate compression with a preset dictionary. LionWeb data repeats the same MetaPointers, and
+ * therefore the same language keys, versions and feature keys, in every node. A dictionary
+ * containing them lets deflate compress even the first occurrences, which makes a large
+ * difference for small requests. The dictionary can be trained from sample chunks with {@link
+ * #train(Collection, int)}.
+ *
+ * <p>The data is a raw deflate stream (RFC 1951), compressed with the preset dictionary. As the
+ * server needs the same dictionary to decompress it, the Content-Encoding identifies the
+ * dictionary through its Adler-32 checksum, as zlib does. When the server does not support the
+ * encoding, GZIP at the same level is used instead.
+ */
+public class DictionaryDeflateCodec implements CompressionCodec {
+  public static final String CONTENT_ENCODING_PREFIX = "x-lionweb-deflate-";
+
+  /** Deflate cannot refer to data farther than 32 KiB, so a larger dictionary is useless. */
+  public static final int MAX_DICTIONARY_SIZE = 32 * 1024;
+
+  private static final int BUFFER_SIZE = 8192;
+
+  /**
+   * Fragments of the compact JSON representation of nodes which do not depend on the language.
+   * Each node contains all of them.
+   */
+  private static final String[] NODE_FRAGMENTS = {
+    "{\"id\":\"", "\",\"classifier\":", ",\"properties\":[", "],\"containments\":[",
+    "],\"references\":[", "],\"annotations\":[", "],\"parent\":\"", "],\"parent\":null}"
+  };
+
+  private static final Gson GSON = new Gson();
+
+  private final @Nonnull byte[] dictionary;
+  private final int level;
+  private final @Nonnull String contentEncoding;
+
+  public DictionaryDeflateCodec(@Nonnull byte[] dictionary) {
+    this(dictionary, Deflater.DEFAULT_COMPRESSION);
+  }
+
+  /**
+   * @param level from 0 (no compression) to 9 (best compression), or -1 for the default level
+   */
+  public DictionaryDeflateCodec(@Nonnull byte[] dictionary, int level) {
+    Objects.requireNonNull(dictionary, "dictionary should not be null");
+    if (dictionary.length == 0 || dictionary.length > MAX_DICTIONARY_SIZE) {
+      throw new IllegalArgumentException(
+          "The dictionary should contain between 1 and " + MAX_DICTIONARY_SIZE + " bytes");
+    }
+    if (level < Deflater.DEFAULT_COMPRESSION || level > Deflater.BEST_COMPRESSION) {
+      throw new IllegalArgumentException("Invalid compression level: " + level);
+    }
+    this.dictionary = dictionary.clone();
+    this.level = level;
+    Adler32 checksum = new Adler32();
+    checksum.update(dictionary, 0, dictionary.length);
+    this.contentEncoding = CONTENT_ENCODING_PREFIX + String.format("%08x", checksum.getValue());
+  }
+
+  /** Codec using a dictionary trained from the given samples, at the default level. */
+  public static DictionaryDeflateCodec train(
+      @Nonnull Collection<SerializedChunk> samples, int maxSize) {
+    return new DictionaryDeflateCodec(trainDictionary(samples, maxSize));
+  }
+
+  /**
+   * Build a dictionary of at most maxSize bytes from the given samples. The dictionary contains
+   * the fragments with the highest number of occurrences multiplied by their length: the
+   * MetaPointers, as they appear in the compact JSON representation, the keys and the versions of
+   * the languages, which appear by themselves in the binary formats, and the fragments of the JSON
+   * structure of the nodes. The most valuable fragments are placed at the end, as deflate encodes
+   * closer matches more efficiently.
+   */
+  public static @Nonnull byte[] trainDictionary(
+      @Nonnull Collection<SerializedChunk> samples, int maxSize) {
+    if (maxSize < 1 || maxSize > MAX_DICTIONARY_SIZE) {
+      throw new IllegalArgumentException(
+          "maxSize should be between 1 and " + MAX_DICTIONARY_SIZE + ": " + maxSize);
+    }
+    Map<String, Long> occurrences = new HashMap<>();
+    for (SerializedChunk sample : samples) {
+      for (UsedLanguage language : sample.getLanguages()) {
+        count(occurrences, language.getKey());
+        count(occurrences, language.getVersion());
+      }
+      for (SerializedClassifierInstance node : sample.getClassifierInstances()) {
+        for (String fragment : NODE_FRAGMENTS) {
+          count(occurrences, fragment);
+        }
+        countMetaPointer(occurrences, "\"classifier\":", node.getClassifier(), "");
+        for (SerializedPropertyValue property : node.getProperties()) {
+          countMetaPointer(occurrences, "{\"property\":", property.getMetaPointer(), ",\"value\":");
+        }
+        for (SerializedContainmentValue containment : node.getContainments()) {
+          countMetaPointer(
+              occurrences, "{\"containment\":", containment.getMetaPointer(), ",\"children\":[");
+        }
+        for (SerializedReferenceValue reference : node.getReferences()) {
+          countMetaPointer(
+              occurrences, "{\"reference\":", reference.getMetaPointer(), ",\"targets\":[");
+          for (SerializedReferenceValue.Entry ignored : reference.getValue()) {
+            count(occurrences, "{\"resolveInfo\":");
+          }
+        }
+      }
+    }
+
+    List<Map.Entry<String, Long>> candidates = new ArrayList<>(occurrences.entrySet());
+    candidates.sort(
+        Comparator.comparingLong(
+                (Map.Entry<String, Long> e) -> -e.getValue() * utf8Length(e.getKey()))
+            .thenComparing(Map.Entry::getKey));
+    List<byte[]> selected = new ArrayList<>();
+    int size = 0;
+    for (Map.Entry<String, Long> candidate : candidates) {
+      byte[] bytes = candidate.getKey().getBytes(StandardCharsets.UTF_8);
+      if (size + bytes.length <= maxSize) {
+        selected.add(bytes);
+        size += bytes.length;
+      }
+    }
+    if (selected.isEmpty()) {
+      throw new IllegalArgumentException("The samples do not contain any node");
+    }
+    ByteArrayOutputStream dictionary = new ByteArrayOutputStream(size);
+    for (int i = selected.size() - 1; i >= 0; i--) {
+      dictionary.write(selected.get(i), 0, selected.get(i).length);
+    }
+    return dictionary.toByteArray();
+  }
+
+  private static void countMetaPointer(
+      Map<String, Long> occurrences, String prefix, MetaPointer metaPointer, String suffix) {
+    if (metaPointer == null) {
+      return;
+    }
+    count(
+        occurrences,
+        prefix
+            + "{\"language\":"
+            + GSON.toJson(metaPointer.getLanguage())
+            + ",\"version\":"
+            + GSON.toJson(metaPointer.getVersion())
+            + ",\"key\":"
+            + GSON.toJson(metaPointer.getKey())
+            + "}"
+            + suffix);
+    count(occurrences, metaPointer.getKey());
+  }
+
+  private static void count(Map<String, Long> occurrences, String fragment) {
+    if (fragment != null && !fragment.isEmpty()) {
+      occurrences.merge(fragment, 1L, Long::sum);
+    }
+  }
+
+  private static int utf8Length(String s) {
+    return s.getBytes(StandardCharsets.UTF_8).length;
+  }
+
+  public @Nonnull byte[] getDictionary() {
+    return dictionary.clone();
+  }
+
+  public int getLevel() {
+    return level;
+  }
+
+  @Override
+  public @Nonnull String getContentEncoding() {
+    return contentEncoding;
+  }
+
+  @Override
+  public @Nonnull OutputStream compress(@Nonnull OutputStream outputStream) {
+    Deflater deflater = new Deflater(level, true);
+    deflater.setDictionary(dictionary);
+    return new DeflaterOutputStream(outputStream, deflater, BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          // A Deflater passed to the stream is not released by it
+          def.end();
+        }
+      }
+    };
+  }
+
+  @Override
+  public @Nonnull InputStream decompress(@Nonnull InputStream inputStream) {
+    Inflater inflater = new Inflater(true);
+    inflater.setDictionary(dictionary);
+    return new InflaterInputStream(inputStream, inflater, BUFFER_SIZE) {
+      @Override
+      public void close() throws IOException {
+        try {
+          super.close();
+        } finally {
+          inf.end();
+        }
+      }
+    };
+  }
+
+  @Override
+  public CompressionCodec getFallback() {
+    return new GzipCodec(level);
+  }
+
+  @Override
+  public String toString() {
+    return "DictionaryDeflateCodec{"
+        + "contentEncoding='"
+        + contentEncoding
+        + '\''
+        + ", level="
+        + level
+        + ", dictionarySize="
+        + dictionary.length
+        + '}';
+  }
+}
@@ -0,0 +1,63 @@
+package io.lionweb.serialization.extensions;
+
+import io.lionweb.client.GzipSettings;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Objects;
+import java.util.zip.GZIPInputStream;
+import javax.annotation.Nonnull;
+import okhttp3.RequestBody;
+
+/** GZIP compression, at the level and with the buffer size specified by the settings. */
+public class GzipCodec implements CompressionCodec {
+  private final @Nonnull GzipSettings settings;
+
+  public GzipCodec(@Nonnull GzipSettings settings) {
+    this.settings = Objects.requireNonNull(settings, "settings should not be null");
+  }
+
+  /** GZIP compression at the given level, from 0 (no compression) to 9 (best compression). */
+  public GzipCodec(int level) {
+    this(new GzipSettings(level, GzipSettings.DEFAULT_BUFFER_SIZE, false));
+  }
+
+  public @Nonnull GzipSettings getSettings() {
+    return settings;
+  }
+
+  @Override
+  public String getContentEncoding() {
+    return "gzip";
+  }
+
+  @Override
+  public @Nonnull OutputStream compress(@Nonnull OutputStream outputStream) throws IOException {
+    return io.lionweb.client.CompressionSupport.gzipOutputStream(outputStream, settings);
+  }
+
+  @Override
+  public @Nonnull InputStream decompress(@Nonnull InputStream inputStream) throws IOException {
+    return new GZIPInputStream(inputStream, settings.getBufferSize());
+  }
+
+  @Override
+  public CompressionCodec getFallback() {
+    return Compression.DISABLED;
+  }
+
+  @Override
+  public boolean isStreaming() {
+    return settings.isStreaming();
+  }
+
+  @Override
+  public @Nonnull RequestBody compress(@Nonnull RequestBody body) {
+    return io.lionweb.client.CompressionSupport.compress(body, settings);
+  }
+
+  @Override
+  public String toString() {
+    return "GzipCodec{" + "settings=" + settings + '}';
+  }
+}
@@ -0,0 +1,178 @@
+package io.lionweb.client;
+
+import static org.junit.Assert.*;
+
+import com.google.gson.Gson;
+import io.lionweb.LionWebVersion;
+import io.lionweb.serialization.LowLevelJsonSerialization;
+import io.lionweb.serialization.data.MetaPointer;
+import io.lionweb.serialization.data.SerializedChunk;
+import io.lionweb.serialization.data.SerializedClassifierInstance;
+import io.lionweb.serialization.extensions.Compression;
+import io.lionweb.serialization.extensions.CompressionCodec;
+import io.lionweb.serialization.extensions.CompressionSupport;
+import io.lionweb.serialization.extensions.DictionaryDeflateCodec;
+import io.lionweb.serialization.extensions.GzipCodec;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.zip.Deflater;
+import okhttp3.RequestBody;
+import okio.Buffer;
+import org.junit.Test;
+
+public class CompressionCodecTest {
+  private static final MetaPointer BOOK =
+      MetaPointer.get("library-language", "2023.1", "library-Book");
+  private static final MetaPointer TITLE =
+      MetaPointer.get("library-language", "2023.1", "library-Book-title");
+  private static final MetaPointer PAGES =
+      MetaPointer.get("library-language", "2023.1", "library-Book-pages");
+  private static final MetaPointer CHAPTERS =
+      MetaPointer.get("library-language", "2023.1", "library-Book-chapters");
+
+  private static SerializedChunk books(String prefix, int count) {
+    List<SerializedClassifierInstance> nodes = new ArrayList<>();
+    for (int i = 0; i < count; i++) {
+      SerializedClassifierInstance node = new SerializedClassifierInstance(prefix + i, BOOK);
+      node.setPropertyValue(TITLE, "Title of " + prefix + " " + i);
+      node.setPropertyValue(PAGES, Integer.toString(100 + i * 7));
+      node.addChildren(CHAPTERS, Arrays.asList(prefix + i + "-c1", prefix + i + "-c2"));
+      nodes.add(node);
+    }
+    return SerializedChunk.fromNodes(LionWebVersion.currentVersion, nodes);
+  }
+
+  private static byte[] json(SerializedChunk chunk) {
+    return new Gson()
+        .toJson(new LowLevelJsonSerialization().serializeToJsonElement(chunk))
+        .getBytes(StandardCharsets.UTF_8);
+  }
+
+  private static byte[] compress(CompressionCodec codec, byte[] data) throws IOException {
+    ByteArrayOutputStream compressed = new ByteArrayOutputStream();
+    try (OutputStream out = codec.compress(compressed)) {
+      out.write(data);
+    }
+    return compressed.toByteArray();
+  }
+
+  private static byte[] decompress(CompressionCodec codec, byte[] data) throws IOException {
+    ByteArrayOutputStream decompressed = new ByteArrayOutputStream();
+    try (InputStream in = codec.decompress(new ByteArrayInputStream(data))) {
+      byte[] buffer = new byte[1024];
+      int read;
+      while ((read = in.read(buffer)) != -1) {
+        decompressed.write(buffer, 0, read);
+      }
+    }
+    return decompressed.toByteArray();
+  }
+
+  @Test
+  public void dictionaryContainsTheMostFrequentMetaPointers() {
+    byte[] dictionary =
+        DictionaryDeflateCodec.trainDictionary(Collections.singletonList(books("b", 50)), 4096);
+    String content = new String(dictionary, StandardCharsets.UTF_8);
+    assertTrue(
+        content.contains(
+            "\"classifier\":{\"language\":\"library-language\",\"version\":\"2023.1\","
+                + "\"key\":\"library-Book\"}"));
+    assertTrue(content.contains("library-Book-chapters"));
+    assertTrue(content.contains("\"annotations\":["));
+    // Node IDs and property values are not shared across chunks, so they are not included
+    assertFalse(content.contains("Title of"));
+  }
+
+  @Test
+  public void dictionaryRespectsMaxSize() {
+    byte[] dictionary =
+        DictionaryDeflateCodec.trainDictionary(Collections.singletonList(books("b", 50)), 100);
+    assertTrue(dictionary.length > 0);
+    assertTrue(dictionary.length <= 100);
+    assertThrows(
+        IllegalArgumentException.class,
+        () ->
+            DictionaryDeflateCodec.trainDictionary(
+                Collections.singletonList(books("b", 1)),
+                DictionaryDeflateCodec.MAX_DICTIONARY_SIZE + 1));
+  }
+
+  @Test
+  public void dictionaryImprovesCompressionOfSmallChunks() throws IOException {
+    DictionaryDeflateCodec codec =
+        DictionaryDeflateCodec.train(Collections.singletonList(books("sample", 100)), 16 * 1024);
+    byte[] data = json(books("other", 3));
+
+    byte[] withDictionary = compress(codec, data);
+    assertArrayEquals(data, decompress(codec, withDictionary));
+
+    Deflater deflater = new Deflater(Deflater.DEFAULT_COMPRESSION, true);
+    deflater.setInput(data);
+    deflater.finish();
+    byte[] buffer = new byte[data.length * 2];
+    int withoutDictionary = deflater.deflate(buffer);
+    deflater.end();
+    assertTrue(withDictionary.length * 4 < withoutDictionary * 3);
+  }
+
+  @Test
+  public void contentEncodingIdentifiesTheDictionary() {
+    byte[] dictionary =
+        DictionaryDeflateCodec.trainDictionary(Collections.singletonList(books("b", 10)), 1024);
+    DictionaryDeflateCodec codec = new DictionaryDeflateCodec(dictionary);
+    assertTrue(
+        codec.getContentEncoding().startsWith(DictionaryDeflateCodec.CONTENT_ENCODING_PREFIX));
+    assertEquals(
+        codec.getContentEncoding(), new DictionaryDeflateCodec(dictionary, 9).getContentEncoding());
+    byte[] other = Arrays.copyOf(dictionary, dictionary.length - 1);
+    assertNotEquals(
+        codec.getContentEncoding(), new DictionaryDeflateCodec(other).getContentEncoding());
+    assertEquals("gzip", codec.getFallback().getContentEncoding());
+  }
+
+  @Test
+  public void gzipAndIdentityRoundTrip() throws IOException {
+    byte[] data = json(books("b", 20));
+    for (CompressionCodec codec :
+        Arrays.asList(Compression.ENABLED, Compression.DISABLED, new GzipCodec(1))) {
+      assertArrayEquals(data, decompress(codec, compress(codec, data)));
+    }
+    assertArrayEquals(data, compress(Compression.DISABLED, data));
+    assertNull(Compression.DISABLED.getContentEncoding());
+    assertNull(Compression.DISABLED.getFallback());
+    assertEquals(Compression.DISABLED, new GzipCodec(9).getFallback());
+  }
+
+  @Test
+  public void onlyStreamingCodecsSendBodiesOfUnknownLength() throws IOException {
+    byte[] data = json(books("b", 20));
+    RequestBody body = RequestBody.create(data, io.lionweb.client.CompressionSupport.JSON);
+    GzipCodec streaming = new GzipCodec(new GzipSettings(6, 8192, true));
+    GzipCodec buffered = new GzipCodec(new GzipSettings(6, 8192, false));
+
+    RequestBody compressed = CompressionSupport.compress(body, streaming);
+    assertTrue(streaming.isStreaming());
+    assertEquals(-1, compressed.contentLength());
+    assertArrayEquals(data, decompress(streaming, write(compressed)));
+
+    compressed = CompressionSupport.compress(body, buffered);
+    assertFalse(buffered.isStreaming());
+    byte[] bytes = write(compressed);
+    assertEquals(bytes.length, compressed.contentLength());
+    assertArrayEquals(data, decompress(buffered, bytes));
+  }
+
+  private static byte[] write(RequestBody body) throws IOException {
+    Buffer buffer = new Buffer();
+    body.writeTo(buffer);
+    return buffer.readByteArray();
+  }
+}
@@ -0,0 +1,359 @@
+package io.lionweb.client;
+
+import static org.junit.Assert.*;
+
+import io.lionweb.LionWebVersion;
+import io.lionweb.client.api.BulkAPIClient;
+import io.lionweb.client.api.JSONLevelBulkAPIClient;
+import io.lionweb.client.api.RepositoryVersionToken;
+import io.lionweb.model.Node;
+import io.lionweb.serialization.extensions.AdditionalAPIClient;
+import io.lionweb.serialization.extensions.BulkImport;
+import io.lionweb.serialization.extensions.CompressionCodec;
+import io.lionweb.serialization.extensions.NodeInfo;
+import io.lionweb.serialization.extensions.TransferFormat;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+import org.junit.Test;
+
+public class RepoSerializationTest {
+
+  /** Client serving partitions with a fixed content, tracking how many are retrieved at once. */
+  private static class FakeClient implements JSONLevelBulkAPIClient, BulkAPIClient {
+    private final List<String> partitionIDs = new ArrayList<>();
+    private final AtomicInteger running = new AtomicInteger();
+    private final AtomicInteger maxRunning = new AtomicInteger();
+    private final AtomicInteger retrieved = new AtomicInteger();
+    private String failingPartition;
+
+    FakeClient(int partitions) {
+      for (int i = 0; i < partitions; i++) {
+        partitionIDs.add("p" + i);
+      }
+    }
+
+    static String content(String partitionID) {
+      return "{\"nodes\":[{\"id\":\"" + partitionID + "\"}]}";
+    }
+
+    @Override
+    public void rawRetrieve(List<String> nodeIds, int limit, OutputStream outputStream)
+        throws IOException {
+      maxRunning.accumulateAndGet(running.incrementAndGet(), Math::max);
+      try {
+        Thread.sleep(5);
+        String partitionID = nodeIds.get(0);
+        if (partitionID.equals(failingPartition)) {
+          throw new IOException("Cannot retrieve " + partitionID);
+        }
+        outputStream.write(content(partitionID).getBytes(StandardCharsets.UTF_8));
+        retrieved.incrementAndGet();
+      } catch (InterruptedException e) {
+        throw new IOException(e);
+      } finally {
+        running.decrementAndGet();
+      }
+    }
+
+    @Override
+    public String rawRetrieve(List<String> nodeIds, int limit) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<String> listPartitionsIDs() {
+      return partitionIDs;
+    }
+
+    @Override
+    public LionWebVersion getLionWebVersion() {
+      return LionWebVersion.currentVersion;
+    }
+
+    @Override
+    public List<String> ids(int count) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RepositoryVersionToken rawCreatePartitions(String data) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RepositoryVersionToken createPartitions(List<Node> partitions) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RepositoryVersionToken deletePartitions(List<String> ids) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Node> listPartitions() {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RepositoryVersionToken rawStore(String nodes) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public RepositoryVersionToken store(List<Node> nodes) {
+      throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public List<Node> retrieve(List<String> nodeIds, int limit) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static Map<String, String> readZip(File zip) throws IOException {
+    Map<String, String> entries = new HashMap<>();
+    try (ZipInputStream zis = new ZipInputStream(new FileInputStream(zip))) {
+      ZipEntry entry;
+      byte[] buffer = new byte[1024];
+      while ((entry = zis.getNextEntry()) != null) {
+        ByteArrayOutputStream content = new ByteArrayOutputStream();
+        int read;
+        while ((read = zis.read(buffer)) != -1) {
+          content.write(buffer, 0, read);
+        }
+        entries.put(entry.getName(), new String(content.toByteArray(), StandardCharsets.UTF_8));
+      }
+    }
+    return entries;
+  }
+
+  @Test
+  public void downloadRepoAsZipInParallel() throws IOException {
+    FakeClient client = new FakeClient(100);
+    RepoSerialization repoSerialization = new RepoSerialization();
+    repoSerialization.setDownloadConcurrency(8);
+    File temporaryDirectory = Files.createTempDirectory("partitions").toFile();
+    repoSerialization.setDownloadTemporaryDirectory(temporaryDirectory);
+    File zip = File.createTempFile("repo", ".zip");
+    zip.deleteOnExit();
+
+    repoSerialization.downloadRepoAsZip(client, zip);
+    assertEquals(0, temporaryDirectory.list().length);
+    temporaryDirectory.delete();
+
+    Map<String, String> entries = readZip(zip);
+    assertEquals(100, entries.size());
+    for (String partitionID : client.partitionIDs) {
+      assertEquals(FakeClient.content(partitionID), entries.get(partitionID + ".json"));
+    }
+    assertTrue(client.maxRunning.get() > 1);
+    assertTrue(client.maxRunning.get() <= 8);
+  }
+
+  @Test
+  public void downloadRepoAsDirectoryInParallel() throws IOException {
+    FakeClient client = new FakeClient(30);
+    RepoSerialization repoSerialization = new RepoSerialization();
+    repoSerialization.setDownloadConcurrency(4);
+    File directory = Files.createTempDirectory("repo").toFile();
+
+    repoSerialization.downloadRepoAsDirectory(client, directory);
+
+    for (String partitionID : client.partitionIDs) {
+      File file = new File(directory, partitionID + ".json");
+      assertEquals(
+          FakeClient.content(partitionID) + System.lineSeparator(),
+          new String(Files.readAllBytes(file.toPath()), StandardCharsets.UTF_8));
+      file.delete();
+    }
+    directory.delete();
+    assertTrue(client.maxRunning.get() <= 4);
+  }
+
+  @Test
+  public void sequentialDownloadIsTheDefault() throws IOException {
+    FakeClient client = new FakeClient(10);
+    File zip = File.createTempFile("repo", ".zip");
+    zip.deleteOnExit();
+
+    new RepoSerialization().downloadRepoAsZip(client, zip);
+
+    assertEquals(10, readZip(zip).size());
+    assertEquals(1, client.maxRunning.get());
+  }
+
+  @Test
+  public void downloadFailureIsReported() throws IOException {
+    FakeClient client = new FakeClient(50);
+    client.failingPartition = "p20";
+    RepoSerialization repoSerialization = new RepoSerialization();
+    repoSerialization.setDownloadConcurrency(4);
+    File temporaryDirectory = Files.createTempDirectory("partitions").toFile();
+    repoSerialization.setDownloadTemporaryDirectory(temporaryDirectory);
+    File zip = File.createTempFile("repo", ".zip");
+    zip.deleteOnExit();
+
+    IOException e =
+        assertThrows(IOException.class, () -> repoSerialization.downloadRepoAsZip(client, zip));
+    assertEquals("Cannot retrieve p20", e.getMessage());
+    assertEquals(0, temporaryDirectory.list().length);
+    temporaryDirectory.delete();
+  }
+
+  @Test
+  public void interruptedDownloadStopsTheWorkers() throws Exception {
+    FakeClient client = new FakeClient(1000);
+    RepoSerialization repoSerialization = new RepoSerialization();
+    repoSerialization.setDownloadConcurrency(4);
+    File temporaryDirectory = Files.createTempDirectory("partitions").toFile();
+    repoSerialization.setDownloadTemporaryDirectory(temporaryDirectory);
+    File zip = File.createTempFile("repo", ".zip");
+    zip.deleteOnExit();
+
+    Thread.currentThread().interrupt();
+    try {
+      assertThrows(
+          InterruptedIOException.class, () -> repoSerialization.downloadRepoAsZip(client, zip));
+    } finally {
+      Thread.interrupted();
+    }
+
+    long deadline = System.currentTimeMillis() + 10_000;
+    while (client.running.get() > 0 && System.currentTimeMillis() < deadline) {
+      Thread.sleep(10);
+    }
+    assertEquals(0, client.running.get());
+    int retrieved = client.retrieved.get();
+    Thread.sleep(100);
+    assertEquals(retrieved, client.retrieved.get());
+    assertTrue(retrieved < 1000);
+    // The partitions downloaded before the workers stopped are not left behind
+    assertEquals(0, temporaryDirectory.list().length);
+    temporaryDirectory.delete();
+  }
+
+  /** Records the bulk imports, failing after failAfter of them. */
+  private static class RecordingImportClient implements AdditionalAPIClient {
+    private final List<List<String>> batches = Collections.synchronizedList(new ArrayList<>());
+    private final int failAfter;
+
+    RecordingImportClient(int failAfter) {
+      this.failAfter = failAfter;
+    }
+
+    @Override
+    public void bulkImport(
+        BulkImport bulkImport, TransferFormat transferFormat, CompressionCodec compression)
+        throws IOException {
+      if (batches.size() >= failAfter) {
+        throw new IOException("Import failed");
+      }
+      List<String> ids = new ArrayList<>();
+      bulkImport.getNodes().forEach(n -> ids.add(n.getID()));
+      batches.add(ids);
+    }
+
+    @Override
+    public List<NodeInfo> getNodeTree(List<String> nodeIDs, Integer depthLimit) {
+      throw new UnsupportedOperationException();
+    }
+  }
+
+  private static File directoryWithPartitions(int partitions, int nodesPerPartition)
+      throws IOException {
+    File directory = Files.createTempDirectory("partitions").toFile();
+    directory.deleteOnExit();
+    for (int p = 0; p < partitions; p++) {
+      StringBuilder json =
+          new StringBuilder("{\"serializationFormatVersion\":\"2023.1\",\"languages\":[],");
+      json.append("\"nodes\":[");
+      for (int n = 0; n < nodesPerPartition; n++) {
+        if (n > 0) {
+          json.append(",");
+        }
+        json.append("{\"id\":\"p")
+            .append(p)
+            .append("-")
+            .append(n)
+            .append("\",\"classifier\":{\"language\":\"l\",\"version\":\"1\",\"key\":\"c\"},")
+            .append("\"properties\":[],\"containments\":[],\"references\":[],")
+            .append("\"annotations\":[],\"parent\":")
+            .append(n == 0 ? "null" : "\"p" + p + "-0\"")
+            .append("}");
+      }
+      json.append("]}");
+      File file = new File(directory, "p" + p + ".json");
+      file.deleteOnExit();
+      Files.write(file.toPath(), json.toString().getBytes(StandardCharsets.UTF_8));
+    }
+    return directory;
+  }
+
+  @Test
+  public void bulkImportIsPipelined() throws IOException {
+    File directory = directoryWithPartitions(40, 10);
+    RecordingImportClient client = new RecordingImportClient(Integer.MAX_VALUE);
+    List<ImportProgress> progress = Collections.synchronizedList(new ArrayList<>());
+    RepoSerialization repoSerialization = new RepoSerialization();
+    repoSerialization.setNumberOfNodesThreshold(50);
+    repoSerialization.setParserThreads(3);
+    repoSerialization.setSenderThreads(2);
+    repoSerialization.setProgressListener(progress::add);
+
+    repoSerialization.uploadDirectoryToRepoUsingBulkImport(client, directory);
+
+    Set<String> imported = new HashSet<>();
+    for (List<String> batch : client.batches) {
+      // Partitions are never split, and batches are cut as soon as they reach the threshold
+      assertEquals(0, batch.size() % 10);
+      assertTrue(batch.size() <= 50 + 10 * 2);
+      imported.addAll(batch);
+    }
+    assertEquals(400, imported.size());
+    ImportProgress last = progress.get(progress.size() - 1);
+    assertEquals(40, last.getFilesParsed());
+    assertEquals(400, last.getNodesSent());
+    assertEquals(client.batches.size(), last.getBatchesSent());
+    assertTrue(last.getBytesSent() > 0);
+  }
+
+  @Test
+  public void bulkImportBatchesAreLimitedInBytes() throws IOException {
+    File directory = directoryWithPartitions(10, 5);
+    RecordingImportClient client = new RecordingImportClient(Integer.MAX_VALUE);
+    RepoSerialization repoSerialization = new RepoSerialization();
+    repoSerialization.setBytesThreshold(1);
+
+    repoSerialization.uploadDirectoryToRepoUsingBulkImport(client, directory);
+
+    assertEquals(10, client.batches.size());
+  }
+
+  @Test
+  public void bulkImportFailureIsReported() throws IOException {
+    File directory = directoryWithPartitions(40, 10);
+    RecordingImportClient client = new RecordingImportClient(2);
+    RepoSerialization repoSerialization = new RepoSerialization();
+    repoSerialization.setNumberOfNodesThreshold(10);
+    repoSerialization.setParserThreads(2);
+    repoSerialization.setSenderThreads(2);
+
+    IOException e =
+        assertThrows(
+            IOException.class,
+            () -> repoSerialization.uploadDirectoryToRepoUsingBulkImport(client, directory));
+    assertEquals("Import failed", e.getMessage());
+    assertEquals(2, client.batches.size());
+  }
+}